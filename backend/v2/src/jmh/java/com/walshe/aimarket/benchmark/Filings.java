@@ -0,0 +1,43 @@
+package com.walshe.aimarket.benchmark;
+
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic synthetic filing text: paragraphs of sentences of varying length and punctuation,
+ * resembling the narrative sections of annual reports.
+ */
+public final class Filings {
+
+    private static final String[] SENTENCES = {
+        "Revenue increased 12% year over year, driven primarily by higher subscription volumes in North America.",
+        "Gross margin contracted by 80 basis points due to elevated freight costs and unfavorable product mix.",
+        "We continue to face risks related to interest rate volatility; a 100 basis point increase would raise annual interest expense by approximately $14 million.",
+        "Operating expenses as a percentage of revenue declined to 31.4%.",
+        "Management believes that existing cash, cash equivalents and marketable securities will be sufficient to meet liquidity needs for at least the next twelve months.",
+        "The Company is subject to legal proceedings arising in the ordinary course of business: none are expected to have a material adverse effect.",
+        "Foreign currency fluctuations reduced reported net sales by $52 million!",
+        "Did the impairment review identify any indicators of impairment?",
+        "Inventories are stated at the lower of cost or net realizable value, with cost determined on a first-in, first-out basis.",
+        "Capital expenditures were $1.2 billion, primarily for manufacturing capacity and data center infrastructure.",
+    };
+
+    private Filings() {}
+
+    /**
+     * @param sizeKb approximate size of the text, in kilobytes.
+     * @param seed seed of the sentence sequence.
+     */
+    public static String generate(int sizeKb, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int targetLength = sizeKb * 1024;
+        StringBuilder text = new StringBuilder(targetLength + 256);
+        while (text.length() < targetLength) {
+            int sentences = 3 + random.nextInt(6);
+            for (int i = 0; i < sentences; i++) {
+                text.append(SENTENCES[random.nextInt(SENTENCES.length)]).append(' ');
+            }
+            text.append(random.nextInt(4) == 0 ? "\r\n\r\n" : "\n\n");
+        }
+        return text.toString();
+    }
+}
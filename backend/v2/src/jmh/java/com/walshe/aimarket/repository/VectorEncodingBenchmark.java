@@ -0,0 +1,87 @@
+package com.walshe.aimarket.repository;
+
+import com.pgvector.PGvector;
+import com.walshe.aimarket.domain.Document;
+import com.walshe.aimarket.domain.DocumentChunk;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encoding of 1536-dimension embeddings for the database: the pgvector text literal that queries and inserts
+ * used to bind, the binary form bound now, and a binary COPY of one ingestion batch.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class VectorEncodingBenchmark {
+
+    private static final int DIMENSION = 1536;
+    private static final int BATCH_SIZE = 64;
+
+    private float[] embedding;
+    private byte[] buffer;
+    private List<DocumentChunk> batch;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(3L);
+        embedding = randomEmbedding(random);
+        buffer = new byte[new PGvector(embedding).lengthInBytes()];
+        Document document = new Document().id(1L);
+        batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            DocumentChunk chunk = new DocumentChunk()
+                .chunkIndex(i)
+                .chunkText("Revenue increased 12% year over year, driven primarily by higher subscription volumes. ".repeat(8))
+                .embeddingModel("text-embedding-3-small")
+                .contentHash("0".repeat(64))
+                .createdAt(Instant.now())
+                .document(document)
+                .embedding(randomEmbedding(random));
+            chunk.setId(1000L + i);
+            batch.add(chunk);
+        }
+    }
+
+    @Benchmark
+    public String textLiteral() {
+        return new PGvector(embedding).toString();
+    }
+
+    @Benchmark
+    public byte[] binary() {
+        new PGvector(embedding).toBytes(buffer, 0);
+        return buffer;
+    }
+
+    @Benchmark
+    public void copyBatch() throws IOException {
+        DocumentChunkRepositoryCustomImpl.writeCopy(OutputStream.nullOutputStream(), batch);
+    }
+
+    private static float[] randomEmbedding(SplittableRandom random) {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) (random.nextDouble() * 2 - 1) / 40;
+        }
+        return vector;
+    }
+}
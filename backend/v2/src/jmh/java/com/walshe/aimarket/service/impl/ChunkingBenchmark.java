@@ -0,0 +1,45 @@
+package com.walshe.aimarket.service.impl;
+
+import com.walshe.aimarket.benchmark.Filings;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link SimpleChunkingService#chunk(String)} on filings from 10 KB to 5 MB.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ChunkingBenchmark {
+
+    @Param({ "10", "100", "1024", "5120" })
+    int sizeKb;
+
+    private SimpleChunkingService chunkingService;
+    private String filing;
+
+    @Setup
+    public void setUp() {
+        chunkingService = new SimpleChunkingService();
+        filing = Filings.generate(sizeKb, 1L);
+    }
+
+    @Benchmark
+    public List<String> chunk() {
+        return chunkingService.chunk(filing);
+    }
+}
@@ -0,0 +1,44 @@
+package com.walshe.aimarket.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing of the completion model's JSON answer by {@link AnalysisServiceImpl#parseModelJson(String)}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ParseModelJsonBenchmark {
+
+    private static final String MODEL_RESPONSE =
+        "{\"summary\":\"Revenue grew 12% year over year while gross margin contracted by 80 basis points on freight costs and mix. " +
+        "Liquidity remains adequate for the next twelve months.\",\"riskFactors\":[\"Interest rate volatility\",\"Foreign currency fluctuations\"," +
+        "\"Elevated freight costs\",\"Customer concentration\"],\"confidenceScore\":0.82,\"modelUsed\":\"gpt-4o-mini\",\"tokensUsed\":1420}";
+
+    private AnalysisServiceImpl analysisService;
+
+    @Setup
+    public void setUp() {
+        // Only the ObjectMapper is used when parsing
+        analysisService = new AnalysisServiceImpl(null, null, null, null, null, new ObjectMapper(), null);
+    }
+
+    @Benchmark
+    public AnalysisServiceImpl.ParsedModelResponse parseModelJson() {
+        return analysisService.parseModelJson(MODEL_RESPONSE);
+    }
+}
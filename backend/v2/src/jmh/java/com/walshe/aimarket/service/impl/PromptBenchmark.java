@@ -0,0 +1,73 @@
+package com.walshe.aimarket.service.impl;
+
+import com.walshe.aimarket.benchmark.Filings;
+import com.walshe.aimarket.config.PromptProperties;
+import com.walshe.aimarket.domain.DocumentChunk;
+import com.walshe.aimarket.service.PromptBuilderService;
+import com.walshe.aimarket.service.dto.PromptDefinition;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Prompt construction per analysis request: {@link PromptBuilderServiceImpl#buildPrompt(String, List)} over
+ * {@code topK} retrieved chunks, and the template rendering it delegates to.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PromptBenchmark {
+
+    private static final String QUERY = "What are the main liquidity risks and how did gross margin develop?";
+
+    /**
+     * Same shape as the analysis prompt in application.yml.
+     */
+    private static final PromptDefinition ANALYSIS_PROMPT = new PromptDefinition(
+        "You are a financial analysis assistant. Use only the provided context to answer. If the context is insufficient, say you don't know. Be concise and objective.",
+        "[SYSTEM]\n{systemPrompt}\n\n[CONTEXT]\n{context}\n\n[USER QUERY]\n{query}\n\n[OUTPUT FORMAT]\nReturn a strictly valid JSON object with the following fields: summary (string), riskFactors (array of strings), confidenceScore (number between 0 and 1), modelUsed (string), tokensUsed (integer). Do not include markdown fences or extra commentary."
+    );
+
+    @Param({ "5", "20" })
+    int topK;
+
+    private PromptServiceImpl promptService;
+    private PromptBuilderServiceImpl promptBuilderService;
+    private List<DocumentChunk> chunks;
+    private Map<String, String> variables;
+
+    @Setup
+    public void setUp() {
+        PromptProperties properties = new PromptProperties();
+        properties.setDefinitions(Map.of(PromptBuilderService.ANALYSIS_PROMPT_KEY, ANALYSIS_PROMPT));
+        promptService = new PromptServiceImpl(properties);
+        promptBuilderService = new PromptBuilderServiceImpl(promptService);
+        // Chunks of roughly the size SimpleChunkingService produces
+        chunks = new SimpleChunkingService().chunk(Filings.generate(64, 2L)).stream().limit(topK).map(text -> new DocumentChunk().chunkText(text)).toList();
+        variables = Map.of("context", String.join("\n", chunks.stream().map(DocumentChunk::getChunkText).toList()), "query", QUERY);
+    }
+
+    @Benchmark
+    public String buildPrompt() {
+        return promptBuilderService.buildPrompt(QUERY, chunks);
+    }
+
+    @Benchmark
+    public String renderPrompt() {
+        return promptService.renderPrompt(PromptBuilderService.ANALYSIS_PROMPT_KEY, variables);
+    }
+}
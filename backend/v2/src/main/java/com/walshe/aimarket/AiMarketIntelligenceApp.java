@@ -1,8 +1,15 @@
 package com.walshe.aimarket;
 
+import com.walshe.aimarket.config.AnalysisCacheProperties;
 import com.walshe.aimarket.config.ApplicationProperties;
+import com.walshe.aimarket.config.ChunkingProperties;
+import com.walshe.aimarket.config.CostLogProperties;
+import com.walshe.aimarket.config.CostRollupProperties;
 import com.walshe.aimarket.config.CRLFLogConverter;
+import com.walshe.aimarket.config.EmbeddingCacheProperties;
 import com.walshe.aimarket.config.EmbeddingProperties;
+import com.walshe.aimarket.config.IngestionProperties;
+import com.walshe.aimarket.config.LiveMetricsProperties;
 import com.walshe.aimarket.config.LlmProperties;
 import com.walshe.aimarket.config.PromptProperties;
 import com.walshe.aimarket.config.RetrievalProperties;
@@ -31,7 +38,7 @@ import org.springframework.kafka.annotation.EnableKafka;
 
 @SpringBootApplication
 @EnableKafka
-@EnableConfigurationProperties({ LiquibaseProperties.class, ApplicationProperties.class, EmbeddingProperties.class, LlmProperties.class, RetrievalProperties.class, PromptProperties.class })
+@EnableConfigurationProperties({ LiquibaseProperties.class, ApplicationProperties.class, EmbeddingProperties.class, LlmProperties.class, RetrievalProperties.class, PromptProperties.class, IngestionProperties.class, EmbeddingCacheProperties.class, AnalysisCacheProperties.class, ChunkingProperties.class, LiveMetricsProperties.class, CostLogProperties.class, CostRollupProperties.class })
 public class AiMarketIntelligenceApp {
 
     private static final Logger LOG = LoggerFactory.getLogger(AiMarketIntelligenceApp.class);
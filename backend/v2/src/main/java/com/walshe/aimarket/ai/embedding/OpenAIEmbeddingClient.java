@@ -2,6 +2,7 @@ package com.walshe.aimarket.ai.embedding;
 
 import com.walshe.aimarket.config.EmbeddingProperties;
 import com.walshe.aimarket.service.CostTrackingService;
+import com.walshe.aimarket.service.embedding.EmbeddingCache;
 import java.util.List;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
@@ -16,10 +17,17 @@ public class OpenAIEmbeddingClient implements EmbeddingClient {
     private final RestClient restClient;
     private final EmbeddingProperties properties;
     private final CostTrackingService costTrackingService;
+    private final EmbeddingCache embeddingCache;
 
-    public OpenAIEmbeddingClient(RestClient.Builder restClientBuilder, EmbeddingProperties properties, CostTrackingService costTrackingService) {
+    public OpenAIEmbeddingClient(
+        RestClient.Builder restClientBuilder,
+        EmbeddingProperties properties,
+        CostTrackingService costTrackingService,
+        EmbeddingCache embeddingCache
+    ) {
         this.properties = properties;
         this.costTrackingService = costTrackingService;
+        this.embeddingCache = embeddingCache;
         this.restClient = restClientBuilder
             .baseUrl(properties.baseUrl())
             .defaultHeader("Authorization", "Bearer " + properties.apiKey())
@@ -28,6 +36,11 @@ public class OpenAIEmbeddingClient implements EmbeddingClient {
 
     @Override
     public float[] generateEmbedding(String text) {
+        float[] cached = embeddingCache.get(properties.modelName(), text);
+        if (cached != null) {
+            return cached;
+        }
+
         // Use the configured EMBEDDING model (e.g. text-embedding-3-small)
         // This model converts text to a mathematical vector for semantic search.
         EmbeddingRequest request = new EmbeddingRequest(properties.modelName(), text);
@@ -57,7 +70,9 @@ public class OpenAIEmbeddingClient implements EmbeddingClient {
             );
         }
 
-        return response.data().get(0).embedding();
+        float[] embedding = response.data().get(0).embedding();
+        embeddingCache.put(properties.modelName(), text, embedding);
+        return embedding;
     }
 
     private record EmbeddingRequest(String model, String input) {}
@@ -0,0 +1,73 @@
+package com.walshe.aimarket.config;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Properties for the semantic cache of analysis answers.
+ */
+@ConfigurationProperties(prefix = "application.analysis.cache")
+@Validated
+public class AnalysisCacheProperties {
+
+    /**
+     * Whether answers are served from the cache for semantically similar queries.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Minimum cosine similarity between a new query and a cached one for the cached answer to be served.
+     */
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    private double similarityThreshold = 0.97;
+
+    /**
+     * Maximum number of cached answers; the least recently used are evicted first.
+     */
+    @Min(1)
+    private int maxEntries = 1000;
+
+    /**
+     * How long a cached answer may be served.
+     */
+    @NotNull
+    private Duration ttl = Duration.ofHours(1);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public double getSimilarityThreshold() {
+        return similarityThreshold;
+    }
+
+    public void setSimilarityThreshold(double similarityThreshold) {
+        this.similarityThreshold = similarityThreshold;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+}
@@ -0,0 +1,80 @@
+package com.walshe.aimarket.config;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Properties for splitting documents into chunks.
+ */
+@ConfigurationProperties(prefix = "application.chunking")
+@Validated
+public class ChunkingProperties {
+
+    public enum Strategy {
+        /**
+         * Packs whole sentences into chunks of at most 800 characters.
+         */
+        SENTENCE,
+        /**
+         * Packs whole sentences into chunks of at most {@code maxTokens} tokens, overlapping consecutive chunks.
+         */
+        TOKEN
+    }
+
+    @NotNull
+    private Strategy strategy = Strategy.SENTENCE;
+
+    /**
+     * BPE encoding used to count tokens; cl100k_base matches the OpenAI embedding models.
+     */
+    @NotBlank
+    private String encoding = "cl100k_base";
+
+    /**
+     * Maximum number of tokens in a chunk, for the token strategy.
+     */
+    @Min(1)
+    private int maxTokens = 512;
+
+    /**
+     * Tokens of trailing sentences repeated at the start of the next chunk, for the token strategy.
+     * Must be lower than {@code maxTokens}.
+     */
+    @Min(0)
+    private int overlapTokens = 64;
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    public void setStrategy(Strategy strategy) {
+        this.strategy = strategy;
+    }
+
+    public String getEncoding() {
+        return encoding;
+    }
+
+    public void setEncoding(String encoding) {
+        this.encoding = encoding;
+    }
+
+    public int getMaxTokens() {
+        return maxTokens;
+    }
+
+    public void setMaxTokens(int maxTokens) {
+        this.maxTokens = maxTokens;
+    }
+
+    public int getOverlapTokens() {
+        return overlapTokens;
+    }
+
+    public void setOverlapTokens(int overlapTokens) {
+        this.overlapTokens = overlapTokens;
+    }
+}
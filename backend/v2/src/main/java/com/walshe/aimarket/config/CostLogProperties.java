@@ -0,0 +1,59 @@
+package com.walshe.aimarket.config;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Properties for the monthly partitions of the cost_log table.
+ */
+@ConfigurationProperties(prefix = "application.cost-log")
+@Validated
+public class CostLogProperties {
+
+    /**
+     * Months of cost logs kept, including the current one; older partitions are dropped whole.
+     * Aggregates in the cost rollup are kept regardless.
+     */
+    @Min(1)
+    private int retentionMonths = 13;
+
+    /**
+     * Months after the current one for which partitions are created in advance.
+     */
+    @Min(1)
+    private int partitionsAhead = 3;
+
+    /**
+     * How long after it was stored a cost event is recognised and dropped if delivered again. Must cover the
+     * retention of the cost-logs topic, which is created with this retention, and fit in the kept months.
+     */
+    @NotNull
+    private Duration dedupWindow = Duration.ofDays(7);
+
+    public int getRetentionMonths() {
+        return retentionMonths;
+    }
+
+    public void setRetentionMonths(int retentionMonths) {
+        this.retentionMonths = retentionMonths;
+    }
+
+    public int getPartitionsAhead() {
+        return partitionsAhead;
+    }
+
+    public void setPartitionsAhead(int partitionsAhead) {
+        this.partitionsAhead = partitionsAhead;
+    }
+
+    public Duration getDedupWindow() {
+        return dedupWindow;
+    }
+
+    public void setDedupWindow(Duration dedupWindow) {
+        this.dedupWindow = dedupWindow;
+    }
+}
@@ -0,0 +1,42 @@
+package com.walshe.aimarket.config;
+
+import jakarta.validation.constraints.NotNull;
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Properties for the retention of the cost rollup. Day buckets are kept regardless.
+ */
+@ConfigurationProperties(prefix = "application.metrics.rollup")
+@Validated
+public class CostRollupProperties {
+
+    /**
+     * How long minute buckets are kept.
+     */
+    @NotNull
+    private Duration minuteRetention = Duration.ofDays(2);
+
+    /**
+     * How long hour buckets are kept.
+     */
+    @NotNull
+    private Duration hourRetention = Duration.ofDays(90);
+
+    public Duration getMinuteRetention() {
+        return minuteRetention;
+    }
+
+    public void setMinuteRetention(Duration minuteRetention) {
+        this.minuteRetention = minuteRetention;
+    }
+
+    public Duration getHourRetention() {
+        return hourRetention;
+    }
+
+    public void setHourRetention(Duration hourRetention) {
+        this.hourRetention = hourRetention;
+    }
+}
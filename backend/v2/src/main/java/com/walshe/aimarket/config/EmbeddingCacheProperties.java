@@ -0,0 +1,84 @@
+package com.walshe.aimarket.config;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Properties for the embedding cache shared by document ingestion and query embedding.
+ */
+@ConfigurationProperties(prefix = "application.embedding.cache")
+@Validated
+public class EmbeddingCacheProperties {
+
+    /**
+     * Whether embeddings are looked up in (and stored to) the cache before calling the provider.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Number of embeddings kept on the JVM heap.
+     */
+    @Min(1)
+    private long heapEntries = 1000;
+
+    /**
+     * Size of the off-heap tier behind the heap tier; zero disables it.
+     */
+    @NotNull
+    private DataSize offHeapSize = DataSize.ofMegabytes(64);
+
+    /**
+     * Whether embeddings are also persisted to the database, so they survive restarts and are shared across instances.
+     */
+    private boolean persistent = true;
+
+    /**
+     * Persisted embeddings not read for this long are deleted by a daily job.
+     */
+    @NotNull
+    private Duration retention = Duration.ofDays(90);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getHeapEntries() {
+        return heapEntries;
+    }
+
+    public void setHeapEntries(long heapEntries) {
+        this.heapEntries = heapEntries;
+    }
+
+    public DataSize getOffHeapSize() {
+        return offHeapSize;
+    }
+
+    public void setOffHeapSize(DataSize offHeapSize) {
+        this.offHeapSize = offHeapSize;
+    }
+
+    public boolean isPersistent() {
+        return persistent;
+    }
+
+    public void setPersistent(boolean persistent) {
+        this.persistent = persistent;
+    }
+
+    public Duration getRetention() {
+        return retention;
+    }
+
+    public void setRetention(Duration retention) {
+        this.retention = retention;
+    }
+}
@@ -1,16 +1,23 @@
 package com.walshe.aimarket.config;
 
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
 import org.springframework.validation.annotation.Validated;
 
 /**
  * Properties for OpenAI embedding API.
+ *
+ * @param maxBatchInputs maximum number of inputs sent in a single batch embedding request
+ * @param maxBatchTokens maximum number of tokens sent in a single batch embedding request, counted with the local tokenizer
  */
 @ConfigurationProperties(prefix = "application.embedding.openai")
 @Validated
 public record EmbeddingProperties(
     @NotBlank String apiKey,
     @NotBlank String modelName,
-    @NotBlank String baseUrl
+    @NotBlank String baseUrl,
+    @DefaultValue("256") @Min(1) int maxBatchInputs,
+    @DefaultValue("300000") @Min(1) int maxBatchTokens
 ) {}
@@ -0,0 +1,184 @@
+package com.walshe.aimarket.config;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Properties for the document ingestion pipeline.
+ */
+@ConfigurationProperties(prefix = "application.ingestion")
+@Validated
+public class IngestionProperties {
+
+    /**
+     * Number of chunks handed to the embedding stage as one batch.
+     */
+    @Min(1)
+    private int batchSize = 64;
+
+    /**
+     * Maximum number of embedding requests in flight across all ingestions.
+     */
+    @Min(1)
+    private int embeddingConcurrency = 4;
+
+    /**
+     * Capacity (in batches) of the queues between pipeline stages.
+     */
+    @Min(1)
+    private int queueCapacity = 8;
+
+    /**
+     * Retries of a batch rejected by the provider's rate limiter (HTTP 429).
+     */
+    @Min(0)
+    private int maxRetries = 5;
+
+    /**
+     * Initial back-off when the provider does not send a Retry-After header; doubled on each retry.
+     */
+    @NotNull
+    private Duration retryBackoff = Duration.ofMillis(500);
+
+    /**
+     * Whether re-ingestion reuses the embeddings of chunks whose text is unchanged.
+     */
+    private boolean incremental = true;
+
+    /**
+     * Number of ingestion jobs processed concurrently by this instance.
+     */
+    @Min(1)
+    private int jobWorkers = 2;
+
+    /**
+     * Delay between polls of the ingestion job queue.
+     */
+    @NotNull
+    private Duration jobPollInterval = Duration.ofSeconds(1);
+
+    /**
+     * How long a running job stays claimed by its instance without a heartbeat; once expired, the job is queued again.
+     */
+    @NotNull
+    private Duration jobLease = Duration.ofMinutes(2);
+
+    /**
+     * Delay between renewals of the leases of the jobs running on this instance; well below {@code jobLease}.
+     */
+    @NotNull
+    private Duration jobHeartbeatInterval = Duration.ofSeconds(30);
+
+    /**
+     * Number of documents of a bulk request ingested concurrently. Embedding requests stay capped by
+     * {@code embeddingConcurrency}, so extra workers overlap chunking and persistence with embedding.
+     */
+    @Min(1)
+    private int bulkWorkers = 8;
+
+    /**
+     * Largest uncompressed file of a bulk zip archive; reading the archive stops at a larger file.
+     */
+    @NotNull
+    private DataSize maxArchiveEntrySize = DataSize.ofMegabytes(64);
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getEmbeddingConcurrency() {
+        return embeddingConcurrency;
+    }
+
+    public void setEmbeddingConcurrency(int embeddingConcurrency) {
+        this.embeddingConcurrency = embeddingConcurrency;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    public Duration getRetryBackoff() {
+        return retryBackoff;
+    }
+
+    public void setRetryBackoff(Duration retryBackoff) {
+        this.retryBackoff = retryBackoff;
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    public int getJobWorkers() {
+        return jobWorkers;
+    }
+
+    public void setJobWorkers(int jobWorkers) {
+        this.jobWorkers = jobWorkers;
+    }
+
+    public Duration getJobPollInterval() {
+        return jobPollInterval;
+    }
+
+    public void setJobPollInterval(Duration jobPollInterval) {
+        this.jobPollInterval = jobPollInterval;
+    }
+
+    public Duration getJobLease() {
+        return jobLease;
+    }
+
+    public void setJobLease(Duration jobLease) {
+        this.jobLease = jobLease;
+    }
+
+    public Duration getJobHeartbeatInterval() {
+        return jobHeartbeatInterval;
+    }
+
+    public void setJobHeartbeatInterval(Duration jobHeartbeatInterval) {
+        this.jobHeartbeatInterval = jobHeartbeatInterval;
+    }
+
+    public int getBulkWorkers() {
+        return bulkWorkers;
+    }
+
+    public void setBulkWorkers(int bulkWorkers) {
+        this.bulkWorkers = bulkWorkers;
+    }
+
+    public DataSize getMaxArchiveEntrySize() {
+        return maxArchiveEntrySize;
+    }
+
+    public void setMaxArchiveEntrySize(DataSize maxArchiveEntrySize) {
+        this.maxArchiveEntrySize = maxArchiveEntrySize;
+    }
+}
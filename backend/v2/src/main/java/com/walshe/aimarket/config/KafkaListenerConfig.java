@@ -0,0 +1,59 @@
+package com.walshe.aimarket.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.ExponentialBackOffWithMaxRetries;
+
+/**
+ * Listener container factories for listeners that need error handling other than Spring Boot's default.
+ */
+@Configuration
+public class KafkaListenerConfig {
+
+    /**
+     * Factory of the cost log listener. A batch that fails, e.g. while the database is unavailable, is retried with
+     * exponential backoff up to {@code application.kafka.cost-logs.max-retries} times, the consumer staying paused;
+     * after that its records are published to the {@code <topic>.DLT} dead-letter topic rather than dropped. They can
+     * be replayed from there, since already stored events are skipped.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> costLogListenerContainerFactory(
+        ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+        ConsumerFactory<Object, Object> consumerFactory,
+        KafkaTemplate<Object, Object> kafkaTemplate,
+        @Value("${application.kafka.cost-logs.max-retries:8}") int maxRetries
+    ) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        ExponentialBackOffWithMaxRetries backOff = new ExponentialBackOffWithMaxRetries(maxRetries);
+        backOff.setInitialInterval(1_000);
+        backOff.setMultiplier(2);
+        backOff.setMaxInterval(60_000);
+        factory.setCommonErrorHandler(new DefaultErrorHandler(new DeadLetterPublishingRecoverer(kafkaTemplate), backOff));
+        return factory;
+    }
+
+    /**
+     * Factory of the live cost metrics listener, which is assigned all partitions itself rather than joining a consumer
+     * group. Offsets are never committed: no listener acknowledges in {@code MANUAL} mode, so the brokers keep no group
+     * for it.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> liveCostMetricsListenerContainerFactory(
+        ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+        ConsumerFactory<Object, Object> consumerFactory
+    ) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        return factory;
+    }
+}
@@ -1,6 +1,7 @@
 package com.walshe.aimarket.config;
 
 import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.config.TopicConfig;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -12,11 +13,39 @@ public class KafkaTopicConfig {
     @Value("${application.kafka.topics.cost-logs:ai-cost-logs}")
     private String topicName;
 
+    /**
+     * Upper bound of the consumer threads across all instances; KafkaAdmin adds partitions to an existing topic
+     * but never removes any. Adding partitions moves keys, so events of a correlation id sent before and after
+     * may be consumed by different threads; the primary key of cost_log_dedup still drops their duplicates.
+     */
+    @Value("${application.kafka.cost-logs.partitions:6}")
+    private int partitions;
+
+    @Value("${application.kafka.cost-logs.replicas:1}")
+    private short replicas;
+
+    /**
+     * Records are kept as long as cost_log_dedup recognises their events, so that replaying the topic from the
+     * earliest offset stores nothing twice. KafkaAdmin applies the retention when it creates the topic only.
+     */
     @Bean
-    public NewTopic costLogsTopic() {
+    public NewTopic costLogsTopic(CostLogProperties costLogProperties) {
         return TopicBuilder.name(topicName)
-            .partitions(1)
-            .replicas(1)
+            .partitions(partitions)
+            .replicas(replicas)
+            .config(TopicConfig.RETENTION_MS_CONFIG, String.valueOf(costLogProperties.getDedupWindow().toMillis()))
+            .build();
+    }
+
+    /**
+     * Dead-letter topic of the cost log listener (see {@link KafkaListenerConfig}); records keep their partition, so it
+     * has as many partitions as the topic.
+     */
+    @Bean
+    public NewTopic costLogsDltTopic() {
+        return TopicBuilder.name(topicName + ".DLT")
+            .partitions(partitions)
+            .replicas(replicas)
             .build();
     }
 }
@@ -0,0 +1,55 @@
+package com.walshe.aimarket.config;
+
+import jakarta.validation.constraints.NotNull;
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Properties for the in-memory, windowed aggregation of cost events.
+ */
+@ConfigurationProperties(prefix = "application.metrics.live")
+@Validated
+public class LiveMetricsProperties {
+
+    /**
+     * Whether this instance consumes the cost log topic to keep live cost windows.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Length of each tumbling window.
+     */
+    @NotNull
+    private Duration window = Duration.ofMinutes(1);
+
+    /**
+     * How long windows are kept; older ones are dropped, as are events arriving for them.
+     */
+    @NotNull
+    private Duration retention = Duration.ofHours(1);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getWindow() {
+        return window;
+    }
+
+    public void setWindow(Duration window) {
+        this.window = window;
+    }
+
+    public Duration getRetention() {
+        return retention;
+    }
+
+    public void setRetention(Duration retention) {
+        this.retention = retention;
+    }
+}
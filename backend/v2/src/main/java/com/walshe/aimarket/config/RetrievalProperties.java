@@ -1,6 +1,13 @@
 package com.walshe.aimarket.config;
 
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import java.time.Duration;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.validation.annotation.Validated;
 
@@ -14,6 +21,30 @@ public class RetrievalProperties {
     @Min(1)
     private int defaultTopK = 5;
 
+    /**
+     * Engine answering similarity searches.
+     */
+    @NotNull
+    private Engine engine = Engine.PGVECTOR;
+
+    /**
+     * pgvector iterative index scan used by filtered searches.
+     */
+    @NotNull
+    private IterativeScan iterativeScan = IterativeScan.RELAXED_ORDER;
+
+    @Valid
+    private final Hnsw hnsw = new Hnsw();
+
+    @Valid
+    private final Hybrid hybrid = new Hybrid();
+
+    @Valid
+    private final Pgvector pgvector = new Pgvector();
+
+    @Valid
+    private final Rerank rerank = new Rerank();
+
     public int getDefaultTopK() {
         return defaultTopK;
     }
@@ -21,4 +52,382 @@ public class RetrievalProperties {
     public void setDefaultTopK(int defaultTopK) {
         this.defaultTopK = defaultTopK;
     }
+
+    public Engine getEngine() {
+        return engine;
+    }
+
+    public void setEngine(Engine engine) {
+        this.engine = engine;
+    }
+
+    public IterativeScan getIterativeScan() {
+        return iterativeScan;
+    }
+
+    public void setIterativeScan(IterativeScan iterativeScan) {
+        this.iterativeScan = iterativeScan;
+    }
+
+    public Hnsw getHnsw() {
+        return hnsw;
+    }
+
+    public Hybrid getHybrid() {
+        return hybrid;
+    }
+
+    public Pgvector getPgvector() {
+        return pgvector;
+    }
+
+    public Rerank getRerank() {
+        return rerank;
+    }
+
+    public enum Engine {
+        /**
+         * Native query against the pgvector index of document_chunk.
+         */
+        PGVECTOR,
+        /**
+         * In-process HNSW index built from document_chunk at startup.
+         */
+        HNSW
+    }
+
+    /**
+     * Values of pgvector's {@code hnsw.iterative_scan} setting.
+     */
+    public enum IterativeScan {
+        /**
+         * Leave the setting alone, e.g. for pgvector before 0.8; selective filters may then return fewer results.
+         */
+        OFF,
+        /**
+         * Keep scanning until enough rows pass the filter, returning them in exact distance order.
+         */
+        STRICT_ORDER,
+        /**
+         * Keep scanning until enough rows pass the filter; rows may come slightly out of order and are sorted again.
+         */
+        RELAXED_ORDER
+    }
+
+    /**
+     * Parameters of the in-process HNSW index.
+     */
+    public static class Hnsw {
+
+        /**
+         * Maximum neighbours per node (twice that on the bottom level).
+         */
+        @Min(2)
+        private int m = 16;
+
+        /**
+         * Candidate list size while building the graph.
+         */
+        @Min(1)
+        private int efConstruction = 200;
+
+        /**
+         * Candidate list size while searching; larger values trade latency for recall.
+         */
+        @Min(1)
+        private int efSearch = 100;
+
+        /**
+         * How often the index is reconciled with document_chunk, picking up changes committed by other instances.
+         */
+        @NotNull
+        private Duration syncInterval = Duration.ofMinutes(1);
+
+        public int getM() {
+            return m;
+        }
+
+        public void setM(int m) {
+            this.m = m;
+        }
+
+        public int getEfConstruction() {
+            return efConstruction;
+        }
+
+        public void setEfConstruction(int efConstruction) {
+            this.efConstruction = efConstruction;
+        }
+
+        public int getEfSearch() {
+            return efSearch;
+        }
+
+        public void setEfSearch(int efSearch) {
+            this.efSearch = efSearch;
+        }
+
+        public Duration getSyncInterval() {
+            return syncInterval;
+        }
+
+        public void setSyncInterval(Duration syncInterval) {
+            this.syncInterval = syncInterval;
+        }
+    }
+
+    /**
+     * Parameters of hybrid (full-text + vector) retrieval.
+     */
+    public static class Hybrid {
+
+        /**
+         * Whether queries with text are answered by fusing full-text and vector rankings.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Length of each ranked list before fusion; must exceed topK for fusion to reorder anything.
+         */
+        @Min(1)
+        private int candidates = 40;
+
+        /**
+         * Reciprocal rank fusion constant; larger values flatten the advantage of top ranks.
+         */
+        @Min(1)
+        private int rrfK = 60;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getCandidates() {
+            return candidates;
+        }
+
+        public void setCandidates(int candidates) {
+            this.candidates = candidates;
+        }
+
+        public int getRrfK() {
+            return rrfK;
+        }
+
+        public void setRrfK(int rrfK) {
+            this.rrfK = rrfK;
+        }
+    }
+
+    /**
+     * Vector precision of the pgvector HNSW index. The table always keeps full-precision vectors for re-ranking.
+     */
+    public enum Quantization {
+        /**
+         * float32 vectors, about 6 KB each.
+         */
+        NONE,
+        /**
+         * float16 vectors, half the index size, with near-identical ranking.
+         */
+        HALFVEC,
+        /**
+         * One bit per dimension compared by Hamming distance, 1/32 of the index size; needs re-ranking of more candidates.
+         */
+        BINARY
+    }
+
+    /**
+     * Parameters of the pgvector HNSW index on document_chunk.embedding.
+     */
+    public static class Pgvector {
+
+        /**
+         * {@code hnsw.ef_search} of searches without a per-request value; null keeps the server setting (40 by default).
+         * Raised to the number of requested results when lower, since a scan returns at most ef_search rows.
+         */
+        @Min(1)
+        @Max(1000)
+        private Integer efSearch;
+
+        /**
+         * Maximum connections per node of rebuilt indexes.
+         */
+        @Min(2)
+        @Max(100)
+        private int m = 16;
+
+        /**
+         * Candidate list size while building rebuilt indexes.
+         */
+        @Min(4)
+        @Max(1000)
+        private int efConstruction = 64;
+
+        /**
+         * {@code maintenance_work_mem} of index builds, e.g. 2GB; builds are much faster while the graph fits.
+         * Null keeps the server setting.
+         */
+        @Pattern(regexp = "\\d+\\s*(kB|MB|GB|TB)")
+        private String maintenanceWorkMem;
+
+        /**
+         * Precision of the vectors in the HNSW index: set up by Liquibase on first deployment, changed later through a
+         * rebuild of the index. Searches follow the definition of the serving index once it has been read, and only
+         * use this value before that.
+         */
+        @NotNull
+        private Quantization quantization = Quantization.NONE;
+
+        /**
+         * How often the definition of the serving index is read again, picking up rebuilds done by other instances.
+         */
+        @NotNull
+        private Duration indexCheckInterval = Duration.ofMinutes(1);
+
+        /**
+         * Candidates fetched through a quantized index and re-ranked by their full-precision distance.
+         */
+        @Min(1)
+        @Max(1000)
+        private int rerankCandidates = 100;
+
+        public Integer getEfSearch() {
+            return efSearch;
+        }
+
+        public void setEfSearch(Integer efSearch) {
+            this.efSearch = efSearch;
+        }
+
+        public int getM() {
+            return m;
+        }
+
+        public void setM(int m) {
+            this.m = m;
+        }
+
+        public int getEfConstruction() {
+            return efConstruction;
+        }
+
+        public void setEfConstruction(int efConstruction) {
+            this.efConstruction = efConstruction;
+        }
+
+        public String getMaintenanceWorkMem() {
+            return maintenanceWorkMem;
+        }
+
+        public void setMaintenanceWorkMem(String maintenanceWorkMem) {
+            this.maintenanceWorkMem = maintenanceWorkMem;
+        }
+
+        public Quantization getQuantization() {
+            return quantization;
+        }
+
+        public void setQuantization(Quantization quantization) {
+            this.quantization = quantization;
+        }
+
+        public Duration getIndexCheckInterval() {
+            return indexCheckInterval;
+        }
+
+        public void setIndexCheckInterval(Duration indexCheckInterval) {
+            this.indexCheckInterval = indexCheckInterval;
+        }
+
+        public int getRerankCandidates() {
+            return rerankCandidates;
+        }
+
+        public void setRerankCandidates(int rerankCandidates) {
+            this.rerankCandidates = rerankCandidates;
+        }
+    }
+
+    /**
+     * Parameters of the re-ranking stage selecting the prompt context from the retrieved candidates.
+     */
+    public static class Rerank {
+
+        /**
+         * Whether analyses over-fetch candidates and keep the most relevant, least redundant of them.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Candidates retrieved for re-ranking; raised to topK when lower.
+         */
+        @Min(1)
+        private int candidates = 20;
+
+        /**
+         * Trade-off between relevance (1.0) and diversity (0.0) of the selected chunks.
+         */
+        @DecimalMin("0.0")
+        @DecimalMax("1.0")
+        private double lambda = 0.7;
+
+        /**
+         * Share of a chunk's relevance coming from its coverage of the query terms rather than its vector distance.
+         */
+        @DecimalMin("0.0")
+        @DecimalMax("1.0")
+        private double lexicalWeight = 0.3;
+
+        /**
+         * Term overlap (Jaccard) above which a chunk counts as a duplicate of an already selected one and is dropped.
+         */
+        @DecimalMin("0.0")
+        @DecimalMax("1.0")
+        private double duplicateThreshold = 0.9;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getCandidates() {
+            return candidates;
+        }
+
+        public void setCandidates(int candidates) {
+            this.candidates = candidates;
+        }
+
+        public double getLambda() {
+            return lambda;
+        }
+
+        public void setLambda(double lambda) {
+            this.lambda = lambda;
+        }
+
+        public double getLexicalWeight() {
+            return lexicalWeight;
+        }
+
+        public void setLexicalWeight(double lexicalWeight) {
+            this.lexicalWeight = lexicalWeight;
+        }
+
+        public double getDuplicateThreshold() {
+            return duplicateThreshold;
+        }
+
+        public void setDuplicateThreshold(double duplicateThreshold) {
+            this.duplicateThreshold = duplicateThreshold;
+        }
+    }
 }
@@ -1,18 +1,25 @@
 package com.walshe.aimarket.config;
 
 import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Locale;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.web.server.*;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.boot.web.servlet.ServletContextInitializer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
 import org.springframework.core.env.Environment;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.util.CollectionUtils;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.web.filter.CorsFilter;
+import org.springframework.web.filter.OncePerRequestFilter;
 import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import tech.jhipster.config.JHipsterProperties;
@@ -25,6 +32,11 @@ public class WebConfigurer implements ServletContextInitializer, WebMvcConfigure
 
     private static final Logger LOG = LoggerFactory.getLogger(WebConfigurer.class);
 
+    /**
+     * The only endpoint taking multipart requests, the zip archives of which the spring.servlet.multipart limits are sized for.
+     */
+    private static final String MULTIPART_PATH = "/api/documents/bulk";
+
     private final Environment env;
 
     private final JHipsterProperties jHipsterProperties;
@@ -61,4 +73,28 @@ public class WebConfigurer implements ServletContextInitializer, WebMvcConfigure
         }
         return new CorsFilter(source);
     }
+
+    /**
+     * Rejects multipart requests to any path but {@link #MULTIPART_PATH} before their parts are parsed, so that the
+     * large multipart limits only apply there. Multipart requests are resolved lazily, see application.yml.
+     */
+    @Bean
+    public FilterRegistrationBean<OncePerRequestFilter> multipartPathFilter() {
+        OncePerRequestFilter filter = new OncePerRequestFilter() {
+            @Override
+            protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+                throws ServletException, IOException {
+                String path = request.getRequestURI().substring(request.getContextPath().length());
+                String contentType = request.getContentType();
+                if (contentType != null && contentType.toLowerCase(Locale.ROOT).startsWith("multipart/") && !MULTIPART_PATH.equals(path)) {
+                    response.sendError(HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE);
+                    return;
+                }
+                chain.doFilter(request, response);
+            }
+        };
+        FilterRegistrationBean<OncePerRequestFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
 }
@@ -33,6 +33,14 @@ public class Document implements Serializable {
     @Column(name = "created_at", nullable = false, updatable=false)
     private Instant createdAt;
 
+    @Size(max = 16)
+    @Column(name = "ticker", length = 16)
+    private String ticker;
+
+    @Size(max = 64)
+    @Column(name = "source", length = 64)
+    private String source;
+
 
 
 
@@ -90,6 +98,32 @@ public class Document implements Serializable {
         this.createdAt = createdAt;
     }
 
+    public String getTicker() {
+        return this.ticker;
+    }
+
+    public Document ticker(String ticker) {
+        this.setTicker(ticker);
+        return this;
+    }
+
+    public void setTicker(String ticker) {
+        this.ticker = ticker;
+    }
+
+    public String getSource() {
+        return this.source;
+    }
+
+    public Document source(String source) {
+        this.setSource(source);
+        return this;
+    }
+
+    public void setSource(String source) {
+        this.source = source;
+    }
+
     // jhipster-needle-entity-add-getters-setters - JHipster will add getters and setters here
 
     @Override
@@ -117,6 +151,8 @@ public class Document implements Serializable {
             ", title='" + getTitle() + "'" +
             ", content='" + getContent() + "'" +
             ", createdAt='" + getCreatedAt() + "'" +
+            ", ticker='" + getTicker() + "'" +
+            ", source='" + getSource() + "'" +
             "}";
     }
 }
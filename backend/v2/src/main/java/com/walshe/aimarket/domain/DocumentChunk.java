@@ -1,9 +1,11 @@
 package com.walshe.aimarket.domain;
 
+import com.walshe.aimarket.domain.type.VectorType;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import java.io.Serializable;
 import java.time.Instant;
+import org.hibernate.annotations.Type;
 
 /**
  * A DocumentChunk.
@@ -31,6 +33,10 @@ public class DocumentChunk implements Serializable {
     @Column(name = "embedding_model")
     private String embeddingModel;
 
+    @Size(max = 64)
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
     @NotNull
     @Column(name = "created_at", nullable = false, updatable=false)
     private Instant createdAt;
@@ -39,9 +45,9 @@ public class DocumentChunk implements Serializable {
     @NotNull
     private Document document;
 
-    @org.hibernate.annotations.ColumnTransformer(write = "?::vector(1536)")
+    @Type(VectorType.class)
     @Column(name = "embedding", columnDefinition = "vector(1536)")
-    private String embedding;
+    private float[] embedding;
 
     // jhipster-needle-entity-add-field - JHipster will add fields here
 
@@ -97,6 +103,19 @@ public class DocumentChunk implements Serializable {
         this.embeddingModel = embeddingModel;
     }
 
+    public String getContentHash() {
+        return this.contentHash;
+    }
+
+    public DocumentChunk contentHash(String contentHash) {
+        this.setContentHash(contentHash);
+        return this;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
     public Instant getCreatedAt() {
         return this.createdAt;
     }
@@ -123,15 +142,15 @@ public class DocumentChunk implements Serializable {
         return this;
     }
 
-    public String getEmbedding() {
+    public float[] getEmbedding() {
         return this.embedding;
     }
 
-    public void setEmbedding(String embedding) {
+    public void setEmbedding(float[] embedding) {
         this.embedding = embedding;
     }
 
-    public DocumentChunk embedding(String embedding) {
+    public DocumentChunk embedding(float[] embedding) {
         this.setEmbedding(embedding);
         return this;
     }
@@ -163,6 +182,7 @@ public class DocumentChunk implements Serializable {
             ", chunkIndex=" + getChunkIndex() +
             ", chunkText='" + getChunkText() + "'" +
             ", embeddingModel='" + getEmbeddingModel() + "'" +
+            ", contentHash='" + getContentHash() + "'" +
             ", createdAt='" + getCreatedAt() + "'" +
             "}";
     }
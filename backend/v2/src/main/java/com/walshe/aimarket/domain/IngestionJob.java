@@ -0,0 +1,243 @@
+package com.walshe.aimarket.domain;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * A queued or running ingestion of a {@link Document}, with progress counters.
+ */
+@Entity
+@Table(name = "ingestion_job")
+public class IngestionJob implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        DONE,
+        FAILED,
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
+    @SequenceGenerator(name = "sequenceGenerator")
+    @Column(name = "id")
+    private Long id;
+
+    @NotNull
+    @Column(name = "document_id", nullable = false)
+    private Long documentId;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private Status status;
+
+    @NotNull
+    @Column(name = "chunks_embedded", nullable = false)
+    private Integer chunksEmbedded = 0;
+
+    @Column(name = "chunks_total")
+    private Integer chunksTotal;
+
+    @Column(name = "error_message", length = 2000)
+    private String errorMessage;
+
+    @NotNull
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Column(name = "started_at")
+    private Instant startedAt;
+
+    @Column(name = "finished_at")
+    private Instant finishedAt;
+
+    /**
+     * Until when the instance running the job is known to be alive; renewed while the job runs.
+     */
+    @Column(name = "lease_expires_at")
+    private Instant leaseExpiresAt;
+
+    /**
+     * Identifies the claim of the instance running the job; status and lease updates of any other claim are ignored.
+     */
+    @Column(name = "claim_token", length = 64)
+    private String claimToken;
+
+    public Long getId() {
+        return this.id;
+    }
+
+    public IngestionJob id(Long id) {
+        this.setId(id);
+        return this;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getDocumentId() {
+        return this.documentId;
+    }
+
+    public IngestionJob documentId(Long documentId) {
+        this.setDocumentId(documentId);
+        return this;
+    }
+
+    public void setDocumentId(Long documentId) {
+        this.documentId = documentId;
+    }
+
+    public Status getStatus() {
+        return this.status;
+    }
+
+    public IngestionJob status(Status status) {
+        this.setStatus(status);
+        return this;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public Integer getChunksEmbedded() {
+        return this.chunksEmbedded;
+    }
+
+    public IngestionJob chunksEmbedded(Integer chunksEmbedded) {
+        this.setChunksEmbedded(chunksEmbedded);
+        return this;
+    }
+
+    public void setChunksEmbedded(Integer chunksEmbedded) {
+        this.chunksEmbedded = chunksEmbedded;
+    }
+
+    public Integer getChunksTotal() {
+        return this.chunksTotal;
+    }
+
+    public IngestionJob chunksTotal(Integer chunksTotal) {
+        this.setChunksTotal(chunksTotal);
+        return this;
+    }
+
+    public void setChunksTotal(Integer chunksTotal) {
+        this.chunksTotal = chunksTotal;
+    }
+
+    public String getErrorMessage() {
+        return this.errorMessage;
+    }
+
+    public IngestionJob errorMessage(String errorMessage) {
+        this.setErrorMessage(errorMessage);
+        return this;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    public Instant getCreatedAt() {
+        return this.createdAt;
+    }
+
+    public IngestionJob createdAt(Instant createdAt) {
+        this.setCreatedAt(createdAt);
+        return this;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getStartedAt() {
+        return this.startedAt;
+    }
+
+    public IngestionJob startedAt(Instant startedAt) {
+        this.setStartedAt(startedAt);
+        return this;
+    }
+
+    public void setStartedAt(Instant startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public Instant getFinishedAt() {
+        return this.finishedAt;
+    }
+
+    public IngestionJob finishedAt(Instant finishedAt) {
+        this.setFinishedAt(finishedAt);
+        return this;
+    }
+
+    public void setFinishedAt(Instant finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    public Instant getLeaseExpiresAt() {
+        return this.leaseExpiresAt;
+    }
+
+    public IngestionJob leaseExpiresAt(Instant leaseExpiresAt) {
+        this.setLeaseExpiresAt(leaseExpiresAt);
+        return this;
+    }
+
+    public void setLeaseExpiresAt(Instant leaseExpiresAt) {
+        this.leaseExpiresAt = leaseExpiresAt;
+    }
+
+    public String getClaimToken() {
+        return this.claimToken;
+    }
+
+    public IngestionJob claimToken(String claimToken) {
+        this.setClaimToken(claimToken);
+        return this;
+    }
+
+    public void setClaimToken(String claimToken) {
+        this.claimToken = claimToken;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof IngestionJob)) {
+            return false;
+        }
+        return getId() != null && getId().equals(((IngestionJob) o).getId());
+    }
+
+    @Override
+    public int hashCode() {
+        // see https://vladmihalcea.com/how-to-implement-equals-and-hashcode-using-the-jpa-entity-identifier/
+        return getClass().hashCode();
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "IngestionJob{" +
+            "id=" + getId() +
+            ", documentId=" + getDocumentId() +
+            ", status='" + getStatus() + "'" +
+            ", chunksEmbedded=" + getChunksEmbedded() +
+            ", chunksTotal=" + getChunksTotal() +
+            ", createdAt='" + getCreatedAt() + "'" +
+            "}";
+    }
+}
@@ -0,0 +1,136 @@
+package com.walshe.aimarket.domain.type;
+
+import com.pgvector.PGvector;
+import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.usertype.UserType;
+import org.postgresql.PGConnection;
+import org.postgresql.util.PGobject;
+
+/**
+ * Maps a {@code float[]} to a pgvector {@code vector} column.
+ * <p>
+ * Values are bound as {@link PGvector}, which the PostgreSQL driver sends and receives in pgvector's
+ * binary format once the type is registered on the connection, so embeddings are never formatted
+ * to or parsed from their text form.
+ */
+public class VectorType implements UserType<float[]> {
+
+    public static final VectorType INSTANCE = new VectorType();
+
+    private static final Set<PGConnection> REGISTERED_CONNECTIONS = Collections.synchronizedSet(
+        Collections.newSetFromMap(new WeakHashMap<>())
+    );
+
+    /**
+     * Registers the pgvector types on the physical connection behind {@code connection}, enabling binary transfer.
+     * Registration happens once per physical connection.
+     *
+     * @param connection a (possibly pooled) PostgreSQL connection.
+     * @throws SQLException if the connection is not a PostgreSQL connection.
+     */
+    public static void registerTypes(Connection connection) throws SQLException {
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        if (REGISTERED_CONNECTIONS.add(pgConnection)) {
+            try {
+                pgConnection.addDataType("vector", PGvector.class);
+            } catch (SQLException | RuntimeException e) {
+                REGISTERED_CONNECTIONS.remove(pgConnection);
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public int getSqlType() {
+        return Types.OTHER;
+    }
+
+    @Override
+    public Class<float[]> returnedClass() {
+        return float[].class;
+    }
+
+    @Override
+    public boolean equals(float[] x, float[] y) {
+        return Arrays.equals(x, y);
+    }
+
+    @Override
+    public int hashCode(float[] x) {
+        return Arrays.hashCode(x);
+    }
+
+    @Override
+    public float[] nullSafeGet(ResultSet rs, int position, SharedSessionContractImplementor session, Object owner)
+        throws SQLException {
+        return read(rs, position);
+    }
+
+    @Override
+    public void nullSafeSet(PreparedStatement st, float[] value, int index, SharedSessionContractImplementor session)
+        throws SQLException {
+        bind(st, index, value);
+    }
+
+    /**
+     * Reads a {@code vector} column as {@code float[]}, for plain JDBC access.
+     */
+    public static float[] read(ResultSet rs, int position) throws SQLException {
+        Object value = rs.getObject(position);
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof PGvector vector) {
+            return vector.toArray();
+        }
+        // The type was not registered on this connection yet, so the driver returned the text form
+        Statement statement = rs.getStatement();
+        if (statement != null) {
+            registerTypes(statement.getConnection());
+        }
+        return new PGvector(((PGobject) value).getValue()).toArray();
+    }
+
+    /**
+     * Binds a {@code float[]} to a {@code vector} parameter, for plain JDBC access.
+     */
+    public static void bind(PreparedStatement st, int index, float[] value) throws SQLException {
+        if (value == null) {
+            st.setNull(index, Types.OTHER);
+            return;
+        }
+        registerTypes(st.getConnection());
+        st.setObject(index, new PGvector(value));
+    }
+
+    @Override
+    public float[] deepCopy(float[] value) {
+        return value == null ? null : value.clone();
+    }
+
+    @Override
+    public boolean isMutable() {
+        return true;
+    }
+
+    @Override
+    public Serializable disassemble(float[] value) {
+        return deepCopy(value);
+    }
+
+    @Override
+    public float[] assemble(Serializable cached, Object owner) {
+        return deepCopy((float[]) cached);
+    }
+}
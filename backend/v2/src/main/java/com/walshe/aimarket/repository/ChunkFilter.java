@@ -0,0 +1,30 @@
+package com.walshe.aimarket.repository;
+
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * Restricts a chunk search to the chunks of matching documents. Every criterion is optional;
+ * those that are set must all hold.
+ *
+ * @param documentIds only chunks of these documents
+ * @param ticker only documents with this ticker
+ * @param source only documents from this source
+ * @param createdFrom only documents created at or after this instant
+ * @param createdTo only documents created before this instant
+ */
+public record ChunkFilter(Set<Long> documentIds, String ticker, String source, Instant createdFrom, Instant createdTo) {
+    /**
+     * @return whether no criterion is set, so the whole corpus is searched.
+     */
+    public boolean isEmpty() {
+        return documentIds == null && ticker == null && source == null && createdFrom == null && createdTo == null;
+    }
+
+    /**
+     * @return whether {@code filter} is null or sets no criterion.
+     */
+    public static boolean isEmpty(ChunkFilter filter) {
+        return filter == null || filter.isEmpty();
+    }
+}
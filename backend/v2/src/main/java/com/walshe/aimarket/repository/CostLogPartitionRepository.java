@@ -0,0 +1,124 @@
+package com.walshe.aimarket.repository;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Catalog queries and DDL for the monthly range partitions of {@code cost_log} and {@code cost_log_dedup}, named
+ * {@code cost_log_yYYYYmMM} and {@code cost_log_dedup_yYYYYmMM}. The partitions of a month are created and dropped
+ * together for both tables.
+ * <p>
+ * Partitions are created and dropped inside the caller's transaction; callers hold
+ * {@link #tryLockMaintenance()} so that instances do not run the same DDL concurrently. Rows outside the range of
+ * every monthly partition land in the {@code _default} partition of each table.
+ */
+@Repository
+public class CostLogPartitionRepository {
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("cost_log_y(\\d{4})m(\\d{2})");
+
+    private static final String FIND_PARTITIONS =
+        "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = CAST('cost_log' AS regclass)";
+
+    private static final String FIND_DEFAULT_PARTITION_MONTHS =
+        "SELECT CAST(date_trunc('month', created_at) AS date) FROM cost_log_default" +
+        " UNION SELECT created_month FROM cost_log_dedup_default";
+
+    private static final String HAS_DEFAULT_ROWS = "SELECT EXISTS (SELECT 1 FROM %1$s_default WHERE %2$s >= ? AND %2$s < ?)";
+
+    private static final String MOVE_DEFAULT_ROWS =
+        "WITH moved AS (DELETE FROM %1$s_default WHERE %2$s >= ? AND %2$s < ? RETURNING *) INSERT INTO %1$s SELECT * FROM moved";
+
+    private static final String CREATE_PARTITION = "CREATE TABLE IF NOT EXISTS %s PARTITION OF %s FOR VALUES FROM ('%s') TO ('%s')";
+
+    private static final String DROP_PARTITION = "DROP TABLE IF EXISTS %s";
+
+    /**
+     * Transaction-scoped advisory lock key, "costlog" in ASCII.
+     */
+    private static final long MAINTENANCE_LOCK = 0x636f73746c6f67L;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CostLogPartitionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Takes the maintenance lock until the end of the current transaction.
+     *
+     * @return false if another transaction holds it.
+     */
+    public boolean tryLockMaintenance() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class, MAINTENANCE_LOCK));
+    }
+
+    /**
+     * Months of the existing monthly partitions; the default partition is not included.
+     */
+    public List<YearMonth> findPartitionMonths() {
+        return jdbcTemplate
+            .queryForList(FIND_PARTITIONS, String.class)
+            .stream()
+            .map(CostLogPartitionRepository::month)
+            .filter(Objects::nonNull)
+            .sorted()
+            .toList();
+    }
+
+    /**
+     * Months with rows in the default partitions, which only happens if partitions were not created in time.
+     */
+    public List<YearMonth> findDefaultPartitionMonths() {
+        return jdbcTemplate.queryForList(FIND_DEFAULT_PARTITION_MONTHS, LocalDate.class).stream().map(YearMonth::from).toList();
+    }
+
+    /**
+     * Creates the partitions of a month.
+     */
+    public void createPartition(YearMonth month) {
+        createPartition("cost_log", "created_at", month);
+        createPartition("cost_log_dedup", "created_month", month);
+    }
+
+    /**
+     * Drops the partitions of a month with all their rows, without the dead tuples or WAL volume of a DELETE.
+     */
+    public void dropPartition(YearMonth month) {
+        jdbcTemplate.execute(DROP_PARTITION.formatted(partitionName("cost_log", month)));
+        jdbcTemplate.execute(DROP_PARTITION.formatted(partitionName("cost_log_dedup", month)));
+    }
+
+    /**
+     * A partition cannot be added while the default partition holds rows of its range, so those are moved into it,
+     * with the default partition detached meanwhile.
+     */
+    private void createPartition(String table, String column, YearMonth month) {
+        LocalDate from = month.atDay(1);
+        LocalDate to = month.plusMonths(1).atDay(1);
+        String create = CREATE_PARTITION.formatted(partitionName(table, month), table, from, to);
+        if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(HAS_DEFAULT_ROWS.formatted(table, column), Boolean.class, from, to))) {
+            jdbcTemplate.execute(create);
+            return;
+        }
+        jdbcTemplate.execute("ALTER TABLE %1$s DETACH PARTITION %1$s_default".formatted(table));
+        jdbcTemplate.execute(create);
+        jdbcTemplate.update(MOVE_DEFAULT_ROWS.formatted(table, column), from, to);
+        jdbcTemplate.execute("ALTER TABLE %1$s ATTACH PARTITION %1$s_default DEFAULT".formatted(table));
+    }
+
+    static String partitionName(String table, YearMonth month) {
+        return "%s_y%04dm%02d".formatted(table, month.getYear(), month.getMonthValue());
+    }
+
+    static YearMonth month(String partitionName) {
+        Matcher matcher = PARTITION_NAME.matcher(partitionName);
+        return matcher.matches() ? YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2))) : null;
+    }
+}
@@ -0,0 +1,21 @@
+package com.walshe.aimarket.repository;
+
+import com.walshe.aimarket.domain.CostLog;
+import java.util.List;
+
+/**
+ * Custom operations of {@link CostLogRepository} that Spring Data cannot derive.
+ */
+public interface CostLogRepositoryCustom {
+    /**
+     * Inserts the cost logs with a single multi-row statement, bypassing the persistence context. Logs whose
+     * (correlation id, call type) was already stored within {@code application.cost-log.dedup-window}, or earlier
+     * in the month that window starts in, are skipped; logs without a correlation id are always inserted.
+     * The inserted logs are added to the totals of {@link CostRollupRepository} in the same statement.
+     * Ids are allocated from sequence_generator and set on the given logs.
+     *
+     * @param costLogs the new cost logs
+     * @return the number of logs inserted
+     */
+    int insertIgnoringDuplicates(List<CostLog> costLogs);
+}
@@ -0,0 +1,130 @@
+package com.walshe.aimarket.repository;
+
+import com.walshe.aimarket.config.CostLogProperties;
+import com.walshe.aimarket.domain.CostLog;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+class CostLogRepositoryCustomImpl implements CostLogRepositoryCustom {
+
+    /**
+     * One row per array element; the array binds keep the statement and its plan the same for every batch size.
+     * A log with a correlation id is inserted only if its (correlation id, call type) could be claimed in the
+     * current month's partition of cost_log_dedup and was not claimed in the months of the dedup window, bound
+     * in seconds, once per key even if the batch repeats it. The rows actually inserted are added to
+     * cost_rollup in the same statement, grouped first since ON CONFLICT DO UPDATE may touch each row only once,
+     * and sorted by key so that concurrent batches lock the rollup rows they share in the same order.
+     */
+    private static final String INSERT_IGNORING_DUPLICATES =
+        "WITH batch (id, call_type, model_name, input_tokens, output_tokens, total_tokens, estimated_usd_cost, document_id," +
+        "  correlation_id, provider, latency_ms) AS (" +
+        "  SELECT * FROM unnest(CAST(? AS bigint[]), CAST(? AS varchar[]), CAST(? AS varchar[]), CAST(? AS int[]), CAST(? AS int[])," +
+        "  CAST(? AS int[]), CAST(? AS numeric[]), CAST(? AS bigint[]), CAST(? AS varchar[]), CAST(? AS varchar[]), CAST(? AS bigint[]))" +
+        "), claimed AS (" +
+        "  INSERT INTO cost_log_dedup (correlation_id, call_type, created_month)" +
+        "  SELECT DISTINCT b.correlation_id, b.call_type, CAST(date_trunc('month', LOCALTIMESTAMP) AS date) FROM batch b" +
+        "  WHERE b.correlation_id IS NOT NULL AND NOT EXISTS (" +
+        "    SELECT 1 FROM cost_log_dedup d WHERE d.correlation_id = b.correlation_id AND d.call_type = b.call_type" +
+        "    AND d.created_month >= CAST(date_trunc('month', LOCALTIMESTAMP - ? * interval '1 second') AS date))" +
+        "  ON CONFLICT DO NOTHING" +
+        "  RETURNING correlation_id, call_type" +
+        "), inserted AS (" +
+        "  INSERT INTO cost_log (id, call_type, model_name, input_tokens, output_tokens, total_tokens, estimated_usd_cost," +
+        "  document_id, correlation_id, provider, latency_ms)" +
+        "  SELECT * FROM batch WHERE correlation_id IS NULL" +
+        "  UNION ALL" +
+        "  (SELECT DISTINCT ON (b.correlation_id, b.call_type) b.* FROM batch b" +
+        "  JOIN claimed c ON c.correlation_id = b.correlation_id AND c.call_type = b.call_type" +
+        "  ORDER BY b.correlation_id, b.call_type, b.id)" +
+        "  RETURNING created_at, model_name, call_type, provider, input_tokens, output_tokens, total_tokens, estimated_usd_cost, latency_ms" +
+        "), rolled_up AS (" +
+        "  INSERT INTO cost_rollup (granularity, bucket_start, model_name, call_type, provider, call_count, input_tokens," +
+        "  output_tokens, total_tokens, estimated_usd_cost, latency_ms)" +
+        "  SELECT g.granularity, date_trunc(g.unit, i.created_at), i.model_name, i.call_type, coalesce(i.provider, ''), count(*)," +
+        "  sum(i.input_tokens), coalesce(sum(i.output_tokens), 0), sum(i.total_tokens), sum(i.estimated_usd_cost)," +
+        "  coalesce(sum(i.latency_ms), 0)" +
+        "  FROM inserted i CROSS JOIN (VALUES %s) g (granularity, unit)" +
+        "  GROUP BY 1, 2, 3, 4, 5" +
+        "  ORDER BY 1, 2, 3, 4, 5" +
+        "  ON CONFLICT (granularity, bucket_start, model_name, call_type, provider) DO UPDATE SET" +
+        "  call_count = cost_rollup.call_count + EXCLUDED.call_count," +
+        "  input_tokens = cost_rollup.input_tokens + EXCLUDED.input_tokens," +
+        "  output_tokens = cost_rollup.output_tokens + EXCLUDED.output_tokens," +
+        "  total_tokens = cost_rollup.total_tokens + EXCLUDED.total_tokens," +
+        "  estimated_usd_cost = cost_rollup.estimated_usd_cost + EXCLUDED.estimated_usd_cost," +
+        "  latency_ms = cost_rollup.latency_ms + EXCLUDED.latency_ms" +
+        ")" +
+        " SELECT count(*) FROM inserted";
+
+    private static final String INSERT_AND_ROLL_UP = INSERT_IGNORING_DUPLICATES.formatted(
+        Arrays.stream(CostRollupRepository.Granularity.values())
+            .map(granularity -> "('" + granularity.name() + "', '" + granularity.unit() + "')")
+            .collect(Collectors.joining(", "))
+    );
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final CostLogProperties properties;
+
+    CostLogRepositoryCustomImpl(CostLogProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    @Transactional
+    public int insertIgnoringDuplicates(List<CostLog> costLogs) {
+        if (costLogs.isEmpty()) {
+            return 0;
+        }
+        return entityManager
+            .unwrap(Session.class)
+            .doReturningWork(connection -> {
+                long[] ids = SequenceIds.next(connection, costLogs.size());
+                for (int i = 0; i < ids.length; i++) {
+                    costLogs.get(i).setId(ids[i]);
+                }
+                try (PreparedStatement statement = connection.prepareStatement(INSERT_AND_ROLL_UP)) {
+                    statement.setArray(1, array(connection, costLogs, CostLog::getId));
+                    statement.setArray(2, array(connection, costLogs, log -> log.getCallType().name()));
+                    statement.setArray(3, array(connection, costLogs, CostLog::getModelName));
+                    statement.setArray(4, array(connection, costLogs, CostLog::getInputTokens));
+                    statement.setArray(5, array(connection, costLogs, CostLog::getOutputTokens));
+                    statement.setArray(6, array(connection, costLogs, CostLog::getTotalTokens));
+                    statement.setArray(7, array(connection, costLogs, CostLog::getEstimatedUsdCost));
+                    statement.setArray(8, array(connection, costLogs, CostLog::getDocumentId));
+                    statement.setArray(9, array(connection, costLogs, CostLog::getCorrelationId));
+                    statement.setArray(10, array(connection, costLogs, CostLog::getProvider));
+                    statement.setArray(11, array(connection, costLogs, CostLog::getLatencyMs));
+                    statement.setLong(12, properties.getDedupWindow().toSeconds());
+                    try (ResultSet rs = statement.executeQuery()) {
+                        rs.next();
+                        return rs.getInt(1);
+                    }
+                }
+            });
+    }
+
+    /**
+     * Binds a column as a text array, cast to the column type by the statement.
+     */
+    private static Array array(Connection connection, List<CostLog> costLogs, Function<CostLog, Object> column) throws SQLException {
+        String[] values = new String[costLogs.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Objects.toString(column.apply(costLogs.get(i)), null);
+        }
+        return connection.createArrayOf("varchar", values);
+    }
+}
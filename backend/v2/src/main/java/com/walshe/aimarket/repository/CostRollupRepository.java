@@ -0,0 +1,149 @@
+package com.walshe.aimarket.repository;
+
+import com.walshe.aimarket.domain.CostLog;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Locale;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Cost totals in the {@code cost_rollup} table, kept current by {@link CostLogRepositoryCustom#insertIgnoringDuplicates}.
+ * Time ranges are half-open, {@code [from, to)}, and match whole buckets of the queried granularity; either bound may
+ * be null for an open range.
+ */
+@Repository
+public class CostRollupRepository {
+
+    private static final String RANGE =
+        "granularity = ? AND bucket_start >= coalesce(CAST(? AS timestamp), '-infinity') AND bucket_start < coalesce(CAST(? AS timestamp), 'infinity')";
+
+    private static final String TOTALS = " sum(call_count), sum(input_tokens), sum(output_tokens), sum(total_tokens), sum(estimated_usd_cost), sum(latency_ms)";
+
+    private static final String FIND_TOTALS =
+        "SELECT model_name, call_type, provider," + TOTALS + " FROM cost_rollup WHERE " + RANGE + " GROUP BY model_name, call_type, provider";
+
+    private static final String FIND_SERIES =
+        "SELECT bucket_start," + TOTALS + " FROM cost_rollup WHERE " + RANGE + " GROUP BY bucket_start ORDER BY bucket_start";
+
+    private static final String DELETE_BUCKETS_BEFORE = "DELETE FROM cost_rollup WHERE granularity = ? AND bucket_start < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CostRollupRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Totals of the range per model, call type and provider.
+     */
+    public List<Dimensions> findTotals(Granularity granularity, Instant from, Instant to) {
+        return jdbcTemplate.query(
+            FIND_TOTALS,
+            (rs, row) ->
+                new Dimensions(
+                    rs.getString(1),
+                    CostLog.CallType.valueOf(rs.getString(2)),
+                    rs.getString(3).isEmpty() ? null : rs.getString(3),
+                    totals(rs, 4)
+                ),
+            granularity.name(),
+            toTimestamp(from),
+            toTimestamp(to)
+        );
+    }
+
+    /**
+     * Totals of each bucket of the range holding at least one call, oldest first.
+     */
+    public List<Bucket> findSeries(Granularity granularity, Instant from, Instant to) {
+        return jdbcTemplate.query(
+            FIND_SERIES,
+            (rs, row) -> new Bucket(rs.getObject(1, LocalDateTime.class).toInstant(ZoneOffset.UTC), totals(rs, 2)),
+            granularity.name(),
+            toTimestamp(from),
+            toTimestamp(to)
+        );
+    }
+
+    /**
+     * Deletes the buckets of a granularity starting before the given time.
+     *
+     * @return the number of rows deleted.
+     */
+    public int deleteBucketsBefore(Granularity granularity, Instant before) {
+        return jdbcTemplate.update(DELETE_BUCKETS_BEFORE, granularity.name(), toTimestamp(before));
+    }
+
+    private static Totals totals(ResultSet rs, int first) throws SQLException {
+        return new Totals(
+            rs.getLong(first),
+            rs.getLong(first + 1),
+            rs.getLong(first + 2),
+            rs.getLong(first + 3),
+            rs.getBigDecimal(first + 4),
+            rs.getLong(first + 5)
+        );
+    }
+
+    /**
+     * cost_log timestamps are stored as UTC without a time zone.
+     */
+    private static LocalDateTime toTimestamp(Instant instant) {
+        return instant == null ? null : LocalDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+
+    /**
+     * Bucket sizes of the rollup, all aligned to UTC.
+     */
+    public enum Granularity {
+        MINUTE(ChronoUnit.MINUTES),
+        HOUR(ChronoUnit.HOURS),
+        DAY(ChronoUnit.DAYS);
+
+        private final ChronoUnit unit;
+
+        Granularity(ChronoUnit unit) {
+            this.unit = unit;
+        }
+
+        /**
+         * Field name of the bucket size in PostgreSQL's {@code date_trunc}.
+         */
+        public String unit() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+
+        public Instant truncate(Instant instant) {
+            return instant.truncatedTo(unit);
+        }
+
+        /**
+         * Start of the first bucket beginning at or after {@code instant}.
+         */
+        public Instant roundUp(Instant instant) {
+            Instant truncated = truncate(instant);
+            return truncated.equals(instant) ? instant : truncated.plus(1, unit);
+        }
+
+        public boolean isAligned(Instant instant) {
+            return instant == null || truncate(instant).equals(instant);
+        }
+
+        public long bucketsBetween(Instant from, Instant to) {
+            return unit.between(truncate(from), truncate(to));
+        }
+    }
+
+    public record Totals(long calls, long inputTokens, long outputTokens, long totalTokens, BigDecimal estimatedUsdCost, long latencyMs) {}
+
+    public record Dimensions(String modelName, CostLog.CallType callType, String provider, Totals totals) {}
+
+    public record Bucket(Instant bucketStart, Totals totals) {}
+}
@@ -11,17 +11,33 @@ import org.springframework.stereotype.Repository;
  * Spring Data JPA repository for the DocumentChunk entity.
  */
 @Repository
-public interface DocumentChunkRepository extends JpaRepository<DocumentChunk, Long> {
+public interface DocumentChunkRepository extends JpaRepository<DocumentChunk, Long>, DocumentChunkRepositoryCustom {
 
     void deleteByDocument(com.walshe.aimarket.domain.Document document);
 
+    boolean existsByDocument(com.walshe.aimarket.domain.Document document);
+
+    /**
+     * Ids of the document's chunks, locking the rows until the end of the transaction.
+     */
+    @Query(value = "SELECT id FROM document_chunk WHERE document_id = :documentId FOR UPDATE", nativeQuery = true)
+    List<Long> lockIdsByDocumentId(@Param("documentId") Long documentId);
+
+    /**
+     * Fingerprints of the document's chunks, without loading texts or embeddings.
+     */
+    List<ChunkFingerprint> findFingerprintsByDocument(com.walshe.aimarket.domain.Document document);
+
     /**
-     * Native pgvector cosine similarity search against document_chunk.embedding.
-     * Orders by ascending cosine distance (closest first).
-     *
-     * @param queryVector pgvector text literal (e.g., "[0.1, 0.2, ...]")
-     * @param limit number of results to return
+     * Projection identifying a stored chunk by position and content.
      */
-    @Query(value = "SELECT * FROM document_chunk dc ORDER BY dc.embedding <=> CAST(:query AS vector(1536)) ASC LIMIT CAST(:limit AS int)", nativeQuery = true)
-    List<DocumentChunk> findSimilarByCosine(@Param("query") String queryVector, @Param("limit") int limit);
+    interface ChunkFingerprint {
+        Long getId();
+
+        Integer getChunkIndex();
+
+        String getContentHash();
+
+        String getEmbeddingModel();
+    }
 }
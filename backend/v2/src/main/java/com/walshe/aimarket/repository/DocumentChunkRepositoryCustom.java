@@ -0,0 +1,93 @@
+package com.walshe.aimarket.repository;
+
+import com.walshe.aimarket.domain.DocumentChunk;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * {@link DocumentChunk} queries that bind embeddings as pgvector values.
+ */
+public interface DocumentChunkRepositoryCustom {
+    /**
+     * Native pgvector cosine similarity search against document_chunk.embedding.
+     * Orders by ascending cosine distance (closest first).
+     *
+     * @param queryEmbedding the query embedding (1536 dimensions)
+     * @param limit number of results to return
+     */
+    List<DocumentChunk> findSimilarByCosine(float[] queryEmbedding, int limit);
+
+    /**
+     * Cosine similarity search returning {@link RetrievedChunk}s instead of entities, restricted to the chunks matching
+     * {@code filter}.
+     * Filtered searches use pgvector's iterative index scan (see {@code application.retrieval.iterative-scan})
+     * so that a selective filter still yields {@code limit} results.
+     *
+     * @param queryEmbedding the query embedding (1536 dimensions)
+     * @param limit number of results to return
+     * @param filter criteria the chunks' documents must match, or null to search all chunks
+     * @param efSearch hnsw.ef_search of this search, or null for {@code application.retrieval.pgvector.ef-search}
+     */
+    List<RetrievedChunk> findNearest(float[] queryEmbedding, int limit, ChunkFilter filter, Integer efSearch);
+
+    /**
+     * Hybrid search: the {@code candidates} nearest chunks by cosine distance and the {@code candidates} best
+     * full-text matches of {@code queryText} are merged with reciprocal rank fusion, scoring each chunk
+     * {@code sum(1 / (rrfK + rank))} over the lists it appears in. Runs as a single statement, returning
+     * {@link RetrievedChunk}s whose distance is the chunk's cosine distance to the query embedding.
+     *
+     * @param queryText the query text, matched against document_chunk.chunk_tsv
+     * @param queryEmbedding the query embedding (1536 dimensions)
+     * @param limit number of results to return
+     * @param candidates length of each ranked list before fusion
+     * @param rrfK rank offset damping the weight of top ranks
+     * @param filter criteria the chunks' documents must match, or null to search all chunks
+     * @param efSearch hnsw.ef_search of this search, or null for {@code application.retrieval.pgvector.ef-search}
+     */
+    List<RetrievedChunk> findHybrid(
+        String queryText,
+        float[] queryEmbedding,
+        int limit,
+        int candidates,
+        int rrfK,
+        ChunkFilter filter,
+        Integer efSearch
+    );
+
+    /**
+     * Loads the given chunks as {@link RetrievedChunk}s, in no particular order.
+     *
+     * @param ids ids of the chunks
+     * @param queryEmbedding the query embedding the distances are computed to
+     */
+    List<RetrievedChunk> findRetrievedByIds(Collection<Long> ids, float[] queryEmbedding);
+
+    /**
+     * Inserts the chunks with a single binary COPY, bypassing the persistence context.
+     * Ids are allocated from sequence_generator and set on the given chunks; the chunks are not managed afterwards.
+     *
+     * @param chunks the new chunks, each with its document set
+     */
+    void bulkInsert(List<DocumentChunk> chunks);
+
+    /**
+     * Streams the id and embedding of every chunk that has one, without loading the entities.
+     *
+     * @param consumer receives each embedding with its chunk id
+     */
+    void forEachEmbedding(ObjLongConsumer<float[]> consumer);
+
+    /**
+     * Streams the id and embedding of the given chunks that still exist and have one.
+     *
+     * @param ids the chunk ids to load
+     * @param consumer receives each embedding with its chunk id
+     */
+    void forEachEmbedding(long[] ids, ObjLongConsumer<float[]> consumer);
+
+    /**
+     * @return the ids of all chunks that have an embedding, in ascending order.
+     */
+    long[] findEmbeddedIds();
+}
@@ -0,0 +1,525 @@
+package com.walshe.aimarket.repository;
+
+import com.pgvector.PGvector;
+import com.walshe.aimarket.config.RetrievalProperties;
+import com.walshe.aimarket.domain.DocumentChunk;
+import com.walshe.aimarket.domain.type.VectorType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.StringJoiner;
+import java.util.function.ObjLongConsumer;
+import java.util.stream.LongStream;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.CustomType;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.transaction.annotation.Transactional;
+
+public class DocumentChunkRepositoryCustomImpl implements DocumentChunkRepositoryCustom {
+
+    /**
+     * Mapped columns of document_chunk; the trigger-maintained chunk_tsv column is left out of entity queries.
+     */
+    private static final String CHUNK_COLUMNS =
+        "dc.id, dc.chunk_index, dc.chunk_text, dc.embedding_model, dc.content_hash, dc.created_at, dc.document_id, dc.embedding";
+
+    /**
+     * Full-precision cosine distance of {@code dc} to the query.
+     */
+    private static final String DISTANCE = "dc.embedding <=> CAST(:query AS vector(1536))";
+
+    /**
+     * Nearest chunks as (id, distance), searched through the full-precision index; {@code %1$s} receives the filter
+     * predicate and {@code %2$s} the name of the limit parameter.
+     */
+    private static final String NEAREST =
+        "SELECT dc.id, " +
+        DISTANCE +
+        " AS distance FROM document_chunk dc WHERE dc.embedding IS NOT NULL AND %1$s ORDER BY distance LIMIT CAST(:%2$s AS int)";
+
+    /**
+     * Nearest chunks as (id, distance), searched through a quantized index: {@code :rerank} candidates are fetched by
+     * their quantized distance {@code %3$s}, then re-ranked by their full-precision distance.
+     */
+    private static final String NEAREST_RERANKED =
+        "SELECT dc.id, " +
+        DISTANCE +
+        " AS distance FROM (" +
+        "  SELECT dc.id, dc.embedding FROM document_chunk dc WHERE dc.embedding IS NOT NULL AND %1$s" +
+        "  ORDER BY %3$s LIMIT CAST(:rerank AS int)" +
+        ") dc ORDER BY distance LIMIT CAST(:%2$s AS int)";
+
+    /**
+     * Quantized distances matching the expressions indexed by {@link VectorIndexRepository}.
+     */
+    private static final String HALFVEC_DISTANCE =
+        "CAST(dc.embedding AS halfvec(1536)) <=> CAST(CAST(:query AS vector(1536)) AS halfvec(1536))";
+
+    private static final String BINARY_DISTANCE =
+        "CAST(binary_quantize(dc.embedding) AS bit(1536)) <~> binary_quantize(CAST(:query AS vector(1536)))";
+
+    private static final String FIND_SIMILAR_BY_COSINE =
+        "SELECT " + CHUNK_COLUMNS + " FROM (%s) nearest JOIN document_chunk dc ON dc.id = nearest.id ORDER BY nearest.distance, dc.id";
+
+    /**
+     * Columns of a {@link RetrievedChunk}, read from {@code dc} and its document {@code doc}.
+     */
+    private static final String RETRIEVED_COLUMNS = "dc.id, dc.document_id, doc.title, dc.chunk_text, " + DISTANCE + " AS distance";
+
+    /**
+     * Nearest chunks by cosine distance; {@code %s} receives the nearest-chunk query. With a filter and an iterative
+     * HNSW scan, the scan may return rows slightly out of order, so they are materialized and sorted again.
+     */
+    private static final String FIND_NEAREST =
+        "WITH nearest AS MATERIALIZED (%s) SELECT " +
+        RETRIEVED_COLUMNS +
+        " FROM nearest JOIN document_chunk dc ON dc.id = nearest.id JOIN document doc ON doc.id = dc.document_id" +
+        " ORDER BY nearest.distance, dc.id";
+
+    private static final String FIND_RETRIEVED_BY_IDS =
+        "SELECT " + RETRIEVED_COLUMNS + " FROM document_chunk dc JOIN document doc ON doc.id = dc.document_id WHERE dc.id IN (:ids)";
+
+    /**
+     * Reciprocal rank fusion of a pgvector nearest-neighbour list and a full-text list, in one statement;
+     * {@code %1$s} receives the filter predicate of the full-text list and {@code %2$s} the nearest-chunk query.
+     * The query text's lexemes are OR-ed so that a chunk matching any ticker or term is a candidate;
+     * ts_rank_cd then favours chunks matching more of them.
+     */
+    private static final String FIND_HYBRID =
+        "WITH query AS (" +
+        "  SELECT CAST(replace(CAST(plainto_tsquery('english', :text) AS text), '&', '|') AS tsquery) AS ts" +
+        "), vector_hits AS (" +
+        "  SELECT id, row_number() OVER (ORDER BY distance) AS rank FROM (%2$s) nearest" +
+        "), lexical_hits AS (" +
+        "  SELECT id, row_number() OVER (ORDER BY score DESC, id) AS rank FROM (" +
+        "    SELECT dc.id, ts_rank_cd(dc.chunk_tsv, query.ts, 1) AS score FROM document_chunk dc, query" +
+        "    WHERE dc.chunk_tsv @@ query.ts AND %1$s ORDER BY score DESC LIMIT CAST(:candidates AS int)" +
+        "  ) matching" +
+        "), fused AS (" +
+        "  SELECT id, sum(1.0 / (CAST(:rrfK AS int) + rank)) AS score" +
+        "  FROM (SELECT id, rank FROM vector_hits UNION ALL SELECT id, rank FROM lexical_hits) hits GROUP BY id" +
+        ") SELECT " +
+        RETRIEVED_COLUMNS +
+        " FROM fused JOIN document_chunk dc ON dc.id = fused.id JOIN document doc ON doc.id = dc.document_id" +
+        " ORDER BY fused.score DESC, dc.id LIMIT CAST(:limit AS int)";
+
+    /**
+     * Candidate list size of the HNSW scan. Scoped to the current transaction.
+     */
+    private static final String SET_EF_SEARCH = "set_config('hnsw.ef_search', :efSearch, true)";
+
+    /**
+     * Lets a filtered HNSW scan continue past ef_search candidates until enough rows pass the filter
+     * (pgvector 0.8+). Scoped to the current transaction.
+     */
+    private static final String SET_ITERATIVE_SCAN = "set_config('hnsw.iterative_scan', :mode, true)";
+
+    private static final String COPY_CHUNKS =
+        "COPY document_chunk (id, chunk_index, chunk_text, embedding_model, content_hash, created_at, document_id, embedding) FROM STDIN (FORMAT BINARY)";
+
+    private static final String ALL_EMBEDDINGS = "SELECT id, embedding FROM document_chunk WHERE embedding IS NOT NULL";
+
+    private static final String EMBEDDINGS_BY_IDS = ALL_EMBEDDINGS + " AND id = ANY(?)";
+
+    private static final String EMBEDDED_IDS = "SELECT id FROM document_chunk WHERE embedding IS NOT NULL ORDER BY id";
+
+    private static final int EMBEDDING_FETCH_SIZE = 1000;
+
+    private static final byte[] COPY_SIGNATURE = { 'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0 };
+
+    private static final Instant POSTGRES_EPOCH = Instant.parse("2000-01-01T00:00:00Z");
+
+    private static final short CHUNK_FIELD_COUNT = 8;
+
+    /**
+     * Upper bound pgvector accepts for hnsw.ef_search.
+     */
+    private static final int MAX_EF_SEARCH = 1000;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final RetrievalProperties retrievalProperties;
+    private final VectorIndexRepository vectorIndexRepository;
+
+    DocumentChunkRepositoryCustomImpl(RetrievalProperties retrievalProperties, VectorIndexRepository vectorIndexRepository) {
+        this.retrievalProperties = retrievalProperties;
+        this.vectorIndexRepository = vectorIndexRepository;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<DocumentChunk> findSimilarByCosine(float[] queryEmbedding, int limit) {
+        RetrievalProperties.Quantization quantization = searchQuantization();
+        prepareScan(null, null, scannedRows(quantization, limit));
+        NativeQuery<DocumentChunk> query = entityManager
+            .unwrap(Session.class)
+            .createNativeQuery(FIND_SIMILAR_BY_COSINE.formatted(nearest(quantization, filterPredicate(null), "limit")), DocumentChunk.class)
+            .setParameter("query", queryEmbedding, vectorType())
+            .setParameter("limit", limit);
+        return bindRerank(quantization, query, limit).getResultList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<RetrievedChunk> findNearest(float[] queryEmbedding, int limit, ChunkFilter filter, Integer efSearch) {
+        if (matchesNothing(filter)) {
+            return List.of();
+        }
+        RetrievalProperties.Quantization quantization = searchQuantization();
+        prepareScan(filter, efSearch, scannedRows(quantization, limit));
+        NativeQuery<Object[]> query = retrievedQuery(
+            FIND_NEAREST.formatted(nearest(quantization, filterPredicate(filter), "limit")),
+            queryEmbedding
+        ).setParameter("limit", limit);
+        return toRetrieved(bindRerank(quantization, bindFilter(query, filter), limit).getResultList());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<RetrievedChunk> findHybrid(
+        String queryText,
+        float[] queryEmbedding,
+        int limit,
+        int candidates,
+        int rrfK,
+        ChunkFilter filter,
+        Integer efSearch
+    ) {
+        if (matchesNothing(filter)) {
+            return List.of();
+        }
+        RetrievalProperties.Quantization quantization = searchQuantization();
+        prepareScan(filter, efSearch, scannedRows(quantization, candidates));
+        String predicate = filterPredicate(filter);
+        NativeQuery<Object[]> query = retrievedQuery(
+            FIND_HYBRID.formatted(predicate, nearest(quantization, predicate, "candidates")),
+            queryEmbedding
+        )
+            .setParameter("text", queryText)
+            .setParameter("candidates", candidates)
+            .setParameter("rrfK", rrfK)
+            .setParameter("limit", limit);
+        return toRetrieved(bindRerank(quantization, bindFilter(query, filter), candidates).getResultList());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<RetrievedChunk> findRetrievedByIds(Collection<Long> ids, float[] queryEmbedding) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return toRetrieved(retrievedQuery(FIND_RETRIEVED_BY_IDS, queryEmbedding).setParameterList("ids", ids).getResultList());
+    }
+
+    @SuppressWarnings("unchecked")
+    private NativeQuery<Object[]> retrievedQuery(String sql, float[] queryEmbedding) {
+        return entityManager.unwrap(Session.class).createNativeQuery(sql).setParameter("query", queryEmbedding, vectorType());
+    }
+
+    private static List<RetrievedChunk> toRetrieved(List<Object[]> rows) {
+        List<RetrievedChunk> chunks = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            chunks.add(
+                new RetrievedChunk(
+                    ((Number) row[0]).longValue(),
+                    ((Number) row[1]).longValue(),
+                    (String) row[2],
+                    (String) row[3],
+                    row[4] == null ? null : ((Number) row[4]).doubleValue()
+                )
+            );
+        }
+        return chunks;
+    }
+
+    /**
+     * The quantization of the serving index, whose indexed expression searches must order by; the configured one until
+     * the index definition has been read.
+     */
+    private RetrievalProperties.Quantization searchQuantization() {
+        return vectorIndexRepository.servingQuantization().orElse(retrievalProperties.getPgvector().getQuantization());
+    }
+
+    /**
+     * The nearest-chunk query for a quantization of the index.
+     *
+     * @param limitParameter name of the parameter holding the number of chunks to return.
+     */
+    private static String nearest(RetrievalProperties.Quantization quantization, String predicate, String limitParameter) {
+        return switch (quantization) {
+            case NONE -> NEAREST.formatted(predicate, limitParameter);
+            case HALFVEC -> NEAREST_RERANKED.formatted(predicate, limitParameter, HALFVEC_DISTANCE);
+            case BINARY -> NEAREST_RERANKED.formatted(predicate, limitParameter, BINARY_DISTANCE);
+        };
+    }
+
+    /**
+     * @return the number of rows the index scan must yield for {@code rows} results.
+     */
+    private int scannedRows(RetrievalProperties.Quantization quantization, int rows) {
+        return quantization == RetrievalProperties.Quantization.NONE
+            ? rows
+            : Math.max(rows, retrievalProperties.getPgvector().getRerankCandidates());
+    }
+
+    private <T> NativeQuery<T> bindRerank(RetrievalProperties.Quantization quantization, NativeQuery<T> query, int rows) {
+        if (quantization != RetrievalProperties.Quantization.NONE) {
+            query.setParameter("rerank", scannedRows(quantization, rows));
+        }
+        return query;
+    }
+
+    private static boolean matchesNothing(ChunkFilter filter) {
+        return filter != null && filter.documentIds() != null && filter.documentIds().isEmpty();
+    }
+
+    /**
+     * Applies the HNSW scan settings of a search, in one statement and only where they differ from the server's.
+     *
+     * @param efSearch the requested ef_search, or null for the configured one
+     * @param rows the number of rows the scan must yield; a lower ef_search is raised to it
+     */
+    private void prepareScan(ChunkFilter filter, Integer efSearch, int rows) {
+        Integer ef = efSearch != null ? efSearch : retrievalProperties.getPgvector().getEfSearch();
+        RetrievalProperties.IterativeScan mode = retrievalProperties.getIterativeScan();
+        boolean iterative = !ChunkFilter.isEmpty(filter) && mode != RetrievalProperties.IterativeScan.OFF;
+        if (ef == null && !iterative) {
+            return;
+        }
+        StringJoiner settings = new StringJoiner(", ", "SELECT ", "");
+        if (ef != null) {
+            settings.add(SET_EF_SEARCH);
+        }
+        if (iterative) {
+            settings.add(SET_ITERATIVE_SCAN);
+        }
+        Query query = entityManager.createNativeQuery(settings.toString());
+        if (ef != null) {
+            query.setParameter("efSearch", String.valueOf(Math.min(MAX_EF_SEARCH, Math.max(ef, rows))));
+        }
+        if (iterative) {
+            query.setParameter("mode", mode.name().toLowerCase(Locale.ROOT));
+        }
+        query.getResultList();
+    }
+
+    /**
+     * Builds the SQL predicate on {@code dc} for the set criteria. Document criteria are resolved in a sub-select, so the
+     * planner can choose between walking the HNSW index with the filter and sorting the few matching chunks exactly.
+     */
+    static String filterPredicate(ChunkFilter filter) {
+        if (ChunkFilter.isEmpty(filter)) {
+            return "TRUE";
+        }
+        StringJoiner predicate = new StringJoiner(" AND ", "(", ")");
+        if (filter.documentIds() != null) {
+            predicate.add("dc.document_id IN (:documentIds)");
+        }
+        StringJoiner document = new StringJoiner(" AND ");
+        if (filter.ticker() != null) {
+            document.add("d.ticker = :ticker");
+        }
+        if (filter.source() != null) {
+            document.add("d.source = :source");
+        }
+        if (filter.createdFrom() != null) {
+            document.add("d.created_at >= :createdFrom");
+        }
+        if (filter.createdTo() != null) {
+            document.add("d.created_at < :createdTo");
+        }
+        if (document.length() > 0) {
+            predicate.add("dc.document_id IN (SELECT d.id FROM document d WHERE " + document + ")");
+        }
+        return predicate.toString();
+    }
+
+    private static <T> NativeQuery<T> bindFilter(NativeQuery<T> query, ChunkFilter filter) {
+        if (ChunkFilter.isEmpty(filter)) {
+            return query;
+        }
+        if (filter.documentIds() != null) {
+            query.setParameterList("documentIds", filter.documentIds());
+        }
+        if (filter.ticker() != null) {
+            query.setParameter("ticker", filter.ticker());
+        }
+        if (filter.source() != null) {
+            query.setParameter("source", filter.source());
+        }
+        if (filter.createdFrom() != null) {
+            query.setParameter("createdFrom", filter.createdFrom());
+        }
+        if (filter.createdTo() != null) {
+            query.setParameter("createdTo", filter.createdTo());
+        }
+        return query;
+    }
+
+    private CustomType<float[]> vectorType() {
+        return new CustomType<>(
+            VectorType.INSTANCE,
+            entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class).getTypeConfiguration()
+        );
+    }
+
+    @Override
+    @Transactional
+    public void bulkInsert(List<DocumentChunk> chunks) {
+        if (chunks.isEmpty()) {
+            return;
+        }
+        Session session = entityManager.unwrap(Session.class);
+        // Pending changes (e.g. deletion of a previous ingestion's chunks) must reach the database before the COPY
+        session.flush();
+        session.doWork(connection -> {
+            assignIds(connection, chunks);
+            try (DataOutputStream out = new DataOutputStream(new PGCopyOutputStream(connection.unwrap(PGConnection.class), COPY_CHUNKS))) {
+                writeCopy(out, chunks);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to copy document chunks", e);
+            }
+        });
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachEmbedding(ObjLongConsumer<float[]> consumer) {
+        entityManager
+            .unwrap(Session.class)
+            .doWork(connection -> {
+                VectorType.registerTypes(connection);
+                try (PreparedStatement statement = connection.prepareStatement(ALL_EMBEDDINGS)) {
+                    // Inside the transaction the driver streams rows with a cursor instead of buffering the table
+                    statement.setFetchSize(EMBEDDING_FETCH_SIZE);
+                    try (ResultSet rs = statement.executeQuery()) {
+                        while (rs.next()) {
+                            consumer.accept(VectorType.read(rs, 2), rs.getLong(1));
+                        }
+                    }
+                }
+            });
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachEmbedding(long[] ids, ObjLongConsumer<float[]> consumer) {
+        entityManager
+            .unwrap(Session.class)
+            .doWork(connection -> {
+                VectorType.registerTypes(connection);
+                try (PreparedStatement statement = connection.prepareStatement(EMBEDDINGS_BY_IDS)) {
+                    for (int from = 0; from < ids.length; from += EMBEDDING_FETCH_SIZE) {
+                        Long[] batch = LongStream.of(ids).skip(from).limit(EMBEDDING_FETCH_SIZE).boxed().toArray(Long[]::new);
+                        statement.setArray(1, connection.createArrayOf("bigint", batch));
+                        try (ResultSet rs = statement.executeQuery()) {
+                            while (rs.next()) {
+                                consumer.accept(VectorType.read(rs, 2), rs.getLong(1));
+                            }
+                        }
+                    }
+                }
+            });
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long[] findEmbeddedIds() {
+        return entityManager
+            .unwrap(Session.class)
+            .doReturningWork(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(EMBEDDED_IDS)) {
+                    statement.setFetchSize(EMBEDDING_FETCH_SIZE);
+                    LongStream.Builder ids = LongStream.builder();
+                    try (ResultSet rs = statement.executeQuery()) {
+                        while (rs.next()) {
+                            ids.add(rs.getLong(1));
+                        }
+                    }
+                    return ids.build().toArray();
+                }
+            });
+    }
+
+    private static void assignIds(Connection connection, List<DocumentChunk> chunks) throws SQLException {
+        long[] ids = SequenceIds.next(connection, chunks.size());
+        for (int i = 0; i < ids.length; i++) {
+            chunks.get(i).setId(ids[i]);
+        }
+    }
+
+    /**
+     * Writes the chunks in PostgreSQL's binary COPY format, including header and trailer.
+     */
+    static void writeCopy(OutputStream target, List<DocumentChunk> chunks) throws IOException {
+        DataOutputStream out = target instanceof DataOutputStream data ? data : new DataOutputStream(target);
+        out.write(COPY_SIGNATURE);
+        // flags and header extension length
+        out.writeInt(0);
+        out.writeInt(0);
+        byte[] vectorBuffer = new byte[0];
+        for (DocumentChunk chunk : chunks) {
+            out.writeShort(CHUNK_FIELD_COUNT);
+            writeLong(out, chunk.getId());
+            out.writeInt(Integer.BYTES);
+            out.writeInt(chunk.getChunkIndex());
+            writeText(out, chunk.getChunkText());
+            writeText(out, chunk.getEmbeddingModel());
+            writeText(out, chunk.getContentHash());
+            writeLong(out, chunk.getCreatedAt() == null ? null : ChronoUnit.MICROS.between(POSTGRES_EPOCH, chunk.getCreatedAt()));
+            writeLong(out, chunk.getDocument().getId());
+            if (chunk.getEmbedding() == null) {
+                out.writeInt(-1);
+            } else {
+                PGvector vector = new PGvector(chunk.getEmbedding());
+                int length = vector.lengthInBytes();
+                if (vectorBuffer.length < length) {
+                    vectorBuffer = new byte[length];
+                }
+                vector.toBytes(vectorBuffer, 0);
+                out.writeInt(length);
+                out.write(vectorBuffer, 0, length);
+            }
+        }
+        out.writeShort(-1);
+        out.flush();
+    }
+
+    private static void writeLong(DataOutputStream out, Long value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(Long.BYTES);
+            out.writeLong(value);
+        }
+    }
+
+    private static void writeText(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.walshe.aimarket.repository;
+
+import com.walshe.aimarket.domain.type.VectorType;
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Persistent tier of the embedding cache, stored in the {@code embedding_cache} table.
+ * <p>
+ * Writes commit in a read-write transaction of their own: they come from read-only analysis transactions and
+ * from threads without a transaction, where connections do not auto-commit.
+ */
+@Repository
+public class EmbeddingCacheRepository {
+
+    private static final String FIND_BY_HASHES = "SELECT text_hash, embedding FROM embedding_cache WHERE model = ? AND text_hash = ANY (?)";
+
+    private static final String INSERT = "INSERT INTO embedding_cache (model, text_hash, embedding) VALUES (?, ?, ?) ON CONFLICT DO NOTHING";
+
+    /**
+     * Refreshes last_used_at at most once a day per entry, so that frequent reads do not each write a row version.
+     */
+    private static final String TOUCH =
+        "UPDATE embedding_cache SET last_used_at = LOCALTIMESTAMP" +
+        " WHERE model = ? AND text_hash = ANY (?) AND last_used_at < LOCALTIMESTAMP - INTERVAL '1 day'";
+
+    private static final String DELETE_UNUSED_BATCH =
+        "DELETE FROM embedding_cache WHERE ctid IN (" +
+        "  SELECT ctid FROM embedding_cache WHERE last_used_at < LOCALTIMESTAMP - ? * INTERVAL '1 second' LIMIT ?" +
+        ")";
+
+    private static final int DELETE_BATCH_SIZE = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate writeTransaction;
+
+    public EmbeddingCacheRepository(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.writeTransaction.setReadOnly(false);
+    }
+
+    /**
+     * Finds the cached embeddings of the given text hashes.
+     *
+     * @return the embeddings found, keyed by text hash.
+     */
+    public Map<String, float[]> findByHashes(String model, Collection<String> textHashes) {
+        Map<String, float[]> found = new HashMap<>();
+        if (textHashes.isEmpty()) {
+            return found;
+        }
+        jdbcTemplate.query(
+            connection -> {
+                PreparedStatement statement = connection.prepareStatement(FIND_BY_HASHES);
+                statement.setString(1, model);
+                statement.setArray(2, connection.createArrayOf("varchar", textHashes.toArray()));
+                return statement;
+            },
+            rs -> {
+                found.put(rs.getString(1), VectorType.read(rs, 2));
+            }
+        );
+        return found;
+    }
+
+    /**
+     * Records that the entries of the given text hashes were read.
+     */
+    public void touch(String model, Collection<String> textHashes) {
+        if (textHashes.isEmpty()) {
+            return;
+        }
+        writeTransaction.executeWithoutResult(status ->
+            jdbcTemplate.update(connection -> {
+                PreparedStatement statement = connection.prepareStatement(TOUCH);
+                statement.setString(1, model);
+                statement.setArray(2, connection.createArrayOf("varchar", textHashes.toArray()));
+                return statement;
+            })
+        );
+    }
+
+    /**
+     * Deletes the entries not read for longer than the given duration, in batches of their own transaction.
+     *
+     * @return the number of entries deleted.
+     */
+    public int deleteUnusedFor(Duration unused) {
+        int total = 0;
+        int deleted;
+        do {
+            deleted = writeTransaction.execute(status -> jdbcTemplate.update(DELETE_UNUSED_BATCH, unused.toSeconds(), DELETE_BATCH_SIZE));
+            total += deleted;
+        } while (deleted == DELETE_BATCH_SIZE);
+        return total;
+    }
+
+    /**
+     * Stores embeddings keyed by text hash; entries that already exist are left untouched.
+     */
+    public void saveAll(String model, Map<String, float[]> embeddings) {
+        if (embeddings.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<String, float[]>> entries = new ArrayList<>(embeddings.entrySet());
+        writeTransaction.executeWithoutResult(status ->
+            jdbcTemplate.batchUpdate(INSERT, entries, entries.size(), (statement, entry) -> {
+                statement.setString(1, model);
+                statement.setString(2, entry.getKey());
+                VectorType.bind(statement, 3, entry.getValue());
+            })
+        );
+    }
+}
@@ -0,0 +1,80 @@
+package com.walshe.aimarket.repository;
+
+import com.walshe.aimarket.domain.IngestionJob;
+import java.time.Instant;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Spring Data JPA repository for the IngestionJob entity.
+ */
+@Repository
+public interface IngestionJobRepository extends JpaRepository<IngestionJob, Long> {
+    /**
+     * Locks the oldest queued jobs. Rows already locked by another node are skipped,
+     * so several application instances can poll the same table.
+     *
+     * @param limit maximum number of jobs to claim
+     */
+    @Query(
+        value = "SELECT * FROM ingestion_job WHERE status = 'QUEUED' ORDER BY created_at, id LIMIT CAST(:limit AS int) FOR UPDATE SKIP LOCKED",
+        nativeQuery = true
+    )
+    List<IngestionJob> findQueuedForUpdate(@Param("limit") int limit);
+
+    /**
+     * Like the other updates of a running job, matches its claim token: it updates nothing, and returns 0,
+     * once the claim was lost to another instance or the job was queued again.
+     */
+    @Modifying
+    @Query(
+        "UPDATE IngestionJob j SET j.chunksEmbedded = :chunksEmbedded" +
+        " WHERE j.id = :id AND j.claimToken = :token AND j.status = 'RUNNING'"
+    )
+    int updateProgress(@Param("id") Long id, @Param("token") String token, @Param("chunksEmbedded") int chunksEmbedded);
+
+    @Modifying
+    @Query("UPDATE IngestionJob j SET j.leaseExpiresAt = :until WHERE j.id = :id AND j.claimToken = :token AND j.status = 'RUNNING'")
+    int renewLease(@Param("id") Long id, @Param("token") String token, @Param("until") Instant until);
+
+    @Modifying(clearAutomatically = true)
+    @Query(
+        "UPDATE IngestionJob j SET j.status = 'DONE', j.chunksEmbedded = :chunksTotal, j.chunksTotal = :chunksTotal," +
+        " j.finishedAt = :finishedAt, j.leaseExpiresAt = null" +
+        " WHERE j.id = :id AND j.claimToken = :token AND j.status = 'RUNNING'"
+    )
+    int markDone(
+        @Param("id") Long id,
+        @Param("token") String token,
+        @Param("chunksTotal") int chunksTotal,
+        @Param("finishedAt") Instant finishedAt
+    );
+
+    @Modifying(clearAutomatically = true)
+    @Query(
+        "UPDATE IngestionJob j SET j.status = 'FAILED', j.errorMessage = :errorMessage, j.finishedAt = :finishedAt," +
+        " j.leaseExpiresAt = null" +
+        " WHERE j.id = :id AND j.claimToken = :token AND j.status = 'RUNNING'"
+    )
+    int markFailed(
+        @Param("id") Long id,
+        @Param("token") String token,
+        @Param("errorMessage") String errorMessage,
+        @Param("finishedAt") Instant finishedAt
+    );
+
+    /**
+     * Puts running jobs whose lease expired, i.e. whose instance stopped without finishing them, back in the queue.
+     */
+    @Modifying
+    @Query(
+        "UPDATE IngestionJob j SET j.status = 'QUEUED', j.chunksEmbedded = 0, j.startedAt = null, j.leaseExpiresAt = null," +
+        " j.claimToken = null" +
+        " WHERE j.status = 'RUNNING' AND j.leaseExpiresAt < :now"
+    )
+    int requeueExpired(@Param("now") Instant now);
+}
@@ -0,0 +1,12 @@
+package com.walshe.aimarket.repository;
+
+/**
+ * A chunk returned by retrieval, holding only what a prompt and its cache need: no embedding and no document content.
+ *
+ * @param chunkId id of the chunk
+ * @param documentId id of the chunk's document
+ * @param documentTitle title of the chunk's document
+ * @param chunkText text of the chunk
+ * @param distance cosine distance between the chunk and the query embedding, or null if the chunk has no embedding
+ */
+public record RetrievedChunk(Long chunkId, Long documentId, String documentTitle, String chunkText, Double distance) {}
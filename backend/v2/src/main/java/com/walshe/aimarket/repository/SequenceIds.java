@@ -0,0 +1,43 @@
+package com.walshe.aimarket.repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Allocates ids from sequence_generator for rows written without Hibernate, e.g. by COPY or multi-row inserts.
+ */
+final class SequenceIds {
+
+    private static final String NEXT_ID_BLOCKS = "SELECT nextval('sequence_generator') FROM generate_series(1, ?)";
+
+    /**
+     * Increment of sequence_generator, which is also the allocation size of the entities' pooled id optimizer.
+     * Each sequence value {@code v} reserves the ids {@code v - 49 .. v}, so ids never collide with Hibernate's.
+     */
+    static final int ID_BLOCK_SIZE = 50;
+
+    private SequenceIds() {}
+
+    /**
+     * Reserves {@code count} ids, one sequence call per started block of {@link #ID_BLOCK_SIZE}.
+     */
+    static long[] next(Connection connection, int count) throws SQLException {
+        long[] ids = new long[count];
+        int blocks = (count + ID_BLOCK_SIZE - 1) / ID_BLOCK_SIZE;
+        try (PreparedStatement statement = connection.prepareStatement(NEXT_ID_BLOCKS)) {
+            statement.setInt(1, blocks);
+            try (ResultSet rs = statement.executeQuery()) {
+                int index = 0;
+                while (rs.next() && index < count) {
+                    long hi = rs.getLong(1);
+                    for (long id = hi - ID_BLOCK_SIZE + 1; id <= hi && index < count; id++) {
+                        ids[index++] = id;
+                    }
+                }
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,277 @@
+package com.walshe.aimarket.repository;
+
+import com.walshe.aimarket.config.RetrievalProperties;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Optional;
+import javax.sql.DataSource;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.ConnectionHolder;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Catalog queries and DDL for the pgvector HNSW indexes of {@code document_chunk.embedding}.
+ * <p>
+ * Index builds and drops run {@code CONCURRENTLY}, so searches and ingestion continue while they run; such statements
+ * cannot run inside a transaction, so they run in auto-commit mode.
+ * Within {@link #runWithRebuildLock}, every statement of the calling thread runs on the connection holding the lock.
+ */
+@Repository
+public class VectorIndexRepository {
+
+    /**
+     * Name of the index serving searches, created by the Liquibase changelog.
+     */
+    public static final String SERVING_INDEX_NAME = "idx_document_chunk_embedding";
+
+    private static final String FIND_HNSW_INDEXES =
+        "SELECT c.relname, pg_get_indexdef(c.oid), i.indisvalid, pg_relation_size(c.oid)" +
+        " FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid JOIN pg_class t ON t.oid = i.indrelid" +
+        " JOIN pg_am am ON am.oid = c.relam WHERE t.relname = 'document_chunk' AND am.amname = 'hnsw' ORDER BY c.relname";
+
+    private static final String FIND_INDEX_DEFINITION =
+        "SELECT indexdef FROM pg_indexes WHERE schemaname = current_schema() AND tablename = 'document_chunk' AND indexname = ?";
+
+    private static final String FIND_BUILD_PROGRESS =
+        "SELECT phase, tuples_done, tuples_total FROM pg_stat_progress_create_index WHERE relid = CAST('document_chunk' AS regclass)";
+
+    private static final String CREATE_HNSW_INDEX = "CREATE INDEX CONCURRENTLY %s ON document_chunk USING hnsw (%s) WITH (m = %d, ef_construction = %d)";
+
+    /**
+     * Session-level advisory lock key of index rebuilds, "vecindex" in ASCII.
+     */
+    private static final long REBUILD_LOCK = 0x766563696e646578L;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile RetrievalProperties.Quantization servingQuantization;
+
+    public VectorIndexRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * HNSW indexes on document_chunk, including invalid ones left behind by failed concurrent builds.
+     */
+    public List<IndexInfo> findHnswIndexes() {
+        return jdbcTemplate.query(FIND_HNSW_INDEXES, (rs, row) ->
+            new IndexInfo(rs.getString(1), rs.getString(2), rs.getBoolean(3), rs.getLong(4))
+        );
+    }
+
+    /**
+     * Quantization of the serving index as of the last {@link #refreshServingQuantization()}. Searches must order by
+     * the expression it indexes for the index to be used.
+     *
+     * @return empty before the first refresh, or if there was no serving index or its definition was not recognised.
+     */
+    public Optional<RetrievalProperties.Quantization> servingQuantization() {
+        return Optional.ofNullable(servingQuantization);
+    }
+
+    /**
+     * Reads the definition of the serving index and records its quantization for {@link #servingQuantization()}.
+     */
+    public Optional<RetrievalProperties.Quantization> refreshServingQuantization() {
+        Optional<RetrievalProperties.Quantization> quantization = jdbcTemplate
+            .queryForList(FIND_INDEX_DEFINITION, String.class, SERVING_INDEX_NAME)
+            .stream()
+            .findFirst()
+            .flatMap(VectorIndexRepository::quantizationOf);
+        servingQuantization = quantization.orElse(null);
+        return quantization;
+    }
+
+    /**
+     * The quantization whose {@link #indexedColumn} an index definition, as returned by {@code pg_get_indexdef}, uses.
+     */
+    static Optional<RetrievalProperties.Quantization> quantizationOf(String definition) {
+        if (definition.contains("bit_hamming_ops")) {
+            return Optional.of(RetrievalProperties.Quantization.BINARY);
+        }
+        if (definition.contains("halfvec_cosine_ops")) {
+            return Optional.of(RetrievalProperties.Quantization.HALFVEC);
+        }
+        if (definition.contains("vector_cosine_ops")) {
+            return Optional.of(RetrievalProperties.Quantization.NONE);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Progress of the index build running on document_chunk, as reported by PostgreSQL.
+     */
+    public Optional<BuildProgress> findBuildProgress() {
+        return jdbcTemplate
+            .query(FIND_BUILD_PROGRESS, (rs, row) -> new BuildProgress(rs.getString(1), rs.getLong(2), rs.getLong(3)))
+            .stream()
+            .findFirst();
+    }
+
+    /**
+     * Builds an HNSW cosine index on document_chunk.embedding without blocking writes.
+     *
+     * @param name name of the new index; not quoted, so it must be a plain identifier.
+     * @param quantization precision of the indexed vectors.
+     * @param maintenanceWorkMem memory for the build, or null for the server setting.
+     */
+    public void createHnswIndexConcurrently(
+        String name,
+        RetrievalProperties.Quantization quantization,
+        int m,
+        int efConstruction,
+        String maintenanceWorkMem
+    ) {
+        executeOutsideTransaction(connection -> {
+            if (maintenanceWorkMem != null) {
+                try (PreparedStatement statement = connection.prepareStatement("SELECT set_config('maintenance_work_mem', ?, false)")) {
+                    statement.setString(1, maintenanceWorkMem);
+                    statement.execute();
+                }
+            }
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(CREATE_HNSW_INDEX.formatted(name, indexedColumn(quantization), m, efConstruction));
+            } finally {
+                if (maintenanceWorkMem != null) {
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute("RESET maintenance_work_mem");
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * The indexed expression and operator class of each quantization. Searches must order by the same expression for
+     * the index to be used, see {@code DocumentChunkRepositoryCustomImpl}.
+     */
+    static String indexedColumn(RetrievalProperties.Quantization quantization) {
+        return switch (quantization) {
+            case NONE -> "embedding vector_cosine_ops";
+            case HALFVEC -> "(CAST(embedding AS halfvec(1536))) halfvec_cosine_ops";
+            case BINARY -> "(CAST(binary_quantize(embedding) AS bit(1536))) bit_hamming_ops";
+        };
+    }
+
+    public void dropIndexConcurrently(String name) {
+        executeOutsideTransaction(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DROP INDEX CONCURRENTLY IF EXISTS " + name);
+            }
+        });
+    }
+
+    public void renameIndex(String name, String newName) {
+        executeOutsideTransaction(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("ALTER INDEX " + name + " RENAME TO " + newName);
+            }
+        });
+    }
+
+    /**
+     * Puts {@code next} in place of {@code current}, which is renamed to {@code previous}, in one transaction, so that
+     * searches always find an index named {@code current}.
+     */
+    public void swapIndexes(String current, String next, String previous) {
+        jdbcTemplate.execute(
+            (ConnectionCallback<Void>) connection -> {
+                boolean autoCommit = connection.getAutoCommit();
+                connection.setAutoCommit(false);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("ALTER INDEX IF EXISTS " + current + " RENAME TO " + previous);
+                    statement.execute("ALTER INDEX " + next + " RENAME TO " + current);
+                    connection.commit();
+                } catch (SQLException | RuntimeException e) {
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(autoCommit);
+                }
+                return null;
+            }
+        );
+    }
+
+    /**
+     * Runs the work while holding the rebuild advisory lock, so that one instance at a time rebuilds the index.
+     * The connection holding the lock is bound to the calling thread for the duration of the work, so the statements
+     * of the work run on it too and a rebuild needs a single pooled connection.
+     *
+     * @return false, without running the work, if another session holds the lock.
+     */
+    public boolean runWithRebuildLock(Runnable work) {
+        DataSource dataSource = jdbcTemplate.getDataSource();
+        return Boolean.TRUE.equals(
+            jdbcTemplate.execute(
+                (ConnectionCallback<Boolean>) connection -> {
+                    boolean autoCommit = connection.getAutoCommit();
+                    // Leaves no transaction open on the connection while the index is built concurrently
+                    connection.setAutoCommit(true);
+                    try {
+                        if (!advisoryLock(connection, "SELECT pg_try_advisory_lock(?)")) {
+                            return false;
+                        }
+                        TransactionSynchronizationManager.bindResource(dataSource, new ConnectionHolder(connection));
+                        try {
+                            work.run();
+                        } finally {
+                            TransactionSynchronizationManager.unbindResource(dataSource);
+                            advisoryLock(connection, "SELECT pg_advisory_unlock(?)");
+                        }
+                        return true;
+                    } finally {
+                        connection.setAutoCommit(autoCommit);
+                    }
+                }
+            )
+        );
+    }
+
+    private static boolean advisoryLock(Connection connection, String sql) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, REBUILD_LOCK);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    private void executeOutsideTransaction(ConnectionWork work) {
+        jdbcTemplate.execute(
+            (ConnectionCallback<Void>) connection -> {
+                boolean autoCommit = connection.getAutoCommit();
+                connection.setAutoCommit(true);
+                try {
+                    work.execute(connection);
+                } finally {
+                    connection.setAutoCommit(autoCommit);
+                }
+                return null;
+            }
+        );
+    }
+
+    @FunctionalInterface
+    private interface ConnectionWork {
+        void execute(Connection connection) throws SQLException;
+    }
+
+    /**
+     * An HNSW index of document_chunk.
+     *
+     * @param valid false while a concurrent build is running or after it failed.
+     */
+    public record IndexInfo(String name, String definition, boolean valid, long sizeBytes) {}
+
+    /**
+     * A row of {@code pg_stat_progress_create_index}.
+     */
+    public record BuildProgress(String phase, long tuplesDone, long tuplesTotal) {}
+}
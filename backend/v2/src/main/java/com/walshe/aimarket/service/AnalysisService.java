@@ -1,5 +1,6 @@
 package com.walshe.aimarket.service;
 
+import com.walshe.aimarket.repository.ChunkFilter;
 import com.walshe.aimarket.service.dto.AnalysisResponseDTO;
 import reactor.core.publisher.Flux;
 
@@ -29,6 +30,18 @@ public interface AnalysisService {
         return analyze(query, topK);
     }
 
+    /**
+     * Perform analysis over the chunks of the documents matching {@code filter}.
+     *
+     * @param query user query string
+     * @param topK optional override for retrieval count
+     * @param filter (optional) criteria restricting retrieval to matching documents
+     * @param efSearch (optional) HNSW candidate list size of the retrieval, trading latency for recall
+     * @param correlationId (optional) the correlation ID for grouping calls
+     * @return structured analysis response
+     */
+    AnalysisResponseDTO analyze(String query, Integer topK, ChunkFilter filter, Integer efSearch, String correlationId);
+
     /**
      * Stream analysis results as text tokens as Server Sent Events.
      *
@@ -37,5 +50,25 @@ public interface AnalysisService {
      * @param correlationId (optional) the correlation ID for grouping calls
      * @return a Flux of SSE chunks
      */
-    Flux<org.springframework.http.codec.ServerSentEvent<String>> streamAnalysis(String query, Integer topK, String correlationId);
+    default Flux<org.springframework.http.codec.ServerSentEvent<String>> streamAnalysis(String query, Integer topK, String correlationId) {
+        return streamAnalysis(query, topK, null, null, correlationId);
+    }
+
+    /**
+     * Stream analysis results over the chunks of the documents matching {@code filter}.
+     *
+     * @param query user query string
+     * @param topK optional override for retrieval count
+     * @param filter (optional) criteria restricting retrieval to matching documents
+     * @param efSearch (optional) HNSW candidate list size of the retrieval, trading latency for recall
+     * @param correlationId (optional) the correlation ID for grouping calls
+     * @return a Flux of SSE chunks
+     */
+    Flux<org.springframework.http.codec.ServerSentEvent<String>> streamAnalysis(
+        String query,
+        Integer topK,
+        ChunkFilter filter,
+        Integer efSearch,
+        String correlationId
+    );
 }
@@ -1,5 +1,7 @@
 package com.walshe.aimarket.service;
 
+import java.io.Reader;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -13,4 +15,13 @@ public interface ChunkingService {
      * @return a list of chunks.
      */
     List<String> chunk(String content);
+
+    /**
+     * Splits the content read from the given reader into chunks, reading only as far as the chunks consumed.
+     * The chunks are the same as {@link #chunk(String)} returns for the whole content. The reader is not closed.
+     *
+     * @param reader the content to split.
+     * @return an iterator over the chunks; it throws {@link java.io.UncheckedIOException} if reading fails.
+     */
+    Iterator<String> chunk(Reader reader);
 }
@@ -0,0 +1,115 @@
+package com.walshe.aimarket.service;
+
+import com.walshe.aimarket.config.CostLogProperties;
+import com.walshe.aimarket.repository.CostLogPartitionRepository;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Maintains the monthly partitions of cost_log and cost_log_dedup: creates those of the coming months ahead of
+ * time and drops those past the retention. Rows that reached the default partition
+ * because this job fell behind are moved to the partition of their month once it is created. Runs at startup
+ * and daily; when several instances run it at once, only one does the work.
+ * <p>
+ * The partitions of cost_log_dedup are dropped along with those of cost_log, so the dedup window must fit in the
+ * kept months.
+ */
+@Service
+public class CostLogPartitionService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CostLogPartitionService.class);
+
+    private final CostLogPartitionRepository partitionRepository;
+    private final CostLogProperties properties;
+    private final TransactionTemplate transactionTemplate;
+
+    CostLogPartitionService(
+        CostLogPartitionRepository partitionRepository,
+        CostLogProperties properties,
+        PlatformTransactionManager transactionManager
+    ) {
+        if (properties.getDedupWindow().toDays() > (properties.getRetentionMonths() - 1L) * 28) {
+            throw new IllegalStateException(
+                "application.cost-log.dedup-window " + properties.getDedupWindow() + " must fit in the " +
+                (properties.getRetentionMonths() - 1) + " months kept before the current one"
+            );
+        }
+        this.partitionRepository = partitionRepository;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void maintainOnStartup() {
+        try {
+            maintainPartitions();
+        } catch (RuntimeException e) {
+            LOG.error("cost_log partition maintenance failed at startup", e);
+        }
+    }
+
+    /**
+     * Creates the missing partitions from the current month to {@code partitionsAhead} months ahead, and for any
+     * month with rows in the default partition, then drops those older than {@code retentionMonths}, months being
+     * in UTC. Each partition is created or dropped in its own transaction holding the maintenance lock, so one
+     * failing month does not hold back the others.
+     */
+    @Scheduled(cron = "${application.cost-log.maintenance-cron:0 15 0 * * *}", zone = "UTC")
+    public void maintainPartitions() {
+        maintain(YearMonth.now(ZoneOffset.UTC));
+    }
+
+    void maintain(YearMonth current) {
+        SortedSet<YearMonth> missing = new TreeSet<>(partitionRepository.findDefaultPartitionMonths());
+        for (int ahead = 0; ahead <= properties.getPartitionsAhead(); ahead++) {
+            missing.add(current.plusMonths(ahead));
+        }
+        missing.removeAll(partitionRepository.findPartitionMonths());
+        for (YearMonth month : missing) {
+            if (!runLocked("create", month, partitionRepository::createPartition)) {
+                return;
+            }
+        }
+        YearMonth oldestKept = current.minusMonths(properties.getRetentionMonths() - 1L);
+        for (YearMonth month : partitionRepository.findPartitionMonths()) {
+            if (month.isBefore(oldestKept) && !runLocked("drop", month, partitionRepository::dropPartition)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Runs one partition change in its own transaction, logging rather than propagating its failure.
+     *
+     * @return false if another instance holds the maintenance lock, which then does the remaining work.
+     */
+    private boolean runLocked(String action, YearMonth month, Consumer<YearMonth> change) {
+        try {
+            return Boolean.TRUE.equals(
+                transactionTemplate.execute(status -> {
+                    if (!partitionRepository.tryLockMaintenance()) {
+                        LOG.debug("cost_log partition maintenance is running elsewhere");
+                        return false;
+                    }
+                    LOG.info("Running {} of cost_log partition for {}", action, month);
+                    change.accept(month);
+                    return true;
+                })
+            );
+        } catch (RuntimeException e) {
+            LOG.error("Failed to {} cost_log partition for {}", action, month, e);
+            return true;
+        }
+    }
+}
@@ -4,12 +4,14 @@ import com.walshe.aimarket.domain.DocumentChunk;
 import com.walshe.aimarket.repository.DocumentChunkRepository;
 import com.walshe.aimarket.service.dto.DocumentChunkDTO;
 import com.walshe.aimarket.service.mapper.DocumentChunkMapper;
+import com.walshe.aimarket.service.retrieval.DocumentChunksChangedEvent;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -26,9 +28,16 @@ public class DocumentChunkService {
 
     private final DocumentChunkMapper documentChunkMapper;
 
-    public DocumentChunkService(DocumentChunkRepository documentChunkRepository, DocumentChunkMapper documentChunkMapper) {
+    private final ApplicationEventPublisher eventPublisher;
+
+    public DocumentChunkService(
+        DocumentChunkRepository documentChunkRepository,
+        DocumentChunkMapper documentChunkMapper,
+        ApplicationEventPublisher eventPublisher
+    ) {
         this.documentChunkRepository = documentChunkRepository;
         this.documentChunkMapper = documentChunkMapper;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -41,6 +50,7 @@ public class DocumentChunkService {
         LOG.debug("Request to save DocumentChunk : {}", documentChunkDTO);
         DocumentChunk documentChunk = documentChunkMapper.toEntity(documentChunkDTO);
         documentChunk = documentChunkRepository.save(documentChunk);
+        eventPublisher.publishEvent(DocumentChunksChangedEvent.stored(List.of(documentChunk)));
         return documentChunkMapper.toDto(documentChunk);
     }
 
@@ -54,6 +64,7 @@ public class DocumentChunkService {
         LOG.debug("Request to update DocumentChunk : {}", documentChunkDTO);
         DocumentChunk documentChunk = documentChunkMapper.toEntity(documentChunkDTO);
         documentChunk = documentChunkRepository.save(documentChunk);
+        eventPublisher.publishEvent(DocumentChunksChangedEvent.stored(List.of(documentChunk)));
         return documentChunkMapper.toDto(documentChunk);
     }
 
@@ -108,5 +119,6 @@ public class DocumentChunkService {
     public void delete(Long id) {
         LOG.debug("Request to delete DocumentChunk : {}", id);
         documentChunkRepository.deleteById(id);
+        eventPublisher.publishEvent(DocumentChunksChangedEvent.removed(List.of(id)));
     }
 }
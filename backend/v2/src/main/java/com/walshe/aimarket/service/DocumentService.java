@@ -6,12 +6,14 @@ import com.walshe.aimarket.repository.DocumentChunkRepository;
 import com.walshe.aimarket.service.dto.DocumentDTO;
 import com.walshe.aimarket.service.dto.DocumentListDTO;
 import com.walshe.aimarket.service.mapper.DocumentMapper;
+import com.walshe.aimarket.service.retrieval.DocumentChunksChangedEvent;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -30,10 +32,18 @@ public class DocumentService {
 
     private final DocumentMapper documentMapper;
 
-    public DocumentService(DocumentRepository documentRepository, DocumentChunkRepository documentChunkRepository, DocumentMapper documentMapper) {
+    private final ApplicationEventPublisher eventPublisher;
+
+    public DocumentService(
+        DocumentRepository documentRepository,
+        DocumentChunkRepository documentChunkRepository,
+        DocumentMapper documentMapper,
+        ApplicationEventPublisher eventPublisher
+    ) {
         this.documentRepository = documentRepository;
         this.documentChunkRepository = documentChunkRepository;
         this.documentMapper = documentMapper;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -123,9 +133,15 @@ public class DocumentService {
         LOG.debug("Request to delete Document : {}", id);
         // Ensure document chunks are removed before deleting the document to avoid FK violations and orphans
         documentRepository.findById(id).ifPresent(document -> {
+            List<Long> chunkIds = documentChunkRepository
+                .findFingerprintsByDocument(document)
+                .stream()
+                .map(DocumentChunkRepository.ChunkFingerprint::getId)
+                .toList();
             documentChunkRepository.deleteByDocument(document);
             documentChunkRepository.flush();
             documentRepository.delete(document);
+            eventPublisher.publishEvent(DocumentChunksChangedEvent.removed(chunkIds));
         });
     }
 }
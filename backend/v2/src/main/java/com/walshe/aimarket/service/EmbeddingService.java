@@ -1,5 +1,6 @@
 package com.walshe.aimarket.service;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -26,6 +27,23 @@ public interface EmbeddingService {
         return embed(text);
     }
 
+    /**
+     * Generates embeddings for several texts. Implementations may send the texts to the
+     * provider in as few requests as their limits allow.
+     *
+     * @param texts the texts to embed.
+     * @param documentId (optional) the document ID associated with this call.
+     * @param correlationId (optional) the correlation ID for grouping calls.
+     * @return one embedding per input text, in the same order as {@code texts}.
+     */
+    default List<float[]> embedBatch(List<String> texts, Long documentId, String correlationId) {
+        List<float[]> embeddings = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            embeddings.add(embed(text, documentId, correlationId));
+        }
+        return embeddings;
+    }
+
     /**
      * Gets the name of the model being used by this service.
      *
@@ -0,0 +1,164 @@
+package com.walshe.aimarket.service;
+
+import com.walshe.aimarket.config.IngestionProperties;
+import com.walshe.aimarket.domain.IngestionJob;
+import com.walshe.aimarket.repository.IngestionJobRepository;
+import com.walshe.aimarket.service.dto.IngestionJobDTO;
+import com.walshe.aimarket.service.mapper.IngestionJobMapper;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Service Implementation for managing {@link IngestionJob}s and their state transitions
+ * QUEUED -> RUNNING -> DONE / FAILED.
+ */
+@Service
+@Transactional
+public class IngestionJobService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IngestionJobService.class);
+
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    private final IngestionJobRepository ingestionJobRepository;
+
+    private final IngestionJobMapper ingestionJobMapper;
+
+    private final IngestionProperties properties;
+
+    /**
+     * Prefix of the claim tokens of this instance.
+     */
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final AtomicLong claims = new AtomicLong();
+
+    public IngestionJobService(
+        IngestionJobRepository ingestionJobRepository,
+        IngestionJobMapper ingestionJobMapper,
+        IngestionProperties properties
+    ) {
+        this.ingestionJobRepository = ingestionJobRepository;
+        this.ingestionJobMapper = ingestionJobMapper;
+        this.properties = properties;
+    }
+
+    /**
+     * Queue ingestion of a document.
+     *
+     * @param documentId the id of the document to ingest.
+     * @return the queued job.
+     */
+    public IngestionJobDTO enqueue(Long documentId) {
+        LOG.debug("Request to queue ingestion of Document : {}", documentId);
+        IngestionJob job = new IngestionJob().documentId(documentId).status(IngestionJob.Status.QUEUED).createdAt(Instant.now());
+        return ingestionJobMapper.toDto(ingestionJobRepository.save(job));
+    }
+
+    /**
+     * Mark up to {@code limit} of the oldest queued jobs as running, leased to this instance for {@code jobLease}.
+     * Each job is stamped with a new claim token, which the later updates of the job must present.
+     *
+     * @param limit maximum number of jobs to claim.
+     * @return the claimed jobs.
+     */
+    public List<Claim> claimQueued(int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        Instant now = Instant.now();
+        return ingestionJobRepository
+            .findQueuedForUpdate(limit)
+            .stream()
+            .map(job ->
+                job
+                    .status(IngestionJob.Status.RUNNING)
+                    .startedAt(now)
+                    .leaseExpiresAt(now.plus(properties.getJobLease()))
+                    .claimToken(instanceId + ':' + claims.incrementAndGet())
+            )
+            .map(job -> new Claim(job.getId(), job.getDocumentId(), job.getClaimToken()))
+            .toList();
+    }
+
+    /**
+     * Record the number of chunks embedded so far.
+     *
+     * @return false if the claim was lost.
+     */
+    public boolean updateProgress(Claim claim, int chunksEmbedded) {
+        return ingestionJobRepository.updateProgress(claim.id(), claim.token(), chunksEmbedded) > 0;
+    }
+
+    /**
+     * Extend the leases of jobs still running on this instance.
+     *
+     * @return the claims that were lost, whose jobs must not be updated any more.
+     */
+    public Set<Claim> renewLeases(Collection<Claim> claims) {
+        Instant until = Instant.now().plus(properties.getJobLease());
+        return claims
+            .stream()
+            .filter(claim -> ingestionJobRepository.renewLease(claim.id(), claim.token(), until) == 0)
+            .collect(Collectors.toSet());
+    }
+
+    /**
+     * Queue again the running jobs whose lease expired, left behind by an instance that crashed or was stopped.
+     *
+     * @return the number of jobs queued again.
+     */
+    public int requeueExpired() {
+        int requeued = ingestionJobRepository.requeueExpired(Instant.now());
+        if (requeued > 0) {
+            LOG.warn("Queued {} ingestion jobs again after their lease expired", requeued);
+        }
+        return requeued;
+    }
+
+    /**
+     * @return false if the claim was lost, leaving the job as its current owner set it.
+     */
+    public boolean markDone(Claim claim, int chunksTotal) {
+        return ingestionJobRepository.markDone(claim.id(), claim.token(), chunksTotal, Instant.now()) > 0;
+    }
+
+    /**
+     * @return false if the claim was lost, leaving the job as its current owner set it.
+     */
+    public boolean markFailed(Claim claim, String errorMessage) {
+        String message = errorMessage != null && errorMessage.length() > MAX_ERROR_LENGTH
+            ? errorMessage.substring(0, MAX_ERROR_LENGTH)
+            : errorMessage;
+        return ingestionJobRepository.markFailed(claim.id(), claim.token(), message, Instant.now()) > 0;
+    }
+
+    /**
+     * Get one ingestion job by id.
+     *
+     * @param id the id of the job.
+     * @return the job, if any.
+     */
+    @Transactional(readOnly = true)
+    public Optional<IngestionJobDTO> findOne(Long id) {
+        LOG.debug("Request to get IngestionJob : {}", id);
+        return ingestionJobRepository.findById(id).map(ingestionJobMapper::toDto);
+    }
+
+    /**
+     * A job claimed by this instance.
+     *
+     * @param token the claim token stamped on the job when it was claimed.
+     */
+    public record Claim(Long id, Long documentId, String token) {}
+}
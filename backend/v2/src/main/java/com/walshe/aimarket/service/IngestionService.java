@@ -3,17 +3,41 @@ package com.walshe.aimarket.service;
 import com.walshe.aimarket.ai.embedding.EmbeddingClient;
 import com.walshe.aimarket.domain.Document;
 import com.walshe.aimarket.domain.DocumentChunk;
+import com.walshe.aimarket.config.IngestionProperties;
 import com.walshe.aimarket.repository.DocumentChunkRepository;
+import com.walshe.aimarket.repository.DocumentChunkRepository.ChunkFingerprint;
 import com.walshe.aimarket.repository.DocumentRepository;
-import jakarta.transaction.Transactional;
+import com.walshe.aimarket.service.ingestion.EmbeddingPipeline;
+import com.walshe.aimarket.service.ingestion.EmbeddingPipeline.EmbeddedBatch;
+import com.walshe.aimarket.service.retrieval.DocumentChunksChangedEvent;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 /**
  * Orchestrates document ingestion: chunking, embedding generation, and persistence.
+ * The stages run concurrently through the {@link EmbeddingPipeline}.
  */
 @Service
 public class IngestionService {
@@ -25,83 +49,299 @@ public class IngestionService {
     private final ChunkingService chunkingService;
     private final EmbeddingClient embeddingClient;
     private final EmbeddingService embeddingService;
+    private final EmbeddingPipeline embeddingPipeline;
+    private final IngestionProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
 
     IngestionService(
         DocumentRepository documentRepository,
         DocumentChunkRepository documentChunkRepository,
         ChunkingService chunkingService,
         EmbeddingClient embeddingClient,
-        EmbeddingService embeddingService
+        EmbeddingService embeddingService,
+        EmbeddingPipeline embeddingPipeline,
+        IngestionProperties properties,
+        PlatformTransactionManager transactionManager,
+        ApplicationEventPublisher eventPublisher
     ) {
         this.documentRepository = documentRepository;
         this.documentChunkRepository = documentChunkRepository;
         this.chunkingService = chunkingService;
         this.embeddingClient = embeddingClient;
         this.embeddingService = embeddingService;
+        this.embeddingPipeline = embeddingPipeline;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
     }
 
-    @Transactional
     public void ingestDocument(Long documentId) {
+        ingestDocument(documentId, stored -> {});
+    }
+
+    /**
+     * Ingests the document with the given id, reporting progress as batches are embedded.
+     *
+     * @param documentId the id of the document to ingest.
+     * @param progress receives the number of chunks embedded or reused so far, outside any transaction.
+     * @return the total number of chunks stored.
+     */
+    public int ingestDocument(Long documentId, IntConsumer progress) {
         Document document = documentRepository.findById(documentId)
             .orElseThrow(() -> new IllegalArgumentException("Document not found: " + documentId));
-        ingestDocument(document);
+        return ingest(document, progress);
     }
 
-    @Transactional
     public void ingestDocument(Document document) {
+        ingest(document, stored -> {});
+    }
+
+    /**
+     * Chunks, embeds and stores content read from the given reader for a document that has no chunks yet.
+     * Chunks are read from the reader only as the pipeline has room for them, so the content is never held
+     * in memory as a whole; it is stored only as the document's chunks. Each embedded batch is written in
+     * its own short transaction. Such a document cannot be re-ingested: {@link #ingestDocument} rejects it.
+     *
+     * @param documentId the id of the document the content belongs to.
+     * @param content the document content; not closed.
+     * @return the total number of chunks stored.
+     */
+    public int ingestStream(Long documentId, Reader content) {
+        Document document = documentRepository.findById(documentId)
+            .orElseThrow(() -> new IllegalArgumentException("Document not found: " + documentId));
+        log.info("Starting streamed ingestion for document {}: {}", documentId, document.getTitle());
+
+        String model = embeddingService.getModelName();
+        int total = embeddingPipeline.run(
+            () -> chunkingService.chunk(content),
+            documentId,
+            null,
+            batch -> transactionTemplate.executeWithoutResult(status -> {
+                List<DocumentChunk> chunks = new ArrayList<>(batch.texts().size());
+                for (int i = 0; i < batch.texts().size(); i++) {
+                    String text = batch.texts().get(i);
+                    chunks.add(newChunk(document, model, batch.startIndex() + i, text, contentHash(text), checkedEmbedding(batch, i)));
+                }
+                documentChunkRepository.bulkInsert(chunks);
+                eventPublisher.publishEvent(DocumentChunksChangedEvent.stored(chunks));
+            })
+        );
+        log.info("Completed streamed ingestion for document {} using model {}. Total chunks: {}", documentId, model, total);
+        return total;
+    }
+
+    /**
+     * Chunks, embeds and stores the document. Embedding runs without a database transaction;
+     * the changes to the chunks of any previous ingestion and the new chunks are then written
+     * in one short transaction, so readers see either the previous chunks or the new ones.
+     * <p>
+     * In incremental mode, chunks whose text is unchanged keep their stored embedding: chunks at
+     * the same position are left untouched, moved chunks are re-inserted with their previous
+     * embedding, and only new or changed chunks are embedded.
+     *
+     * @throws IllegalStateException if the document has chunks but no content, as after {@link #ingestStream}.
+     */
+    private int ingest(Document document, IntConsumer progress) {
         if (document.getId() == null) {
             // Persist document if not yet persisted (should normally be persisted beforehand)
             document = documentRepository.save(document);
         }
+        final Document target = document;
         Long documentId = document.getId();
         String content = document.getContent();
         if (content == null || content.isBlank()) {
+            if (documentChunkRepository.existsByDocument(target)) {
+                // Streamed uploads are stored only as chunks, so there is no content to chunk again
+                throw new IllegalStateException(
+                    "Document " + documentId + " has chunks but no stored content (streamed upload); it cannot be re-ingested"
+                );
+            }
             log.info("Document {} has empty content; skipping ingestion", documentId);
-            return;
+            return 0;
         }
 
         log.info("Starting ingestion for document {}: {}", documentId, document.getTitle());
 
-        // Idempotency: Delete existing chunks before re-ingesting
-        documentChunkRepository.deleteByDocument(document);
-        // Ensure delete is executed before inserts to avoid unique constraint violations
-        documentChunkRepository.flush();
-
-        List<String> chunks = chunkingService.chunk(content);
         String model = embeddingService.getModelName();
-        log.info("Document {} split into {} chunks using model {}", documentId, chunks.size(), model);
-
-        int index = 0;
-        for (String chunkText : chunks) {
-            float[] embedding = embeddingService.embed(chunkText, documentId, null);
-            // Validate embedding length (vector(1536))
-            if (embedding == null || embedding.length != 1536) {
-                throw new IllegalStateException("Embedding size mismatch: expected 1536 but was " + (embedding == null ? 0 : embedding.length));
+        List<String> texts = chunkingService.chunk(content);
+        ChunkPlan plan = transactionTemplate.execute(status -> plan(target, model, texts));
+        log.debug(
+            "Document {}: {} chunks unchanged, {} moved, {} to embed, {} stale",
+            documentId,
+            plan.unchanged(),
+            plan.moved().size(),
+            plan.toEmbed().size(),
+            plan.staleIds().size()
+        );
+
+        // Nothing is written until every chunk is embedded, so a failed or running re-ingestion
+        // leaves the previous chunks in place
+        List<EmbeddedBatch> embedded = new ArrayList<>();
+        AtomicInteger ready = new AtomicInteger(plan.unchanged() + plan.moved().size());
+        embeddingPipeline.run(
+            () -> plan.toEmbed().stream().map(plan.texts()::get).iterator(),
+            documentId,
+            null,
+            batch -> {
+                embedded.add(batch);
+                progress.accept(ready.addAndGet(batch.texts().size()));
             }
+        );
+        transactionTemplate.executeWithoutResult(status -> {
+            applyPlan(plan);
+            for (EmbeddedBatch batch : embedded) {
+                List<DocumentChunk> chunks = toChunks(plan, batch);
+                documentChunkRepository.bulkInsert(chunks);
+                eventPublisher.publishEvent(DocumentChunksChangedEvent.stored(chunks));
+            }
+        });
+        log.info("Completed ingestion for document {} using model {}. Total chunks: {}", documentId, model, texts.size());
+        return texts.size();
+    }
 
-            DocumentChunk chunk = new DocumentChunk()
-                .chunkIndex(index)
-                .chunkText(chunkText)
-                .embeddingModel(model)
-                .createdAt(Instant.now())
-                .document(document)
-                .embedding(toVectorLiteral(embedding));
+    /**
+     * Matches the new chunk texts against the stored chunks by content hash. The previous embeddings of moved
+     * chunks are read here, so that they are reused even if their rows are gone by the time the plan is applied;
+     * a moved chunk whose row or embedding is already gone is embedded again.
+     */
+    private ChunkPlan plan(Document document, String model, List<String> texts) {
+        List<ChunkFingerprint> existing = documentChunkRepository.findFingerprintsByDocument(document);
+        String[] hashes = texts.stream().map(IngestionService::contentHash).toArray(String[]::new);
+        boolean[] matched = new boolean[texts.size()];
+        Set<Long> keptIds = new HashSet<>();
+        Map<String, Deque<ChunkFingerprint>> reusable = new HashMap<>();
+        for (ChunkFingerprint chunk : existing) {
+            if (!properties.isIncremental() || chunk.getContentHash() == null || !model.equals(chunk.getEmbeddingModel())) {
+                continue;
+            }
+            int index = chunk.getChunkIndex();
+            if (index < hashes.length && !matched[index] && chunk.getContentHash().equals(hashes[index])) {
+                matched[index] = true;
+                keptIds.add(chunk.getId());
+            } else {
+                reusable.computeIfAbsent(chunk.getContentHash(), hash -> new ArrayDeque<>()).add(chunk);
+            }
+        }
 
-            documentChunkRepository.save(chunk);
-            index++;
+        Map<Integer, Long> movedIds = new HashMap<>();
+        List<Integer> toEmbed = new ArrayList<>();
+        for (int i = 0; i < hashes.length; i++) {
+            if (matched[i]) {
+                continue;
+            }
+            Deque<ChunkFingerprint> candidates = reusable.get(hashes[i]);
+            if (candidates != null && !candidates.isEmpty()) {
+                movedIds.put(i, candidates.poll().getId());
+            } else {
+                toEmbed.add(i);
+            }
         }
-        log.info("Completed ingestion for document {}. Total chunks: {}", document.getId(), index);
+
+        Map<Long, float[]> previousEmbeddings = new HashMap<>();
+        if (!movedIds.isEmpty()) {
+            documentChunkRepository
+                .findAllById(movedIds.values())
+                .forEach(chunk -> previousEmbeddings.put(chunk.getId(), chunk.getEmbedding()));
+        }
+        Map<Integer, float[]> moved = new HashMap<>();
+        movedIds.forEach((index, previousId) -> {
+            float[] embedding = previousEmbeddings.get(previousId);
+            if (embedding != null) {
+                moved.put(index, embedding);
+            } else {
+                toEmbed.add(index);
+            }
+        });
+        Collections.sort(toEmbed);
+
+        Set<Long> existingIds = existing.stream().map(ChunkFingerprint::getId).collect(Collectors.toSet());
+        // Moved chunks are re-inserted at their new position, so their old rows go as well
+        List<Long> staleIds = existingIds.stream().filter(id -> !keptIds.contains(id)).toList();
+        return new ChunkPlan(document, model, texts, hashes, keptIds.size(), moved, toEmbed, existingIds, staleIds);
+    }
+
+    /**
+     * Deletes stale chunks and re-inserts moved ones with their previous embedding.
+     *
+     * @throws IllegalStateException if the document's chunks changed since the plan was made, e.g. by a concurrent
+     * ingestion; the plan is then not applied.
+     */
+    private void applyPlan(ChunkPlan plan) {
+        Long documentId = plan.document().getId();
+        // Locked until commit, so the chunks cannot change between this check and the writes below
+        Set<Long> currentIds = new HashSet<>(documentChunkRepository.lockIdsByDocumentId(documentId));
+        if (!currentIds.equals(plan.existingIds())) {
+            throw new IllegalStateException("Chunks of document " + documentId + " changed while it was being embedded; ingest it again");
+        }
+        documentChunkRepository.deleteAllByIdInBatch(plan.staleIds());
+        eventPublisher.publishEvent(DocumentChunksChangedEvent.removed(plan.staleIds()));
+
+        List<DocumentChunk> moved = new ArrayList<>(plan.moved().size());
+        plan.moved().forEach((index, embedding) -> moved.add(newChunk(plan, index, embedding)));
+        documentChunkRepository.bulkInsert(moved);
+        eventPublisher.publishEvent(DocumentChunksChangedEvent.stored(moved));
     }
 
-    private String toVectorLiteral(float[] embedding) {
-        StringBuilder sb = new StringBuilder(10 * embedding.length);
-        sb.append('[');
-        for (int i = 0; i < embedding.length; i++) {
-            if (i > 0) sb.append(", ");
-            float f = embedding[i];
-            sb.append(Float.toString(f));
+    private static List<DocumentChunk> toChunks(ChunkPlan plan, EmbeddedBatch batch) {
+        List<DocumentChunk> chunks = new ArrayList<>(batch.texts().size());
+        for (int i = 0; i < batch.texts().size(); i++) {
+            int index = plan.toEmbed().get(batch.startIndex() + i);
+            chunks.add(newChunk(plan, index, checkedEmbedding(batch, i)));
         }
-        sb.append(']');
-        return sb.toString();
+        return chunks;
     }
+
+    private static float[] checkedEmbedding(EmbeddedBatch batch, int i) {
+        float[] embedding = batch.embeddings().get(i);
+        // Validate embedding length (vector(1536))
+        if (embedding == null || embedding.length != 1536) {
+            throw new IllegalStateException("Embedding size mismatch: expected 1536 but was " + (embedding == null ? 0 : embedding.length));
+        }
+        return embedding;
+    }
+
+    private static DocumentChunk newChunk(ChunkPlan plan, int index, float[] embedding) {
+        return newChunk(plan.document(), plan.model(), index, plan.texts().get(index), plan.hashes()[index], embedding);
+    }
+
+    private static DocumentChunk newChunk(Document document, String model, int index, String text, String hash, float[] embedding) {
+        return new DocumentChunk()
+            .chunkIndex(index)
+            .chunkText(text)
+            .contentHash(hash)
+            .embeddingModel(model)
+            .createdAt(Instant.now())
+            .document(document)
+            .embedding(embedding);
+    }
+
+    private static String contentHash(String text) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * @param texts the new chunk texts, by chunk index.
+     * @param hashes content hash of each new chunk, by chunk index.
+     * @param unchanged number of stored chunks kept as they are.
+     * @param moved previous embedding by new chunk index, for unchanged chunks at a new position.
+     * @param toEmbed indexes of the chunks to embed, in order.
+     * @param existingIds ids of the stored chunks the plan was made from.
+     * @param staleIds ids of stored chunks to delete.
+     */
+    private record ChunkPlan(
+        Document document,
+        String model,
+        List<String> texts,
+        String[] hashes,
+        int unchanged,
+        Map<Integer, float[]> moved,
+        List<Integer> toEmbed,
+        Set<Long> existingIds,
+        List<Long> staleIds
+    ) {}
 }
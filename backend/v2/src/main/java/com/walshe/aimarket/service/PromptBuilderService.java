@@ -1,6 +1,6 @@
 package com.walshe.aimarket.service;
 
-import com.walshe.aimarket.domain.DocumentChunk;
+import com.walshe.aimarket.repository.RetrievedChunk;
 import java.util.List;
 
 /**
@@ -13,6 +13,16 @@ import java.util.List;
  */
 public interface PromptBuilderService {
 
+    /**
+     * Key of the prompt used by {@link #buildPrompt(String, List)}.
+     */
+    String ANALYSIS_PROMPT_KEY = "analysis.system.prompt";
+
+    /**
+     * Key of the prompt used by {@link #buildStreamingPrompt(String, List)}.
+     */
+    String STREAMING_PROMPT_KEY = "analysis.streaming.prompt";
+
     /**
      * Build a deterministic prompt string from the provided inputs.
      *
@@ -20,7 +30,7 @@ public interface PromptBuilderService {
      * @param contextChunks ordered list of context chunks; order must be preserved in the prompt
      * @return the fully constructed prompt
      */
-    String buildPrompt(String query, List<DocumentChunk> contextChunks);
+    String buildPrompt(String query, List<RetrievedChunk> contextChunks);
 
     /**
      * Build a deterministic prompt string from the provided inputs.
@@ -29,5 +39,5 @@ public interface PromptBuilderService {
      * @param contextChunks ordered list of context chunks; order must be preserved in the prompt
      * @return specific streaming prompt
      */
-    String buildStreamingPrompt(String query, List<DocumentChunk> contextChunks);
+    String buildStreamingPrompt(String query, List<RetrievedChunk> contextChunks);
 }
@@ -1,6 +1,8 @@
 package com.walshe.aimarket.service;
 
 import com.walshe.aimarket.domain.DocumentChunk;
+import com.walshe.aimarket.repository.ChunkFilter;
+import com.walshe.aimarket.repository.RetrievedChunk;
 import java.util.List;
 
 /**
@@ -16,4 +18,18 @@ public interface RetrievalService {
      * @return ordered list of similar chunks
      */
     List<DocumentChunk> retrieveSimilar(float[] queryEmbedding, Integer topK);
+
+    /**
+     * Retrieve top-k chunks for a query, using its text as well as its embedding where the engine supports it.
+     * Engines without lexical search rank by embedding only. Chunks are returned as lightweight projections,
+     * without their embeddings or documents.
+     *
+     * @param queryText the query as typed, used for full-text matching of terms such as ticker symbols
+     * @param queryEmbedding embedding vector for the query
+     * @param topK optional override for number of results; if null or <= 0, use configured default
+     * @param filter optional criteria restricting the search to the chunks of matching documents
+     * @param efSearch optional HNSW candidate list size of this search, trading latency for recall
+     * @return ordered list of relevant chunks, most relevant first
+     */
+    List<RetrievedChunk> retrieve(String queryText, float[] queryEmbedding, Integer topK, ChunkFilter filter, Integer efSearch);
 }
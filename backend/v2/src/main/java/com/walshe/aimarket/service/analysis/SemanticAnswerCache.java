@@ -0,0 +1,159 @@
+package com.walshe.aimarket.service.analysis;
+
+import com.walshe.aimarket.config.AnalysisCacheProperties;
+import com.walshe.aimarket.config.LlmProperties;
+import com.walshe.aimarket.repository.RetrievedChunk;
+import com.walshe.aimarket.service.dto.AnalysisResponseDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import org.springframework.stereotype.Component;
+
+/**
+ * Semantic cache of analysis answers.
+ * <p>
+ * An answer is reused when a new query retrieves exactly the same chunks (same ids, same order) for the same
+ * prompt and model, and its embedding is within the configured cosine similarity of the cached query. Chunks
+ * get new ids whenever their document is re-ingested with different text, so an unchanged id list means the
+ * context the answer was generated from is unchanged.
+ */
+@Component
+public class SemanticAnswerCache {
+
+    public static final String REQUESTS_METER_NAME = "analysis.cache.requests";
+
+    private final AnalysisCacheProperties properties;
+    private final String model;
+    private final Counter hits;
+    private final Counter misses;
+
+    /**
+     * Entries grouped by context key, least recently used group first.
+     */
+    private final LinkedHashMap<String, Deque<Entry>> entriesByContext = new LinkedHashMap<>(16, 0.75f, true);
+    private int size;
+
+    public SemanticAnswerCache(AnalysisCacheProperties properties, LlmProperties llmProperties, MeterRegistry registry) {
+        this.properties = properties;
+        this.model = resolveModel(llmProperties);
+        this.hits = requestsCounter(registry, "hit");
+        this.misses = requestsCounter(registry, "miss");
+    }
+
+    private static Counter requestsCounter(MeterRegistry registry, String result) {
+        return Counter.builder(REQUESTS_METER_NAME)
+            .description("Analysis answer cache lookups by result.")
+            .tag("result", result)
+            .register(registry);
+    }
+
+    private static String resolveModel(LlmProperties llmProperties) {
+        if ("bedrock".equals(llmProperties.provider()) && llmProperties.bedrock() != null) {
+            return llmProperties.bedrock().modelName();
+        }
+        return llmProperties.openai() != null ? llmProperties.openai().modelName() : llmProperties.provider();
+    }
+
+    /**
+     * Finds a cached answer for a query.
+     *
+     * @param promptKey key of the prompt the answer is generated with.
+     * @param queryEmbedding embedding of the new query.
+     * @param chunks chunks retrieved for the new query, in prompt order.
+     * @return the answer of the most similar cached query above the threshold, if any.
+     */
+    public synchronized Optional<AnalysisResponseDTO> find(String promptKey, float[] queryEmbedding, List<RetrievedChunk> chunks) {
+        if (!properties.isEnabled()) {
+            return Optional.empty();
+        }
+        Deque<Entry> entries = entriesByContext.get(contextKey(promptKey, chunks));
+        Entry best = null;
+        double bestSimilarity = properties.getSimilarityThreshold();
+        if (entries != null) {
+            Instant now = Instant.now();
+            double queryNorm = norm(queryEmbedding);
+            for (Iterator<Entry> it = entries.iterator(); it.hasNext();) {
+                Entry entry = it.next();
+                if (entry.expiresAt().isBefore(now)) {
+                    it.remove();
+                    size--;
+                    continue;
+                }
+                double similarity = cosine(queryEmbedding, queryNorm, entry);
+                if (similarity >= bestSimilarity) {
+                    best = entry;
+                    bestSimilarity = similarity;
+                }
+            }
+            if (entries.isEmpty()) {
+                entriesByContext.remove(contextKey(promptKey, chunks));
+            }
+        }
+        (best != null ? hits : misses).increment();
+        return Optional.ofNullable(best).map(Entry::response);
+    }
+
+    /**
+     * Caches the answer generated for a query.
+     */
+    public synchronized void put(String promptKey, float[] queryEmbedding, List<RetrievedChunk> chunks, AnalysisResponseDTO response) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        entriesByContext
+            .computeIfAbsent(contextKey(promptKey, chunks), key -> new ArrayDeque<>())
+            .addLast(new Entry(queryEmbedding, norm(queryEmbedding), response, Instant.now().plus(properties.getTtl())));
+        size++;
+        while (size > properties.getMaxEntries()) {
+            evictEldest();
+        }
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    private void evictEldest() {
+        Iterator<Map.Entry<String, Deque<Entry>>> groups = entriesByContext.entrySet().iterator();
+        Deque<Entry> eldest = groups.next().getValue();
+        eldest.removeFirst();
+        size--;
+        if (eldest.isEmpty()) {
+            groups.remove();
+        }
+    }
+
+    private String contextKey(String promptKey, List<RetrievedChunk> chunks) {
+        return chunks.stream().map(chunk -> String.valueOf(chunk.chunkId())).collect(Collectors.joining(",", model + '|' + promptKey + '|', ""));
+    }
+
+    private static double cosine(float[] query, double queryNorm, Entry entry) {
+        float[] cached = entry.embedding();
+        if (cached.length != query.length || queryNorm == 0 || entry.norm() == 0) {
+            return 0;
+        }
+        double dot = 0;
+        for (int i = 0; i < query.length; i++) {
+            dot += query[i] * cached[i];
+        }
+        return dot / (queryNorm * entry.norm());
+    }
+
+    private static double norm(float[] vector) {
+        double sum = 0;
+        for (float v : vector) {
+            sum += v * v;
+        }
+        return Math.sqrt(sum);
+    }
+
+    private record Entry(float[] embedding, double norm, AnalysisResponseDTO response, Instant expiresAt) {}
+}
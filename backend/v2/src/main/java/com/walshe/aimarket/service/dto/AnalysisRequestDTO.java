@@ -1,11 +1,22 @@
 package com.walshe.aimarket.service.dto;
 
+import com.walshe.aimarket.repository.ChunkFilter;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 
 /**
  * Request DTO for analysis endpoint.
+ * The optional filter restricts retrieval to the chunks of matching documents;
+ * the optional efSearch overrides the HNSW candidate list size of the retrieval.
  */
 public record AnalysisRequestDTO(
     @NotBlank String query,
-    Integer topK
-) {}
+    Integer topK,
+    ChunkFilter filter,
+    @Min(1) @Max(1000) Integer efSearch
+) {
+    public AnalysisRequestDTO(String query, Integer topK) {
+        this(query, topK, null, null);
+    }
+}
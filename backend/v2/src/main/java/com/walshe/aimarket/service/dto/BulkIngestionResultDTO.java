@@ -0,0 +1,34 @@
+package com.walshe.aimarket.service.dto;
+
+import java.io.Serializable;
+
+/**
+ * The outcome of ingesting one document of a bulk request.
+ *
+ * @param index position of the document in the request, starting at 1 (NDJSON line or archive entry).
+ * @param title title of the document, if it could be read.
+ * @param documentId id of the created document; {@code null} if the document failed.
+ * @param chunks number of chunks stored for the document.
+ * @param errorMessage why the document failed.
+ */
+public record BulkIngestionResultDTO(
+    int index,
+    String title,
+    Long documentId,
+    Status status,
+    Integer chunks,
+    String errorMessage
+) implements Serializable {
+    public enum Status {
+        DONE,
+        FAILED,
+    }
+
+    public static BulkIngestionResultDTO done(int index, String title, Long documentId, int chunks) {
+        return new BulkIngestionResultDTO(index, title, documentId, Status.DONE, chunks, null);
+    }
+
+    public static BulkIngestionResultDTO failed(int index, String title, String errorMessage) {
+        return new BulkIngestionResultDTO(index, title, null, Status.FAILED, null, errorMessage);
+    }
+}
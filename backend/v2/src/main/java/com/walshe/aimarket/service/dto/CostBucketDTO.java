@@ -0,0 +1,15 @@
+package com.walshe.aimarket.service.dto;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Cost totals of one time bucket.
+ *
+ * @param bucketStart start of the bucket, in UTC.
+ * @param calls number of LLM and embedding calls.
+ * @param totalTokens input plus output tokens.
+ * @param estimatedUsdCost estimated cost in USD.
+ * @param averageLatencyMs mean latency of the calls that reported one, counting the others as 0.
+ */
+public record CostBucketDTO(Instant bucketStart, long calls, long totalTokens, BigDecimal estimatedUsdCost, long averageLatencyMs) {}
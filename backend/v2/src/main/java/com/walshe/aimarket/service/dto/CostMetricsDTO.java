@@ -6,10 +6,15 @@ import java.util.Map;
 
 /**
  * DTO for cost metrics.
+ *
+ * @param byProvider cost per provider; calls logged without a provider are left out.
  */
 public record CostMetricsDTO(
     BigDecimal totalUsd,
     Map<String, BigDecimal> byModel,
-    Map<CostLog.CallType, BigDecimal> byCallType
+    Map<CostLog.CallType, BigDecimal> byCallType,
+    Map<String, BigDecimal> byProvider,
+    long calls,
+    long totalTokens
 ) {
 }
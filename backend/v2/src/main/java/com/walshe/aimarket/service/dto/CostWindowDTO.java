@@ -0,0 +1,25 @@
+package com.walshe.aimarket.service.dto;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Cost totals of one tumbling window of live cost events.
+ *
+ * @param windowStart start of the window.
+ * @param windowEnd end of the window (exclusive).
+ * @param totals totals over all models and providers.
+ * @param byModelAndProvider totals per model and provider.
+ */
+public record CostWindowDTO(Instant windowStart, Instant windowEnd, Totals totals, List<Entry> byModelAndProvider) {
+    /**
+     * @param averageLatencyMs mean latency of the calls that reported one.
+     */
+    public record Totals(long calls, long inputTokens, long outputTokens, BigDecimal estimatedUsdCost, long averageLatencyMs) {}
+
+    /**
+     * @param provider the provider, or null for calls logged without one.
+     */
+    public record Entry(String modelName, String provider, Totals totals) {}
+}
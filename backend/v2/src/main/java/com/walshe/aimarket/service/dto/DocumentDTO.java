@@ -23,6 +23,12 @@ public class DocumentDTO implements Serializable {
     @NotNull
     private Instant createdAt;
 
+    @Size(max = 16)
+    private String ticker;
+
+    @Size(max = 64)
+    private String source;
+
     public Long getId() {
         return id;
     }
@@ -55,6 +61,22 @@ public class DocumentDTO implements Serializable {
         this.createdAt = createdAt;
     }
 
+    public String getTicker() {
+        return ticker;
+    }
+
+    public void setTicker(String ticker) {
+        this.ticker = ticker;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public void setSource(String source) {
+        this.source = source;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -84,6 +106,8 @@ public class DocumentDTO implements Serializable {
             ", title='" + getTitle() + "'" +
             ", content='" + getContent() + "'" +
             ", createdAt='" + getCreatedAt() + "'" +
+            ", ticker='" + getTicker() + "'" +
+            ", source='" + getSource() + "'" +
             "}";
     }
 }
@@ -0,0 +1,20 @@
+package com.walshe.aimarket.service.dto;
+
+import com.walshe.aimarket.domain.IngestionJob;
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * A DTO for the {@link com.walshe.aimarket.domain.IngestionJob} entity.
+ */
+public record IngestionJobDTO(
+    Long id,
+    Long documentId,
+    IngestionJob.Status status,
+    Integer chunksEmbedded,
+    Integer chunksTotal,
+    String errorMessage,
+    Instant createdAt,
+    Instant startedAt,
+    Instant finishedAt
+) implements Serializable {}
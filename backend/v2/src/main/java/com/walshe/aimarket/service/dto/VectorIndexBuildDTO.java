@@ -0,0 +1,33 @@
+package com.walshe.aimarket.service.dto;
+
+import com.walshe.aimarket.config.RetrievalProperties;
+import java.time.Instant;
+
+/**
+ * State of a vector index rebuild.
+ *
+ * @param indexName name the index gets once swapped in.
+ * @param quantization precision of the indexed vectors.
+ * @param phase the build step while running: the PostgreSQL phase during the build, then {@code swapping}.
+ * @param tuplesDone chunks indexed so far, while PostgreSQL reports them.
+ * @param tuplesTotal chunks to index, while PostgreSQL reports them.
+ */
+public record VectorIndexBuildDTO(
+    String indexName,
+    RetrievalProperties.Quantization quantization,
+    int m,
+    int efConstruction,
+    Status status,
+    String phase,
+    Long tuplesDone,
+    Long tuplesTotal,
+    Instant startedAt,
+    Instant finishedAt,
+    String errorMessage
+) {
+    public enum Status {
+        RUNNING,
+        DONE,
+        FAILED,
+    }
+}
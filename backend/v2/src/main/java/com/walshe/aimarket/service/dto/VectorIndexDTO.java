@@ -0,0 +1,11 @@
+package com.walshe.aimarket.service.dto;
+
+/**
+ * A pgvector HNSW index of document_chunk.
+ *
+ * @param name index name.
+ * @param definition the index's CREATE INDEX statement, including its {@code m} and {@code ef_construction}.
+ * @param valid false while a concurrent build is running or after it failed.
+ * @param sizeBytes on-disk size of the index.
+ */
+public record VectorIndexDTO(String name, String definition, boolean valid, long sizeBytes) {}
@@ -0,0 +1,107 @@
+package com.walshe.aimarket.service.embedding;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingType;
+import com.knuddels.jtokkit.api.IntArrayList;
+import com.walshe.aimarket.config.ChunkingProperties;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.stereotype.Component;
+
+/**
+ * Local byte-pair-encoding tokenizer, compatible with the tokenizers of the OpenAI models.
+ * <p>
+ * The merge ranks ship with the library and are loaded once per encoding, so counting tokens never calls
+ * the provider. Special-token markers such as {@code <|endoftext|>} in document text are encoded as ordinary text.
+ */
+@Component
+public class BpeTokenizer {
+
+    private final Encoding encoding;
+
+    public BpeTokenizer(ChunkingProperties properties) {
+        this(properties.getEncoding());
+    }
+
+    public BpeTokenizer(String encodingName) {
+        EncodingType type = EncodingType.fromName(encodingName)
+            .orElseThrow(() -> new IllegalArgumentException("Unknown BPE encoding: " + encodingName));
+        this.encoding = Encodings.newLazyEncodingRegistry().getEncoding(type);
+    }
+
+    public int countTokens(String text) {
+        return text == null || text.isEmpty() ? 0 : encoding.countTokensOrdinary(text);
+    }
+
+    public IntArrayList encode(String text) {
+        return encoding.encodeOrdinary(text);
+    }
+
+    public String decode(IntArrayList tokens) {
+        return encoding.decode(tokens);
+    }
+
+    /**
+     * Splits the text into consecutive pieces of at most {@code maxTokens} tokens, each piece after the first
+     * repeating the last {@code overlapTokens} tokens of the previous one. Pieces are cut only where a token
+     * starts a new character, so multi-byte characters spread over several tokens stay whole, as long as
+     * the budget holds a whole character.
+     *
+     * @return the non-blank pieces, stripped of surrounding whitespace.
+     */
+    public List<String> split(String text, int maxTokens, int overlapTokens) {
+        IntArrayList tokens = encode(text);
+        List<String> pieces = new ArrayList<>();
+        int start = 0;
+        while (start < tokens.size()) {
+            int end = Math.min(tokens.size(), start + maxTokens);
+            String piece;
+            while (true) {
+                while (end < tokens.size() && end > start + 1 && continuesCharacter(tokens.get(end))) {
+                    end--;
+                }
+                // Stripping the leading space can make the first word cost more tokens on its own
+                piece = decode(tokens, start, end).strip();
+                if (end == start + 1 || countTokens(piece) <= maxTokens) {
+                    break;
+                }
+                end--;
+            }
+            if (!piece.isEmpty()) {
+                pieces.add(piece);
+            }
+            if (end == tokens.size()) {
+                break;
+            }
+            int next = Math.max(end - overlapTokens, start + 1);
+            while (next < end && continuesCharacter(tokens.get(next))) {
+                next++;
+            }
+            start = next;
+        }
+        return pieces;
+    }
+
+    private String decode(IntArrayList tokens, int start, int end) {
+        IntArrayList range = new IntArrayList(end - start);
+        for (int i = start; i < end; i++) {
+            range.add(tokens.get(i));
+        }
+        return decode(range);
+    }
+
+    /**
+     * Whether the token's bytes start inside a multi-byte UTF-8 character.
+     */
+    private boolean continuesCharacter(int token) {
+        IntArrayList single = new IntArrayList(1);
+        single.add(token);
+        byte[] bytes = encoding.decodeBytes(single);
+        return bytes.length > 0 && (bytes[0] & 0xC0) == 0x80;
+    }
+
+    public String getEncodingName() {
+        return encoding.getName();
+    }
+}
@@ -0,0 +1,310 @@
+package com.walshe.aimarket.service.embedding;
+
+import com.walshe.aimarket.config.AiPricingProperties;
+import com.walshe.aimarket.config.EmbeddingCacheProperties;
+import com.walshe.aimarket.repository.EmbeddingCacheRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import org.ehcache.Cache;
+import org.ehcache.CacheManager;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.CacheManagerBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.config.units.MemoryUnit;
+import org.ehcache.spi.serialization.Serializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+
+/**
+ * Content-addressed cache of embeddings, keyed by model and the SHA-256 of the normalized text, so identical
+ * text is embedded once whether it comes from a document chunk or a query.
+ * <p>
+ * Lookups go through an in-process tier (heap, backed by off-heap storage) and then the {@code embedding_cache}
+ * table. A failing database tier degrades to a miss rather than failing the embedding. Persisted entries not read
+ * from the table for {@code application.embedding.cache.retention} are pruned daily; hits of the in-process tier
+ * do not count as reads, so a pruned entry is at worst embedded and persisted again.
+ * Returned arrays may be shared between callers and must not be modified.
+ */
+@Component
+public class EmbeddingCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EmbeddingCache.class);
+
+    public static final String REQUESTS_METER_NAME = "embedding.cache.requests";
+    public static final String SAVED_TOKENS_METER_NAME = "embedding.cache.saved.tokens";
+    public static final String SAVED_COST_METER_NAME = "embedding.cache.saved.cost";
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final EmbeddingCacheProperties properties;
+    private final EmbeddingCacheRepository repository;
+    private final AiPricingProperties pricingProperties;
+    private final MeterRegistry registry;
+    private final BpeTokenizer tokenizer;
+    private final CacheManager cacheManager;
+    private final Cache<String, float[]> memory;
+
+    private final Counter memoryHits;
+    private final Counter memoryMisses;
+    private final Counter databaseHits;
+    private final Counter databaseMisses;
+    private final Map<String, SavedCounters> savedCounters = new ConcurrentHashMap<>();
+
+    public EmbeddingCache(
+        EmbeddingCacheProperties properties,
+        EmbeddingCacheRepository repository,
+        AiPricingProperties pricingProperties,
+        MeterRegistry registry,
+        BpeTokenizer tokenizer
+    ) {
+        this.properties = properties;
+        this.repository = repository;
+        this.pricingProperties = pricingProperties;
+        this.registry = registry;
+        this.tokenizer = tokenizer;
+        this.memoryHits = requestsCounter("memory", "hit");
+        this.memoryMisses = requestsCounter("memory", "miss");
+        this.databaseHits = requestsCounter("database", "hit");
+        this.databaseMisses = requestsCounter("database", "miss");
+        if (properties.isEnabled()) {
+            this.cacheManager = CacheManagerBuilder.newCacheManagerBuilder().build(true);
+            this.memory = cacheManager.createCache(
+                "embeddings",
+                CacheConfigurationBuilder.newCacheConfigurationBuilder(String.class, float[].class, resourcePools()).withValueSerializer(
+                    new FloatArraySerializer()
+                )
+            );
+        } else {
+            this.cacheManager = null;
+            this.memory = null;
+        }
+    }
+
+    private ResourcePoolsBuilder resourcePools() {
+        ResourcePoolsBuilder pools = ResourcePoolsBuilder.heap(properties.getHeapEntries());
+        long offHeapKilobytes = properties.getOffHeapSize().toKilobytes();
+        return offHeapKilobytes > 0 ? pools.offheap(offHeapKilobytes, MemoryUnit.KB) : pools;
+    }
+
+    private Counter requestsCounter(String tier, String result) {
+        return Counter.builder(REQUESTS_METER_NAME)
+            .description("Embedding cache lookups by tier and result.")
+            .tag("tier", tier)
+            .tag("result", result)
+            .register(registry);
+    }
+
+    /**
+     * @return the cached embedding of {@code text}, or {@code null} on a miss.
+     */
+    public float[] get(String model, String text) {
+        return getAll(model, List.of(text)).get(0);
+    }
+
+    /**
+     * Looks up the embeddings of several texts at once.
+     *
+     * @return a list aligned with {@code texts}, holding {@code null} for each miss.
+     */
+    public List<float[]> getAll(String model, List<String> texts) {
+        List<float[]> embeddings = new ArrayList<>(Collections.nCopies(texts.size(), null));
+        if (!properties.isEnabled() || texts.isEmpty()) {
+            return embeddings;
+        }
+        List<String> hashes = texts.stream().map(EmbeddingCache::hash).toList();
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < texts.size(); i++) {
+            float[] embedding = memory.get(memoryKey(model, hashes.get(i)));
+            if (embedding != null) {
+                embeddings.set(i, embedding);
+                memoryHits.increment();
+                recordSaved(model, texts.get(i));
+            } else {
+                missing.add(i);
+                memoryMisses.increment();
+            }
+        }
+        if (missing.isEmpty() || !properties.isPersistent()) {
+            return embeddings;
+        }
+        Set<String> missingHashes = new LinkedHashSet<>();
+        missing.forEach(i -> missingHashes.add(hashes.get(i)));
+        Map<String, float[]> found = findPersisted(model, missingHashes);
+        touchPersisted(model, found.keySet());
+        for (int i : missing) {
+            float[] embedding = found.get(hashes.get(i));
+            if (embedding != null) {
+                embeddings.set(i, embedding);
+                memory.put(memoryKey(model, hashes.get(i)), embedding);
+                databaseHits.increment();
+                recordSaved(model, texts.get(i));
+            } else {
+                databaseMisses.increment();
+            }
+        }
+        return embeddings;
+    }
+
+    public void put(String model, String text, float[] embedding) {
+        putAll(model, List.of(text), List.of(embedding));
+    }
+
+    /**
+     * Stores freshly computed embeddings in every tier.
+     *
+     * @param embeddings embeddings aligned with {@code texts}.
+     */
+    public void putAll(String model, List<String> texts, List<float[]> embeddings) {
+        if (!properties.isEnabled() || texts.isEmpty()) {
+            return;
+        }
+        Map<String, float[]> byHash = new LinkedHashMap<>();
+        for (int i = 0; i < texts.size(); i++) {
+            String hash = hash(texts.get(i));
+            byHash.put(hash, embeddings.get(i));
+            memory.put(memoryKey(model, hash), embeddings.get(i));
+        }
+        if (properties.isPersistent()) {
+            try {
+                repository.saveAll(model, byHash);
+            } catch (DataAccessException | TransactionException e) {
+                LOG.warn("Could not persist {} embeddings to the cache: {}", byHash.size(), e.getMessage());
+            }
+        }
+    }
+
+    private Map<String, float[]> findPersisted(String model, Set<String> hashes) {
+        try {
+            return repository.findByHashes(model, hashes);
+        } catch (DataAccessException e) {
+            LOG.warn("Could not read embeddings from the cache: {}", e.getMessage());
+            return Map.of();
+        }
+    }
+
+    private void touchPersisted(String model, Set<String> hashes) {
+        try {
+            repository.touch(model, hashes);
+        } catch (DataAccessException | TransactionException e) {
+            LOG.warn("Could not record the use of {} cached embeddings: {}", hashes.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes the persisted embeddings not read for longer than the configured retention.
+     */
+    @Scheduled(cron = "${application.embedding.cache.prune-cron:0 45 0 * * *}", zone = "UTC")
+    public void prunePersisted() {
+        if (!properties.isEnabled() || !properties.isPersistent()) {
+            return;
+        }
+        int deleted = repository.deleteUnusedFor(properties.getRetention());
+        LOG.info("Pruned {} embeddings unused for {} from the cache", deleted, properties.getRetention());
+    }
+
+    private void recordSaved(String model, String text) {
+        long tokens = tokenizer.countTokens(text);
+        SavedCounters counters = savedCounters.computeIfAbsent(model, this::savedCounters);
+        counters.tokens().increment(tokens);
+        if (counters.costPer1kTokens() != null) {
+            counters.cost().increment(counters.costPer1kTokens().multiply(BigDecimal.valueOf(tokens)).movePointLeft(3).doubleValue());
+        }
+    }
+
+    private SavedCounters savedCounters(String model) {
+        Counter tokens = Counter.builder(SAVED_TOKENS_METER_NAME)
+            .description("Embedding tokens not sent to the provider thanks to the cache.")
+            .baseUnit("tokens")
+            .tag("model", model)
+            .register(registry);
+        AiPricingProperties.ModelPricing pricing = pricingProperties.getModels().get(model);
+        if (pricing == null) {
+            return new SavedCounters(tokens, null, null);
+        }
+        Counter cost = Counter.builder(SAVED_COST_METER_NAME)
+            .description("Embedding cost saved by the cache.")
+            .baseUnit("usd")
+            .tag("model", model)
+            .register(registry);
+        return new SavedCounters(tokens, cost, pricing.getEmbeddingCostPer1kTokens());
+    }
+
+    private static String memoryKey(String model, String hash) {
+        return model + ':' + hash;
+    }
+
+    /**
+     * SHA-256 of the text with surrounding whitespace removed and inner whitespace runs collapsed to one space.
+     */
+    static String hash(String text) {
+        String normalized = WHITESPACE.matcher(text.strip()).replaceAll(" ");
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(normalized.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        if (cacheManager != null) {
+            cacheManager.close();
+        }
+    }
+
+    /**
+     * Saved-work counters of a model, registered on its first hit.
+     *
+     * @param cost null, like costPer1kTokens, if the model has no pricing.
+     */
+    private record SavedCounters(Counter tokens, Counter cost, BigDecimal costPer1kTokens) {}
+
+    /**
+     * Stores embeddings as raw floats in the off-heap tier instead of Java serialization.
+     */
+    private static class FloatArraySerializer implements Serializer<float[]> {
+
+        @Override
+        public ByteBuffer serialize(float[] object) {
+            ByteBuffer buffer = ByteBuffer.allocate(object.length * Float.BYTES);
+            buffer.asFloatBuffer().put(object);
+            return buffer;
+        }
+
+        @Override
+        public float[] read(ByteBuffer binary) {
+            FloatBuffer floats = binary.asFloatBuffer();
+            float[] object = new float[floats.remaining()];
+            floats.get(object);
+            return object;
+        }
+
+        @Override
+        public boolean equals(float[] object, ByteBuffer binary) {
+            return Arrays.equals(object, read(binary));
+        }
+    }
+}
@@ -5,28 +5,36 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.walshe.aimarket.ai.embedding.EmbeddingClient;
 import com.walshe.aimarket.ai.llm.CompletionResponse;
 import com.walshe.aimarket.ai.llm.LLMCompletionClient;
-import com.walshe.aimarket.domain.DocumentChunk;
+import com.walshe.aimarket.config.RetrievalProperties;
+import com.walshe.aimarket.repository.ChunkFilter;
+import com.walshe.aimarket.repository.RetrievedChunk;
 import com.walshe.aimarket.service.AnalysisService;
 import com.walshe.aimarket.service.EmbeddingService;
 import com.walshe.aimarket.service.PromptBuilderService;
 import com.walshe.aimarket.service.RetrievalService;
+import com.walshe.aimarket.service.analysis.SemanticAnswerCache;
 import com.walshe.aimarket.service.dto.AnalysisResponseDTO;
+import com.walshe.aimarket.service.retrieval.ChunkReranker;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import reactor.core.publisher.Flux;
 
 /**
  * Implementation of {@link AnalysisService} for RAG flow orchestration.
+ * <p>
+ * Only retrieval runs in a (read-only) transaction, so that no connection is held during the model calls and
+ * the embedding cache can commit its writes on a connection of its own.
  */
 @Service
-@Transactional(readOnly = true)
 class AnalysisServiceImpl implements AnalysisService {
 
     private static final Logger LOG = LoggerFactory.getLogger(AnalysisServiceImpl.class);
@@ -37,6 +45,10 @@ class AnalysisServiceImpl implements AnalysisService {
     private final PromptBuilderService promptBuilderService;
     private final LLMCompletionClient llmClient;
     private final ObjectMapper objectMapper;
+    private final SemanticAnswerCache answerCache;
+    private final ChunkReranker reranker;
+    private final RetrievalProperties retrievalProperties;
+    private final TransactionTemplate readOnlyTransaction;
 
     AnalysisServiceImpl(
         EmbeddingClient embeddingClient,
@@ -44,7 +56,11 @@ class AnalysisServiceImpl implements AnalysisService {
         RetrievalService retrievalService,
         PromptBuilderService promptBuilderService,
         LLMCompletionClient llmClient,
-        ObjectMapper objectMapper
+        ObjectMapper objectMapper,
+        SemanticAnswerCache answerCache,
+        ChunkReranker reranker,
+        RetrievalProperties retrievalProperties,
+        PlatformTransactionManager transactionManager
     ) {
         this.embeddingClient = embeddingClient;
         this.embeddingService = embeddingService;
@@ -52,6 +68,11 @@ class AnalysisServiceImpl implements AnalysisService {
         this.promptBuilderService = promptBuilderService;
         this.llmClient = llmClient;
         this.objectMapper = objectMapper;
+        this.answerCache = answerCache;
+        this.reranker = reranker;
+        this.retrievalProperties = retrievalProperties;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
     }
 
     @Override
@@ -61,12 +82,26 @@ class AnalysisServiceImpl implements AnalysisService {
 
     @Override
     public AnalysisResponseDTO analyze(String query, Integer topK, String correlationId) {
+        return analyze(query, topK, null, null, correlationId);
+    }
+
+    @Override
+    public AnalysisResponseDTO analyze(String query, Integer topK, ChunkFilter filter, Integer efSearch, String correlationId) {
         LOG.info("analysis request started correlationId={}", correlationId);
 
         // 1 & 2) Step 1: Convert query to vector using the EMBEDDING model
         // and retrieve topK chunks from the vector database.
         // This is the first AI model call in the RAG flow.
-        List<DocumentChunk> similarChunks = retrieveContext(query, topK, correlationId);
+        LOG.debug("query embedding started correlationId={}", correlationId);
+        float[] queryEmbedding = embeddingClient.generateEmbedding(query);
+        List<RetrievedChunk> similarChunks = retrieveContext(query, queryEmbedding, topK, filter, efSearch);
+
+        // A similar enough query answered from the same context skips the completion call
+        Optional<AnalysisResponseDTO> cached = answerCache.find(PromptBuilderService.ANALYSIS_PROMPT_KEY, queryEmbedding, similarChunks);
+        if (cached.isPresent()) {
+            LOG.info("analysis request served from cache correlationId={}", correlationId);
+            return cached.get();
+        }
 
         // 3) Build prompt with retrieved context
         String prompt = promptBuilderService.buildPrompt(query, similarChunks);
@@ -83,24 +118,32 @@ class AnalysisServiceImpl implements AnalysisService {
         LOG.info("analysis request completed correlationId={}", correlationId);
 
         // 6) Map to response DTO including modelUsed + tokensUsed
-        return new AnalysisResponseDTO(
+        AnalysisResponseDTO response = new AnalysisResponseDTO(
             parsed.summary,
             parsed.riskFactors,
             parsed.confidenceScore,
             llmResult.modelName(),
             llmResult.inputTokens() + llmResult.outputTokens()
         );
+        answerCache.put(PromptBuilderService.ANALYSIS_PROMPT_KEY, queryEmbedding, similarChunks, response);
+        return response;
     }
 
     @Override
-    public Flux<ServerSentEvent<String>> streamAnalysis(String query, Integer topK, String correlationId) {
+    public Flux<ServerSentEvent<String>> streamAnalysis(
+        String query,
+        Integer topK,
+        ChunkFilter filter,
+        Integer efSearch,
+        String correlationId
+    ) {
         LOG.info("stream analysis request started correlationId={}", correlationId);
 
         // 1) Embed query
         float[] queryEmbedding = embeddingClient.generateEmbedding(query);
 
         // 2) Retrieve context
-        List<DocumentChunk> similarChunks = retrievalService.retrieveSimilar(queryEmbedding, topK);
+        List<RetrievedChunk> similarChunks = retrieveContext(query, queryEmbedding, topK, filter, efSearch);
 
         // 3) Build prompt
         String prompt = promptBuilderService.buildStreamingPrompt(query, similarChunks);
@@ -125,13 +168,40 @@ class AnalysisServiceImpl implements AnalysisService {
             .doOnComplete(() -> LOG.info("stream analysis request completed correlationId={}", correlationId));
     }
 
-    private List<DocumentChunk> retrieveContext(String query, Integer topK, String correlationId) {
-        LOG.debug("query embedding started correlationId={}", correlationId);
-        float[] queryEmbedding = embeddingClient.generateEmbedding(query);
-        return retrievalService.retrieveSimilar(queryEmbedding, topK);
+    /**
+     * Retrieve the prompt context: with re-ranking enabled, over-fetch candidates and let the reranker
+     * keep the topK most relevant, least redundant of them.
+     */
+    private List<RetrievedChunk> retrieveContext(
+        String query,
+        float[] queryEmbedding,
+        Integer topK,
+        ChunkFilter filter,
+        Integer efSearch
+    ) {
+        return readOnlyTransaction.execute(status -> retrieveAndRerank(query, queryEmbedding, topK, filter, efSearch));
+    }
+
+    private List<RetrievedChunk> retrieveAndRerank(
+        String query,
+        float[] queryEmbedding,
+        Integer topK,
+        ChunkFilter filter,
+        Integer efSearch
+    ) {
+        RetrievalProperties.Rerank rerank = retrievalProperties.getRerank();
+        if (!rerank.isEnabled()) {
+            return retrievalService.retrieve(query, queryEmbedding, topK, filter, efSearch);
+        }
+        int effectiveTopK = (topK == null || topK <= 0) ? retrievalProperties.getDefaultTopK() : topK;
+        int candidates = Math.max(rerank.getCandidates(), effectiveTopK);
+        List<RetrievedChunk> retrieved = retrievalService.retrieve(query, queryEmbedding, candidates, filter, efSearch);
+        List<RetrievedChunk> selected = reranker.rerank(query, retrieved, effectiveTopK);
+        LOG.debug("re-ranking kept {} of {} candidates", selected.size(), retrieved.size());
+        return selected;
     }
 
-    private ParsedModelResponse parseModelJson(String content) {
+    ParsedModelResponse parseModelJson(String content) {
         try {
             JsonNode root = objectMapper.readTree(content);
             if (root == null || !root.isObject()) {
@@ -173,5 +243,5 @@ class AnalysisServiceImpl implements AnalysisService {
         }
     }
 
-    private record ParsedModelResponse(String summary, List<String> riskFactors, double confidenceScore) {}
+    record ParsedModelResponse(String summary, List<String> riskFactors, double confidenceScore) {}
 }
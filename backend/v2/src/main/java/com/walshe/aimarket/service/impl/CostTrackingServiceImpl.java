@@ -37,6 +37,8 @@ public class CostTrackingServiceImpl implements CostTrackingService {
      * Business-level deduplication is handled at the consumer level (idempotent consumer)
      * to keep this producer extremely thin. Technical deduplication (exactly-once delivery to broker)
      * is handled via Kafka's idempotent producer configuration.
+     * Events are keyed by correlation id, so duplicates land on the same partition and are dropped
+     * by the same consumer.
      */
     @Override
     public CostLog logEmbeddingUsage(String modelName, Integer inputTokens, Long documentId, String correlationId, String provider, Long latencyMs) {
@@ -52,7 +54,7 @@ public class CostTrackingServiceImpl implements CostTrackingService {
                 provider,
                 latencyMs
             );
-            kafkaTemplate.send(topic, event);
+            send(event);
         } catch (Exception e) {
             log.error("Failed to send embedding usage event to Kafka", e);
         }
@@ -78,10 +80,18 @@ public class CostTrackingServiceImpl implements CostTrackingService {
                 provider,
                 latencyMs
             );
-            kafkaTemplate.send(topic, event);
+            send(event);
         } catch (Exception e) {
             log.error("Failed to send completion usage event to Kafka", e);
         }
         return null;
     }
+
+    /**
+     * Events without a correlation id have no key; the producer spreads them across partitions.
+     */
+    private void send(CostLogEvent event) {
+        String key = event.correlationId() != null ? event.correlationId().toString() : null;
+        kafkaTemplate.send(topic, key, event);
+    }
 }
@@ -1,6 +1,6 @@
 package com.walshe.aimarket.service.impl;
 
-import com.walshe.aimarket.domain.DocumentChunk;
+import com.walshe.aimarket.repository.RetrievedChunk;
 import com.walshe.aimarket.service.PromptBuilderService;
 import com.walshe.aimarket.service.PromptService;
 import java.util.List;
@@ -22,32 +22,32 @@ class PromptBuilderServiceImpl implements PromptBuilderService {
     }
 
     @Override
-    public String buildPrompt(String query, List<DocumentChunk> contextChunks) {
+    public String buildPrompt(String query, List<RetrievedChunk> contextChunks) {
         Objects.requireNonNull(query, "query must not be null");
         Objects.requireNonNull(contextChunks, "contextChunks must not be null");
 
         final String contextSection = buildContextSection(contextChunks);
 
-        return promptService.renderPrompt("analysis.system.prompt", Map.of(
+        return promptService.renderPrompt(ANALYSIS_PROMPT_KEY, Map.of(
             "context", contextSection,
             "query", query
         ));
     }
 
     @Override
-    public String buildStreamingPrompt(String query, List<DocumentChunk> contextChunks) {
+    public String buildStreamingPrompt(String query, List<RetrievedChunk> contextChunks) {
         Objects.requireNonNull(query, "query must not be null");
         Objects.requireNonNull(contextChunks, "contextChunks must not be null");
 
         final String contextSection = buildContextSection(contextChunks);
 
-        return promptService.renderPrompt("analysis.streaming.prompt", Map.of(
+        return promptService.renderPrompt(STREAMING_PROMPT_KEY, Map.of(
             "context", contextSection,
             "query", query
         ));
     }
 
-    private String buildContextSection(List<DocumentChunk> chunks) {
+    private String buildContextSection(List<RetrievedChunk> chunks) {
         if (chunks.isEmpty()) {
             return "(no context)"; // deterministic placeholder for empty context
         }
@@ -55,11 +55,11 @@ class PromptBuilderServiceImpl implements PromptBuilderService {
         return rangeMapToLines(chunks);
     }
 
-    private String rangeMapToLines(List<DocumentChunk> chunks) {
+    private String rangeMapToLines(List<RetrievedChunk> chunks) {
         StringBuilder sb = new StringBuilder(Math.max(64, chunks.size() * 64));
         for (int i = 0; i < chunks.size(); i++) {
-            DocumentChunk c = chunks.get(i);
-            String text = c != null ? c.getChunkText() : "";
+            RetrievedChunk c = chunks.get(i);
+            String text = c != null ? c.chunkText() : "";
             // Normalize nulls to empty to keep determinism
             if (text == null) {
                 text = "";
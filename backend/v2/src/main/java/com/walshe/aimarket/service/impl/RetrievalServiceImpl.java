@@ -2,15 +2,16 @@ package com.walshe.aimarket.service.impl;
 
 import com.walshe.aimarket.config.RetrievalProperties;
 import com.walshe.aimarket.domain.DocumentChunk;
+import com.walshe.aimarket.repository.ChunkFilter;
 import com.walshe.aimarket.repository.DocumentChunkRepository;
+import com.walshe.aimarket.repository.RetrievedChunk;
 import com.walshe.aimarket.service.RetrievalService;
 import java.util.List;
-import java.util.Locale;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
 @Service
+@ConditionalOnProperty(name = "application.retrieval.engine", havingValue = "pgvector", matchIfMissing = true)
 class RetrievalServiceImpl implements RetrievalService {
 
     private final DocumentChunkRepository repository;
@@ -24,21 +25,20 @@ class RetrievalServiceImpl implements RetrievalService {
     @Override
     public List<DocumentChunk> retrieveSimilar(float[] queryEmbedding, Integer topK) {
         int effectiveTopK = (topK == null || topK <= 0) ? properties.getDefaultTopK() : topK;
-        String vectorLiteral = toVectorLiteral(queryEmbedding);
-        List<DocumentChunk> results = repository.findSimilarByCosine(vectorLiteral, effectiveTopK);
+        List<DocumentChunk> results = repository.findSimilarByCosine(queryEmbedding, effectiveTopK);
         System.out.println("[DEBUG_LOG] RetrievalServiceImpl effectiveTopK: " + effectiveTopK);
-        System.out.println("[DEBUG_LOG] RetrievalServiceImpl query (first 20 chars): " + vectorLiteral.substring(0, Math.min(20, vectorLiteral.length())));
         System.out.println("[DEBUG_LOG] RetrievalServiceImpl results size: " + results.size());
         return results;
     }
 
-    private String toVectorLiteral(float[] embedding) {
-        if (embedding == null || embedding.length == 0) {
-            return "[]";
+    @Override
+    public List<RetrievedChunk> retrieve(String queryText, float[] queryEmbedding, Integer topK, ChunkFilter filter, Integer efSearch) {
+        int effectiveTopK = (topK == null || topK <= 0) ? properties.getDefaultTopK() : topK;
+        RetrievalProperties.Hybrid hybrid = properties.getHybrid();
+        if (!hybrid.isEnabled() || queryText == null || queryText.isBlank()) {
+            return repository.findNearest(queryEmbedding, effectiveTopK, filter, efSearch);
         }
-        // Ensure dot decimal separator regardless of locale
-        return IntStream.range(0, embedding.length)
-            .mapToObj(i -> String.format(Locale.ROOT, "%s", embedding[i]))
-            .collect(Collectors.joining(", ", "[", "]"));
+        int candidates = Math.max(hybrid.getCandidates(), effectiveTopK);
+        return repository.findHybrid(queryText, queryEmbedding, effectiveTopK, candidates, hybrid.getRrfK(), filter, efSearch);
     }
 }
@@ -1,23 +1,37 @@
 package com.walshe.aimarket.service.impl;
 
 import com.walshe.aimarket.service.ChunkingService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 /**
  * Deterministic, sentence-aware chunking implementation.
  * - Splits on sentence punctuation [. ! ? ; :]
  * - Enforces a maximum chunk length (characters)
  * - Preserves original order
+ * <p>
+ * The content is scanned once: line endings and runs of spaces are normalized while each sentence is copied
+ * into a reusable buffer, and chunks are cut from that buffer by offset, so the only strings allocated are
+ * the chunks themselves. Sentences longer than the maximum are hard-wrapped as they grow, so chunking a
+ * {@link Reader} holds at most a couple of chunks of text at a time.
  */
 @Service
+@ConditionalOnProperty(prefix = "application.chunking", name = "strategy", havingValue = "sentence", matchIfMissing = true)
 class SimpleChunkingService implements ChunkingService {
 
     // Keep default package-private visibility for Spring component per guidelines
     static final int DEFAULT_MAX_CHUNK_LEN = 800; // conservative, can be tuned
 
+    private static final int READ_BUFFER_SIZE = 8192;
+
     private final int maxChunkLength;
 
     SimpleChunkingService() {
@@ -30,96 +44,228 @@ class SimpleChunkingService implements ChunkingService {
 
     @Override
     public List<String> chunk(String content) {
+        return chunk((CharSequence) content);
+    }
+
+    /**
+     * Chunks any character sequence without copying it first.
+     */
+    List<String> chunk(CharSequence content) {
         List<String> result = new ArrayList<>();
         if (content == null) {
             return result;
         }
-        String normalized = content.replaceAll("\r\n?", "\n"); // normalize newlines
-        // Split by sentence boundaries while keeping delimiters
-        List<String> sentences = splitIntoSentences(normalized);
-
-        StringBuilder current = new StringBuilder();
-        for (String sentence : sentences) {
-            if (sentence.isBlank()) continue;
-            if (sentence.length() > maxChunkLength) {
-                // hard-wrap long sentence deterministically
-                flushBuffer(result, current);
-                splitLongSentence(sentence, result);
-                continue;
-            }
-            if (current.length() == 0) {
-                current.append(sentence.trim());
-            } else if (current.length() + 1 + sentence.length() <= maxChunkLength) {
-                current.append(' ').append(sentence.trim());
-            } else {
-                flushBuffer(result, current);
-                current.append(sentence.trim());
-            }
+        Chunker chunker = new Chunker(result);
+        for (int i = 0; i < content.length(); i++) {
+            chunker.accept(content.charAt(i));
         }
-        flushBuffer(result, current);
+        chunker.finish();
         return result;
     }
 
-    private static void flushBuffer(List<String> result, StringBuilder current) {
-        if (current.length() > 0) {
-            result.add(current.toString());
-            current.setLength(0);
+    @Override
+    public Iterator<String> chunk(Reader reader) {
+        return new ReaderChunkIterator(reader);
+    }
+
+    private static boolean isBlank(CharSequence s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (!Character.isWhitespace(s.charAt(i))) {
+                return false;
+            }
         }
+        return true;
     }
 
-    private void splitLongSentence(String sentence, List<String> out) {
-        String s = sentence.trim();
-        int start = 0;
-        while (start < s.length()) {
-            int end = Math.min(s.length(), start + maxChunkLength);
-            // avoid cutting inside a multi-space region if possible
-            int cut = end;
-            if (end < s.length()) {
-                int lastSpace = s.lastIndexOf(' ', end - 1);
-                if (lastSpace >= start + Math.max(1, maxChunkLength / 2)) {
-                    cut = lastSpace;
+    private static boolean isSentenceBoundary(char c) {
+        return c == '.' || c == '!' || c == '?' || c == ';' || c == ':';
+    }
+
+    private static boolean isClosingPunctuation(char c) {
+        return c == '"' || c == '\'' || c == ')' || c == ']' || c == '}';
+    }
+
+    /**
+     * Incremental chunking state, fed one character at a time.
+     */
+    private final class Chunker {
+
+        private final List<String> out;
+        private final StringBuilder current = new StringBuilder(maxChunkLength);
+        private final StringBuilder sentence = new StringBuilder();
+        // the previous character was \r, so a following \n belongs to the same line ending
+        private boolean skipLineFeed;
+        // the sentence ended with boundary punctuation; only closing quotes/brackets may still join it
+        private boolean sentenceClosed;
+        // the sentence exceeded the maximum and its leading pieces were already emitted
+        private boolean wrapping;
+
+        Chunker(List<String> out) {
+            this.out = out;
+        }
+
+        void accept(char c) {
+            if (skipLineFeed) {
+                skipLineFeed = false;
+                if (c == '\n') {
+                    return;
+                }
+            }
+            if (c == '\r') {
+                // normalize \r\n and lone \r to \n
+                c = '\n';
+                skipLineFeed = true;
+            }
+            if (sentenceClosed) {
+                if (isClosingPunctuation(c)) {
+                    append(c);
+                    return;
                 }
+                endSentence();
+            }
+            append(c);
+            sentenceClosed = isSentenceBoundary(c);
+        }
+
+        void finish() {
+            endSentence();
+            flushCurrent();
+        }
+
+        /**
+         * Appends to the sentence, dropping leading whitespace and collapsing runs of spaces.
+         */
+        private void append(char c) {
+            int length = sentence.length();
+            if (length == 0) {
+                if (c <= ' ') {
+                    return;
+                }
+            } else if (c == ' ' && sentence.charAt(length - 1) == ' ') {
+                return;
+            }
+            sentence.append(c);
+            // Once the sentence ends in a character trimming cannot remove, its leading pieces are final
+            if (length + 1 - maxChunkLength > maxChunkLength && c > ' ' && !Character.isWhitespace(c)) {
+                if (!wrapping) {
+                    flushCurrent();
+                    wrapping = true;
+                }
+                sentence.delete(0, split(false));
             }
-            out.add(s.substring(start, cut));
-            start = cut;
-            while (start < s.length() && s.charAt(start) == ' ') start++; // skip spaces
         }
-    }
 
-    private static List<String> splitIntoSentences(String text) {
-        List<String> sentences = new ArrayList<>();
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < text.length(); i++) {
-            char c = text.charAt(i);
-            sb.append(c);
-            if (isSentenceBoundary(c)) {
-                // include following closing quotes/brackets deterministically
-                int j = i + 1;
-                while (j < text.length() && isClosingPunctuation(text.charAt(j))) {
-                    sb.append(text.charAt(j));
-                    i = j;
-                    j++;
+        /**
+         * Adds the completed sentence to the current chunk, flushing or hard-wrapping as needed, and clears it.
+         */
+        private void endSentence() {
+            sentenceClosed = false;
+            int end = sentence.length();
+            while (end > 0 && sentence.charAt(end - 1) <= ' ') {
+                end--;
+            }
+            sentence.setLength(end);
+            if (wrapping) {
+                split(true);
+                wrapping = false;
+            } else if (!isBlank(sentence)) {
+                int sentenceLength = sentence.length();
+                if (sentenceLength > maxChunkLength) {
+                    // hard-wrap long sentence deterministically
+                    flushCurrent();
+                    split(true);
+                } else if (current.length() == 0) {
+                    current.append(sentence);
+                } else if (current.length() + 1 + sentenceLength <= maxChunkLength) {
+                    current.append(' ').append(sentence);
+                } else {
+                    flushCurrent();
+                    current.append(sentence);
                 }
-                sentences.add(trimSoft(sb.toString()));
-                sb.setLength(0);
             }
+            sentence.setLength(0);
         }
-        if (sb.length() > 0) {
-            sentences.add(trimSoft(sb.toString()));
+
+        private void flushCurrent() {
+            if (current.length() > 0) {
+                out.add(current.toString());
+                current.setLength(0);
+            }
         }
-        return sentences;
-    }
 
-    private static boolean isSentenceBoundary(char c) {
-        return c == '.' || c == '!' || c == '?' || c == ';' || c == ':';
+        /**
+         * Emits pieces of at most the maximum length from the start of the sentence.
+         *
+         * @param all whether to emit the whole sentence, or only pieces followed by more than a maximum of text.
+         * @return the offset of the first character not emitted.
+         */
+        private int split(boolean all) {
+            int start = 0;
+            while (all ? start < sentence.length() : sentence.length() - start > maxChunkLength) {
+                int end = Math.min(sentence.length(), start + maxChunkLength);
+                // avoid cutting inside a multi-space region if possible
+                int cut = end;
+                if (end < sentence.length()) {
+                    int lastSpace = sentence.lastIndexOf(" ", end - 1);
+                    if (lastSpace >= start + Math.max(1, maxChunkLength / 2)) {
+                        cut = lastSpace;
+                    }
+                }
+                out.add(sentence.substring(start, cut));
+                start = cut;
+                while (start < sentence.length() && sentence.charAt(start) == ' ') start++; // skip spaces
+            }
+            return start;
+        }
     }
 
-    private static boolean isClosingPunctuation(char c) {
-        return c == '"' || c == '\'' || c == ')' || c == ']' || c == '}';
-    }
+    /**
+     * Reads the content in blocks, chunking each block only when the previous chunks are consumed.
+     */
+    private final class ReaderChunkIterator implements Iterator<String> {
+
+        private final Reader reader;
+        private final char[] buffer = new char[READ_BUFFER_SIZE];
+        private final List<String> ready = new ArrayList<>();
+        private final Chunker chunker = new Chunker(ready);
+        private int position;
+        private boolean finished;
+
+        ReaderChunkIterator(Reader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (position == ready.size() && !finished) {
+                ready.clear();
+                position = 0;
+                int read = read();
+                if (read < 0) {
+                    chunker.finish();
+                    finished = true;
+                }
+                for (int i = 0; i < read; i++) {
+                    chunker.accept(buffer[i]);
+                }
+            }
+            return position < ready.size();
+        }
 
-    private static String trimSoft(String s) {
-        // collapse internal runs of whitespace deterministically
-        return s.trim().replaceAll("\s+", " ");
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return ready.get(position++);
+        }
+
+        private int read() {
+            try {
+                return reader.read(buffer);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read document content", e);
+            }
+        }
     }
 }
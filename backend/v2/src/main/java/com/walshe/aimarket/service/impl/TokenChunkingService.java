@@ -0,0 +1,252 @@
+package com.walshe.aimarket.service.impl;
+
+import com.walshe.aimarket.config.ChunkingProperties;
+import com.walshe.aimarket.service.ChunkingService;
+import com.walshe.aimarket.service.embedding.BpeTokenizer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.StringJoiner;
+
+/**
+ * Token-budgeted, sentence-aware chunking implementation.
+ * - Splits on sentence punctuation [. ! ? ; :], collapsing whitespace runs to one space
+ * - Packs whole sentences into chunks of at most {@code maxTokens} BPE tokens
+ * - Starts each chunk with the trailing sentences of the previous one, up to {@code overlapTokens} tokens
+ * - Splits sentences longer than a chunk by tokens, with the same overlap
+ * <p>
+ * BPE merges never cross the space that joins two sentences, so the count of a chunk is the count of its first
+ * sentence plus the counts of the others after a joining space.
+ */
+@Service
+@ConditionalOnProperty(prefix = "application.chunking", name = "strategy", havingValue = "token")
+class TokenChunkingService implements ChunkingService {
+
+    private static final int READ_BUFFER_SIZE = 8192;
+
+    // Unpunctuated text is cut into sentences at the first whitespace after this many characters per token
+    // of budget, which bounds memory; such sentences are longer than a chunk and get split by tokens anyway
+    private static final int MAX_SENTENCE_CHARS_PER_TOKEN = 16;
+
+    private final BpeTokenizer tokenizer;
+    private final int maxTokens;
+    private final int overlapTokens;
+
+    TokenChunkingService(BpeTokenizer tokenizer, ChunkingProperties properties) {
+        this(tokenizer, properties.getMaxTokens(), properties.getOverlapTokens());
+    }
+
+    TokenChunkingService(BpeTokenizer tokenizer, int maxTokens, int overlapTokens) {
+        this.tokenizer = tokenizer;
+        this.maxTokens = Math.max(1, maxTokens);
+        this.overlapTokens = Math.max(0, Math.min(overlapTokens, this.maxTokens - 1));
+    }
+
+    @Override
+    public List<String> chunk(String content) {
+        List<String> result = new ArrayList<>();
+        if (content != null) {
+            chunk(new StringReader(content)).forEachRemaining(result::add);
+        }
+        return result;
+    }
+
+    @Override
+    public Iterator<String> chunk(Reader reader) {
+        return new ReaderChunkIterator(reader);
+    }
+
+    private static boolean isSentenceBoundary(char c) {
+        return c == '.' || c == '!' || c == '?' || c == ';' || c == ':';
+    }
+
+    private static boolean isClosingPunctuation(char c) {
+        return c == '"' || c == '\'' || c == ')' || c == ']' || c == '}';
+    }
+
+    /**
+     * A sentence with its token count after a joining space, and lazily its count at the start of a chunk.
+     */
+    private final class Sentence {
+
+        private final String text;
+        private final int tokens;
+        private int leadingTokens = -1;
+
+        Sentence(String text) {
+            this.text = text;
+            this.tokens = tokenizer.countTokens(" " + text);
+        }
+
+        int leadingTokens() {
+            if (leadingTokens < 0) {
+                leadingTokens = tokenizer.countTokens(text);
+            }
+            return leadingTokens;
+        }
+    }
+
+    /**
+     * Incremental chunking state, fed one character at a time.
+     */
+    private final class Chunker {
+
+        private final List<String> out;
+        private final StringBuilder sentence = new StringBuilder();
+        private final int maxSentenceChars = maxTokens * MAX_SENTENCE_CHARS_PER_TOKEN;
+        // sentences of the chunk being filled, starting with those overlapping the previous chunk
+        private final Deque<Sentence> window = new ArrayDeque<>();
+        private int windowTokens;
+        // whether the window holds sentences not emitted yet
+        private boolean pending;
+        private boolean sentenceClosed;
+
+        Chunker(List<String> out) {
+            this.out = out;
+        }
+
+        void accept(char c) {
+            if (sentenceClosed) {
+                if (isClosingPunctuation(c)) {
+                    sentence.append(c);
+                    return;
+                }
+                endSentence();
+            }
+            if (Character.isWhitespace(c)) {
+                int length = sentence.length();
+                if (length > 0 && sentence.charAt(length - 1) != ' ') {
+                    sentence.append(' ');
+                }
+                if (length >= maxSentenceChars) {
+                    endSentence();
+                }
+                return;
+            }
+            sentence.append(c);
+            sentenceClosed = isSentenceBoundary(c);
+            if (sentence.length() >= 2 * maxSentenceChars) {
+                // text without any whitespace, e.g. an embedded blob
+                endSentence();
+            }
+        }
+
+        void finish() {
+            endSentence();
+            emitWindow();
+        }
+
+        private void endSentence() {
+            sentenceClosed = false;
+            int length = sentence.length();
+            if (length > 0 && sentence.charAt(length - 1) == ' ') {
+                sentence.setLength(length - 1);
+            }
+            if (!sentence.isEmpty()) {
+                add(new Sentence(sentence.toString()));
+            }
+            sentence.setLength(0);
+        }
+
+        private void add(Sentence next) {
+            if (tokensWith(next) > maxTokens) {
+                emitWindow();
+                // keep the trailing sentences that fit the overlap and leave room for the new one
+                while (!window.isEmpty() && (windowTokens > overlapTokens || tokensWith(next) > maxTokens)) {
+                    removeFirst();
+                }
+                if (window.isEmpty() && next.leadingTokens() > maxTokens) {
+                    out.addAll(tokenizer.split(next.text, maxTokens, overlapTokens));
+                    return;
+                }
+            }
+            windowTokens = tokensWith(next);
+            window.addLast(next);
+            pending = true;
+        }
+
+        /**
+         * Tokens of the window's chunk with the sentence appended.
+         */
+        private int tokensWith(Sentence next) {
+            return window.isEmpty() ? next.leadingTokens() : windowTokens + next.tokens;
+        }
+
+        private void removeFirst() {
+            windowTokens -= window.removeFirst().leadingTokens();
+            Sentence first = window.peekFirst();
+            if (first != null) {
+                windowTokens += first.leadingTokens() - first.tokens;
+            }
+        }
+
+        private void emitWindow() {
+            if (pending) {
+                StringJoiner chunk = new StringJoiner(" ");
+                window.forEach(s -> chunk.add(s.text));
+                out.add(chunk.toString());
+                pending = false;
+            }
+        }
+    }
+
+    /**
+     * Reads the content in blocks, chunking each block only when the previous chunks are consumed.
+     */
+    private final class ReaderChunkIterator implements Iterator<String> {
+
+        private final Reader reader;
+        private final char[] buffer = new char[READ_BUFFER_SIZE];
+        private final List<String> ready = new ArrayList<>();
+        private final Chunker chunker = new Chunker(ready);
+        private int position;
+        private boolean finished;
+
+        ReaderChunkIterator(Reader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (position == ready.size() && !finished) {
+                ready.clear();
+                position = 0;
+                int read = read();
+                if (read < 0) {
+                    chunker.finish();
+                    finished = true;
+                }
+                for (int i = 0; i < read; i++) {
+                    chunker.accept(buffer[i]);
+                }
+            }
+            return position < ready.size();
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return ready.get(position++);
+        }
+
+        private int read() {
+            try {
+                return reader.read(buffer);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read document content", e);
+            }
+        }
+    }
+}
@@ -3,7 +3,14 @@ package com.walshe.aimarket.service.impl.openai;
 import com.walshe.aimarket.config.EmbeddingProperties;
 import com.walshe.aimarket.service.CostTrackingService;
 import com.walshe.aimarket.service.EmbeddingService;
+import com.walshe.aimarket.service.embedding.BpeTokenizer;
+import com.walshe.aimarket.service.embedding.EmbeddingCache;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClient;
@@ -17,10 +24,20 @@ public class OpenAiEmbeddingService implements EmbeddingService {
     private final RestClient restClient;
     private final EmbeddingProperties properties;
     private final CostTrackingService costTrackingService;
+    private final EmbeddingCache embeddingCache;
+    private final BpeTokenizer tokenizer;
 
-    OpenAiEmbeddingService(RestClient.Builder restClientBuilder, EmbeddingProperties properties, CostTrackingService costTrackingService) {
+    OpenAiEmbeddingService(
+        RestClient.Builder restClientBuilder,
+        EmbeddingProperties properties,
+        CostTrackingService costTrackingService,
+        EmbeddingCache embeddingCache,
+        BpeTokenizer tokenizer
+    ) {
         this.properties = properties;
         this.costTrackingService = costTrackingService;
+        this.embeddingCache = embeddingCache;
+        this.tokenizer = tokenizer;
         this.restClient = restClientBuilder
             .baseUrl(properties.baseUrl())
             .defaultHeader("Authorization", "Bearer " + properties.apiKey())
@@ -34,8 +51,55 @@ public class OpenAiEmbeddingService implements EmbeddingService {
 
     @Override
     public float[] embed(String text, Long documentId, String correlationId) {
-        EmbeddingRequest request = new EmbeddingRequest(properties.modelName(), text);
+        float[] cached = embeddingCache.get(properties.modelName(), text);
+        if (cached != null) {
+            return cached;
+        }
+        EmbeddingResponse response = post(new EmbeddingRequest(properties.modelName(), text), documentId, correlationId);
+        float[] embedding = response.data().get(0).embedding();
+        embeddingCache.put(properties.modelName(), text, embedding);
+        return embedding;
+    }
+
+    /**
+     * Embeds the given texts using as few requests as the configured batch limits allow.
+     * Cached texts are not sent, and a text repeated within the batch is sent once.
+     * Each request reports a single aggregated cost event.
+     */
+    @Override
+    public List<float[]> embedBatch(List<String> texts, Long documentId, String correlationId) {
+        List<float[]> embeddings = new ArrayList<>(embeddingCache.getAll(properties.modelName(), texts));
+        Map<String, List<Integer>> missing = new LinkedHashMap<>();
+        for (int i = 0; i < texts.size(); i++) {
+            if (embeddings.get(i) == null) {
+                missing.computeIfAbsent(texts.get(i), text -> new ArrayList<>()).add(i);
+            }
+        }
+        if (missing.isEmpty()) {
+            return embeddings;
+        }
+
+        List<String> toEmbed = new ArrayList<>(missing.keySet());
+        List<float[]> fresh = new ArrayList<>(toEmbed.size());
+        for (List<String> batch : partition(toEmbed, properties.maxBatchInputs(), properties.maxBatchTokens(), tokenizer::countTokens)) {
+            EmbeddingResponse response = post(new BatchEmbeddingRequest(properties.modelName(), batch), documentId, correlationId);
+            fresh.addAll(orderByIndex(response, batch.size()));
+        }
+        embeddingCache.putAll(properties.modelName(), toEmbed, fresh);
+        for (int j = 0; j < toEmbed.size(); j++) {
+            for (int i : missing.get(toEmbed.get(j))) {
+                embeddings.set(i, fresh.get(j));
+            }
+        }
+        return embeddings;
+    }
+
+    @Override
+    public String getModelName() {
+        return properties.modelName();
+    }
 
+    private EmbeddingResponse post(Object request, Long documentId, String correlationId) {
         long start = System.currentTimeMillis();
         EmbeddingResponse response = restClient
             .post()
@@ -60,17 +124,56 @@ public class OpenAiEmbeddingService implements EmbeddingService {
                 latency
             );
         }
+        return response;
+    }
 
-        return response.data().get(0).embedding();
+    /**
+     * The API does not guarantee that {@code data} is returned in input order, so results are placed by their {@code index}.
+     */
+    private static List<float[]> orderByIndex(EmbeddingResponse response, int expected) {
+        float[][] ordered = new float[expected][];
+        for (EmbeddingData data : response.data()) {
+            if (data.index() < 0 || data.index() >= expected) {
+                throw new IllegalStateException("Embedding index out of range: " + data.index());
+            }
+            ordered[data.index()] = data.embedding();
+        }
+        for (int i = 0; i < expected; i++) {
+            if (ordered[i] == null) {
+                throw new IllegalStateException("Missing embedding for input " + i);
+            }
+        }
+        return Arrays.asList(ordered);
     }
 
-    @Override
-    public String getModelName() {
-        return properties.modelName();
+    /**
+     * Splits texts into consecutive batches bounded by input count and token count.
+     * A single text larger than {@code maxTokens} is sent on its own.
+     */
+    static List<List<String>> partition(List<String> texts, int maxInputs, int maxTokens, ToIntFunction<String> tokenCounter) {
+        List<List<String>> batches = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        int currentTokens = 0;
+        for (String text : texts) {
+            int tokens = tokenCounter.applyAsInt(text);
+            if (!current.isEmpty() && (current.size() >= maxInputs || currentTokens + tokens > maxTokens)) {
+                batches.add(current);
+                current = new ArrayList<>();
+                currentTokens = 0;
+            }
+            current.add(text);
+            currentTokens += tokens;
+        }
+        if (!current.isEmpty()) {
+            batches.add(current);
+        }
+        return batches;
     }
 
     private record EmbeddingRequest(String model, String input) {}
 
+    private record BatchEmbeddingRequest(String model, List<String> input) {}
+
     record EmbeddingResponse(List<EmbeddingData> data, Usage usage) {}
 
     record EmbeddingData(float[] embedding, int index, String object) {}
@@ -0,0 +1,255 @@
+package com.walshe.aimarket.service.ingestion;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.walshe.aimarket.config.IngestionProperties;
+import com.walshe.aimarket.service.DocumentService;
+import com.walshe.aimarket.service.IngestionService;
+import com.walshe.aimarket.service.dto.BulkIngestionResultDTO;
+import com.walshe.aimarket.service.dto.DocumentDTO;
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Creates and ingests many documents from a single request, read either as NDJSON or as a zip archive.
+ * <p>
+ * Documents are read one at a time and handed to a pool of {@code bulkWorkers} threads shared by all bulk
+ * requests; reading pauses while all of a request's documents are in flight, so memory holds at most that many
+ * documents. Embedding requests of all documents share the global cap of the {@link EmbeddingPipeline}.
+ * Each document is created and ingested on its own: a failed document is deleted again and reported,
+ * without affecting the others.
+ */
+@Service
+public class BulkIngestionService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BulkIngestionService.class);
+
+    private final DocumentService documentService;
+    private final IngestionService ingestionService;
+    private final ObjectMapper objectMapper;
+    private final int workers;
+    private final DataSize maxEntrySize;
+    private final ExecutorService executor;
+
+    BulkIngestionService(
+        DocumentService documentService,
+        IngestionService ingestionService,
+        ObjectMapper objectMapper,
+        IngestionProperties properties
+    ) {
+        this.documentService = documentService;
+        this.ingestionService = ingestionService;
+        this.objectMapper = objectMapper;
+        this.workers = properties.getBulkWorkers();
+        this.maxEntrySize = properties.getMaxArchiveEntrySize();
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("bulk-ingestion-");
+        threadFactory.setDaemon(true);
+        this.executor = Executors.newFixedThreadPool(workers, threadFactory);
+    }
+
+    /**
+     * Ingests one document per line, each a JSON {@link DocumentDTO} without id. Blank lines are skipped;
+     * a missing {@code createdAt} defaults to now.
+     *
+     * @param content the NDJSON content.
+     * @param results receives the outcome of each document, on the calling thread and in completion order;
+     * the index of a result is its line number.
+     */
+    public void ingestNdjson(InputStream content, Consumer<BulkIngestionResultDTO> results) {
+        BulkRun run = new BulkRun(results);
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(content, StandardCharsets.UTF_8));
+            int index = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                index++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                DocumentDTO document;
+                try {
+                    document = objectMapper.readValue(line, DocumentDTO.class);
+                } catch (JsonProcessingException e) {
+                    results.accept(BulkIngestionResultDTO.failed(index, null, "Invalid JSON: " + e.getOriginalMessage()));
+                    continue;
+                }
+                String error = validate(document);
+                if (error != null) {
+                    results.accept(BulkIngestionResultDTO.failed(index, document.getTitle(), error));
+                    continue;
+                }
+                if (document.getCreatedAt() == null) {
+                    document.setCreatedAt(Instant.now());
+                }
+                run.submit(index, document);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read bulk documents", e);
+        }
+        run.finish();
+    }
+
+    /**
+     * Ingests each file of a zip archive as a UTF-8 text document titled with the file's path. Files are inflated
+     * into memory only up to {@code maxArchiveEntrySize}; a larger file is reported as failed and ends the archive,
+     * as skipping it would mean inflating it anyway.
+     *
+     * @param archive the zip archive.
+     * @param results receives the outcome of each document, on the calling thread and in completion order;
+     * the index of a result is the position of its file in the archive.
+     */
+    public void ingestArchive(InputStream archive, Consumer<BulkIngestionResultDTO> results) {
+        BulkRun run = new BulkRun(results);
+        int index = 0;
+        try {
+            ZipInputStream zip = new ZipInputStream(archive, StandardCharsets.UTF_8);
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                index++;
+                // The size declared in the archive cannot be trusted, so the limit applies to the bytes inflated
+                byte[] content = zip.readNBytes(maxEntryBytes() + 1);
+                if (content.length > maxEntryBytes()) {
+                    results.accept(
+                        BulkIngestionResultDTO.failed(index, entry.getName(), "File is larger than " + maxEntrySize + "; rest of the archive skipped")
+                    );
+                    break;
+                }
+                DocumentDTO document = new DocumentDTO();
+                document.setTitle(entry.getName());
+                document.setContent(new String(content, StandardCharsets.UTF_8));
+                document.setCreatedAt(entry.getLastModifiedTime() != null ? entry.getLastModifiedTime().toInstant() : Instant.now());
+                run.submit(index, document);
+            }
+        } catch (ZipException e) {
+            results.accept(BulkIngestionResultDTO.failed(index + 1, null, "Invalid archive: " + e.getMessage()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read bulk documents", e);
+        }
+        run.finish();
+    }
+
+    private int maxEntryBytes() {
+        return (int) Math.min(maxEntrySize.toBytes(), Integer.MAX_VALUE - 8);
+    }
+
+    private static String validate(DocumentDTO document) {
+        if (document.getId() != null) {
+            return "A new document cannot already have an ID";
+        }
+        if (document.getTitle() == null || document.getTitle().isBlank()) {
+            return "title is required";
+        }
+        if (document.getContent() == null) {
+            return "content is required";
+        }
+        return null;
+    }
+
+    private BulkIngestionResultDTO ingest(int index, DocumentDTO document) {
+        DocumentDTO saved;
+        try {
+            saved = documentService.save(document);
+        } catch (RuntimeException e) {
+            return BulkIngestionResultDTO.failed(index, document.getTitle(), e.getMessage());
+        }
+        try {
+            int chunks = ingestionService.ingestDocument(saved.getId(), stored -> {});
+            return BulkIngestionResultDTO.done(index, saved.getTitle(), saved.getId(), chunks);
+        } catch (RuntimeException e) {
+            LOG.warn("Bulk ingestion of document {} ({}) failed: {}", index, saved.getTitle(), e.getMessage());
+            try {
+                documentService.delete(saved.getId());
+            } catch (RuntimeException deleteFailure) {
+                LOG.error("Could not delete document {} after its ingestion failed", saved.getId(), deleteFailure);
+            }
+            return BulkIngestionResultDTO.failed(index, saved.getTitle(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * The documents of one request in flight on the shared pool.
+     */
+    private final class BulkRun {
+
+        private final CompletionService<BulkIngestionResultDTO> completion = new ExecutorCompletionService<>(executor);
+        private final Consumer<BulkIngestionResultDTO> results;
+        private int inFlight;
+
+        BulkRun(Consumer<BulkIngestionResultDTO> results) {
+            this.results = results;
+        }
+
+        void submit(int index, DocumentDTO document) {
+            while (inFlight >= workers) {
+                report(take());
+            }
+            completion.submit(() -> ingest(index, document));
+            inFlight++;
+            Future<BulkIngestionResultDTO> done;
+            while ((done = completion.poll()) != null) {
+                report(done);
+            }
+        }
+
+        /**
+         * Waits for the documents still in flight. If reading stops with an exception, documents in flight
+         * complete in the background and are not reported.
+         */
+        void finish() {
+            while (inFlight > 0) {
+                report(take());
+            }
+        }
+
+        private Future<BulkIngestionResultDTO> take() {
+            try {
+                return completion.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Bulk ingestion interrupted", e);
+            }
+        }
+
+        private void report(Future<BulkIngestionResultDTO> done) {
+            inFlight--;
+            try {
+                results.accept(done.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Bulk ingestion interrupted", e);
+            } catch (ExecutionException e) {
+                // ingest reports its own failures; anything else is a bug
+                throw new IllegalStateException("Bulk ingestion failed", e.getCause());
+            }
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.walshe.aimarket.service.ingestion;
+
+import com.walshe.aimarket.config.IngestionProperties;
+import com.walshe.aimarket.service.EmbeddingService;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+/**
+ * Three-stage ingestion pipeline: chunking, embedding and persistence, connected by bounded queues.
+ * <ul>
+ *     <li>The chunking stage pulls chunk texts from the source and groups them into batches.</li>
+ *     <li>Several embedding workers embed batches concurrently. In-flight requests are capped globally,
+ *     across all running ingestions, and batches rejected with HTTP 429 are retried with back-off.</li>
+ *     <li>The persistence stage runs on the calling thread, so callers control transactions and
+ *     see each embedded batch as soon as it is available.</li>
+ * </ul>
+ * Batches may reach the writer out of order; each carries the index of its first chunk.
+ */
+@Component
+public class EmbeddingPipeline {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EmbeddingPipeline.class);
+
+    private static final Object END_OF_INPUT = new Object();
+    private static final Object WORKER_DONE = new Object();
+
+    private final EmbeddingService embeddingService;
+    private final IngestionProperties properties;
+    private final Semaphore embeddingPermits;
+    private final ExecutorService executor;
+
+    EmbeddingPipeline(EmbeddingService embeddingService, IngestionProperties properties) {
+        this.embeddingService = embeddingService;
+        this.properties = properties;
+        this.embeddingPermits = new Semaphore(properties.getEmbeddingConcurrency(), true);
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("ingestion-pipeline-");
+        threadFactory.setDaemon(true);
+        // Stage threads mostly block on queues or HTTP; concurrency is bounded by the permits and queue sizes
+        this.executor = Executors.newCachedThreadPool(threadFactory);
+    }
+
+    /**
+     * Runs the pipeline to completion.
+     *
+     * @param chunkSource supplies the chunk texts; invoked on the chunking stage thread.
+     * @param documentId (optional) the document ID used for cost tracking.
+     * @param correlationId (optional) the correlation ID used for cost tracking.
+     * @param writer receives each embedded batch on the calling thread.
+     * @return the number of chunks written.
+     */
+    public int run(Supplier<? extends Iterator<String>> chunkSource, Long documentId, String correlationId, BatchWriter writer) {
+        int workers = properties.getEmbeddingConcurrency();
+        BlockingQueue<Object> pending = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        BlockingQueue<Object> completed = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+
+        List<Future<?>> stages = new ArrayList<>(workers + 1);
+        stages.add(executor.submit(() -> produce(chunkSource, pending, completed, workers)));
+        for (int i = 0; i < workers; i++) {
+            stages.add(executor.submit(() -> embed(pending, completed, documentId, correlationId)));
+        }
+
+        int written = 0;
+        int finishedWorkers = 0;
+        try {
+            while (finishedWorkers < workers) {
+                Object item = completed.take();
+                if (item == WORKER_DONE) {
+                    finishedWorkers++;
+                } else if (item instanceof Failure failure) {
+                    throw propagate(failure.cause());
+                } else {
+                    EmbeddedBatch batch = (EmbeddedBatch) item;
+                    writer.write(batch);
+                    written += batch.texts().size();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Ingestion pipeline interrupted", e);
+        } finally {
+            // Unblocks any stage still waiting on a queue after a failure
+            stages.forEach(stage -> stage.cancel(true));
+        }
+        return written;
+    }
+
+    private void produce(Supplier<? extends Iterator<String>> chunkSource, BlockingQueue<Object> pending, BlockingQueue<Object> completed, int workers) {
+        try {
+            Iterator<String> chunks = chunkSource.get();
+            int index = 0;
+            List<String> batch = new ArrayList<>(properties.getBatchSize());
+            while (chunks.hasNext()) {
+                batch.add(chunks.next());
+                if (batch.size() == properties.getBatchSize()) {
+                    pending.put(new ChunkBatch(index, batch));
+                    index += batch.size();
+                    batch = new ArrayList<>(properties.getBatchSize());
+                }
+            }
+            if (!batch.isEmpty()) {
+                pending.put(new ChunkBatch(index, batch));
+            }
+            for (int i = 0; i < workers; i++) {
+                pending.put(END_OF_INPUT);
+            }
+        } catch (InterruptedException e) {
+            // Cancelled by run(), which no longer reads the queues
+            Thread.currentThread().interrupt();
+        } catch (Throwable e) {
+            // Errors too: without a signal, the workers and run() would wait for input forever
+            signal(completed, new Failure(e));
+        }
+    }
+
+    /**
+     * Embeds batches until the end of input. Unless cancelled, always ends by signalling either its completion or its
+     * failure to run(), which otherwise waits forever.
+     */
+    private void embed(BlockingQueue<Object> pending, BlockingQueue<Object> completed, Long documentId, String correlationId) {
+        Object outcome = WORKER_DONE;
+        try {
+            while (true) {
+                Object item = pending.take();
+                if (item == END_OF_INPUT) {
+                    return;
+                }
+                ChunkBatch batch = (ChunkBatch) item;
+                List<float[]> embeddings = embedWithRetry(batch.texts(), documentId, correlationId);
+                if (embeddings.size() != batch.texts().size()) {
+                    throw new IllegalStateException(
+                        "Embedding count mismatch: expected " + batch.texts().size() + " but was " + embeddings.size()
+                    );
+                }
+                completed.put(new EmbeddedBatch(batch.startIndex(), batch.texts(), embeddings));
+            }
+        } catch (InterruptedException e) {
+            outcome = null;
+            Thread.currentThread().interrupt();
+        } catch (Throwable e) {
+            outcome = new Failure(e);
+        } finally {
+            if (outcome != null) {
+                signal(completed, outcome);
+            }
+        }
+    }
+
+    private static void signal(BlockingQueue<Object> completed, Object outcome) {
+        try {
+            completed.put(outcome);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static RuntimeException propagate(Throwable cause) {
+        if (cause instanceof RuntimeException e) {
+            return e;
+        }
+        if (cause instanceof Error e) {
+            throw e;
+        }
+        return new IllegalStateException("Ingestion pipeline failed", cause);
+    }
+
+    private List<float[]> embedWithRetry(List<String> texts, Long documentId, String correlationId) throws InterruptedException {
+        int attempt = 0;
+        while (true) {
+            long delayMs;
+            embeddingPermits.acquire();
+            try {
+                return embeddingService.embedBatch(texts, documentId, correlationId);
+            } catch (HttpClientErrorException.TooManyRequests e) {
+                if (attempt >= properties.getMaxRetries()) {
+                    throw e;
+                }
+                delayMs = retryDelayMs(e, attempt++);
+                LOG.warn("Embedding provider rate limited document {}; retry {} in {} ms", documentId, attempt, delayMs);
+            } finally {
+                embeddingPermits.release();
+            }
+            // Back off without holding a permit so other batches are not starved
+            Thread.sleep(delayMs);
+        }
+    }
+
+    private long retryDelayMs(HttpClientErrorException e, int attempt) {
+        String retryAfter = e.getResponseHeaders() != null ? e.getResponseHeaders().getFirst("Retry-After") : null;
+        if (retryAfter != null) {
+            try {
+                return Math.round(Double.parseDouble(retryAfter.trim()) * 1000);
+            } catch (NumberFormatException ignored) {
+                // HTTP-date form is not used by the embedding providers; fall back to exponential back-off
+            }
+        }
+        return properties.getRetryBackoff().toMillis() << Math.min(attempt, 16);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Receives embedded batches from the pipeline.
+     */
+    @FunctionalInterface
+    public interface BatchWriter {
+        void write(EmbeddedBatch batch);
+    }
+
+    /**
+     * A batch of consecutive chunks together with their embeddings.
+     *
+     * @param startIndex the index of the first chunk of the batch within the document.
+     * @param texts the chunk texts.
+     * @param embeddings one embedding per chunk text.
+     */
+    public record EmbeddedBatch(int startIndex, List<String> texts, List<float[]> embeddings) {}
+
+    private record ChunkBatch(int startIndex, List<String> texts) {}
+
+    private record Failure(Throwable cause) {}
+}
@@ -0,0 +1,115 @@
+package com.walshe.aimarket.service.ingestion;
+
+import com.walshe.aimarket.config.IngestionProperties;
+import com.walshe.aimarket.service.IngestionJobService;
+import com.walshe.aimarket.service.IngestionJobService.Claim;
+import com.walshe.aimarket.service.IngestionService;
+import jakarta.annotation.PreDestroy;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Polls the ingestion job table and runs queued jobs on a bounded worker pool.
+ * Jobs are claimed only when a worker is free, so the queue itself stays in the database.
+ * The leases of running jobs are renewed by a heartbeat; jobs whose lease expired because their
+ * instance went away are queued again. A job whose claim was lost meanwhile, for instance after this
+ * instance stalled past its lease, is stopped at its next progress update and left to its new owner.
+ */
+@Component
+public class IngestionJobWorker {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IngestionJobWorker.class);
+
+    private final IngestionJobService ingestionJobService;
+    private final IngestionService ingestionService;
+    private final Semaphore freeWorkers;
+    private final Set<Claim> runningJobs = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolTaskExecutor executor;
+
+    IngestionJobWorker(IngestionJobService ingestionJobService, IngestionService ingestionService, IngestionProperties properties) {
+        this.ingestionJobService = ingestionJobService;
+        this.ingestionService = ingestionService;
+        this.freeWorkers = new Semaphore(properties.getJobWorkers());
+        this.executor = new ThreadPoolTaskExecutor();
+        this.executor.setCorePoolSize(properties.getJobWorkers());
+        this.executor.setMaxPoolSize(properties.getJobWorkers());
+        // Never more tasks than free workers are submitted, so a queue the size of the pool cannot overflow
+        this.executor.setQueueCapacity(properties.getJobWorkers());
+        this.executor.setThreadNamePrefix("ingestion-job-");
+        this.executor.initialize();
+    }
+
+    @Scheduled(fixedDelayString = "${application.ingestion.job-poll-interval:1s}")
+    void poll() {
+        int available = freeWorkers.availablePermits();
+        if (available == 0) {
+            return;
+        }
+        List<Claim> jobs = ingestionJobService.claimQueued(available);
+        for (Claim job : jobs) {
+            freeWorkers.acquireUninterruptibly();
+            runningJobs.add(job);
+            executor.execute(() -> {
+                try {
+                    process(job);
+                } finally {
+                    runningJobs.remove(job);
+                    freeWorkers.release();
+                }
+            });
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${application.ingestion.job-heartbeat-interval:30s}")
+    void heartbeat() {
+        for (Claim lost : ingestionJobService.renewLeases(Set.copyOf(runningJobs))) {
+            LOG.warn("Lease of ingestion job {} lost; it stops at its next progress update", lost.id());
+        }
+        ingestionJobService.requeueExpired();
+    }
+
+    void process(Claim job) {
+        LOG.info("Ingestion job {} started for document {}", job.id(), job.documentId());
+        try {
+            int total = ingestionService.ingestDocument(job.documentId(), stored -> {
+                if (!ingestionJobService.updateProgress(job, stored)) {
+                    throw new LeaseLostException();
+                }
+            });
+            if (ingestionJobService.markDone(job, total)) {
+                LOG.info("Ingestion job {} completed for document {}: {} chunks", job.id(), job.documentId(), total);
+            } else {
+                LOG.warn("Ingestion job {} completed after its lease was lost; its status is left to its new owner", job.id());
+            }
+        } catch (LeaseLostException e) {
+            LOG.warn("Ingestion job {} stopped: its lease was lost", job.id());
+        } catch (RuntimeException e) {
+            LOG.error("Ingestion job {} failed for document {}", job.id(), job.documentId(), e);
+            if (!ingestionJobService.markFailed(job, e.getMessage())) {
+                LOG.warn("Ingestion job {} failed after its lease was lost; its status is left to its new owner", job.id());
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Aborts the ingestion of a job whose claim was lost.
+     */
+    private static class LeaseLostException extends RuntimeException {
+
+        LeaseLostException() {
+            super("Ingestion job lease lost", null, false, false);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.walshe.aimarket.service.kafka;
+
+import com.walshe.aimarket.config.AiPricingProperties;
+import com.walshe.aimarket.service.dto.CostLogEvent;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Estimates the USD cost of a logged call from the configured model pricing.
+ */
+@Component
+public class CostEstimator {
+
+    private final Logger log = LoggerFactory.getLogger(CostEstimator.class);
+
+    private final AiPricingProperties aiPricingProperties;
+
+    public CostEstimator(AiPricingProperties aiPricingProperties) {
+        this.aiPricingProperties = aiPricingProperties;
+    }
+
+    /**
+     * Cost of the call, or zero if the model has no pricing.
+     */
+    public BigDecimal estimate(CostLogEvent event) {
+        if ("EMBEDDING".equals(event.callType())) {
+            return calculateEmbeddingCost(event.modelName(), event.inputTokens());
+        }
+        return calculateCompletionCost(event.modelName(), event.inputTokens(), event.outputTokens());
+    }
+
+    private BigDecimal calculateEmbeddingCost(String modelName, Integer tokens) {
+        AiPricingProperties.ModelPricing pricing = aiPricingProperties.getModels().get(modelName);
+        if (pricing == null) {
+            // Try prefix matching
+            pricing = aiPricingProperties.getModels().entrySet().stream()
+                .filter(entry -> modelName.startsWith(entry.getKey()))
+                .map(java.util.Map.Entry::getValue)
+                .findFirst()
+                .orElse(null);
+        }
+
+        if (pricing == null || pricing.getEmbeddingCostPer1kTokens() == null) {
+            log.warn("No embedding pricing found for model: {}", modelName);
+            return BigDecimal.ZERO;
+        }
+        return BigDecimal.valueOf(tokens)
+            .divide(BigDecimal.valueOf(1000), 10, RoundingMode.HALF_UP)
+            .multiply(pricing.getEmbeddingCostPer1kTokens());
+    }
+
+    private BigDecimal calculateCompletionCost(String modelName, Integer inputTokens, Integer outputTokens) {
+        AiPricingProperties.ModelPricing pricing = aiPricingProperties.getModels().get(modelName);
+        if (pricing == null) {
+            // Try prefix matching (e.g., "gpt-4o-mini-2024-07-18" should match "gpt-4o-mini")
+            pricing = aiPricingProperties.getModels().entrySet().stream()
+                .filter(entry -> modelName.startsWith(entry.getKey()))
+                .map(java.util.Map.Entry::getValue)
+                .findFirst()
+                .orElse(null);
+        }
+
+        if (pricing == null) {
+            log.warn("No pricing found for model: {}", modelName);
+            return BigDecimal.ZERO;
+        }
+
+        BigDecimal inputCost = BigDecimal.ZERO;
+        if (pricing.getInputCostPer1kTokens() != null) {
+            inputCost = BigDecimal.valueOf(inputTokens)
+                .divide(BigDecimal.valueOf(1000), 10, RoundingMode.HALF_UP)
+                .multiply(pricing.getInputCostPer1kTokens());
+        }
+
+        BigDecimal outputCost = BigDecimal.ZERO;
+        if (pricing.getOutputCostPer1kTokens() != null && outputTokens != null) {
+            outputCost = BigDecimal.valueOf(outputTokens)
+                .divide(BigDecimal.valueOf(1000), 10, RoundingMode.HALF_UP)
+                .multiply(pricing.getOutputCostPer1kTokens());
+        }
+
+        return inputCost.add(outputCost);
+    }
+}
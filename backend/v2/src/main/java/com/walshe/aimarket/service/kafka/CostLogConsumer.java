@@ -1,11 +1,12 @@
 package com.walshe.aimarket.service.kafka;
 
-import com.walshe.aimarket.config.AiPricingProperties;
 import com.walshe.aimarket.domain.CostLog;
 import com.walshe.aimarket.repository.CostLogRepository;
 import com.walshe.aimarket.service.dto.CostLogEvent;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.kafka.annotation.KafkaListener;
@@ -21,105 +22,67 @@ public class CostLogConsumer {
     private final Logger log = LoggerFactory.getLogger(CostLogConsumer.class);
 
     private final CostLogRepository costLogRepository;
-    private final AiPricingProperties aiPricingProperties;
+    private final CostEstimator costEstimator;
 
-    public CostLogConsumer(CostLogRepository costLogRepository, AiPricingProperties aiPricingProperties) {
+    public CostLogConsumer(CostLogRepository costLogRepository, CostEstimator costEstimator) {
         this.costLogRepository = costLogRepository;
-        this.aiPricingProperties = aiPricingProperties;
+        this.costEstimator = costEstimator;
     }
 
-    @KafkaListener(topics = "${application.kafka.topics.cost-logs:ai-cost-logs}", groupId = "${spring.kafka.consumer.group-id:ai-market-intelligence}")
+    /**
+     * Stores the cost logs of a whole poll with one insert. Duplicates within the batch are dropped here and
+     * events already stored (e.g. redelivered after a rebalance) are skipped by the insert, so a failed batch
+     * can safely be redelivered as a whole. Runs one consumer thread per configured concurrency, each
+     * owning a share of the topic's partitions. Batches that keep failing go to the dead-letter topic, see
+     * {@link com.walshe.aimarket.config.KafkaListenerConfig#costLogListenerContainerFactory}.
+     */
+    @KafkaListener(
+        topics = "${application.kafka.topics.cost-logs:ai-cost-logs}",
+        groupId = "${spring.kafka.consumer.group-id:ai-market-intelligence}",
+        concurrency = "${application.kafka.cost-logs.concurrency:1}",
+        containerFactory = "costLogListenerContainerFactory",
+        batch = "true"
+    )
     @Transactional
-    public void consume(CostLogEvent event) {
-        log.debug("Consumed CostLogEvent: {}", event);
-        try {
-            if (event.correlationId() != null) {
-                String corrId = event.correlationId().toString();
-                CostLog.CallType callType = CostLog.CallType.valueOf(event.callType());
-                if (costLogRepository.existsByCorrelationIdAndCallType(corrId, callType)) {
-                    log.info("Skipping duplicate CostLogEvent for correlationId: {} and callType: {}", corrId, callType);
-                    return;
+    public void consume(List<CostLogEvent> events) {
+        log.debug("Consumed {} CostLogEvents", events.size());
+        List<CostLog> costLogs = new ArrayList<>(events.size());
+        Set<String> seen = new HashSet<>();
+        for (CostLogEvent event : events) {
+            try {
+                CostLog costLog = toCostLog(event);
+                if (costLog.getCorrelationId() != null && !seen.add(costLog.getCorrelationId() + ':' + costLog.getCallType())) {
+                    log.info(
+                        "Skipping duplicate CostLogEvent for correlationId: {} and callType: {}",
+                        costLog.getCorrelationId(),
+                        costLog.getCallType()
+                    );
+                    continue;
                 }
+                costLogs.add(costLog);
+            } catch (RuntimeException e) {
+                log.error("Failed to process CostLogEvent {}", event, e);
             }
-
-            CostLog costLog = new CostLog();
-            costLog.setCallType(CostLog.CallType.valueOf(event.callType()));
-            costLog.setModelName(event.modelName());
-            costLog.setInputTokens(event.inputTokens());
-            costLog.setOutputTokens(event.outputTokens());
-            costLog.setDocumentId(event.documentId());
-            costLog.setCorrelationId(event.correlationId() != null ? event.correlationId().toString() : null);
-            costLog.setProvider(event.provider());
-            costLog.setLatencyMs(event.latencyMs());
-
-            int totalTokens = event.inputTokens() + (event.outputTokens() != null ? event.outputTokens() : 0);
-            costLog.setTotalTokens(totalTokens);
-
-            BigDecimal cost;
-            if ("EMBEDDING".equals(event.callType())) {
-                cost = calculateEmbeddingCost(event.modelName(), event.inputTokens());
-            } else {
-                cost = calculateCompletionCost(event.modelName(), event.inputTokens(), event.outputTokens());
-            }
-            costLog.setEstimatedUsdCost(cost);
-
-            costLogRepository.save(costLog);
-            log.debug("Saved CostLog to database for correlationId: {}", costLog.getCorrelationId());
-        } catch (Exception e) {
-            log.error("Failed to process CostLogEvent", e);
-        }
-    }
-
-    private BigDecimal calculateEmbeddingCost(String modelName, Integer tokens) {
-        AiPricingProperties.ModelPricing pricing = aiPricingProperties.getModels().get(modelName);
-        if (pricing == null) {
-            // Try prefix matching
-            pricing = aiPricingProperties.getModels().entrySet().stream()
-                .filter(entry -> modelName.startsWith(entry.getKey()))
-                .map(java.util.Map.Entry::getValue)
-                .findFirst()
-                .orElse(null);
-        }
-
-        if (pricing == null || pricing.getEmbeddingCostPer1kTokens() == null) {
-            log.warn("No embedding pricing found for model: {}", modelName);
-            return BigDecimal.ZERO;
         }
-        return BigDecimal.valueOf(tokens)
-            .divide(BigDecimal.valueOf(1000), 10, RoundingMode.HALF_UP)
-            .multiply(pricing.getEmbeddingCostPer1kTokens());
+        int inserted = costLogRepository.insertIgnoringDuplicates(costLogs);
+        log.debug("Saved {} of {} CostLogs to database", inserted, costLogs.size());
     }
 
-    private BigDecimal calculateCompletionCost(String modelName, Integer inputTokens, Integer outputTokens) {
-        AiPricingProperties.ModelPricing pricing = aiPricingProperties.getModels().get(modelName);
-        if (pricing == null) {
-            // Try prefix matching (e.g., "gpt-4o-mini-2024-07-18" should match "gpt-4o-mini")
-            pricing = aiPricingProperties.getModels().entrySet().stream()
-                .filter(entry -> modelName.startsWith(entry.getKey()))
-                .map(java.util.Map.Entry::getValue)
-                .findFirst()
-                .orElse(null);
-        }
-
-        if (pricing == null) {
-            log.warn("No pricing found for model: {}", modelName);
-            return BigDecimal.ZERO;
-        }
-
-        BigDecimal inputCost = BigDecimal.ZERO;
-        if (pricing.getInputCostPer1kTokens() != null) {
-            inputCost = BigDecimal.valueOf(inputTokens)
-                .divide(BigDecimal.valueOf(1000), 10, RoundingMode.HALF_UP)
-                .multiply(pricing.getInputCostPer1kTokens());
-        }
-
-        BigDecimal outputCost = BigDecimal.ZERO;
-        if (pricing.getOutputCostPer1kTokens() != null && outputTokens != null) {
-            outputCost = BigDecimal.valueOf(outputTokens)
-                .divide(BigDecimal.valueOf(1000), 10, RoundingMode.HALF_UP)
-                .multiply(pricing.getOutputCostPer1kTokens());
-        }
-
-        return inputCost.add(outputCost);
+    CostLog toCostLog(CostLogEvent event) {
+        CostLog costLog = new CostLog();
+        costLog.setCallType(CostLog.CallType.valueOf(event.callType()));
+        costLog.setModelName(event.modelName());
+        costLog.setInputTokens(event.inputTokens());
+        costLog.setOutputTokens(event.outputTokens());
+        costLog.setDocumentId(event.documentId());
+        costLog.setCorrelationId(event.correlationId() != null ? event.correlationId().toString() : null);
+        costLog.setProvider(event.provider());
+        costLog.setLatencyMs(event.latencyMs());
+
+        int totalTokens = event.inputTokens() + (event.outputTokens() != null ? event.outputTokens() : 0);
+        costLog.setTotalTokens(totalTokens);
+
+        costLog.setEstimatedUsdCost(costEstimator.estimate(event));
+        return costLog;
     }
 }
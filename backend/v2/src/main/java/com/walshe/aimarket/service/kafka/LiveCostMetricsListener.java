@@ -0,0 +1,73 @@
+package com.walshe.aimarket.service.kafka;
+
+import com.walshe.aimarket.service.dto.CostLogEvent;
+import com.walshe.aimarket.service.metrics.CostWindowAggregator;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.stereotype.Component;
+
+/**
+ * Feeds every cost event into this instance's {@link CostWindowAggregator}.
+ * <p>
+ * Each instance assigns itself all {@code application.kafka.cost-logs.partitions} partitions of the topic instead of
+ * joining a consumer group, so it sees every event rather than a share of them, and commits no offsets (see
+ * {@link com.walshe.aimarket.config.KafkaListenerConfig#liveCostMetricsListenerContainerFactory}). It starts from the
+ * end of each partition: the windows only cover events produced since startup.
+ */
+@Component
+@ConditionalOnProperty(name = "application.metrics.live.enabled", havingValue = "true", matchIfMissing = true)
+class LiveCostMetricsListener implements ConsumerSeekAware {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LiveCostMetricsListener.class);
+
+    private final CostWindowAggregator aggregator;
+    private final CostEstimator costEstimator;
+
+    LiveCostMetricsListener(CostWindowAggregator aggregator, CostEstimator costEstimator) {
+        this.aggregator = aggregator;
+        this.costEstimator = costEstimator;
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        callback.seekToEnd(assignments.keySet());
+    }
+
+    @KafkaListener(
+        id = "live-cost-metrics",
+        topicPartitions = @org.springframework.kafka.annotation.TopicPartition(
+            topic = "${application.kafka.topics.cost-logs:ai-cost-logs}",
+            partitions = "#{'0-' + (${application.kafka.cost-logs.partitions:6} - 1)}"
+        ),
+        groupId = "${spring.kafka.consumer.group-id:ai-market-intelligence}-live",
+        containerFactory = "liveCostMetricsListenerContainerFactory",
+        properties = { "enable.auto.commit=false" },
+        batch = "true"
+    )
+    void consume(List<ConsumerRecord<String, CostLogEvent>> records) {
+        for (ConsumerRecord<String, CostLogEvent> record : records) {
+            CostLogEvent event = record.value();
+            try {
+                aggregator.add(
+                    Instant.ofEpochMilli(record.timestamp()),
+                    event.modelName(),
+                    event.provider(),
+                    event.inputTokens(),
+                    event.outputTokens() != null ? event.outputTokens() : 0,
+                    costEstimator.estimate(event),
+                    event.latencyMs()
+                );
+            } catch (RuntimeException e) {
+                LOG.warn("Failed to aggregate CostLogEvent {}", event, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.walshe.aimarket.service.mapper;
+
+import com.walshe.aimarket.domain.IngestionJob;
+import com.walshe.aimarket.service.dto.IngestionJobDTO;
+import org.mapstruct.*;
+
+/**
+ * Mapper for the entity {@link IngestionJob} and its DTO {@link IngestionJobDTO}.
+ */
+@Mapper(componentModel = "spring")
+public interface IngestionJobMapper {
+    IngestionJobDTO toDto(IngestionJob ingestionJob);
+}
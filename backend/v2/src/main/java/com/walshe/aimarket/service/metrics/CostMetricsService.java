@@ -0,0 +1,130 @@
+package com.walshe.aimarket.service.metrics;
+
+import com.walshe.aimarket.config.CostRollupProperties;
+import com.walshe.aimarket.domain.CostLog;
+import com.walshe.aimarket.repository.CostRollupRepository;
+import com.walshe.aimarket.repository.CostRollupRepository.Granularity;
+import com.walshe.aimarket.service.dto.CostBucketDTO;
+import com.walshe.aimarket.service.dto.CostMetricsDTO;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Cost metrics read from the precomputed cost rollup instead of aggregating {@code cost_log}.
+ * <p>
+ * Ranges are half-open, {@code [from, to)}, with bounds rounded down to the minute. Totals are read from the coarsest
+ * granularity both bounds are aligned to, so a query over whole days reads one row per day and dimension. Minute and
+ * hour buckets are only kept for a limited time; a range starting before that is widened to whole hours or days.
+ */
+@Service
+@Transactional(readOnly = true)
+public class CostMetricsService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CostMetricsService.class);
+
+    private final CostRollupRepository costRollupRepository;
+    private final CostRollupProperties properties;
+
+    public CostMetricsService(CostRollupRepository costRollupRepository, CostRollupProperties properties) {
+        this.costRollupRepository = costRollupRepository;
+        this.properties = properties;
+    }
+
+    /**
+     * Cost totals of a time range.
+     *
+     * @param from start of the range, or null for all history.
+     * @param to end of the range (exclusive), or null for no end.
+     * @return the totals overall and per model, call type and provider.
+     */
+    public CostMetricsDTO getCostMetrics(Instant from, Instant to) {
+        Instant start = from == null ? null : Granularity.MINUTE.truncate(from);
+        Instant end = to == null ? null : Granularity.MINUTE.truncate(to);
+        Granularity granularity = retainedGranularity(coarsestAligned(start, end), start, Instant.now());
+        start = start == null ? null : granularity.truncate(start);
+        end = end == null ? null : granularity.roundUp(end);
+        BigDecimal totalUsd = BigDecimal.ZERO;
+        long calls = 0;
+        long totalTokens = 0;
+        Map<String, BigDecimal> byModel = new HashMap<>();
+        Map<CostLog.CallType, BigDecimal> byCallType = new EnumMap<>(CostLog.CallType.class);
+        Map<String, BigDecimal> byProvider = new HashMap<>();
+        for (CostRollupRepository.Dimensions row : costRollupRepository.findTotals(granularity, start, end)) {
+            BigDecimal usd = row.totals().estimatedUsdCost();
+            totalUsd = totalUsd.add(usd);
+            calls += row.totals().calls();
+            totalTokens += row.totals().totalTokens();
+            byModel.merge(row.modelName(), usd, BigDecimal::add);
+            byCallType.merge(row.callType(), usd, BigDecimal::add);
+            if (row.provider() != null) {
+                byProvider.merge(row.provider(), usd, BigDecimal::add);
+            }
+        }
+        return new CostMetricsDTO(totalUsd, byModel, byCallType, byProvider, calls, totalTokens);
+    }
+
+    /**
+     * Cost totals of the time buckets overlapping a range; buckets without calls are left out, as are minute and
+     * hour buckets past their retention.
+     *
+     * @param granularity size of the buckets.
+     * @param from start of the range.
+     * @param to end of the range (exclusive); the bucket holding it is included, even while still filling up.
+     * @return the buckets, oldest first.
+     */
+    public List<CostBucketDTO> getCostSeries(Granularity granularity, Instant from, Instant to) {
+        return costRollupRepository
+            .findSeries(granularity, granularity.truncate(from), granularity.roundUp(to))
+            .stream()
+            .map(bucket -> {
+                CostRollupRepository.Totals totals = bucket.totals();
+                long averageLatency = totals.calls() == 0 ? 0 : totals.latencyMs() / totals.calls();
+                return new CostBucketDTO(bucket.bucketStart(), totals.calls(), totals.totalTokens(), totals.estimatedUsdCost(), averageLatency);
+            })
+            .toList();
+    }
+
+    /**
+     * Deletes the minute and hour buckets past their retention.
+     */
+    @Scheduled(cron = "${application.metrics.rollup.prune-cron:0 30 0 * * *}", zone = "UTC")
+    @Transactional
+    public void pruneRollup() {
+        Instant now = Instant.now();
+        int minutes = costRollupRepository.deleteBucketsBefore(Granularity.MINUTE, now.minus(properties.getMinuteRetention()));
+        int hours = costRollupRepository.deleteBucketsBefore(Granularity.HOUR, now.minus(properties.getHourRetention()));
+        LOG.debug("Pruned {} minute and {} hour buckets of the cost rollup", minutes, hours);
+    }
+
+    /**
+     * The given granularity, or a coarser one if its buckets starting at {@code start} may already be pruned.
+     */
+    Granularity retainedGranularity(Granularity granularity, Instant start, Instant now) {
+        if (granularity == Granularity.MINUTE && (start == null || start.isBefore(now.minus(properties.getMinuteRetention())))) {
+            granularity = Granularity.HOUR;
+        }
+        if (granularity == Granularity.HOUR && (start == null || start.isBefore(now.minus(properties.getHourRetention())))) {
+            granularity = Granularity.DAY;
+        }
+        return granularity;
+    }
+
+    static Granularity coarsestAligned(Instant from, Instant to) {
+        if (Granularity.DAY.isAligned(from) && Granularity.DAY.isAligned(to)) {
+            return Granularity.DAY;
+        }
+        if (Granularity.HOUR.isAligned(from) && Granularity.HOUR.isAligned(to)) {
+            return Granularity.HOUR;
+        }
+        return Granularity.MINUTE;
+    }
+}
@@ -0,0 +1,103 @@
+package com.walshe.aimarket.service.metrics;
+
+import com.walshe.aimarket.config.LiveMetricsProperties;
+import com.walshe.aimarket.service.dto.CostWindowDTO;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tumbling-window totals of cost events per model and provider, held in memory so that recent spend can be
+ * read without querying the database.
+ * <p>
+ * Windows are aligned to the epoch and keyed by start time; those older than the retention are dropped. Totals are
+ * approximate: events redelivered by Kafka are counted again, and the windows are lost on restart.
+ */
+@Component
+public class CostWindowAggregator {
+
+    private final long windowMillis;
+    private final long retentionMillis;
+    private final ConcurrentSkipListMap<Long, Map<Key, Totals>> windows = new ConcurrentSkipListMap<>();
+
+    public CostWindowAggregator(LiveMetricsProperties properties) {
+        this.windowMillis = properties.getWindow().toMillis();
+        this.retentionMillis = properties.getRetention().toMillis();
+    }
+
+    /**
+     * Adds a call to the window holding its timestamp, unless that window is past the retention.
+     *
+     * @param timestamp time of the call.
+     * @param latencyMs latency of the call, or null if not reported.
+     */
+    public void add(Instant timestamp, String modelName, String provider, long inputTokens, long outputTokens, BigDecimal cost, Long latencyMs) {
+        long oldestRetained = windowStart(System.currentTimeMillis() - retentionMillis);
+        long start = windowStart(timestamp.toEpochMilli());
+        if (start < oldestRetained) {
+            return;
+        }
+        Totals call = new Totals(1, inputTokens, outputTokens, cost, latencyMs == null ? 0 : 1, latencyMs == null ? 0 : latencyMs);
+        windows.computeIfAbsent(start, key -> new ConcurrentHashMap<>()).merge(new Key(modelName, provider), call, Totals::plus);
+        windows.headMap(oldestRetained).clear();
+    }
+
+    /**
+     * Windows holding at least one call, oldest first.
+     *
+     * @param from optional time from which windows are returned; the window holding it is included.
+     */
+    public List<CostWindowDTO> findWindows(Instant from) {
+        long oldestRetained = windowStart(System.currentTimeMillis() - retentionMillis);
+        long first = from == null ? oldestRetained : Math.max(oldestRetained, windowStart(from.toEpochMilli()));
+        List<CostWindowDTO> result = new ArrayList<>();
+        for (Map.Entry<Long, Map<Key, Totals>> window : windows.tailMap(first, true).entrySet()) {
+            Totals overall = Totals.EMPTY;
+            List<CostWindowDTO.Entry> entries = new ArrayList<>();
+            for (Map.Entry<Key, Totals> entry : window.getValue().entrySet()) {
+                overall = overall.plus(entry.getValue());
+                entries.add(new CostWindowDTO.Entry(entry.getKey().modelName(), entry.getKey().provider(), entry.getValue().toDTO()));
+            }
+            entries.sort(
+                Comparator.comparing(CostWindowDTO.Entry::modelName, Comparator.nullsLast(Comparator.naturalOrder())).thenComparing(
+                    CostWindowDTO.Entry::provider,
+                    Comparator.nullsLast(Comparator.naturalOrder())
+                )
+            );
+            long start = window.getKey();
+            result.add(new CostWindowDTO(Instant.ofEpochMilli(start), Instant.ofEpochMilli(start + windowMillis), overall.toDTO(), entries));
+        }
+        return result;
+    }
+
+    private long windowStart(long epochMillis) {
+        return Math.floorDiv(epochMillis, windowMillis) * windowMillis;
+    }
+
+    record Key(String modelName, String provider) {}
+
+    record Totals(long calls, long inputTokens, long outputTokens, BigDecimal cost, long timedCalls, long latencyMs) {
+        static final Totals EMPTY = new Totals(0, 0, 0, BigDecimal.ZERO, 0, 0);
+
+        Totals plus(Totals other) {
+            return new Totals(
+                calls + other.calls,
+                inputTokens + other.inputTokens,
+                outputTokens + other.outputTokens,
+                cost.add(other.cost),
+                timedCalls + other.timedCalls,
+                latencyMs + other.latencyMs
+            );
+        }
+
+        CostWindowDTO.Totals toDTO() {
+            return new CostWindowDTO.Totals(calls, inputTokens, outputTokens, cost, timedCalls == 0 ? 0 : latencyMs / timedCalls);
+        }
+    }
+}
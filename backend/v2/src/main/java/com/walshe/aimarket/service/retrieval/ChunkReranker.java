@@ -0,0 +1,19 @@
+package com.walshe.aimarket.service.retrieval;
+
+import com.walshe.aimarket.repository.RetrievedChunk;
+import java.util.List;
+
+/**
+ * Selects the chunks handed to the prompt from an over-fetched list of retrieval candidates.
+ */
+public interface ChunkReranker {
+    /**
+     * Select at most {@code topK} of the candidates, best first.
+     *
+     * @param queryText the query as typed, may be null
+     * @param candidates retrieved chunks, most relevant first
+     * @param topK maximum number of chunks to return
+     * @return the selected chunks, most relevant first
+     */
+    List<RetrievedChunk> rerank(String queryText, List<RetrievedChunk> candidates, int topK);
+}
@@ -0,0 +1,22 @@
+package com.walshe.aimarket.service.retrieval;
+
+import com.walshe.aimarket.domain.DocumentChunk;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Published inside the transaction that stores or removes document chunks, so in-process indexes
+ * can follow the database once it commits.
+ *
+ * @param stored chunks inserted or updated, with their embedding.
+ * @param removedIds ids of deleted chunks.
+ */
+public record DocumentChunksChangedEvent(List<DocumentChunk> stored, Collection<Long> removedIds) {
+    public static DocumentChunksChangedEvent stored(List<DocumentChunk> chunks) {
+        return new DocumentChunksChangedEvent(chunks, List.of());
+    }
+
+    public static DocumentChunksChangedEvent removed(Collection<Long> ids) {
+        return new DocumentChunksChangedEvent(List.of(), ids);
+    }
+}
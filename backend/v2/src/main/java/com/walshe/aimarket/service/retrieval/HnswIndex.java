@@ -0,0 +1,387 @@
+package com.walshe.aimarket.service.retrieval;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory Hierarchical Navigable Small World graph for approximate cosine nearest-neighbour search.
+ * <p>
+ * Vectors are normalized on insertion and stored back to back in fixed-size {@code float[]} pages, so the
+ * distance between two nodes is {@code 1 - dot} over contiguous memory. Removed vectors stay in the graph as
+ * tombstones to keep it navigable and are only skipped in results; the owner rebuilds the index when they
+ * accumulate. Searches run concurrently, insertions and removals are exclusive.
+ */
+public class HnswIndex {
+
+    private static final int PAGE_SHIFT = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final SplittableRandom random;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int dimension = -1;
+    private float[][] pages = new float[0][];
+    private long[] ids = new long[0];
+    /**
+     * Neighbours of each node by level; {@code links[node][level][0]} is the neighbour count.
+     */
+    private int[][][] links = new int[0][][];
+    private final BitSet deleted = new BitSet();
+    private final Map<Long, Integer> nodeById = new HashMap<>();
+
+    private int nodeCount;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    /**
+     * @param m maximum number of neighbours per node on the upper levels (twice that on level 0).
+     * @param efConstruction size of the candidate list while inserting.
+     * @param seed seed of the level generator, for reproducible graphs.
+     */
+    public HnswIndex(int m, int efConstruction, long seed) {
+        if (m < 2) {
+            throw new IllegalArgumentException("m must be at least 2");
+        }
+        this.m = m;
+        this.maxM0 = 2 * m;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.levelMultiplier = 1 / Math.log(m);
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Adds a vector, replacing any vector previously added under the same id.
+     */
+    public void add(long id, float[] vector) {
+        lock.writeLock().lock();
+        try {
+            if (dimension < 0) {
+                dimension = vector.length;
+            } else if (vector.length != dimension) {
+                throw new IllegalArgumentException("Expected " + dimension + " dimensions but was " + vector.length);
+            }
+            Integer previous = nodeById.get(id);
+            if (previous != null) {
+                deleted.set(previous);
+            }
+            int node = allocate(id, vector);
+            nodeById.put(id, node);
+            insert(node);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the vector with the given id, if present.
+     */
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Integer node = nodeById.remove(id);
+            if (node != null) {
+                deleted.set(node);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the ids of the {@code k} vectors closest to {@code query} by cosine distance, closest first.
+     *
+     * @param ef size of the candidate list; larger values trade speed for recall.
+     */
+    public List<Long> search(float[] query, int k, int ef) {
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0 || k <= 0 || query.length != dimension) {
+                return List.of();
+            }
+            float[] q = normalize(query);
+            int current = entryPoint;
+            for (int level = maxLevel; level > 0; level--) {
+                current = greedyClosest(q, current, level);
+            }
+            // Tombstones are traversed but not returned, so the candidate list is widened by their share
+            int width = Math.max(ef, k) + Math.min(deleted.cardinality(), Math.max(ef, k));
+            PriorityQueue<Candidate> found = searchLayer(q, current, width, 0);
+            List<Candidate> ordered = new ArrayList<>(found);
+            ordered.sort(Comparator.comparingDouble(Candidate::distance));
+            List<Long> result = new ArrayList<>(k);
+            for (Candidate candidate : ordered) {
+                if (!deleted.get(candidate.node())) {
+                    result.add(ids[candidate.node()]);
+                    if (result.size() == k) {
+                        break;
+                    }
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of live vectors.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return nodeById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the ids of the live vectors, in ascending order.
+     */
+    public long[] ids() {
+        lock.readLock().lock();
+        try {
+            return nodeById.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of removed or replaced vectors still held by the graph.
+     */
+    public int deletedCount() {
+        lock.readLock().lock();
+        try {
+            return deleted.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int allocate(long id, float[] vector) {
+        int node = nodeCount++;
+        int page = node >> PAGE_SHIFT;
+        if (page == pages.length) {
+            pages = Arrays.copyOf(pages, page + 1);
+            pages[page] = new float[PAGE_SIZE * dimension];
+        }
+        if (node == ids.length) {
+            int capacity = Math.max(PAGE_SIZE, ids.length * 2);
+            ids = Arrays.copyOf(ids, capacity);
+            links = Arrays.copyOf(links, capacity);
+        }
+        System.arraycopy(normalize(vector), 0, pages[page], offset(node), dimension);
+        ids[node] = id;
+        return node;
+    }
+
+    private void insert(int node) {
+        int level = (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+        links[node] = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            links[node][l] = new int[maxLinks(l) + 1];
+        }
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+        float[] q = vector(node);
+        int current = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            current = greedyClosest(q, current, l);
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            PriorityQueue<Candidate> candidates = searchLayer(q, current, efConstruction, l);
+            List<Candidate> ordered = new ArrayList<>(candidates);
+            ordered.sort(Comparator.comparingDouble(Candidate::distance));
+            current = ordered.get(0).node();
+            for (Candidate neighbour : selectNeighbours(ordered, m)) {
+                link(node, neighbour.node(), l);
+                link(neighbour.node(), node, l);
+            }
+        }
+        if (level > maxLevel) {
+            entryPoint = node;
+            maxLevel = level;
+        }
+    }
+
+    /**
+     * Adds {@code to} to the neighbours of {@code from}, pruning them with the selection heuristic when full.
+     */
+    private void link(int from, int to, int level) {
+        int[] neighbours = links[from][level];
+        int count = neighbours[0];
+        int max = maxLinks(level);
+        if (count < max) {
+            neighbours[count + 1] = to;
+            neighbours[0] = count + 1;
+            return;
+        }
+        List<Candidate> candidates = new ArrayList<>(count + 1);
+        for (int i = 1; i <= count; i++) {
+            candidates.add(new Candidate(neighbours[i], distanceBetween(from, neighbours[i])));
+        }
+        candidates.add(new Candidate(to, distanceBetween(from, to)));
+        candidates.sort(Comparator.comparingDouble(Candidate::distance));
+        List<Candidate> kept = selectNeighbours(candidates, max);
+        for (int i = 0; i < kept.size(); i++) {
+            neighbours[i + 1] = kept.get(i).node();
+        }
+        neighbours[0] = kept.size();
+    }
+
+    /**
+     * Neighbour selection heuristic of the HNSW paper: a candidate is kept only if it is closer to the base node
+     * than to any neighbour already kept, which preserves links between clusters. Pruned candidates fill any
+     * remaining slots.
+     *
+     * @param candidates candidates ordered by distance to the base node.
+     */
+    private List<Candidate> selectNeighbours(List<Candidate> candidates, int max) {
+        List<Candidate> selected = new ArrayList<>(max);
+        List<Candidate> pruned = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+            if (selected.size() == max) {
+                break;
+            }
+            boolean diverse = true;
+            for (Candidate kept : selected) {
+                if (distanceBetween(candidate.node(), kept.node()) < candidate.distance()) {
+                    diverse = false;
+                    break;
+                }
+            }
+            (diverse ? selected : pruned).add(candidate);
+        }
+        for (int i = 0; i < pruned.size() && selected.size() < max; i++) {
+            selected.add(pruned.get(i));
+        }
+        return selected;
+    }
+
+    private int greedyClosest(float[] q, int start, int level) {
+        int current = start;
+        float currentDistance = distance(q, current);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] neighbours = links[current][level];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                float d = distance(q, neighbours[i]);
+                if (d < currentDistance) {
+                    current = neighbours[i];
+                    currentDistance = d;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Best-first search of one level.
+     *
+     * @return up to {@code ef} closest nodes found, as a max-heap on distance.
+     */
+    private PriorityQueue<Candidate> searchLayer(float[] q, int start, int ef, int level) {
+        BitSet visited = new BitSet(nodeCount);
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(Comparator.comparingDouble(Candidate::distance));
+        PriorityQueue<Candidate> found = new PriorityQueue<>(Comparator.comparingDouble(Candidate::distance).reversed());
+        Candidate first = new Candidate(start, distance(q, start));
+        visited.set(start);
+        candidates.add(first);
+        found.add(first);
+        while (!candidates.isEmpty()) {
+            Candidate closest = candidates.poll();
+            if (closest.distance() > found.peek().distance() && found.size() >= ef) {
+                break;
+            }
+            int[] neighbours = links[closest.node()][level];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                int neighbour = neighbours[i];
+                if (visited.get(neighbour)) {
+                    continue;
+                }
+                visited.set(neighbour);
+                float d = distance(q, neighbour);
+                if (found.size() < ef || d < found.peek().distance()) {
+                    Candidate candidate = new Candidate(neighbour, d);
+                    candidates.add(candidate);
+                    found.add(candidate);
+                    if (found.size() > ef) {
+                        found.poll();
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    private int maxLinks(int level) {
+        return level == 0 ? maxM0 : m;
+    }
+
+    private float distance(float[] q, int node) {
+        float[] page = pages[node >> PAGE_SHIFT];
+        int offset = offset(node);
+        float dot = 0;
+        for (int i = 0; i < dimension; i++) {
+            dot += q[i] * page[offset + i];
+        }
+        return 1 - dot;
+    }
+
+    private float distanceBetween(int a, int b) {
+        float[] pageA = pages[a >> PAGE_SHIFT];
+        float[] pageB = pages[b >> PAGE_SHIFT];
+        int offsetA = offset(a);
+        int offsetB = offset(b);
+        float dot = 0;
+        for (int i = 0; i < dimension; i++) {
+            dot += pageA[offsetA + i] * pageB[offsetB + i];
+        }
+        return 1 - dot;
+    }
+
+    private float[] vector(int node) {
+        int offset = offset(node);
+        return Arrays.copyOfRange(pages[node >> PAGE_SHIFT], offset, offset + dimension);
+    }
+
+    private int offset(int node) {
+        return (node & (PAGE_SIZE - 1)) * dimension;
+    }
+
+    private static float[] normalize(float[] vector) {
+        double sum = 0;
+        for (float v : vector) {
+            sum += v * v;
+        }
+        float[] normalized = vector.clone();
+        if (sum > 0) {
+            float scale = (float) (1 / Math.sqrt(sum));
+            for (int i = 0; i < normalized.length; i++) {
+                normalized[i] *= scale;
+            }
+        }
+        return normalized;
+    }
+
+    private record Candidate(int node, float distance) {}
+}
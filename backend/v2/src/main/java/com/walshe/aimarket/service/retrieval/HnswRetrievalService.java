@@ -0,0 +1,255 @@
+package com.walshe.aimarket.service.retrieval;
+
+import com.walshe.aimarket.config.RetrievalProperties;
+import com.walshe.aimarket.domain.DocumentChunk;
+import com.walshe.aimarket.repository.ChunkFilter;
+import com.walshe.aimarket.repository.DocumentChunkRepository;
+import com.walshe.aimarket.repository.RetrievedChunk;
+import com.walshe.aimarket.service.RetrievalService;
+import jakarta.annotation.PreDestroy;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * {@link RetrievalService} answering similarity searches from an in-process {@link HnswIndex} instead of a
+ * pgvector query. Selected with {@code application.retrieval.engine=hnsw}.
+ * <p>
+ * The index is loaded from document_chunk in the background once the application is ready; until then
+ * searches fall back to pgvector. Committed {@link DocumentChunksChangedEvent}s keep it current, and it is
+ * rebuilt when removed vectors outnumber live ones. Matching chunks are then loaded by primary key.
+ * <p>
+ * Those events are only published to this instance, so the index is also reconciled with document_chunk every
+ * {@code application.retrieval.hnsw.sync-interval}: chunks stored or deleted through other instances show up in
+ * searches within that interval.
+ */
+@Service
+@ConditionalOnProperty(name = "application.retrieval.engine", havingValue = "hnsw")
+class HnswRetrievalService implements RetrievalService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HnswRetrievalService.class);
+
+    /**
+     * Tombstones tolerated before a rebuild, regardless of index size.
+     */
+    private static final int MIN_DELETED_FOR_REBUILD = 1000;
+
+    private final DocumentChunkRepository repository;
+    private final RetrievalProperties properties;
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "hnsw-loader"));
+    private final AtomicBoolean loading = new AtomicBoolean();
+    private final Object changeLock = new Object();
+
+    private volatile HnswIndex index;
+    /**
+     * Index being loaded; receives changes alongside {@link #index} until it replaces it.
+     */
+    private HnswIndex pending;
+    /**
+     * Ids removed while {@link #pending} is loading, which the load must not bring back.
+     */
+    private final Set<Long> removedWhileLoading = ConcurrentHashMap.newKeySet();
+
+    HnswRetrievalService(DocumentChunkRepository repository, RetrievalProperties properties) {
+        this.repository = repository;
+        this.properties = properties;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void loadOnStartup() {
+        rebuild();
+    }
+
+    @Override
+    public List<DocumentChunk> retrieveSimilar(float[] queryEmbedding, Integer topK) {
+        int effectiveTopK = (topK == null || topK <= 0) ? properties.getDefaultTopK() : topK;
+        HnswIndex current = index;
+        if (current == null) {
+            return repository.findSimilarByCosine(queryEmbedding, effectiveTopK);
+        }
+        List<Long> ids = current.search(queryEmbedding, effectiveTopK, properties.getHnsw().getEfSearch());
+        Map<Long, DocumentChunk> chunks = repository
+            .findAllById(ids)
+            .stream()
+            .collect(Collectors.toMap(DocumentChunk::getId, Function.identity()));
+        return ids.stream().map(chunks::get).filter(Objects::nonNull).toList();
+    }
+
+    /**
+     * The in-process index holds no document metadata, so filtered queries are answered by pgvector.
+     * Query text is not used by this engine.
+     */
+    @Override
+    public List<RetrievedChunk> retrieve(String queryText, float[] queryEmbedding, Integer topK, ChunkFilter filter, Integer efSearch) {
+        int effectiveTopK = (topK == null || topK <= 0) ? properties.getDefaultTopK() : topK;
+        HnswIndex current = index;
+        if (current == null || !ChunkFilter.isEmpty(filter)) {
+            return repository.findNearest(queryEmbedding, effectiveTopK, filter, efSearch);
+        }
+        int ef = efSearch != null ? efSearch : properties.getHnsw().getEfSearch();
+        List<Long> ids = current.search(queryEmbedding, effectiveTopK, ef);
+        Map<Long, RetrievedChunk> chunks = repository
+            .findRetrievedByIds(ids, queryEmbedding)
+            .stream()
+            .collect(Collectors.toMap(RetrievedChunk::chunkId, Function.identity()));
+        return ids.stream().map(chunks::get).filter(Objects::nonNull).toList();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    void onChunksChanged(DocumentChunksChangedEvent event) {
+        synchronized (changeLock) {
+            apply(index, event);
+            if (pending != null) {
+                removedWhileLoading.addAll(event.removedIds());
+                apply(pending, event);
+            }
+        }
+        HnswIndex current = index;
+        if (current != null && current.deletedCount() > Math.max(MIN_DELETED_FOR_REBUILD, current.size())) {
+            rebuild();
+        }
+    }
+
+    private static void apply(HnswIndex target, DocumentChunksChangedEvent event) {
+        if (target == null) {
+            return;
+        }
+        event.removedIds().forEach(target::remove);
+        for (DocumentChunk chunk : event.stored()) {
+            if (chunk.getEmbedding() != null) {
+                target.add(chunk.getId(), chunk.getEmbedding());
+            } else {
+                target.remove(chunk.getId());
+            }
+        }
+    }
+
+    /**
+     * Loads a fresh index in the background and swaps it in once complete.
+     */
+    void rebuild() {
+        if (!loading.compareAndSet(false, true)) {
+            return;
+        }
+        loader.execute(() -> {
+            try {
+                HnswIndex fresh = newIndex();
+                synchronized (changeLock) {
+                    removedWhileLoading.clear();
+                    pending = fresh;
+                }
+                long start = System.currentTimeMillis();
+                repository.forEachEmbedding((embedding, id) -> {
+                    if (!removedWhileLoading.contains(id)) {
+                        fresh.add(id, embedding);
+                    }
+                });
+                synchronized (changeLock) {
+                    index = fresh;
+                    pending = null;
+                }
+                LOG.info("HNSW index loaded with {} vectors in {} ms", fresh.size(), System.currentTimeMillis() - start);
+            } catch (RuntimeException e) {
+                synchronized (changeLock) {
+                    pending = null;
+                }
+                LOG.error("Failed to load HNSW index", e);
+            } finally {
+                loading.set(false);
+            }
+        });
+    }
+
+    @Scheduled(
+        fixedDelayString = "${application.retrieval.hnsw.sync-interval:1m}",
+        initialDelayString = "${application.retrieval.hnsw.sync-interval:1m}"
+    )
+    void scheduleSync() {
+        if (index != null && !loading.get()) {
+            loader.execute(this::sync);
+        }
+    }
+
+    /**
+     * Adds the embedded chunks missing from the serving index and removes the ones no longer in document_chunk.
+     * Skipped while a load is in progress, since that load reads the table anyway.
+     */
+    void sync() {
+        HnswIndex current = index;
+        if (current == null || loading.get()) {
+            return;
+        }
+        try {
+            long[] indexed = current.ids();
+            long[] stored = repository.findEmbeddedIds();
+            long[] missing = difference(stored, indexed);
+            long[] gone = difference(indexed, stored);
+            if (missing.length == 0 && gone.length == 0) {
+                return;
+            }
+            repository.forEachEmbedding(missing, (embedding, id) -> current.add(id, embedding));
+            for (long id : gone) {
+                current.remove(id);
+            }
+            LOG.info("HNSW index synced with document_chunk: {} vectors added, {} removed", missing.length, gone.length);
+        } catch (RuntimeException e) {
+            LOG.error("Failed to sync HNSW index", e);
+            return;
+        }
+        if (current.deletedCount() > Math.max(MIN_DELETED_FOR_REBUILD, current.size())) {
+            rebuild();
+        }
+    }
+
+    /**
+     * @return the values of sorted array {@code a} that are not in sorted array {@code b}, in ascending order.
+     */
+    static long[] difference(long[] a, long[] b) {
+        LongStream.Builder result = LongStream.builder();
+        int j = 0;
+        for (long value : a) {
+            while (j < b.length && b[j] < value) {
+                j++;
+            }
+            if (j == b.length || b[j] != value) {
+                result.add(value);
+            }
+        }
+        return result.build().toArray();
+    }
+
+    /**
+     * @return the number of vectors in the serving index, or -1 before the first load completes.
+     */
+    int indexedCount() {
+        HnswIndex current = index;
+        return current == null ? -1 : current.size();
+    }
+
+    private HnswIndex newIndex() {
+        RetrievalProperties.Hnsw hnsw = properties.getHnsw();
+        return new HnswIndex(hnsw.getM(), hnsw.getEfConstruction(), 42L);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        loader.shutdownNow();
+    }
+}
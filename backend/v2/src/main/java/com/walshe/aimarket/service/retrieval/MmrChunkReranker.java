@@ -0,0 +1,115 @@
+package com.walshe.aimarket.service.retrieval;
+
+import com.walshe.aimarket.config.RetrievalProperties;
+import com.walshe.aimarket.repository.RetrievedChunk;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@link ChunkReranker} using maximal marginal relevance: chunks are picked greedily by their relevance to the
+ * query minus their term overlap with the chunks already picked, so the context covers more ground in fewer tokens.
+ * <p>
+ * Relevance blends the cosine similarity reported by retrieval with the share of query terms a chunk contains.
+ * Chunks overlapping an already picked one beyond the duplicate threshold are dropped. Runs on the CPU only.
+ */
+@Component
+class MmrChunkReranker implements ChunkReranker {
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final RetrievalProperties.Rerank properties;
+
+    MmrChunkReranker(RetrievalProperties properties) {
+        this.properties = properties.getRerank();
+    }
+
+    @Override
+    public List<RetrievedChunk> rerank(String queryText, List<RetrievedChunk> candidates, int topK) {
+        if (candidates.isEmpty() || topK <= 0) {
+            return List.of();
+        }
+        Set<String> queryTerms = terms(queryText);
+        int n = candidates.size();
+        List<Set<String>> chunkTerms = new ArrayList<>(n);
+        double[] relevance = new double[n];
+        for (int i = 0; i < n; i++) {
+            RetrievedChunk chunk = candidates.get(i);
+            Set<String> terms = terms(chunk.chunkText());
+            chunkTerms.add(terms);
+            relevance[i] = relevance(chunk, terms, queryTerms);
+        }
+
+        double lambda = properties.getLambda();
+        // Highest term overlap of each candidate with the chunks selected so far
+        double[] redundancy = new double[n];
+        boolean[] done = new boolean[n];
+        List<RetrievedChunk> selected = new ArrayList<>(Math.min(topK, n));
+        while (selected.size() < topK) {
+            int best = -1;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < n; i++) {
+                if (done[i]) {
+                    continue;
+                }
+                double score = lambda * relevance[i] - (1 - lambda) * redundancy[i];
+                // Strictly greater keeps retrieval order among equal scores
+                if (score > bestScore) {
+                    best = i;
+                    bestScore = score;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            done[best] = true;
+            selected.add(candidates.get(best));
+            for (int i = 0; i < n; i++) {
+                if (!done[i]) {
+                    redundancy[i] = Math.max(redundancy[i], jaccard(chunkTerms.get(i), chunkTerms.get(best)));
+                    if (redundancy[i] >= properties.getDuplicateThreshold()) {
+                        done[i] = true;
+                    }
+                }
+            }
+        }
+        return selected;
+    }
+
+    private double relevance(RetrievedChunk chunk, Set<String> chunkTerms, Set<String> queryTerms) {
+        // Cosine distance spans 0..2; chunks without an embedding get no vector credit
+        double similarity = chunk.distance() == null ? 0 : 1 - chunk.distance() / 2;
+        if (queryTerms.isEmpty()) {
+            return similarity;
+        }
+        long covered = queryTerms.stream().filter(chunkTerms::contains).count();
+        double coverage = (double) covered / queryTerms.size();
+        double lexicalWeight = properties.getLexicalWeight();
+        return (1 - lexicalWeight) * similarity + lexicalWeight * coverage;
+    }
+
+    static Set<String> terms(String text) {
+        if (text == null || text.isBlank()) {
+            return Set.of();
+        }
+        return Arrays.stream(NON_WORD.split(text.toLowerCase(Locale.ROOT)))
+            .filter(term -> term.length() > 1)
+            .collect(Collectors.toCollection(HashSet::new));
+    }
+
+    static double jaccard(Set<String> a, Set<String> b) {
+        if (a.isEmpty() && b.isEmpty()) {
+            return 1;
+        }
+        Set<String> smaller = a.size() <= b.size() ? a : b;
+        Set<String> larger = smaller == a ? b : a;
+        long common = smaller.stream().filter(larger::contains).count();
+        return (double) common / (a.size() + b.size() - common);
+    }
+}
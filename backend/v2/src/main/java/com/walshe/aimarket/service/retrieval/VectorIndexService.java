@@ -0,0 +1,272 @@
+package com.walshe.aimarket.service.retrieval;
+
+import com.walshe.aimarket.config.RetrievalProperties;
+import com.walshe.aimarket.repository.VectorIndexRepository;
+import com.walshe.aimarket.service.dto.VectorIndexBuildDTO;
+import com.walshe.aimarket.service.dto.VectorIndexDTO;
+import jakarta.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Rebuilds the pgvector HNSW index of document_chunk.embedding with new build parameters, without downtime.
+ * <p>
+ * The replacement is built {@code CONCURRENTLY} under a temporary name while the current index keeps serving
+ * searches; once it is valid, both are renamed in one transaction, the replacement taking the serving name, and the
+ * previous index is then dropped concurrently. There is always an index under the serving name.
+ * The replacement indexes vectors at the configured {@code application.retrieval.pgvector.quantization}, so a rebuild
+ * is also how the quantization of an existing index is changed.
+ * One rebuild runs at a time across instances, in the background.
+ * <p>
+ * Searches follow the quantization of the serving index, read from its definition at startup, after each rebuild and
+ * every {@code application.retrieval.pgvector.index-check-interval}, rather than the configured one.
+ */
+@Service
+public class VectorIndexService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(VectorIndexService.class);
+
+    static final String INDEX_NAME = VectorIndexRepository.SERVING_INDEX_NAME;
+
+    static final String NEXT_INDEX_NAME = INDEX_NAME + "_next";
+
+    static final String PREVIOUS_INDEX_NAME = INDEX_NAME + "_old";
+
+    private final VectorIndexRepository repository;
+    private final RetrievalProperties properties;
+    private final ExecutorService builder = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "vector-index-build"));
+
+    private volatile VectorIndexBuildDTO build;
+    /**
+     * Quantization of the serving index at the last check; null before the first one.
+     */
+    private volatile Optional<RetrievalProperties.Quantization> servingQuantization;
+
+    public VectorIndexService(VectorIndexRepository repository, RetrievalProperties properties) {
+        this.repository = repository;
+        this.properties = properties;
+    }
+
+    public List<VectorIndexDTO> findIndexes() {
+        return repository
+            .findHnswIndexes()
+            .stream()
+            .map(index -> new VectorIndexDTO(index.name(), index.definition(), index.valid(), index.sizeBytes()))
+            .toList();
+    }
+
+    /**
+     * Starts a rebuild of the serving index.
+     *
+     * @param m maximum connections per node, or null for {@code application.retrieval.pgvector.m}.
+     * @param efConstruction build candidate list size, or null for {@code application.retrieval.pgvector.ef-construction}.
+     * @return the started build, or empty if a rebuild is already running.
+     * @throws IllegalArgumentException if the parameters are out of pgvector's bounds.
+     */
+    public synchronized Optional<VectorIndexBuildDTO> startRebuild(Integer m, Integer efConstruction) {
+        RetrievalProperties.Pgvector pgvector = properties.getPgvector();
+        int effectiveM = m != null ? m : pgvector.getM();
+        int effectiveEfConstruction = efConstruction != null ? efConstruction : pgvector.getEfConstruction();
+        if (effectiveM < 2 || effectiveM > 100) {
+            throw new IllegalArgumentException("m must be between 2 and 100");
+        }
+        if (effectiveEfConstruction < 2 * effectiveM || effectiveEfConstruction > 1000) {
+            throw new IllegalArgumentException("efConstruction must be between 2 * m and 1000");
+        }
+        if (build != null && build.status() == VectorIndexBuildDTO.Status.RUNNING) {
+            return Optional.empty();
+        }
+        VectorIndexBuildDTO started = new VectorIndexBuildDTO(
+            INDEX_NAME,
+            pgvector.getQuantization(),
+            effectiveM,
+            effectiveEfConstruction,
+            VectorIndexBuildDTO.Status.RUNNING,
+            "starting",
+            null,
+            null,
+            Instant.now(),
+            null,
+            null
+        );
+        build = started;
+        builder.execute(() -> rebuild(started));
+        return Optional.of(started);
+    }
+
+    /**
+     * @return the running or last rebuild since startup, with live progress while running.
+     */
+    public Optional<VectorIndexBuildDTO> findBuild() {
+        VectorIndexBuildDTO current = build;
+        if (current == null || current.status() != VectorIndexBuildDTO.Status.RUNNING || !"building".equals(current.phase())) {
+            return Optional.ofNullable(current);
+        }
+        return Optional.of(
+            repository
+                .findBuildProgress()
+                .map(progress -> withPhase(current, progress.phase(), progress.tuplesDone(), progress.tuplesTotal()))
+                .orElse(current)
+        );
+    }
+
+    /**
+     * Reads the quantization of the serving index, which searches follow, and reports when it differs from the
+     * configured one or changes.
+     */
+    @Scheduled(fixedDelayString = "${application.retrieval.pgvector.index-check-interval:1m}")
+    void checkServingIndex() {
+        Optional<RetrievalProperties.Quantization> previous = servingQuantization;
+        Optional<RetrievalProperties.Quantization> current;
+        try {
+            current = repository.refreshServingQuantization();
+        } catch (RuntimeException e) {
+            LOG.warn("Could not read the definition of vector index {}", INDEX_NAME, e);
+            return;
+        }
+        servingQuantization = current;
+        if (current.equals(previous)) {
+            return;
+        }
+        RetrievalProperties.Quantization configured = properties.getPgvector().getQuantization();
+        if (current.isEmpty()) {
+            LOG.error(
+                "No recognised HNSW index named {}; searches assume {} quantization and may scan document_chunk sequentially",
+                INDEX_NAME,
+                configured
+            );
+        } else if (current.get() != configured) {
+            LOG.error(
+                "Vector index {} holds {} vectors but application.retrieval.pgvector.quantization is {}; searches follow the index, " +
+                "and the next rebuild changes it to {}",
+                INDEX_NAME,
+                current.get(),
+                configured,
+                configured
+            );
+        } else {
+            LOG.info("Vector index {} holds {} vectors", INDEX_NAME, current.get());
+        }
+    }
+
+    private void rebuild(VectorIndexBuildDTO started) {
+        try {
+            if (!repository.runWithRebuildLock(() -> buildAndSwap(started))) {
+                build = finished(started, VectorIndexBuildDTO.Status.FAILED, "A rebuild is running on another instance");
+            }
+        } catch (RuntimeException e) {
+            LOG.error("Vector index rebuild failed", e);
+            build = finished(started, VectorIndexBuildDTO.Status.FAILED, e.getMessage());
+        }
+    }
+
+    private void buildAndSwap(VectorIndexBuildDTO started) {
+        try {
+            LOG.info(
+                "Building {} vector index with m={} ef_construction={}",
+                started.quantization(),
+                started.m(),
+                started.efConstruction()
+            );
+            restoreServingIndex();
+            // Leftovers of an interrupted rebuild; an invalid one would make the new build fail
+            repository.dropIndexConcurrently(NEXT_INDEX_NAME);
+            repository.dropIndexConcurrently(PREVIOUS_INDEX_NAME);
+            build = withPhase(started, "building", null, null);
+            repository.createHnswIndexConcurrently(
+                NEXT_INDEX_NAME,
+                started.quantization(),
+                started.m(),
+                started.efConstruction(),
+                properties.getPgvector().getMaintenanceWorkMem()
+            );
+            build = withPhase(started, "swapping", null, null);
+            repository.swapIndexes(INDEX_NAME, NEXT_INDEX_NAME, PREVIOUS_INDEX_NAME);
+            checkServingIndex();
+        } catch (RuntimeException e) {
+            LOG.error("Vector index rebuild failed", e);
+            try {
+                // The swap is atomic, so the serving index is never the one under this name
+                repository.dropIndexConcurrently(NEXT_INDEX_NAME);
+            } catch (RuntimeException cleanupFailure) {
+                e.addSuppressed(cleanupFailure);
+            }
+            build = finished(started, VectorIndexBuildDTO.Status.FAILED, e.getMessage());
+            return;
+        }
+        try {
+            repository.dropIndexConcurrently(PREVIOUS_INDEX_NAME);
+        } catch (RuntimeException e) {
+            LOG.warn("Could not drop the replaced vector index {}; the next rebuild drops it", PREVIOUS_INDEX_NAME, e);
+        }
+        build = finished(started, VectorIndexBuildDTO.Status.DONE, null);
+        LOG.info("Vector index rebuilt in {} ms", build.finishedAt().toEpochMilli() - started.startedAt().toEpochMilli());
+    }
+
+    /**
+     * Puts a valid replacement or previous index back under the serving name if there is no index under that name,
+     * e.g. after an interrupted swap, so that it is not dropped as a leftover.
+     */
+    private void restoreServingIndex() {
+        Map<String, Boolean> valid = repository
+            .findHnswIndexes()
+            .stream()
+            .collect(Collectors.toMap(VectorIndexRepository.IndexInfo::name, VectorIndexRepository.IndexInfo::valid));
+        if (valid.containsKey(INDEX_NAME)) {
+            return;
+        }
+        for (String name : List.of(NEXT_INDEX_NAME, PREVIOUS_INDEX_NAME)) {
+            if (Boolean.TRUE.equals(valid.get(name))) {
+                LOG.warn("No vector index named {}; restoring {} in its place", INDEX_NAME, name);
+                repository.renameIndex(name, INDEX_NAME);
+                return;
+            }
+        }
+    }
+
+    private static VectorIndexBuildDTO withPhase(VectorIndexBuildDTO build, String phase, Long tuplesDone, Long tuplesTotal) {
+        return new VectorIndexBuildDTO(
+            build.indexName(),
+            build.quantization(),
+            build.m(),
+            build.efConstruction(),
+            build.status(),
+            phase,
+            tuplesDone,
+            tuplesTotal,
+            build.startedAt(),
+            build.finishedAt(),
+            build.errorMessage()
+        );
+    }
+
+    private static VectorIndexBuildDTO finished(VectorIndexBuildDTO build, VectorIndexBuildDTO.Status status, String errorMessage) {
+        return new VectorIndexBuildDTO(
+            build.indexName(),
+            build.quantization(),
+            build.m(),
+            build.efConstruction(),
+            status,
+            null,
+            null,
+            null,
+            build.startedAt(),
+            Instant.now(),
+            errorMessage
+        );
+    }
+
+    @PreDestroy
+    void shutdown() {
+        builder.shutdownNow();
+    }
+}
@@ -39,7 +39,7 @@ class AnalysisResource {
         LOG.info("analysis request started correlationId={}", correlationId);
         LOG.debug("REST request to analyze query: {}, correlationId: {}", request.query(), correlationId);
 
-        AnalysisResponseDTO response = analysisService.analyze(request.query(), request.topK(), correlationId);
+        AnalysisResponseDTO response = analysisService.analyze(request.query(), request.topK(), request.filter(), request.efSearch(), correlationId);
         return ResponseEntity.ok(response);
     }
 
@@ -47,6 +47,6 @@ class AnalysisResource {
     Flux<ServerSentEvent<String>> streamAnalysis(@Valid @RequestBody AnalysisRequestDTO request) {
         String correlationId = UUID.randomUUID().toString();
         LOG.info("stream analysis request started correlationId={}", correlationId);
-        return analysisService.streamAnalysis(request.query(), request.topK(), correlationId);
+        return analysisService.streamAnalysis(request.query(), request.topK(), request.filter(), request.efSearch(), correlationId);
     }
 }
@@ -1,23 +1,38 @@
 package com.walshe.aimarket.web.rest;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.walshe.aimarket.repository.DocumentRepository;
 import com.walshe.aimarket.service.DocumentService;
+import com.walshe.aimarket.service.IngestionJobService;
 import com.walshe.aimarket.service.IngestionService;
+import com.walshe.aimarket.service.dto.BulkIngestionResultDTO;
 import com.walshe.aimarket.service.dto.DocumentDTO;
 import com.walshe.aimarket.service.dto.DocumentListDTO;
+import com.walshe.aimarket.service.dto.IngestionJobDTO;
+import com.walshe.aimarket.service.ingestion.BulkIngestionService;
 import com.walshe.aimarket.web.rest.errors.BadRequestAlertException;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.Instant;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Consumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 import tech.jhipster.web.util.HeaderUtil;
 import tech.jhipster.web.util.ResponseUtil;
 
@@ -39,23 +54,36 @@ public class DocumentResource {
 
     private final DocumentRepository documentRepository;
 
+    private final IngestionJobService ingestionJobService;
+
     private final IngestionService ingestionService;
 
+    private final BulkIngestionService bulkIngestionService;
+
+    private final ObjectMapper objectMapper;
+
     public DocumentResource(
         DocumentService documentService,
         DocumentRepository documentRepository,
-        IngestionService ingestionService
+        IngestionJobService ingestionJobService,
+        IngestionService ingestionService,
+        BulkIngestionService bulkIngestionService,
+        ObjectMapper objectMapper
     ) {
         this.documentService = documentService;
         this.documentRepository = documentRepository;
+        this.ingestionJobService = ingestionJobService;
         this.ingestionService = ingestionService;
+        this.bulkIngestionService = bulkIngestionService;
+        this.objectMapper = objectMapper;
     }
 
     /**
-     * {@code POST  /documents} : Create a new document.
+     * {@code POST  /documents} : Create a new document and queue its ingestion.
+     * The ingestion job can be polled at the URI in the {@code Location} header.
      *
      * @param documentDTO the documentDTO to create.
-     * @return the {@link ResponseEntity} with status {@code 201 (Created)} and with body the new documentDTO, or with status {@code 400 (Bad Request)} if the document has already an ID.
+     * @return the {@link ResponseEntity} with status {@code 202 (Accepted)} and with body the new documentDTO, or with status {@code 400 (Bad Request)} if the document has already an ID.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
     @PostMapping("")
@@ -65,12 +93,100 @@ public class DocumentResource {
             throw new BadRequestAlertException("A new document cannot already have an ID", ENTITY_NAME, "idexists");
         }
         documentDTO = documentService.save(documentDTO);
-        ingestionService.ingestDocument(documentDTO.getId());
+        IngestionJobDTO job = ingestionJobService.enqueue(documentDTO.getId());
+        return ResponseEntity.accepted()
+            .location(new URI("/api/ingestion-jobs/" + job.id()))
+            .headers(HeaderUtil.createEntityCreationAlert(applicationName, true, ENTITY_NAME, documentDTO.getId().toString()))
+            .body(documentDTO);
+    }
+
+    /**
+     * {@code POST  /documents/upload} : Create a new document from the raw request body and ingest it.
+     * The body is chunked and embedded as it is received, so documents of any size can be uploaded;
+     * the content is stored only as the document's chunks, and the document's {@code content} stays empty,
+     * so the document cannot be re-ingested later.
+     * If ingestion fails, the document and any chunks stored so far are deleted.
+     *
+     * @param title the title of the new document.
+     * @param ticker the (optional) ticker the document is about.
+     * @param source the (optional) source of the document.
+     * @param body the document content, decoded with the request's character encoding.
+     * @return the {@link ResponseEntity} with status {@code 201 (Created)} and with body the new documentDTO.
+     * @throws URISyntaxException if the Location URI syntax is incorrect.
+     */
+    @PostMapping(value = "/upload", consumes = { MediaType.TEXT_PLAIN_VALUE, MediaType.APPLICATION_OCTET_STREAM_VALUE })
+    public ResponseEntity<DocumentDTO> uploadDocument(
+        @RequestParam("title") String title,
+        @RequestParam(value = "ticker", required = false) String ticker,
+        @RequestParam(value = "source", required = false) String source,
+        Reader body
+    ) throws URISyntaxException {
+        LOG.debug("REST request to upload Document : {}", title);
+        DocumentDTO documentDTO = new DocumentDTO();
+        documentDTO.setTitle(title);
+        documentDTO.setTicker(ticker);
+        documentDTO.setSource(source);
+        documentDTO.setContent("");
+        documentDTO.setCreatedAt(Instant.now());
+        documentDTO = documentService.save(documentDTO);
+        try {
+            ingestionService.ingestStream(documentDTO.getId(), body);
+        } catch (RuntimeException e) {
+            documentService.delete(documentDTO.getId());
+            throw e;
+        }
         return ResponseEntity.created(new URI("/api/documents/" + documentDTO.getId()))
             .headers(HeaderUtil.createEntityCreationAlert(applicationName, true, ENTITY_NAME, documentDTO.getId().toString()))
             .body(documentDTO);
     }
 
+    /**
+     * {@code POST  /documents/bulk} : Create and ingest many documents, one JSON document per NDJSON line.
+     * Documents are ingested concurrently, and the outcome of each is streamed back as an NDJSON line
+     * as soon as it completes; the {@code index} of an outcome is the line number of its document.
+     *
+     * @param body the NDJSON documents.
+     * @param response the response the outcomes are written to, with status {@code 200 (OK)}.
+     * @throws IOException if the response cannot be written.
+     */
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void bulkCreateDocuments(InputStream body, HttpServletResponse response) throws IOException {
+        LOG.debug("REST request to bulk create Documents");
+        bulkIngestionService.ingestNdjson(body, resultWriter(response));
+    }
+
+    /**
+     * {@code POST  /documents/bulk} : Create and ingest a document for each file of a zip archive.
+     * Documents are ingested concurrently, and the outcome of each is streamed back as an NDJSON line
+     * as soon as it completes; the {@code index} of an outcome is the position of its file in the archive.
+     *
+     * @param file the zip archive of UTF-8 text files.
+     * @param response the response the outcomes are written to, with status {@code 200 (OK)}.
+     * @throws IOException if the archive cannot be read or the response cannot be written.
+     */
+    @PostMapping(value = "/bulk", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void bulkCreateDocumentsFromArchive(@RequestPart("file") MultipartFile file, HttpServletResponse response) throws IOException {
+        LOG.debug("REST request to bulk create Documents from archive : {}", file.getOriginalFilename());
+        try (InputStream archive = file.getInputStream()) {
+            bulkIngestionService.ingestArchive(archive, resultWriter(response));
+        }
+    }
+
+    private Consumer<BulkIngestionResultDTO> resultWriter(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        OutputStream out = response.getOutputStream();
+        return result -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(result));
+                out.write('\n');
+                // flushed per line, so clients see each outcome as it completes
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to write bulk ingestion result", e);
+            }
+        };
+    }
+
     /**
      * {@code PUT  /documents/:id} : Updates an existing document.
      * Updates modify stored content only and do NOT trigger re-ingestion.
@@ -0,0 +1,42 @@
+package com.walshe.aimarket.web.rest;
+
+import com.walshe.aimarket.service.IngestionJobService;
+import com.walshe.aimarket.service.dto.IngestionJobDTO;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import tech.jhipster.web.util.ResponseUtil;
+
+/**
+ * REST controller for polling {@link com.walshe.aimarket.domain.IngestionJob}s.
+ */
+@RestController
+@RequestMapping("/api/ingestion-jobs")
+class IngestionJobResource {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IngestionJobResource.class);
+
+    private final IngestionJobService ingestionJobService;
+
+    IngestionJobResource(IngestionJobService ingestionJobService) {
+        this.ingestionJobService = ingestionJobService;
+    }
+
+    /**
+     * {@code GET  /ingestion-jobs/:id} : get the "id" ingestion job.
+     *
+     * @param id the id of the job to retrieve.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the job, or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/{id}")
+    ResponseEntity<IngestionJobDTO> getIngestionJob(@PathVariable("id") Long id) {
+        LOG.debug("REST request to get IngestionJob : {}", id);
+        Optional<IngestionJobDTO> job = ingestionJobService.findOne(id);
+        return ResponseUtil.wrapOrNotFound(job);
+    }
+}
@@ -2,12 +2,15 @@ package com.walshe.aimarket.web.rest;
 
 import com.walshe.aimarket.domain.CostLog;
 import com.walshe.aimarket.repository.CostLogRepository;
-import com.walshe.aimarket.service.dto.CostMetricsDTO;
-import java.math.BigDecimal;
-import java.util.HashMap;
+import com.walshe.aimarket.repository.CostRollupRepository.Granularity;
+import com.walshe.aimarket.service.dto.CostBucketDTO;
+import com.walshe.aimarket.service.dto.CostWindowDTO;
+import com.walshe.aimarket.service.metrics.CostMetricsService;
+import com.walshe.aimarket.service.metrics.CostWindowAggregator;
+import com.walshe.aimarket.web.rest.errors.BadRequestAlertException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
@@ -25,49 +28,90 @@ class MetricsResource {
 
     private static final Logger LOG = LoggerFactory.getLogger(MetricsResource.class);
 
+    private static final String ENTITY_NAME = "costMetrics";
+
+    /**
+     * Most buckets a single series request may span.
+     */
+    private static final long MAX_SERIES_BUCKETS = 10_000;
+
     private final CostLogRepository costLogRepository;
 
-    MetricsResource(CostLogRepository costLogRepository) {
+    private final CostMetricsService costMetricsService;
+
+    private final CostWindowAggregator costWindowAggregator;
+
+    MetricsResource(CostLogRepository costLogRepository, CostMetricsService costMetricsService, CostWindowAggregator costWindowAggregator) {
         this.costLogRepository = costLogRepository;
+        this.costMetricsService = costMetricsService;
+        this.costWindowAggregator = costWindowAggregator;
     }
 
     /**
-     * GET /cost : get cost metrics.
+     * GET /cost : get cost metrics, read from the cost rollup.
      *
-     * @param correlationId optional correlationId to filter by.
+     * @param correlationId optional correlationId to filter by; returns the matching cost records instead of totals.
+     * @param from optional start of the time range (ISO-8601 instant), rounded down to the minute.
+     * @param to optional end of the time range (exclusive), rounded down to the minute.
      * @return the ResponseEntity with status 200 (OK) and the cost metrics in body.
+     * @throws BadRequestAlertException {@code 400 (Bad Request)} if the range ends before it starts.
      */
     @GetMapping("/cost")
-    ResponseEntity<?> getCostMetrics(@RequestParam(required = false) String correlationId) {
+    ResponseEntity<?> getCostMetrics(
+        @RequestParam(required = false) String correlationId,
+        @RequestParam(required = false) Instant from,
+        @RequestParam(required = false) Instant to
+    ) {
         if (correlationId != null) {
             LOG.debug("REST request to get cost records for correlationId: {}", correlationId);
             List<CostLog> logs = costLogRepository.findByCorrelationId(correlationId);
             return ResponseEntity.ok(logs);
         }
 
-        LOG.debug("REST request to get cost metrics");
-
-        BigDecimal totalUsd = costLogRepository.getTotalCost();
-        if (totalUsd == null) {
-            totalUsd = BigDecimal.ZERO;
+        LOG.debug("REST request to get cost metrics from {} to {}", from, to);
+        if (from != null && to != null && to.isBefore(from)) {
+            throw new BadRequestAlertException("The time range ends before it starts", ENTITY_NAME, "invalidrange");
         }
+        return ResponseEntity.ok(costMetricsService.getCostMetrics(from, to));
+    }
 
-        List<Object[]> costByModelRaw = costLogRepository.getCostByModel();
-        Map<String, BigDecimal> byModel = costByModelRaw.stream()
-            .collect(Collectors.toMap(
-                row -> (String) row[0],
-                row -> (BigDecimal) row[1],
-                BigDecimal::add
-            ));
-
-        List<Object[]> costByCallTypeRaw = costLogRepository.getCostByCallType();
-        Map<CostLog.CallType, BigDecimal> byCallType = costByCallTypeRaw.stream()
-            .collect(Collectors.toMap(
-                row -> (CostLog.CallType) row[0],
-                row -> (BigDecimal) row[1],
-                BigDecimal::add
-            ));
+    /**
+     * GET /cost/series : get cost totals per time bucket, read from the cost rollup.
+     *
+     * @param granularity bucket size: MINUTE, HOUR (default) or DAY.
+     * @param from optional start of the time range (ISO-8601 instant); defaults to one day before {@code to}.
+     * @param to optional end of the time range (exclusive); defaults to now.
+     * @return the buckets holding at least one call, oldest first.
+     * @throws BadRequestAlertException {@code 400 (Bad Request)} if the range is invalid or spans too many buckets.
+     */
+    @GetMapping("/cost/series")
+    List<CostBucketDTO> getCostSeries(
+        @RequestParam(defaultValue = "HOUR") Granularity granularity,
+        @RequestParam(required = false) Instant from,
+        @RequestParam(required = false) Instant to
+    ) {
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(Duration.ofDays(1));
+        LOG.debug("REST request to get {} cost series from {} to {}", granularity, start, end);
+        if (end.isBefore(start)) {
+            throw new BadRequestAlertException("The time range ends before it starts", ENTITY_NAME, "invalidrange");
+        }
+        if (granularity.bucketsBetween(start, end) > MAX_SERIES_BUCKETS) {
+            throw new BadRequestAlertException("The time range spans too many buckets", ENTITY_NAME, "rangetoolarge");
+        }
+        return costMetricsService.getCostSeries(granularity, start, end);
+    }
 
-        return ResponseEntity.ok(new CostMetricsDTO(totalUsd, byModel, byCallType));
+    /**
+     * GET /live/cost : get the live cost windows of this instance, aggregated in memory from the cost event stream
+     * without querying the database. Covers the configured retention at most.
+     *
+     * @param from optional time (ISO-8601 instant) from which windows are returned; the window holding it is included.
+     * @return the windows holding at least one call, oldest first.
+     */
+    @GetMapping("/live/cost")
+    List<CostWindowDTO> getLiveCost(@RequestParam(required = false) Instant from) {
+        LOG.debug("REST request to get live cost windows from {}", from);
+        return costWindowAggregator.findWindows(from);
     }
 }
@@ -0,0 +1,84 @@
+package com.walshe.aimarket.web.rest;
+
+import com.walshe.aimarket.security.AuthoritiesConstants;
+import com.walshe.aimarket.service.dto.VectorIndexBuildDTO;
+import com.walshe.aimarket.service.dto.VectorIndexDTO;
+import com.walshe.aimarket.service.retrieval.VectorIndexService;
+import com.walshe.aimarket.web.rest.errors.BadRequestAlertException;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import tech.jhipster.web.util.ResponseUtil;
+
+/**
+ * REST controller for managing the pgvector HNSW index of document chunks.
+ */
+@RestController
+@RequestMapping("/api/admin/vector-indexes")
+@PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+class VectorIndexResource {
+
+    private static final Logger LOG = LoggerFactory.getLogger(VectorIndexResource.class);
+
+    private static final String ENTITY_NAME = "vectorIndex";
+
+    private final VectorIndexService vectorIndexService;
+
+    VectorIndexResource(VectorIndexService vectorIndexService) {
+        this.vectorIndexService = vectorIndexService;
+    }
+
+    /**
+     * {@code GET  /admin/vector-indexes} : get the HNSW indexes of document chunks.
+     *
+     * @return the list of indexes, including invalid ones of running or failed builds.
+     */
+    @GetMapping("")
+    List<VectorIndexDTO> getVectorIndexes() {
+        LOG.debug("REST request to get vector indexes");
+        return vectorIndexService.findIndexes();
+    }
+
+    /**
+     * {@code POST  /admin/vector-indexes/rebuild} : rebuild the HNSW index concurrently and swap it in once built.
+     *
+     * @param m the (optional) maximum connections per node.
+     * @param efConstruction the (optional) candidate list size while building.
+     * @return the {@link ResponseEntity} with status {@code 202 (Accepted)} and with body the started build.
+     * @throws BadRequestAlertException {@code 400 (Bad Request)} if the parameters are invalid or a rebuild is already running.
+     */
+    @PostMapping("/rebuild")
+    ResponseEntity<VectorIndexBuildDTO> rebuildVectorIndex(
+        @RequestParam(value = "m", required = false) Integer m,
+        @RequestParam(value = "efConstruction", required = false) Integer efConstruction
+    ) {
+        LOG.debug("REST request to rebuild the vector index with m={} efConstruction={}", m, efConstruction);
+        VectorIndexBuildDTO build;
+        try {
+            build = vectorIndexService
+                .startRebuild(m, efConstruction)
+                .orElseThrow(() -> new BadRequestAlertException("A rebuild is already running", ENTITY_NAME, "rebuildrunning"));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "invalidparameters");
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(build);
+    }
+
+    /**
+     * {@code GET  /admin/vector-indexes/rebuild} : get the progress of the running or last rebuild.
+     *
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the build, or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/rebuild")
+    ResponseEntity<VectorIndexBuildDTO> getVectorIndexRebuild() {
+        return ResponseUtil.wrapOrNotFound(vectorIndexService.findBuild());
+    }
+}
@@ -34,8 +34,16 @@ class TechnicalStructureTest {
         .ignoreDependency(alwaysTrue(), belongToAnyOf(
             com.walshe.aimarket.config.Constants.class,
             com.walshe.aimarket.config.ApplicationProperties.class,
+            com.walshe.aimarket.config.AiPricingProperties.class,
             com.walshe.aimarket.config.EmbeddingProperties.class,
             com.walshe.aimarket.config.LlmProperties.class,
-            com.walshe.aimarket.config.RetrievalProperties.class
+            com.walshe.aimarket.config.RetrievalProperties.class,
+            com.walshe.aimarket.config.IngestionProperties.class,
+            com.walshe.aimarket.config.EmbeddingCacheProperties.class,
+            com.walshe.aimarket.config.AnalysisCacheProperties.class,
+            com.walshe.aimarket.config.ChunkingProperties.class,
+            com.walshe.aimarket.config.CostRollupProperties.class,
+            com.walshe.aimarket.config.LiveMetricsProperties.class,
+            com.walshe.aimarket.config.CostLogProperties.class
         ));
 }
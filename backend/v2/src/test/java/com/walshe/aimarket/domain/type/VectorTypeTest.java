@@ -0,0 +1,82 @@
+package com.walshe.aimarket.domain.type;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.pgvector.PGvector;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Types;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.postgresql.PGConnection;
+import org.postgresql.util.PGobject;
+
+class VectorTypeTest {
+
+    private final VectorType type = VectorType.INSTANCE;
+
+    @Test
+    void shouldBindEmbeddingAsPgVectorAndRegisterTypeOnce() throws Exception {
+        PGConnection pgConnection = mock(PGConnection.class);
+        Connection connection = mock(Connection.class);
+        when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(statement.getConnection()).thenReturn(connection);
+
+        type.nullSafeSet(statement, new float[] { 1.5f, -2f }, 1, null);
+        type.nullSafeSet(statement, new float[] { 3f }, 2, null);
+
+        ArgumentCaptor<Object> bound = ArgumentCaptor.forClass(Object.class);
+        verify(statement).setObject(eq(1), bound.capture());
+        assertThat(bound.getValue()).isInstanceOf(PGvector.class);
+        assertThat(((PGvector) bound.getValue()).toArray()).containsExactly(1.5f, -2f);
+        verify(pgConnection, times(1)).addDataType(eq("vector"), any(Class.class));
+    }
+
+    @Test
+    void shouldBindNullAsOther() throws Exception {
+        PreparedStatement statement = mock(PreparedStatement.class);
+
+        type.nullSafeSet(statement, null, 1, null);
+
+        verify(statement).setNull(1, Types.OTHER);
+    }
+
+    @Test
+    void shouldReadBinaryAndTextValues() throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        PGobject text = new PGobject();
+        text.setType("vector");
+        text.setValue("[0.25,4]");
+        when(rs.getObject(1)).thenReturn(new PGvector(new float[] { 1f, 2f }));
+        when(rs.getObject(2)).thenReturn(text);
+        when(rs.getObject(3)).thenReturn(null);
+        Connection connection = mock(Connection.class);
+        when(connection.unwrap(PGConnection.class)).thenReturn(mock(PGConnection.class));
+        Statement statement = mock(Statement.class);
+        when(statement.getConnection()).thenReturn(connection);
+        when(rs.getStatement()).thenReturn(statement);
+
+        assertThat(type.nullSafeGet(rs, 1, null, null)).containsExactly(1f, 2f);
+        assertThat(type.nullSafeGet(rs, 2, null, null)).containsExactly(0.25f, 4f);
+        assertThat(type.nullSafeGet(rs, 3, null, null)).isNull();
+    }
+
+    @Test
+    void shouldCompareAndCopyByValue() {
+        float[] value = { 1f, 2f };
+        float[] copy = type.deepCopy(value);
+
+        assertThat(copy).isNotSameAs(value).containsExactly(1f, 2f);
+        assertThat(type.equals(value, copy)).isTrue();
+        assertThat(type.hashCode(value)).isEqualTo(type.hashCode(copy));
+    }
+}
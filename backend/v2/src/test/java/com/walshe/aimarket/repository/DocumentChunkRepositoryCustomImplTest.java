@@ -0,0 +1,88 @@
+package com.walshe.aimarket.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.walshe.aimarket.domain.Document;
+import com.walshe.aimarket.domain.DocumentChunk;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class DocumentChunkRepositoryCustomImplTest {
+
+    @Test
+    void shouldWriteChunksInBinaryCopyFormat() throws Exception {
+        DocumentChunk chunk = new DocumentChunk()
+            .id(1001L)
+            .chunkIndex(3)
+            .chunkText("héllo")
+            .contentHash("abc")
+            .createdAt(Instant.parse("2000-01-01T00:00:01Z"))
+            .document(new Document().id(42L))
+            .embedding(new float[] { 0.5f, -1f });
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DocumentChunkRepositoryCustomImpl.writeCopy(bytes, List.of(chunk));
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+
+        byte[] signature = new byte[11];
+        in.readFully(signature);
+        assertThat(new String(signature, 0, 6, StandardCharsets.US_ASCII)).isEqualTo("PGCOPY");
+        assertThat(in.readInt()).isZero();
+        assertThat(in.readInt()).isZero();
+
+        assertThat(in.readShort()).isEqualTo((short) 8);
+        // id
+        assertThat(in.readInt()).isEqualTo(8);
+        assertThat(in.readLong()).isEqualTo(1001L);
+        // chunk_index
+        assertThat(in.readInt()).isEqualTo(4);
+        assertThat(in.readInt()).isEqualTo(3);
+        // chunk_text
+        byte[] text = "héllo".getBytes(StandardCharsets.UTF_8);
+        assertThat(in.readInt()).isEqualTo(text.length);
+        byte[] readText = new byte[text.length];
+        in.readFully(readText);
+        assertThat(readText).isEqualTo(text);
+        // embedding_model
+        assertThat(in.readInt()).isEqualTo(-1);
+        // content_hash
+        assertThat(in.readInt()).isEqualTo(3);
+        assertThat(in.readNBytes(3)).isEqualTo("abc".getBytes(StandardCharsets.US_ASCII));
+        // created_at, in microseconds since 2000-01-01
+        assertThat(in.readInt()).isEqualTo(8);
+        assertThat(in.readLong()).isEqualTo(1_000_000L);
+        // document_id
+        assertThat(in.readInt()).isEqualTo(8);
+        assertThat(in.readLong()).isEqualTo(42L);
+        // embedding: dimensions, unused, then the floats
+        assertThat(in.readInt()).isEqualTo(4 + 2 * 4);
+        assertThat(in.readShort()).isEqualTo((short) 2);
+        assertThat(in.readShort()).isZero();
+        assertThat(in.readFloat()).isEqualTo(0.5f);
+        assertThat(in.readFloat()).isEqualTo(-1f);
+
+        assertThat(in.readShort()).isEqualTo((short) -1);
+        assertThat(in.available()).isZero();
+    }
+
+    @Test
+    void shouldBuildFilterPredicateFromSetCriteriaOnly() {
+        assertThat(DocumentChunkRepositoryCustomImpl.filterPredicate(null)).isEqualTo("TRUE");
+        assertThat(DocumentChunkRepositoryCustomImpl.filterPredicate(new ChunkFilter(null, null, null, null, null))).isEqualTo("TRUE");
+        assertThat(DocumentChunkRepositoryCustomImpl.filterPredicate(new ChunkFilter(Set.of(1L), null, null, null, null))).isEqualTo(
+            "(dc.document_id IN (:documentIds))"
+        );
+        assertThat(
+            DocumentChunkRepositoryCustomImpl.filterPredicate(new ChunkFilter(Set.of(1L), "NVDA", null, Instant.EPOCH, null))
+        ).isEqualTo(
+            "(dc.document_id IN (:documentIds) AND dc.document_id IN " +
+            "(SELECT d.id FROM document d WHERE d.ticker = :ticker AND d.created_at >= :createdFrom))"
+        );
+    }
+}
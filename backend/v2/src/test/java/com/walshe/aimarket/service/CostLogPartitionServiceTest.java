@@ -0,0 +1,102 @@
+package com.walshe.aimarket.service;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.walshe.aimarket.config.CostLogProperties;
+import com.walshe.aimarket.repository.CostLogPartitionRepository;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@ExtendWith(MockitoExtension.class)
+class CostLogPartitionServiceTest {
+
+    @Mock
+    private CostLogPartitionRepository partitionRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private CostLogPartitionService service;
+
+    @BeforeEach
+    void setUp() {
+        CostLogProperties properties = new CostLogProperties();
+        properties.setRetentionMonths(3);
+        properties.setPartitionsAhead(2);
+        service = new CostLogPartitionService(partitionRepository, properties, transactionManager);
+    }
+
+    @Test
+    void shouldCreateMissingPartitionsAndDropExpiredOnes() {
+        when(partitionRepository.tryLockMaintenance()).thenReturn(true);
+        when(partitionRepository.findPartitionMonths()).thenReturn(
+            List.of(YearMonth.of(2026, 6), YearMonth.of(2026, 7), YearMonth.of(2026, 8), YearMonth.of(2026, 9), YearMonth.of(2026, 10))
+        );
+
+        service.maintain(YearMonth.of(2026, 10));
+
+        verify(partitionRepository).createPartition(YearMonth.of(2026, 11));
+        verify(partitionRepository).createPartition(YearMonth.of(2026, 12));
+        verify(partitionRepository).dropPartition(YearMonth.of(2026, 6));
+        verify(partitionRepository).dropPartition(YearMonth.of(2026, 7));
+        verify(partitionRepository, never()).dropPartition(YearMonth.of(2026, 8));
+    }
+
+    @Test
+    void shouldCreatePartitionsForRowsInTheDefaultPartition() {
+        when(partitionRepository.tryLockMaintenance()).thenReturn(true);
+        when(partitionRepository.findDefaultPartitionMonths()).thenReturn(List.of(YearMonth.of(2026, 9)));
+        when(partitionRepository.findPartitionMonths()).thenReturn(List.of(YearMonth.of(2026, 10), YearMonth.of(2026, 11)));
+
+        service.maintain(YearMonth.of(2026, 10));
+
+        verify(partitionRepository).createPartition(YearMonth.of(2026, 9));
+        verify(partitionRepository).createPartition(YearMonth.of(2026, 12));
+        verify(partitionRepository, never()).createPartition(YearMonth.of(2026, 10));
+    }
+
+    @Test
+    void shouldContinueWithOtherMonthsWhenOneFails() {
+        when(partitionRepository.tryLockMaintenance()).thenReturn(true);
+        doThrow(new IllegalStateException("boom")).when(partitionRepository).createPartition(YearMonth.of(2026, 10));
+
+        service.maintain(YearMonth.of(2026, 10));
+
+        verify(partitionRepository).createPartition(YearMonth.of(2026, 11));
+        verify(partitionRepository).createPartition(YearMonth.of(2026, 12));
+    }
+
+    @Test
+    void shouldStopWhenAnotherInstanceHoldsTheLock() {
+        when(partitionRepository.tryLockMaintenance()).thenReturn(false);
+
+        service.maintain(YearMonth.of(2026, 10));
+
+        verify(partitionRepository).tryLockMaintenance();
+        verify(partitionRepository, never()).createPartition(any());
+        verify(partitionRepository, never()).dropPartition(any());
+    }
+
+    @Test
+    void shouldRejectDedupWindowLongerThanTheKeptMonths() {
+        CostLogProperties properties = new CostLogProperties();
+        properties.setRetentionMonths(2);
+        properties.setDedupWindow(Duration.ofDays(60));
+
+        assertThatThrownBy(() -> new CostLogPartitionService(partitionRepository, properties, transactionManager))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("dedup-window");
+    }
+}
@@ -41,6 +41,8 @@ import static org.assertj.core.api.Assertions.assertThat;
 })
 class IngestionServiceIT {
 
+    private static final List<String> EMBEDDED_TEXTS = java.util.Collections.synchronizedList(new ArrayList<>());
+
     @TestConfiguration
     static class StubConfig {
         @Bean
@@ -54,6 +56,7 @@ class IngestionServiceIT {
                 @Override
                 public float[] embed(String text, Long documentId, String correlationId) {
                     costTrackingService.logEmbeddingUsage("text-embedding-3-small", 10, documentId, correlationId, "openai", 10L);
+                    EMBEDDED_TEXTS.add(text);
                     float[] vec = new float[1536];
                     vec[0] = (float) Math.min(1_000d, text.length());
                     return vec;
@@ -104,8 +107,7 @@ class IngestionServiceIT {
         for (DocumentChunk c : chunks) {
             assertThat(c.getChunkIndex()).isEqualTo(expectedIndex++);
             assertThat(c.getEmbeddingModel()).isEqualTo("text-embedding-3-small");
-            assertThat(c.getEmbedding()).isNotNull();
-            assertThat(c.getEmbedding()).startsWith("[");
+            assertThat(c.getEmbedding()).hasSize(1536);
             assertThat(c.getChunkText()).isNotBlank();
         }
     }
@@ -131,7 +133,7 @@ class IngestionServiceIT {
         int firstCount = first.size();
         assertThat(firstCount).isGreaterThan(0);
 
-        // Act 2: second ingestion (should NOT duplicate, we delete before re-ingesting)
+        // Act 2: second ingestion (should NOT duplicate, unchanged chunks are kept)
         ingestionService.ingestDocument(doc);
         List<DocumentChunk> second = documentChunkRepository.findAll().stream()
             .filter(c -> c.getDocument().getId().equals(documentId))
@@ -143,6 +145,70 @@ class IngestionServiceIT {
         assertThat(second.stream().map(DocumentChunk::getEmbeddingModel).distinct().toList()).containsExactly("text-embedding-3-small");
     }
 
+    @Test
+    @Transactional
+    void ingestDocument_reembedsOnlyChangedChunks() {
+        // Two 301-char sentences fit in one chunk, so this produces chunks [A B] and [C D]
+        String a = "A".repeat(300) + ".";
+        String b = "B".repeat(300) + ".";
+        String c = "C".repeat(300) + ".";
+        String d = "D".repeat(300) + ".";
+        Document doc = new Document()
+            .title("Incremental Doc")
+            .content(String.join(" ", a, b, c, d))
+            .createdAt(Instant.now());
+        doc = documentRepository.saveAndFlush(doc);
+        final Long documentId = doc.getId();
+
+        ingestionService.ingestDocument(doc);
+        DocumentChunk firstChunk = chunksOf(documentId).get(0);
+
+        // Change the second chunk only
+        EMBEDDED_TEXTS.clear();
+        doc.setContent(String.join(" ", a, b, "E".repeat(300) + ".", d));
+        doc = documentRepository.saveAndFlush(doc);
+        ingestionService.ingestDocument(doc);
+
+        List<DocumentChunk> chunks = chunksOf(documentId);
+        assertThat(EMBEDDED_TEXTS).containsExactly("E".repeat(300) + ". " + d);
+        assertThat(chunks).hasSize(2);
+        assertThat(chunks.get(0).getId()).isEqualTo(firstChunk.getId());
+        assertThat(chunks.get(1).getChunkText()).startsWith("E");
+        assertThat(chunks).allSatisfy(chunk -> assertThat(chunk.getContentHash()).hasSize(64));
+
+        // Insert a chunk in front: both existing chunks move and keep their embeddings
+        EMBEDDED_TEXTS.clear();
+        String f = "F".repeat(700) + ".";
+        doc.setContent(String.join(" ", f, a, b, "E".repeat(300) + ".", d));
+        doc = documentRepository.saveAndFlush(doc);
+        ingestionService.ingestDocument(doc);
+
+        chunks = chunksOf(documentId);
+        assertThat(EMBEDDED_TEXTS).containsExactly(f);
+        assertThat(chunks).extracting(DocumentChunk::getChunkIndex).containsExactly(0, 1, 2);
+        assertThat(chunks.get(1).getChunkText()).isEqualTo(firstChunk.getChunkText());
+        assertThat(chunks.get(1).getEmbedding()).isEqualTo(firstChunk.getEmbedding());
+    }
+
+    private List<DocumentChunk> chunksOf(Long documentId) {
+        return documentChunkRepository.findAll().stream()
+            .filter(c -> c.getDocument().getId().equals(documentId))
+            .sorted(Comparator.comparingInt(DocumentChunk::getChunkIndex))
+            .toList();
+    }
+
+    @Test
+    @Transactional
+    void ingestDocument_rejectsStreamedDocument() {
+        Document doc = documentRepository.saveAndFlush(new Document().title("Streamed Doc").content("").createdAt(Instant.now()));
+        ingestionService.ingestStream(doc.getId(), new java.io.StringReader("Streamed content. It is kept only as chunks."));
+        int stored = documentChunkRepository.findFingerprintsByDocument(doc).size();
+
+        org.assertj.core.api.Assertions.assertThatThrownBy(() -> ingestionService.ingestDocument(doc.getId()))
+            .isInstanceOf(IllegalStateException.class);
+        assertThat(documentChunkRepository.findFingerprintsByDocument(doc)).hasSize(stored).isNotEmpty();
+    }
+
     @Test
     void ingestDocument_shouldNotHaveCorrelationId() {
         // Arrange
@@ -3,10 +3,9 @@ package com.walshe.aimarket.service;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import com.walshe.aimarket.config.PromptProperties;
-import com.walshe.aimarket.domain.DocumentChunk;
+import com.walshe.aimarket.repository.RetrievedChunk;
 import com.walshe.aimarket.service.dto.PromptDefinition;
 import com.walshe.aimarket.service.impl.PromptServiceImpl;
-import java.time.Instant;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -46,13 +45,13 @@ class PromptBuilderServiceTest {
     @Test
     void buildsDeterministicPrompt_givenSameInputs_returnsSameOutput() {
         String query = "What are the key risks for ACME in Q4?";
-        List<DocumentChunk> chunksA = List.of(
-            new DocumentChunk().chunkIndex(0).chunkText("ACME faces FX exposure in EMEA.").createdAt(Instant.now()),
-            new DocumentChunk().chunkIndex(1).chunkText("Supply chain delays may impact margins.").createdAt(Instant.now())
+        List<RetrievedChunk> chunksA = List.of(
+            new RetrievedChunk(0L, 1L, "10-K", "ACME faces FX exposure in EMEA.", 0.1),
+            new RetrievedChunk(1L, 1L, "10-K", "Supply chain delays may impact margins.", 0.1)
         );
-        List<DocumentChunk> chunksB = List.of(
-            new DocumentChunk().chunkIndex(0).chunkText("ACME faces FX exposure in EMEA.").createdAt(Instant.now()),
-            new DocumentChunk().chunkIndex(1).chunkText("Supply chain delays may impact margins.").createdAt(Instant.now())
+        List<RetrievedChunk> chunksB = List.of(
+            new RetrievedChunk(0L, 1L, "10-K", "ACME faces FX exposure in EMEA.", 0.1),
+            new RetrievedChunk(1L, 1L, "10-K", "Supply chain delays may impact margins.", 0.1)
         );
 
         String prompt1 = promptBuilderService.buildPrompt(query, chunksA);
@@ -64,10 +63,10 @@ class PromptBuilderServiceTest {
     @Test
     void preservesContextOrdering_andNumbersChunks() {
         String query = "Summarize risks";
-        List<DocumentChunk> chunks = List.of(
-            new DocumentChunk().chunkIndex(10).chunkText("First text"),
-            new DocumentChunk().chunkIndex(2).chunkText("Second text"),
-            new DocumentChunk().chunkIndex(7).chunkText("Third text")
+        List<RetrievedChunk> chunks = List.of(
+            new RetrievedChunk(10L, 1L, "10-K", "First text", 0.1),
+            new RetrievedChunk(2L, 1L, "10-K", "Second text", 0.1),
+            new RetrievedChunk(7L, 1L, "10-K", "Third text", 0.1)
         );
 
         String prompt = promptBuilderService.buildPrompt(query, chunks);
@@ -84,7 +83,7 @@ class PromptBuilderServiceTest {
     @Test
     void containsUserQuery_andJsonInstruction() {
         String query = "Provide a brief summary";
-        List<DocumentChunk> chunks = List.of();
+        List<RetrievedChunk> chunks = List.of();
 
         String prompt = promptBuilderService.buildPrompt(query, chunks);
 
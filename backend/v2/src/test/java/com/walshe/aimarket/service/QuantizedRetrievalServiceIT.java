@@ -0,0 +1,84 @@
+package com.walshe.aimarket.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doReturn;
+
+import com.walshe.aimarket.IntegrationTest;
+import com.walshe.aimarket.config.RetrievalProperties;
+import com.walshe.aimarket.domain.Document;
+import com.walshe.aimarket.domain.DocumentChunk;
+import com.walshe.aimarket.repository.DocumentChunkRepository;
+import com.walshe.aimarket.repository.DocumentRepository;
+import com.walshe.aimarket.repository.RetrievedChunk;
+import com.walshe.aimarket.repository.VectorIndexRepository;
+import java.time.Instant;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Searches through binary-quantized distances must still return chunks in full-precision order.
+ */
+@IntegrationTest
+@DirtiesContext
+@TestPropertySource(properties = { "application.retrieval.pgvector.quantization=binary", "application.retrieval.hybrid.enabled=false" })
+@Transactional
+class QuantizedRetrievalServiceIT {
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private DocumentChunkRepository chunkRepository;
+
+    @Autowired
+    private RetrievalService retrievalService;
+
+    @MockitoSpyBean
+    private VectorIndexRepository vectorIndexRepository;
+
+    private Document doc;
+
+    @BeforeEach
+    void setUp() {
+        // Searches follow the serving index, which the shared test database may have built at another quantization
+        doReturn(Optional.of(RetrievalProperties.Quantization.BINARY)).when(vectorIndexRepository).servingQuantization();
+        doc = documentRepository.saveAndFlush(new Document().title("Quantized").content("irrelevant").createdAt(Instant.now()));
+        // All three quantize to the same bits (positive in dimensions 0 and 1), so only re-ranking can order them
+        saveChunk(0, vector(1.0f, 0.2f));
+        saveChunk(1, vector(0.2f, 1.0f));
+        saveChunk(2, vector(0.7f, 0.7f));
+    }
+
+    @Test
+    void retrieve_reranksQuantizedCandidatesByFullPrecisionDistance() {
+        assertThat(retrievalService.retrieve(null, vector(1.0f, 0.0f), 3, null, null))
+            .extracting(RetrievedChunk::chunkText)
+            .containsExactly("chunk-0", "chunk-2", "chunk-1");
+        assertThat(retrievalService.retrieveSimilar(vector(0.0f, 1.0f), 1)).extracting(DocumentChunk::getChunkIndex).containsExactly(1);
+    }
+
+    private void saveChunk(int idx, float[] embedding) {
+        chunkRepository.saveAndFlush(
+            new DocumentChunk()
+                .document(doc)
+                .chunkIndex(idx)
+                .chunkText("chunk-" + idx)
+                .embeddingModel("manual-test")
+                .createdAt(Instant.now())
+                .embedding(embedding)
+        );
+    }
+
+    private static float[] vector(float x, float y) {
+        float[] v = new float[1536];
+        v[0] = x;
+        v[1] = y;
+        return v;
+    }
+}
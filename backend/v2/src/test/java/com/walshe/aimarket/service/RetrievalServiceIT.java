@@ -3,10 +3,14 @@ package com.walshe.aimarket.service;
 import com.walshe.aimarket.IntegrationTest;
 import com.walshe.aimarket.domain.Document;
 import com.walshe.aimarket.domain.DocumentChunk;
+import com.walshe.aimarket.repository.ChunkFilter;
 import com.walshe.aimarket.repository.DocumentChunkRepository;
 import com.walshe.aimarket.repository.DocumentRepository;
+import com.walshe.aimarket.repository.RetrievedChunk;
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,6 +19,7 @@ import org.springframework.test.context.TestPropertySource;
 import org.springframework.transaction.annotation.Transactional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
 
 @IntegrationTest
 @DirtiesContext
@@ -55,7 +60,7 @@ class RetrievalServiceIT {
     @Transactional
     void retrieveSimilar_ordersByCosineDistance_andRespectsDefaultTopK() {
         System.out.println("[DEBUG_LOG] Chunk count in DB: " + chunkRepository.count());
-        chunkRepository.findAll().forEach(c -> System.out.println("[DEBUG_LOG] Chunk index: " + c.getChunkIndex() + ", embedding: " + c.getEmbedding()));
+        chunkRepository.findAll().forEach(c -> System.out.println("[DEBUG_LOG] Chunk index: " + c.getChunkIndex() + ", embedding: " + Arrays.toString(c.getEmbedding())));
 
         float[] query = unitAlongXArray();
         List<DocumentChunk> results = retrievalService.retrieveSimilar(query, null);
@@ -70,43 +75,91 @@ class RetrievalServiceIT {
         assertThat(results.get(1).getChunkIndex()).isEqualTo(2);
     }
 
-    private void saveChunk(int idx, String vectorLiteral1536) {
+    @Test
+    @Transactional
+    void retrieve_fusesFullTextMatchesWithVectorRanking() {
+        // Farthest by cosine distance, but the only chunk naming the ticker
+        saveChunk(3, unitAlongY(), "NVDA guidance was raised for the data center segment");
+
+        List<RetrievedChunk> results = retrievalService.retrieve("NVDA guidance", unitAlongXArray(), null, null, null);
+
+        assertThat(results).hasSize(2);
+        assertThat(results).extracting(RetrievedChunk::chunkText).contains("NVDA guidance was raised for the data center segment");
+        // Without the text, vector ranking alone never reaches it
+        assertThat(retrievalService.retrieveSimilar(unitAlongXArray(), null)).extracting(DocumentChunk::getChunkIndex).doesNotContain(3);
+    }
+
+    @Test
+    @Transactional
+    void retrieve_restrictsResultsToFilteredDocuments() {
+        Document filing = documentRepository.saveAndFlush(
+            new Document().title("10-K").content("irrelevant").ticker("NVDA").source("sec").createdAt(Instant.parse("2025-03-01T00:00:00Z"))
+        );
+        // Both farther from the query than every chunk of the unfiltered document
+        saveChunk(filing, 0, unitAlongY(), "chunk-a");
+        saveChunk(filing, 1, unitAlongY(), "chunk-b");
+
+        ChunkFilter filter = new ChunkFilter(null, "NVDA", null, Instant.parse("2025-01-01T00:00:00Z"), Instant.parse("2026-01-01T00:00:00Z"));
+        List<RetrievedChunk> results = retrievalService.retrieve(null, unitAlongXArray(), null, filter, null);
+
+        assertThat(results).hasSize(2).allSatisfy(chunk -> assertThat(chunk.documentId()).isEqualTo(filing.getId()));
+        assertThat(retrievalService.retrieve(null, unitAlongXArray(), null, new ChunkFilter(Set.of(doc.getId()), null, null, null, null), null))
+            .extracting(RetrievedChunk::chunkText)
+            .containsExactly("chunk-0", "chunk-2");
+        assertThat(retrievalService.retrieve(null, unitAlongXArray(), null, new ChunkFilter(null, "AAPL", null, null, null), null)).isEmpty();
+    }
+
+    @Test
+    @Transactional
+    void retrieve_returnsProjectionWithTitleAndDistance() {
+        List<RetrievedChunk> results = retrievalService.retrieve(null, unitAlongXArray(), 1, null, 1);
+
+        assertThat(results).singleElement().satisfies(chunk -> {
+            assertThat(chunk.chunkId()).isNotNull();
+            assertThat(chunk.documentId()).isEqualTo(doc.getId());
+            assertThat(chunk.documentTitle()).isEqualTo("Vec Test Doc");
+            assertThat(chunk.chunkText()).isEqualTo("chunk-0");
+            assertThat(chunk.distance()).isCloseTo(0.0, within(1e-6));
+        });
+    }
+
+    private void saveChunk(int idx, float[] embedding) {
+        saveChunk(idx, embedding, "chunk-" + idx);
+    }
+
+    private void saveChunk(int idx, float[] embedding, String text) {
+        saveChunk(doc, idx, embedding, text);
+    }
+
+    private void saveChunk(Document document, int idx, float[] embedding, String text) {
         DocumentChunk c = new DocumentChunk()
-            .document(doc)
+            .document(document)
             .chunkIndex(idx)
-            .chunkText("chunk-" + idx)
+            .chunkText(text)
             .embeddingModel("manual-test")
             .createdAt(Instant.now())
-            .embedding(vectorLiteral1536);
+            .embedding(embedding);
         chunkRepository.saveAndFlush(c);
     }
 
-    private String unitAlongX() {
-        StringBuilder sb = new StringBuilder();
-        sb.append('[');
-        sb.append("1.0, 0.0");
-        for (int i = 0; i < 1534; i++) sb.append(", 0.0");
-        sb.append(']');
-        return sb.toString();
+    private float[] unitAlongX() {
+        float[] v = new float[1536];
+        v[0] = 1.0f;
+        return v;
     }
 
-    private String unitAlongY() {
-        StringBuilder sb = new StringBuilder();
-        sb.append('[');
-        sb.append("0.0, 1.0");
-        for (int i = 0; i < 1534; i++) sb.append(", 0.0");
-        sb.append(']');
-        return sb.toString();
+    private float[] unitAlongY() {
+        float[] v = new float[1536];
+        v[1] = 1.0f;
+        return v;
     }
 
-    private String unitXY() {
+    private float[] unitXY() {
         // normalized (1,1)/sqrt(2) has same direction as (1,1) for cosine
-        StringBuilder sb = new StringBuilder();
-        sb.append('[');
-        sb.append("0.707, 0.707");
-        for (int i = 0; i < 1534; i++) sb.append(", 0.0");
-        sb.append(']');
-        return sb.toString();
+        float[] v = new float[1536];
+        v[0] = 0.707f;
+        v[1] = 0.707f;
+        return v;
     }
 
     private float[] unitAlongXArray() {
@@ -0,0 +1,115 @@
+package com.walshe.aimarket.service.analysis;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.walshe.aimarket.config.AnalysisCacheProperties;
+import com.walshe.aimarket.config.LlmProperties;
+import com.walshe.aimarket.repository.RetrievedChunk;
+import com.walshe.aimarket.service.dto.AnalysisResponseDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SemanticAnswerCacheTest {
+
+    private static final String PROMPT_KEY = "analysis.system.prompt";
+
+    private AnalysisCacheProperties properties;
+    private SimpleMeterRegistry registry;
+    private SemanticAnswerCache cache;
+
+    @BeforeEach
+    void setUp() {
+        properties = new AnalysisCacheProperties();
+        properties.setSimilarityThreshold(0.95);
+        registry = new SimpleMeterRegistry();
+        cache = newCache();
+    }
+
+    private SemanticAnswerCache newCache() {
+        LlmProperties llmProperties = new LlmProperties("openai", new LlmProperties.OpenAIProperties("key", "gpt-4o", "http://localhost"), null);
+        return new SemanticAnswerCache(properties, llmProperties, registry);
+    }
+
+    @Test
+    void shouldServeAnswerForSimilarQueryWithSameChunks() {
+        AnalysisResponseDTO response = response("Q4 grew");
+        cache.put(PROMPT_KEY, new float[] { 1f, 0f, 0f }, chunks(1L, 2L), response);
+
+        assertThat(cache.find(PROMPT_KEY, new float[] { 0.99f, 0.05f, 0f }, chunks(1L, 2L))).contains(response);
+        assertThat(registry.get(SemanticAnswerCache.REQUESTS_METER_NAME).tag("result", "hit").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldMissBelowThreshold() {
+        cache.put(PROMPT_KEY, new float[] { 1f, 0f, 0f }, chunks(1L), response("Q4 grew"));
+
+        assertThat(cache.find(PROMPT_KEY, new float[] { 0.5f, 0.5f, 0f }, chunks(1L))).isEmpty();
+        assertThat(registry.get(SemanticAnswerCache.REQUESTS_METER_NAME).tag("result", "miss").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldMissWhenRetrievedChunksDiffer() {
+        float[] embedding = { 1f, 0f, 0f };
+        cache.put(PROMPT_KEY, embedding, chunks(1L, 2L), response("Q4 grew"));
+
+        assertThat(cache.find(PROMPT_KEY, embedding, chunks(1L, 3L))).isEmpty();
+        assertThat(cache.find(PROMPT_KEY, embedding, chunks(2L, 1L))).isEmpty();
+        assertThat(cache.find("analysis.other.prompt", embedding, chunks(1L, 2L))).isEmpty();
+    }
+
+    @Test
+    void shouldPreferMostSimilarEntry() {
+        List<RetrievedChunk> chunks = chunks(1L);
+        cache.put(PROMPT_KEY, new float[] { 1f, 0.2f, 0f }, chunks, response("further"));
+        cache.put(PROMPT_KEY, new float[] { 1f, 0.01f, 0f }, chunks, response("closer"));
+
+        assertThat(cache.find(PROMPT_KEY, new float[] { 1f, 0f, 0f }, chunks)).map(AnalysisResponseDTO::summary).contains("closer");
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedContext() {
+        properties.setMaxEntries(2);
+        float[] embedding = { 1f, 0f, 0f };
+        cache.put(PROMPT_KEY, embedding, chunks(1L), response("one"));
+        cache.put(PROMPT_KEY, embedding, chunks(2L), response("two"));
+        cache.find(PROMPT_KEY, embedding, chunks(1L));
+
+        cache.put(PROMPT_KEY, embedding, chunks(3L), response("three"));
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.find(PROMPT_KEY, embedding, chunks(2L))).isEmpty();
+        assertThat(cache.find(PROMPT_KEY, embedding, chunks(1L))).isPresent();
+        assertThat(cache.find(PROMPT_KEY, embedding, chunks(3L))).isPresent();
+    }
+
+    @Test
+    void shouldNotServeExpiredEntries() {
+        properties.setTtl(Duration.ofMillis(-1));
+        float[] embedding = { 1f, 0f, 0f };
+        cache.put(PROMPT_KEY, embedding, chunks(1L), response("stale"));
+
+        assertThat(cache.find(PROMPT_KEY, embedding, chunks(1L))).isEmpty();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void shouldBypassWhenDisabled() {
+        properties.setEnabled(false);
+        float[] embedding = { 1f, 0f, 0f };
+        cache.put(PROMPT_KEY, embedding, chunks(1L), response("one"));
+
+        assertThat(cache.find(PROMPT_KEY, embedding, chunks(1L))).isEmpty();
+    }
+
+    private static List<RetrievedChunk> chunks(Long... ids) {
+        return Arrays.stream(ids).map(id -> new RetrievedChunk(id, 1L, "10-K", "text", 0.1)).toList();
+    }
+
+    private static AnalysisResponseDTO response(String summary) {
+        return new AnalysisResponseDTO(summary, List.of(), 0.9, "gpt-4o", 100);
+    }
+}
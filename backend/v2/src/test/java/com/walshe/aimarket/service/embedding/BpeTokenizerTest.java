@@ -0,0 +1,56 @@
+package com.walshe.aimarket.service.embedding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class BpeTokenizerTest {
+
+    private final BpeTokenizer tokenizer = new BpeTokenizer("cl100k_base");
+
+    @Test
+    void shouldCountCl100kTokens() {
+        assertThat(tokenizer.countTokens("hello world")).isEqualTo(2);
+        assertThat(tokenizer.countTokens(" revenue".repeat(100))).isEqualTo(100);
+        assertThat(tokenizer.countTokens("")).isZero();
+        assertThat(tokenizer.countTokens(null)).isZero();
+    }
+
+    @Test
+    void shouldTreatSpecialTokensAsText() {
+        assertThat(tokenizer.countTokens("<|endoftext|>")).isGreaterThan(1);
+    }
+
+    @Test
+    void shouldSplitWithinBudgetAndOverlap() {
+        String text = "the cat sat on the mat and then it ran to the door while the dog slept in its bed all day long";
+
+        List<String> pieces = tokenizer.split(text, 8, 2);
+
+        assertThat(pieces).hasSizeGreaterThan(2).allSatisfy(piece -> assertThat(tokenizer.countTokens(piece)).isLessThanOrEqualTo(8));
+        assertThat(pieces.get(0)).startsWith("the cat");
+        assertThat(pieces.get(pieces.size() - 1)).endsWith("all day long");
+        // each piece starts with the last words of the previous one
+        for (int i = 1; i < pieces.size(); i++) {
+            String[] previous = pieces.get(i - 1).split(" ");
+            assertThat(pieces.get(i)).startsWith(previous[previous.length - 2] + " " + previous[previous.length - 1]);
+        }
+    }
+
+    @Test
+    void shouldNotCutMultiByteCharacters() {
+        String text = "🙂🚀📈".repeat(20);
+
+        List<String> pieces = tokenizer.split(text, 5, 0);
+
+        assertThat(String.join("", pieces)).isEqualTo(text);
+        assertThat(pieces).noneMatch(piece -> piece.contains("�"));
+    }
+
+    @Test
+    void shouldRejectUnknownEncoding() {
+        assertThatThrownBy(() -> new BpeTokenizer("unknown")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,188 @@
+package com.walshe.aimarket.service.embedding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpServer;
+import com.walshe.aimarket.IntegrationTest;
+import com.walshe.aimarket.ai.llm.CompletionResponse;
+import com.walshe.aimarket.ai.llm.LLMCompletionClient;
+import com.walshe.aimarket.domain.Document;
+import com.walshe.aimarket.repository.DocumentRepository;
+import com.walshe.aimarket.service.AnalysisService;
+import com.walshe.aimarket.service.IngestionService;
+import com.walshe.aimarket.service.dto.AnalysisResponseDTO;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+/**
+ * Drives analysis and ingestion through the real embedding clients, so that the persistent tier is written from
+ * a read-only analysis transaction and from the ingestion pipeline threads.
+ */
+@IntegrationTest
+@DirtiesContext
+@TestPropertySource(
+    properties = {
+        "application.embedding.openai.api-key=dummy",
+        "application.embedding.openai.model-name=text-embedding-3-small",
+        "application.embedding.cache.enabled=true",
+        "application.embedding.cache.persistent=true",
+        "application.llm.provider=openai",
+        "application.llm.openai.api-key=dummy",
+        "application.llm.openai.model-name=gpt-4o-mini",
+        "application.llm.openai.base-url=http://localhost",
+        "application.llm.bedrock.region=us-east-1",
+        "application.llm.bedrock.model-name=anthropic.claude-3-haiku-20240307-v1:0",
+        "spring.kafka.producer.value-serializer=org.springframework.kafka.support.serializer.JsonSerializer",
+        "spring.kafka.consumer.value-deserializer=org.springframework.kafka.support.serializer.JsonDeserializer",
+        "spring.kafka.consumer.properties.spring.json.trusted.packages=com.walshe.aimarket.service.dto",
+    }
+)
+class EmbeddingCacheIT {
+
+    private static final String MODEL = "text-embedding-3-small";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final HttpServer OPENAI = startEmbeddingServer();
+
+    @DynamicPropertySource
+    static void embeddingBaseUrl(DynamicPropertyRegistry registry) {
+        registry.add("application.embedding.openai.base-url", () -> "http://localhost:" + OPENAI.getAddress().getPort());
+    }
+
+    @AfterAll
+    static void stopEmbeddingServer() {
+        OPENAI.stop(0);
+    }
+
+    @MockitoBean
+    private LLMCompletionClient llmClient;
+
+    @Autowired
+    private AnalysisService analysisService;
+
+    @Autowired
+    private IngestionService ingestionService;
+
+    @Autowired
+    private EmbeddingCache embeddingCache;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void stubCompletion() {
+        when(llmClient.complete(anyString(), any())).thenReturn(
+            new CompletionResponse("{\"summary\":\"ok\",\"riskFactors\":[],\"confidenceScore\":0.5}", 10, 5, "gpt-4o-mini", "openai", 1L)
+        );
+    }
+
+    @Test
+    void analyze_persistsQueryEmbeddingAndStillRetrieves() {
+        String query = "Which risks did the auditors flag for " + Instant.now().toEpochMilli() + "?";
+
+        AnalysisResponseDTO response = analysisService.analyze(query, 3);
+
+        assertThat(response.summary()).isEqualTo("ok");
+        assertThat(persisted(query)).isTrue();
+    }
+
+    @Test
+    void ingestDocument_persistsChunkEmbeddingsFromPipelineThreads() {
+        String content = "Revenue grew in " + Instant.now().toEpochMilli() + ". Margins held steady.";
+        Document document = documentRepository.saveAndFlush(new Document().title("Cached Doc").content(content).createdAt(Instant.now()));
+
+        ingestionService.ingestDocument(document.getId());
+
+        List<String> chunkTexts = jdbcTemplate.queryForList(
+            "SELECT chunk_text FROM document_chunk WHERE document_id = ?",
+            String.class,
+            document.getId()
+        );
+        assertThat(chunkTexts).isNotEmpty().allSatisfy(text -> assertThat(persisted(text)).isTrue());
+    }
+
+    @Test
+    void prunePersisted_deletesEntriesUnusedForTheRetention() {
+        String text = "stale text " + Instant.now().toEpochMilli();
+        embeddingCache.put(MODEL, text, new float[1536]);
+        jdbcTemplate.update(
+            "UPDATE embedding_cache SET last_used_at = LOCALTIMESTAMP - INTERVAL '365 days' WHERE model = ? AND text_hash = ?",
+            MODEL,
+            EmbeddingCache.hash(text)
+        );
+
+        embeddingCache.prunePersisted();
+
+        assertThat(persisted(text)).isFalse();
+    }
+
+    private boolean persisted(String text) {
+        Integer count = jdbcTemplate.queryForObject(
+            "SELECT count(*) FROM embedding_cache WHERE model = ? AND text_hash = ?",
+            Integer.class,
+            MODEL,
+            EmbeddingCache.hash(text)
+        );
+        return count != null && count > 0;
+    }
+
+    /**
+     * Answers {@code /v1/embeddings} with one vector per input, for both single and batched requests.
+     */
+    private static HttpServer startEmbeddingServer() {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.createContext("/v1/embeddings", exchange -> {
+                JsonNode request = MAPPER.readTree(exchange.getRequestBody());
+                List<String> inputs = new ArrayList<>();
+                if (request.get("input").isArray()) {
+                    request.get("input").forEach(input -> inputs.add(input.asText()));
+                } else {
+                    inputs.add(request.get("input").asText());
+                }
+                ObjectNode response = MAPPER.createObjectNode();
+                ArrayNode data = response.putArray("data");
+                for (int i = 0; i < inputs.size(); i++) {
+                    ArrayNode embedding = data.addObject().put("index", i).put("object", "embedding").putArray("embedding");
+                    for (int d = 0; d < 1536; d++) {
+                        embedding.add(d == 0 ? 1f : 0f);
+                    }
+                }
+                response.putObject("usage").put("prompt_tokens", inputs.size()).put("total_tokens", inputs.size());
+                byte[] body = MAPPER.writeValueAsBytes(response);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            });
+            server.start();
+            return server;
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not start the embedding stub", e);
+        }
+    }
+}
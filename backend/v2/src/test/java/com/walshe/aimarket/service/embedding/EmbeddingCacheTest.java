@@ -0,0 +1,135 @@
+package com.walshe.aimarket.service.embedding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.walshe.aimarket.config.AiPricingProperties;
+import com.walshe.aimarket.config.EmbeddingCacheProperties;
+import com.walshe.aimarket.repository.EmbeddingCacheRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.util.unit.DataSize;
+
+class EmbeddingCacheTest {
+
+    private static final String MODEL = "text-embedding-3-small";
+
+    private static final BpeTokenizer TOKENIZER = new BpeTokenizer("cl100k_base");
+
+    private EmbeddingCacheProperties properties;
+    private EmbeddingCacheRepository repository;
+    private AiPricingProperties pricingProperties;
+    private SimpleMeterRegistry registry;
+    private EmbeddingCache cache;
+
+    @BeforeEach
+    void setUp() {
+        properties = new EmbeddingCacheProperties();
+        properties.setHeapEntries(10);
+        properties.setOffHeapSize(DataSize.ofMegabytes(1));
+        repository = mock(EmbeddingCacheRepository.class);
+        pricingProperties = new AiPricingProperties();
+        AiPricingProperties.ModelPricing pricing = new AiPricingProperties.ModelPricing();
+        pricing.setEmbeddingCostPer1kTokens(new BigDecimal("0.02"));
+        pricingProperties.getModels().put(MODEL, pricing);
+        registry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (cache != null) {
+            cache.close();
+        }
+    }
+
+    @Test
+    void shouldHitInMemoryForNormalizedText() {
+        cache = new EmbeddingCache(properties, repository, pricingProperties, registry, TOKENIZER);
+        cache.put(MODEL, "Revenue grew\n\n by 5%", new float[] { 1f, 2f });
+
+        assertThat(cache.get(MODEL, "  Revenue grew by\t5% ")).containsExactly(1f, 2f);
+        assertThat(cache.get("other-model", "Revenue grew by 5%")).isNull();
+        assertThat(requests("memory", "hit")).isEqualTo(1);
+        assertThat(requests("memory", "miss")).isEqualTo(1);
+    }
+
+    @Test
+    void shouldPromoteDatabaseHitsToMemory() {
+        cache = new EmbeddingCache(properties, repository, pricingProperties, registry, TOKENIZER);
+        String hash = EmbeddingCache.hash("persisted");
+        when(repository.findByHashes(eq(MODEL), anyCollection())).thenReturn(Map.of(hash, new float[] { 4f }));
+
+        List<float[]> first = cache.getAll(MODEL, List.of("persisted", "unknown"));
+        float[] second = cache.get(MODEL, "persisted");
+
+        assertThat(first.get(0)).containsExactly(4f);
+        assertThat(first.get(1)).isNull();
+        assertThat(second).containsExactly(4f);
+        verify(repository, times(1)).findByHashes(eq(MODEL), anyCollection());
+        verify(repository).touch(MODEL, Set.of(hash));
+        assertThat(requests("database", "hit")).isEqualTo(1);
+        assertThat(requests("database", "miss")).isEqualTo(1);
+        assertThat(requests("memory", "hit")).isEqualTo(1);
+    }
+
+    @Test
+    void shouldPersistPutsAndRecordSavedCost() {
+        cache = new EmbeddingCache(properties, repository, pricingProperties, registry, TOKENIZER);
+        String text = " revenue".repeat(1000);
+        cache.put(MODEL, text, new float[] { 1f });
+
+        cache.get(MODEL, text);
+
+        verify(repository).saveAll(eq(MODEL), any());
+        // each " revenue" is a single cl100k token
+        assertThat(registry.get(EmbeddingCache.SAVED_TOKENS_METER_NAME).tag("model", MODEL).counter().count()).isEqualTo(1000);
+        assertThat(registry.get(EmbeddingCache.SAVED_COST_METER_NAME).tag("model", MODEL).counter().count()).isEqualTo(0.02);
+    }
+
+    @Test
+    void shouldPruneEntriesUnusedForRetention() {
+        properties.setRetention(Duration.ofDays(30));
+        cache = new EmbeddingCache(properties, repository, pricingProperties, registry, TOKENIZER);
+
+        cache.prunePersisted();
+
+        verify(repository).deleteUnusedFor(Duration.ofDays(30));
+    }
+
+    @Test
+    void shouldTreatDatabaseFailureAsMiss() {
+        cache = new EmbeddingCache(properties, repository, pricingProperties, registry, TOKENIZER);
+        when(repository.findByHashes(eq(MODEL), anyCollection())).thenThrow(new DataAccessResourceFailureException("down"));
+
+        assertThat(cache.get(MODEL, "text")).isNull();
+    }
+
+    @Test
+    void shouldBypassWhenDisabled() {
+        properties.setEnabled(false);
+        cache = new EmbeddingCache(properties, repository, pricingProperties, registry, TOKENIZER);
+        cache.put(MODEL, "text", new float[] { 1f });
+
+        assertThat(cache.get(MODEL, "text")).isNull();
+        verify(repository, times(0)).saveAll(any(), any());
+        verify(repository, times(0)).findByHashes(any(), any());
+    }
+
+    private double requests(String tier, String result) {
+        return registry.get(EmbeddingCache.REQUESTS_METER_NAME).tag("tier", tier).tag("result", result).counter().count();
+    }
+}
@@ -3,27 +3,35 @@ package com.walshe.aimarket.service.impl;
 import com.walshe.aimarket.ai.embedding.EmbeddingClient;
 import com.walshe.aimarket.ai.llm.CompletionResponse;
 import com.walshe.aimarket.ai.llm.LLMCompletionClient;
-import com.walshe.aimarket.domain.DocumentChunk;
+import com.walshe.aimarket.config.RetrievalProperties;
+import com.walshe.aimarket.repository.RetrievedChunk;
 import com.walshe.aimarket.service.EmbeddingService;
 import com.walshe.aimarket.service.PromptBuilderService;
 import com.walshe.aimarket.service.RetrievalService;
+import com.walshe.aimarket.service.analysis.SemanticAnswerCache;
 import com.walshe.aimarket.service.dto.AnalysisResponseDTO;
+import com.walshe.aimarket.service.retrieval.ChunkReranker;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.JsonNode;
 import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.transaction.PlatformTransactionManager;
 import reactor.core.publisher.Flux;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -48,6 +56,18 @@ class AnalysisServiceImplTest {
     @Mock
     private ObjectMapper objectMapper;
 
+    @Mock
+    private SemanticAnswerCache answerCache;
+
+    @Mock
+    private ChunkReranker reranker;
+
+    @Spy
+    private RetrievalProperties retrievalProperties = new RetrievalProperties();
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @InjectMocks
     private AnalysisServiceImpl analysisService;
 
@@ -56,7 +76,11 @@ class AnalysisServiceImplTest {
         // Given
         String query = "financial analysis for Q4";
         float[] mockEmbedding = new float[]{0.1f, 0.2f};
-        List<DocumentChunk> mockChunks = Collections.emptyList();
+        List<RetrievedChunk> candidates = List.of(
+            new RetrievedChunk(1L, 1L, "Q4", "revenue grew", 0.1),
+            new RetrievedChunk(2L, 1L, "Q4", "revenue grew", 0.1)
+        );
+        List<RetrievedChunk> mockChunks = candidates.subList(0, 1);
         String mockPrompt = "System: ... Context: ... Query: " + query;
         String mockJsonResponse = "{\"summary\":\"Good\",\"riskFactors\":[],\"confidenceScore\":0.9}";
 
@@ -70,7 +94,9 @@ class AnalysisServiceImplTest {
         );
 
         when(embeddingClient.generateEmbedding(eq(query))).thenReturn(mockEmbedding);
-        when(retrievalService.retrieveSimilar(eq(mockEmbedding), eq(5))).thenReturn(mockChunks);
+        // Re-ranking over-fetches the configured 20 candidates and keeps 5 at most
+        when(retrievalService.retrieve(eq(query), eq(mockEmbedding), eq(20), isNull(), isNull())).thenReturn(candidates);
+        when(reranker.rerank(query, candidates, 5)).thenReturn(mockChunks);
         when(promptBuilderService.buildPrompt(query, mockChunks)).thenReturn(mockPrompt);
         when(llmClient.complete(eq(mockPrompt), eq(null))).thenReturn(mockLlmResult);
 
@@ -103,9 +129,33 @@ class AnalysisServiceImplTest {
         assertThat(result.tokensUsed()).isEqualTo(100);
 
         verify(embeddingClient).generateEmbedding(eq(query));
-        verify(retrievalService).retrieveSimilar(eq(mockEmbedding), eq(5));
+        verify(retrievalService).retrieve(eq(query), eq(mockEmbedding), eq(20), isNull(), isNull());
         verify(promptBuilderService).buildPrompt(query, mockChunks);
         verify(llmClient).complete(eq(mockPrompt), eq(null));
+        verify(answerCache).put(PromptBuilderService.ANALYSIS_PROMPT_KEY, mockEmbedding, mockChunks, result);
+    }
+
+    @Test
+    void analyze_shouldServeCachedAnswerWithoutCompletion() {
+        // Given
+        String query = "financial analysis for Q4";
+        float[] mockEmbedding = new float[]{0.1f, 0.2f};
+        List<RetrievedChunk> mockChunks = Collections.emptyList();
+        AnalysisResponseDTO cachedResponse = new AnalysisResponseDTO("Cached", List.of(), 0.8, "gpt-4", 90);
+        retrievalProperties.getRerank().setEnabled(false);
+
+        when(embeddingClient.generateEmbedding(eq(query))).thenReturn(mockEmbedding);
+        when(retrievalService.retrieve(eq(query), eq(mockEmbedding), eq(5), isNull(), isNull())).thenReturn(mockChunks);
+        when(answerCache.find(PromptBuilderService.ANALYSIS_PROMPT_KEY, mockEmbedding, mockChunks)).thenReturn(Optional.of(cachedResponse));
+
+        // When
+        AnalysisResponseDTO result = analysisService.analyze(query, 5);
+
+        // Then
+        assertThat(result).isSameAs(cachedResponse);
+        verify(reranker, never()).rerank(any(), any(), eq(5));
+        verify(promptBuilderService, never()).buildPrompt(any(), any());
+        verify(llmClient, never()).complete(any(), any());
     }
 
     @Test
@@ -113,12 +163,12 @@ class AnalysisServiceImplTest {
         // Given
         String query = "financial analysis for Q4";
         float[] mockEmbedding = new float[]{0.1f, 0.2f};
-        List<DocumentChunk> mockChunks = Collections.emptyList();
+        List<RetrievedChunk> mockChunks = Collections.emptyList();
         String mockPrompt = "System: ... Context: ... Query: " + query;
         String correlationId = "test-id";
 
         when(embeddingClient.generateEmbedding(eq(query))).thenReturn(mockEmbedding);
-        when(retrievalService.retrieveSimilar(eq(mockEmbedding), any())).thenReturn(mockChunks);
+        when(retrievalService.retrieve(eq(query), eq(mockEmbedding), any(), isNull(), isNull())).thenReturn(mockChunks);
         when(promptBuilderService.buildStreamingPrompt(eq(query), eq(mockChunks))).thenReturn(mockPrompt);
         when(llmClient.streamCompletion(eq(mockPrompt), eq(correlationId))).thenReturn(Flux.just("token1", "token2"));
 
@@ -135,7 +185,7 @@ class AnalysisServiceImplTest {
         assertThat(events.get(2).event()).isEqualTo("done");
 
         verify(embeddingClient).generateEmbedding(eq(query));
-        verify(retrievalService).retrieveSimilar(eq(mockEmbedding), any());
+        verify(retrievalService).retrieve(eq(query), eq(mockEmbedding), any(), isNull(), isNull());
         verify(promptBuilderService).buildStreamingPrompt(eq(query), eq(mockChunks));
         verify(llmClient).streamCompletion(eq(mockPrompt), eq(correlationId));
     }
@@ -2,6 +2,7 @@ package com.walshe.aimarket.service.impl;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 import com.walshe.aimarket.config.AiPricingProperties;
@@ -34,7 +35,7 @@ class CostTrackingServiceImplTest {
         costTrackingService.logEmbeddingUsage("text-embedding-3-small", 1000, 1L, correlationId, "openai", 100L);
 
         ArgumentCaptor<CostLogEvent> eventCaptor = ArgumentCaptor.forClass(CostLogEvent.class);
-        verify(kafkaTemplate).send(eq("ai-cost-logs"), eventCaptor.capture());
+        verify(kafkaTemplate).send(eq("ai-cost-logs"), eq(correlationId), eventCaptor.capture());
 
         CostLogEvent event = eventCaptor.getValue();
         assertThat(event.callType()).isEqualTo("EMBEDDING");
@@ -52,7 +53,7 @@ class CostTrackingServiceImplTest {
         costTrackingService.logCompletionUsage("gpt-4o-mini", 1000, 2000, correlationId, "openai", 200L);
 
         ArgumentCaptor<CostLogEvent> eventCaptor = ArgumentCaptor.forClass(CostLogEvent.class);
-        verify(kafkaTemplate).send(eq("ai-cost-logs"), eventCaptor.capture());
+        verify(kafkaTemplate).send(eq("ai-cost-logs"), eq(correlationId), eventCaptor.capture());
 
         CostLogEvent event = eventCaptor.getValue();
         assertThat(event.callType()).isEqualTo("COMPLETION");
@@ -66,10 +67,10 @@ class CostTrackingServiceImplTest {
 
     @Test
     void shouldNotPropagateExceptionOnKafkaFailure() {
-        when(kafkaTemplate.send(anyString(), any(CostLogEvent.class))).thenThrow(new RuntimeException("Kafka error"));
+        when(kafkaTemplate.send(anyString(), isNull(), any(CostLogEvent.class))).thenThrow(new RuntimeException("Kafka error"));
 
         costTrackingService.logEmbeddingUsage("text-embedding-3-small", 1000, null, null, null, null);
 
-        verify(kafkaTemplate).send(anyString(), any(CostLogEvent.class));
+        verify(kafkaTemplate).send(anyString(), isNull(), any(CostLogEvent.class));
     }
 }
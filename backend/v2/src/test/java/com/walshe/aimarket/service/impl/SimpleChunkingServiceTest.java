@@ -1,8 +1,19 @@
 package com.walshe.aimarket.service.impl;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -47,4 +58,206 @@ class SimpleChunkingServiceTest {
         assertTrue(normalized.startsWith(reconstructed.substring(0, Math.min(reconstructed.length(), 10))),
             "Reconstructed content should align with original order");
     }
+
+    @Test
+    void matchesGoldenChunksOfFilingExcerpt() throws IOException {
+        String text = readResource("/chunking/filing-excerpt.txt");
+        Map<String, List<String>> golden = new ObjectMapper()
+            .readValue(readResource("/chunking/filing-excerpt.chunks.json"), new TypeReference<>() {});
+        assertFalse(golden.isEmpty());
+        for (Map.Entry<String, List<String>> entry : golden.entrySet()) {
+            SimpleChunkingService service = new SimpleChunkingService(Integer.parseInt(entry.getKey()));
+            assertEquals(entry.getValue(), service.chunk(text), "Chunks for max length " + entry.getKey());
+        }
+    }
+
+    @Test
+    void acceptsCharSequencesWithoutCopying() {
+        SimpleChunkingService service = new SimpleChunkingService(40);
+        String text = "First sentence here.\r\nSecond  one follows!  Third (quoted).\" tail";
+        assertEquals(service.chunk(text), service.chunk(new StringBuilder(text)));
+    }
+
+    @Test
+    void readerChunksMatchStringChunksAcrossReadBoundaries() throws IOException {
+        String text = readResource("/chunking/filing-excerpt.txt");
+        for (int maxLen : new int[] { 800, 120, 40 }) {
+            SimpleChunkingService service = new SimpleChunkingService(maxLen);
+            for (int readSize : new int[] { 1, 7, 4096 }) {
+                assertEquals(service.chunk(text), toList(service.chunk(new ShortReader(text, readSize))), "read size " + readSize);
+            }
+        }
+    }
+
+    @Test
+    void readerChunksMatchStringChunksOnRandomInput() {
+        Random random = new Random(7);
+        for (int round = 0; round < 500; round++) {
+            String input = randomText(random);
+            SimpleChunkingService service = new SimpleChunkingService(1 + random.nextInt(100));
+            assertEquals(service.chunk(input), toList(service.chunk(new ShortReader(input, 1 + random.nextInt(16)))), input);
+        }
+    }
+
+    @Test
+    void readerIsConsumedLazily() {
+        // An endless sentence: chunks must be emitted without reaching its end
+        Reader endless = new Reader() {
+            @Override
+            public int read(char[] buffer, int offset, int length) {
+                for (int i = 0; i < length; i++) {
+                    buffer[offset + i] = "word ".charAt(i % 5);
+                }
+                return length;
+            }
+
+            @Override
+            public void close() {}
+        };
+        Iterator<String> chunks = new SimpleChunkingService(100).chunk(endless);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(chunks.next().length() <= 100);
+        }
+    }
+
+    @Test
+    void matchesPreviousImplementationOnRandomInput() {
+        Random random = new Random(42);
+        for (int round = 0; round < 2000; round++) {
+            int maxLen = 1 + random.nextInt(100);
+            String input = randomText(random);
+            assertEquals(
+                LegacyChunker.chunk(input, maxLen),
+                new SimpleChunkingService(maxLen).chunk(input),
+                () -> "max length " + maxLen + ", input: " + input
+            );
+        }
+    }
+
+    private static String randomText(Random random) {
+        String alphabet = "abcdefghij ABC  .!?;:\"')]}\r\n\t 　 ,-";
+        StringBuilder text = new StringBuilder();
+        int length = random.nextInt(400);
+        for (int i = 0; i < length; i++) {
+            if (random.nextInt(50) == 0) {
+                // long token without spaces
+                text.append("x".repeat(random.nextInt(120)));
+            } else {
+                text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+        }
+        return text.toString();
+    }
+
+    private static List<String> toList(Iterator<String> chunks) {
+        List<String> list = new ArrayList<>();
+        chunks.forEachRemaining(list::add);
+        return list;
+    }
+
+    private static String readResource(String name) throws IOException {
+        try (InputStream in = SimpleChunkingServiceTest.class.getResourceAsStream(name)) {
+            assertNotNull(in, name);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Returns at most {@code readSize} characters per read, to split line endings and sentences across reads.
+     */
+    private static final class ShortReader extends StringReader {
+
+        private final int readSize;
+
+        ShortReader(String text, int readSize) {
+            super(text);
+            this.readSize = readSize;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            return super.read(buffer, offset, Math.min(length, readSize));
+        }
+    }
+
+    /**
+     * The regex-based implementation the single-pass chunker replaced, kept as the reference for its output.
+     */
+    private static final class LegacyChunker {
+
+        static List<String> chunk(String content, int maxChunkLength) {
+            List<String> result = new ArrayList<>();
+            String normalized = content.replaceAll("\r\n?", "\n");
+            StringBuilder current = new StringBuilder();
+            for (String sentence : splitIntoSentences(normalized)) {
+                if (sentence.isBlank()) continue;
+                if (sentence.length() > maxChunkLength) {
+                    flush(result, current);
+                    splitLongSentence(sentence.trim(), maxChunkLength, result);
+                    continue;
+                }
+                if (current.length() == 0) {
+                    current.append(sentence.trim());
+                } else if (current.length() + 1 + sentence.length() <= maxChunkLength) {
+                    current.append(' ').append(sentence.trim());
+                } else {
+                    flush(result, current);
+                    current.append(sentence.trim());
+                }
+            }
+            flush(result, current);
+            return result;
+        }
+
+        private static void flush(List<String> result, StringBuilder current) {
+            if (current.length() > 0) {
+                result.add(current.toString());
+                current.setLength(0);
+            }
+        }
+
+        private static void splitLongSentence(String s, int maxChunkLength, List<String> out) {
+            int start = 0;
+            while (start < s.length()) {
+                int end = Math.min(s.length(), start + maxChunkLength);
+                int cut = end;
+                if (end < s.length()) {
+                    int lastSpace = s.lastIndexOf(' ', end - 1);
+                    if (lastSpace >= start + Math.max(1, maxChunkLength / 2)) {
+                        cut = lastSpace;
+                    }
+                }
+                out.add(s.substring(start, cut));
+                start = cut;
+                while (start < s.length() && s.charAt(start) == ' ') start++;
+            }
+        }
+
+        private static List<String> splitIntoSentences(String text) {
+            List<String> sentences = new ArrayList<>();
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                sb.append(c);
+                if (".!?;:".indexOf(c) >= 0) {
+                    int j = i + 1;
+                    while (j < text.length() && "\"')]}".indexOf(text.charAt(j)) >= 0) {
+                        sb.append(text.charAt(j));
+                        i = j;
+                        j++;
+                    }
+                    sentences.add(trimSoft(sb.toString()));
+                    sb.setLength(0);
+                }
+            }
+            if (sb.length() > 0) {
+                sentences.add(trimSoft(sb.toString()));
+            }
+            return sentences;
+        }
+
+        private static String trimSoft(String s) {
+            return s.trim().replaceAll("\s+", " ");
+        }
+    }
 }
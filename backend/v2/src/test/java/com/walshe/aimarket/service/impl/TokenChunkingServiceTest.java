@@ -0,0 +1,79 @@
+package com.walshe.aimarket.service.impl;
+
+import com.walshe.aimarket.service.embedding.BpeTokenizer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenChunkingServiceTest {
+
+    private static final BpeTokenizer TOKENIZER = new BpeTokenizer("cl100k_base");
+
+    @Test
+    void packsWholeSentencesWithinTokenBudget() throws IOException {
+        TokenChunkingService service = new TokenChunkingService(TOKENIZER, 64, 0);
+        List<String> chunks = service.chunk(readFiling());
+        assertFalse(chunks.isEmpty());
+        for (String chunk : chunks) {
+            assertTrue(TOKENIZER.countTokens(chunk) <= 64, () -> "Chunk over budget: " + chunk);
+        }
+    }
+
+    @Test
+    void repeatsTrailingSentencesUpToOverlap() {
+        TokenChunkingService service = new TokenChunkingService(TOKENIZER, 10, 5);
+        // sentences are 4 or 5 tokens, so a chunk holds two and repeats the last one
+        String text = "Revenue grew twelve percent. Margins expanded again. Costs fell sharply. Guidance was raised.";
+        List<String> chunks = service.chunk(text);
+        assertEquals(
+            List.of(
+                "Revenue grew twelve percent. Margins expanded again.",
+                "Margins expanded again. Costs fell sharply.",
+                "Costs fell sharply. Guidance was raised."
+            ),
+            chunks
+        );
+    }
+
+    @Test
+    void normalizesWhitespaceAndKeepsClosingPunctuation() {
+        TokenChunkingService service = new TokenChunkingService(TOKENIZER, 512, 0);
+        List<String> chunks = service.chunk(" He  said\r\n\"sales rose.\"  Then\tnothing (really.) ");
+        assertEquals(List.of("He said \"sales rose.\" Then nothing (really.)"), chunks);
+    }
+
+    @Test
+    void splitsSentencesLongerThanBudgetByTokens() {
+        TokenChunkingService service = new TokenChunkingService(TOKENIZER, 10, 0);
+        String text = "Short one." + " revenue".repeat(35) + ". Tail.";
+        List<String> chunks = service.chunk(text);
+        assertEquals("Short one.", chunks.get(0));
+        assertEquals("Tail.", chunks.get(chunks.size() - 1));
+        for (String chunk : chunks) {
+            assertTrue(TOKENIZER.countTokens(chunk) <= 10, () -> "Chunk over budget: " + chunk);
+        }
+    }
+
+    @Test
+    void readerChunksMatchStringChunks() throws IOException {
+        TokenChunkingService service = new TokenChunkingService(TOKENIZER, 100, 20);
+        String text = readFiling();
+        List<String> streamed = new ArrayList<>();
+        service.chunk(new StringReader(text)).forEachRemaining(streamed::add);
+        assertEquals(service.chunk(text), streamed);
+    }
+
+    private static String readFiling() throws IOException {
+        try (InputStream in = TokenChunkingServiceTest.class.getResourceAsStream("/chunking/filing-excerpt.txt")) {
+            assertNotNull(in);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -2,9 +2,11 @@ package com.walshe.aimarket.service.impl.openai;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.jsonPath;
@@ -14,14 +16,20 @@ import static org.springframework.test.web.client.response.MockRestResponseCreat
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.walshe.aimarket.config.AiPricingProperties;
+import com.walshe.aimarket.config.EmbeddingCacheProperties;
 import com.walshe.aimarket.config.EmbeddingProperties;
 import com.walshe.aimarket.service.CostTrackingService;
+import com.walshe.aimarket.service.embedding.BpeTokenizer;
+import com.walshe.aimarket.service.embedding.EmbeddingCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.client.RestClient;
 
 class OpenAiEmbeddingServiceTest {
@@ -30,15 +38,22 @@ class OpenAiEmbeddingServiceTest {
     private OpenAiEmbeddingService embeddingService;
     private MockRestServiceServer mockServer;
     private CostTrackingService costTrackingService;
+    private EmbeddingCache embeddingCache;
     private ObjectMapper objectMapper = new ObjectMapper();
 
     @BeforeEach
     void setUp() {
-        properties = new EmbeddingProperties("test-key", "text-embedding-3-small", "https://api.openai.com");
+        properties = new EmbeddingProperties("test-key", "text-embedding-3-small", "https://api.openai.com", 2, 100000);
         costTrackingService = mock(CostTrackingService.class);
+        // heap-only cache without the database tier
+        EmbeddingCacheProperties cacheProperties = new EmbeddingCacheProperties();
+        cacheProperties.setPersistent(false);
+        cacheProperties.setOffHeapSize(DataSize.ofBytes(0));
+        BpeTokenizer tokenizer = new BpeTokenizer("cl100k_base");
+        embeddingCache = new EmbeddingCache(cacheProperties, null, new AiPricingProperties(), new SimpleMeterRegistry(), tokenizer);
         RestClient.Builder builder = RestClient.builder();
         mockServer = MockRestServiceServer.bindTo(builder).build();
-        embeddingService = new OpenAiEmbeddingService(builder, properties, costTrackingService);
+        embeddingService = new OpenAiEmbeddingService(builder, properties, costTrackingService, embeddingCache, tokenizer);
     }
 
     @Test
@@ -88,6 +103,97 @@ class OpenAiEmbeddingServiceTest {
         mockServer.verify();
     }
 
+    @Test
+    void shouldEmbedBatchInOrderWithOneCostEventPerRequest() throws JsonProcessingException {
+        // maxBatchInputs=2, so three texts are sent as two requests; data is returned out of order
+        OpenAiEmbeddingService.EmbeddingResponse first = new OpenAiEmbeddingService.EmbeddingResponse(
+            List.of(
+                new OpenAiEmbeddingService.EmbeddingData(new float[] { 2f }, 1, "embedding"),
+                new OpenAiEmbeddingService.EmbeddingData(new float[] { 1f }, 0, "embedding")
+            ),
+            new OpenAiEmbeddingService.Usage(6, 6)
+        );
+        OpenAiEmbeddingService.EmbeddingResponse second = new OpenAiEmbeddingService.EmbeddingResponse(
+            List.of(new OpenAiEmbeddingService.EmbeddingData(new float[] { 3f }, 0, "embedding")),
+            new OpenAiEmbeddingService.Usage(3, 3)
+        );
+
+        mockServer
+            .expect(requestTo("https://api.openai.com/v1/embeddings"))
+            .andExpect(jsonPath("$.input.length()").value(2))
+            .andExpect(jsonPath("$.input[0]").value("one"))
+            .andRespond(withSuccess(objectMapper.writeValueAsString(first), MediaType.APPLICATION_JSON));
+        mockServer
+            .expect(requestTo("https://api.openai.com/v1/embeddings"))
+            .andExpect(jsonPath("$.input.length()").value(1))
+            .andExpect(jsonPath("$.input[0]").value("three"))
+            .andRespond(withSuccess(objectMapper.writeValueAsString(second), MediaType.APPLICATION_JSON));
+
+        List<float[]> result = embeddingService.embedBatch(List.of("one", "two", "three"), 7L, null);
+
+        assertThat(result).hasSize(3);
+        assertThat(result.get(0)).containsExactly(1f);
+        assertThat(result.get(1)).containsExactly(2f);
+        assertThat(result.get(2)).containsExactly(3f);
+        verify(costTrackingService).logEmbeddingUsage(eq("text-embedding-3-small"), eq(6), eq(7L), eq(null), eq("openai"), anyLong());
+        verify(costTrackingService).logEmbeddingUsage(eq("text-embedding-3-small"), eq(3), eq(7L), eq(null), eq("openai"), anyLong());
+        verify(costTrackingService, times(2)).logEmbeddingUsage(any(), any(), any(), any(), any(), any());
+        mockServer.verify();
+    }
+
+    @Test
+    void shouldReturnCachedEmbeddingWithoutRequest() {
+        embeddingCache.put("text-embedding-3-small", "hello world", new float[] { 0.5f });
+
+        float[] result = embeddingService.embed("  hello   world ", 1L, "corr-1");
+
+        assertThat(result).containsExactly(0.5f);
+        verify(costTrackingService, times(0)).logEmbeddingUsage(any(), any(), any(), any(), any(), any());
+        mockServer.verify();
+    }
+
+    @Test
+    void shouldSendOnlyUncachedDistinctTextsInBatch() throws JsonProcessingException {
+        embeddingCache.put("text-embedding-3-small", "one", new float[] { 1f });
+        OpenAiEmbeddingService.EmbeddingResponse response = new OpenAiEmbeddingService.EmbeddingResponse(
+            List.of(
+                new OpenAiEmbeddingService.EmbeddingData(new float[] { 2f }, 0, "embedding"),
+                new OpenAiEmbeddingService.EmbeddingData(new float[] { 3f }, 1, "embedding")
+            ),
+            new OpenAiEmbeddingService.Usage(2, 2)
+        );
+
+        mockServer
+            .expect(requestTo("https://api.openai.com/v1/embeddings"))
+            .andExpect(jsonPath("$.input.length()").value(2))
+            .andExpect(jsonPath("$.input[0]").value("two"))
+            .andExpect(jsonPath("$.input[1]").value("three"))
+            .andRespond(withSuccess(objectMapper.writeValueAsString(response), MediaType.APPLICATION_JSON));
+
+        List<float[]> result = embeddingService.embedBatch(List.of("one", "two", "three", "two"), 7L, null);
+
+        assertThat(result).hasSize(4);
+        assertThat(result.get(0)).containsExactly(1f);
+        assertThat(result.get(1)).containsExactly(2f);
+        assertThat(result.get(2)).containsExactly(3f);
+        assertThat(result.get(3)).containsExactly(2f);
+        assertThat(embeddingCache.get("text-embedding-3-small", "three")).containsExactly(3f);
+        mockServer.verify();
+    }
+
+    @Test
+    void shouldPartitionByInputCountAndTokens() {
+        List<String> texts = List.of(" revenue".repeat(10), " margin".repeat(10), " growth".repeat(10), " revenue".repeat(100));
+        BpeTokenizer tokenizer = new BpeTokenizer("cl100k_base");
+
+        // 10 tokens each for the short texts, 100 for the long one
+        List<List<String>> byInputs = OpenAiEmbeddingService.partition(texts, 3, 1_000, tokenizer::countTokens);
+        assertThat(byInputs).extracting(List::size).containsExactly(3, 1);
+
+        List<List<String>> byTokens = OpenAiEmbeddingService.partition(texts, 10, 20, tokenizer::countTokens);
+        assertThat(byTokens).extracting(List::size).containsExactly(2, 1, 1);
+    }
+
     @Test
     void shouldReturnModelName() {
         assertThat(embeddingService.getModelName()).isEqualTo("text-embedding-3-small");
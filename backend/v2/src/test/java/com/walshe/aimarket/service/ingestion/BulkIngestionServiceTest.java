@@ -0,0 +1,182 @@
+package com.walshe.aimarket.service.ingestion;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.walshe.aimarket.config.IngestionProperties;
+import com.walshe.aimarket.service.DocumentService;
+import com.walshe.aimarket.service.IngestionService;
+import com.walshe.aimarket.service.dto.BulkIngestionResultDTO;
+import com.walshe.aimarket.service.dto.DocumentDTO;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+
+@ExtendWith(MockitoExtension.class)
+class BulkIngestionServiceTest {
+
+    @Mock
+    private DocumentService documentService;
+
+    @Mock
+    private IngestionService ingestionService;
+
+    private final AtomicLong ids = new AtomicLong();
+    private final List<BulkIngestionResultDTO> results = Collections.synchronizedList(new ArrayList<>());
+    private BulkIngestionService service;
+
+    @BeforeEach
+    void setUp() {
+        IngestionProperties properties = new IngestionProperties();
+        properties.setBulkWorkers(3);
+        properties.setMaxArchiveEntrySize(DataSize.ofBytes(64));
+        service = new BulkIngestionService(documentService, ingestionService, new ObjectMapper().registerModule(new JavaTimeModule()), properties);
+        when(documentService.save(any())).thenAnswer(invocation -> {
+            DocumentDTO document = invocation.getArgument(0);
+            document.setId(ids.incrementAndGet());
+            return document;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void shouldIngestEveryLineWithBoundedConcurrency() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        when(ingestionService.ingestDocument(anyLong(), any(IntConsumer.class))).thenAnswer(invocation -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            running.decrementAndGet();
+            return 2;
+        });
+        String ndjson = IntStream.rangeClosed(1, 12)
+            .mapToObj(i -> "{\"title\":\"doc " + i + "\",\"content\":\"Text " + i + ".\"}")
+            .collect(Collectors.joining("\n"));
+
+        service.ingestNdjson(stream(ndjson), results::add);
+
+        assertThat(results).hasSize(12).allSatisfy(result -> {
+            assertThat(result.status()).isEqualTo(BulkIngestionResultDTO.Status.DONE);
+            assertThat(result.chunks()).isEqualTo(2);
+            assertThat(result.title()).isEqualTo("doc " + result.index());
+        });
+        assertThat(maxRunning.get()).isBetween(1, 3);
+    }
+
+    @Test
+    void shouldReportInvalidLinesWithoutStopping() {
+        when(ingestionService.ingestDocument(anyLong(), any(IntConsumer.class))).thenReturn(1);
+        String ndjson = String.join(
+            "\n",
+            "{\"title\":\"first\",\"content\":\"One.\"}",
+            "not json",
+            "",
+            "{\"content\":\"No title.\"}",
+            "{\"id\":5,\"title\":\"with id\",\"content\":\"Two.\"}",
+            "{\"title\":\"last\",\"content\":\"Three.\"}"
+        );
+
+        service.ingestNdjson(stream(ndjson), results::add);
+
+        assertThat(results)
+            .extracting(BulkIngestionResultDTO::index, BulkIngestionResultDTO::status)
+            .containsExactlyInAnyOrder(
+                tuple(1, BulkIngestionResultDTO.Status.DONE),
+                tuple(2, BulkIngestionResultDTO.Status.FAILED),
+                tuple(4, BulkIngestionResultDTO.Status.FAILED),
+                tuple(5, BulkIngestionResultDTO.Status.FAILED),
+                tuple(6, BulkIngestionResultDTO.Status.DONE)
+            );
+    }
+
+    @Test
+    void shouldDeleteDocumentWhenIngestionFails() {
+        when(ingestionService.ingestDocument(eq(1L), any(IntConsumer.class))).thenThrow(new IllegalStateException("provider down"));
+
+        service.ingestNdjson(stream("{\"title\":\"doomed\",\"content\":\"Text.\"}"), results::add);
+
+        assertThat(results).singleElement().satisfies(result -> {
+            assertThat(result.status()).isEqualTo(BulkIngestionResultDTO.Status.FAILED);
+            assertThat(result.documentId()).isNull();
+            assertThat(result.errorMessage()).isEqualTo("provider down");
+        });
+        verify(documentService).delete(1L);
+    }
+
+    @Test
+    void shouldIngestArchiveFiles() throws IOException {
+        when(ingestionService.ingestDocument(anyLong(), any(IntConsumer.class))).thenReturn(1);
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(archive)) {
+            zip.putNextEntry(new ZipEntry("filings/"));
+            zip.putNextEntry(new ZipEntry("filings/q1.txt"));
+            zip.write("Revenue grew.".getBytes(StandardCharsets.UTF_8));
+            zip.putNextEntry(new ZipEntry("filings/q2.txt"));
+            zip.write("Margins fell.".getBytes(StandardCharsets.UTF_8));
+        }
+
+        service.ingestArchive(new ByteArrayInputStream(archive.toByteArray()), results::add);
+
+        assertThat(results)
+            .extracting(BulkIngestionResultDTO::title)
+            .containsExactlyInAnyOrder("filings/q1.txt", "filings/q2.txt");
+        verify(documentService, never()).delete(anyLong());
+    }
+
+    @Test
+    void shouldStopArchiveAtFileAboveMaximumSize() throws IOException {
+        when(ingestionService.ingestDocument(anyLong(), any(IntConsumer.class))).thenReturn(1);
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(archive)) {
+            zip.putNextEntry(new ZipEntry("small.txt"));
+            zip.write("Revenue grew.".getBytes(StandardCharsets.UTF_8));
+            zip.putNextEntry(new ZipEntry("bomb.txt"));
+            zip.write(new byte[65]);
+            zip.putNextEntry(new ZipEntry("after.txt"));
+            zip.write("Margins fell.".getBytes(StandardCharsets.UTF_8));
+        }
+
+        service.ingestArchive(new ByteArrayInputStream(archive.toByteArray()), results::add);
+
+        assertThat(results)
+            .extracting(BulkIngestionResultDTO::title, BulkIngestionResultDTO::status)
+            .containsExactlyInAnyOrder(
+                tuple("small.txt", BulkIngestionResultDTO.Status.DONE),
+                tuple("bomb.txt", BulkIngestionResultDTO.Status.FAILED)
+            );
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,174 @@
+package com.walshe.aimarket.service.ingestion;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import com.walshe.aimarket.config.IngestionProperties;
+import com.walshe.aimarket.service.EmbeddingService;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+
+class EmbeddingPipelineTest {
+
+    private IngestionProperties properties;
+    private EmbeddingPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        properties = new IngestionProperties();
+        properties.setBatchSize(3);
+        properties.setEmbeddingConcurrency(2);
+        properties.setQueueCapacity(1);
+        properties.setMaxRetries(2);
+        properties.setRetryBackoff(Duration.ofMillis(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (pipeline != null) {
+            pipeline.shutdown();
+        }
+    }
+
+    @Test
+    void shouldEmbedAllChunksAndReportStartIndexes() {
+        pipeline = new EmbeddingPipeline(new LengthEmbeddingService(), properties);
+        List<String> chunks = IntStream.range(0, 10).mapToObj(i -> "x".repeat(i + 1)).toList();
+        List<EmbeddingPipeline.EmbeddedBatch> written = Collections.synchronizedList(new ArrayList<>());
+
+        int total = pipeline.run(chunks::iterator, 1L, null, written::add);
+
+        assertThat(total).isEqualTo(10);
+        assertThat(written).extracting(EmbeddingPipeline.EmbeddedBatch::startIndex).containsExactlyInAnyOrder(0, 3, 6, 9);
+        for (EmbeddingPipeline.EmbeddedBatch batch : written) {
+            for (int i = 0; i < batch.texts().size(); i++) {
+                assertThat(batch.texts().get(i)).isEqualTo(chunks.get(batch.startIndex() + i));
+                assertThat(batch.embeddings().get(i)[0]).isEqualTo(batch.startIndex() + i + 1);
+            }
+        }
+    }
+
+    @Test
+    void shouldRetryRateLimitedBatches() {
+        AtomicInteger calls = new AtomicInteger();
+        pipeline = new EmbeddingPipeline(
+            new LengthEmbeddingService() {
+                @Override
+                public List<float[]> embedBatch(List<String> texts, Long documentId, String correlationId) {
+                    if (calls.incrementAndGet() == 1) {
+                        throw HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "rate limited", new HttpHeaders(), null, null);
+                    }
+                    return super.embedBatch(texts, documentId, correlationId);
+                }
+            },
+            properties
+        );
+
+        int total = pipeline.run(List.of("a", "b")::iterator, 1L, null, batch -> {});
+
+        assertThat(total).isEqualTo(2);
+        assertThat(calls.get()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldPropagateEmbeddingFailure() {
+        pipeline = new EmbeddingPipeline(
+            new LengthEmbeddingService() {
+                @Override
+                public List<float[]> embedBatch(List<String> texts, Long documentId, String correlationId) {
+                    throw new IllegalStateException("provider down");
+                }
+            },
+            properties
+        );
+        List<String> chunks = IntStream.range(0, 30).mapToObj(String::valueOf).toList();
+
+        assertThatThrownBy(() -> pipeline.run(chunks::iterator, 1L, null, batch -> {}))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("provider down");
+    }
+
+    @Test
+    void shouldPropagateErrorsOfEmbeddingWorkers() {
+        pipeline = new EmbeddingPipeline(
+            new LengthEmbeddingService() {
+                @Override
+                public List<float[]> embedBatch(List<String> texts, Long documentId, String correlationId) {
+                    throw new OutOfMemoryError("no room for embeddings");
+                }
+            },
+            properties
+        );
+        List<String> chunks = IntStream.range(0, 30).mapToObj(String::valueOf).toList();
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () ->
+            assertThatThrownBy(() -> pipeline.run(chunks::iterator, 1L, null, batch -> {}))
+                .isInstanceOf(OutOfMemoryError.class)
+                .hasMessage("no room for embeddings")
+        );
+    }
+
+    @Test
+    void shouldPropagateErrorsOfChunkSource() {
+        pipeline = new EmbeddingPipeline(new LengthEmbeddingService(), properties);
+        Iterator<String> chunks = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public String next() {
+                throw new StackOverflowError("chunker recursed too deep");
+            }
+        };
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () ->
+            assertThatThrownBy(() -> pipeline.run(() -> chunks, 1L, null, batch -> {}))
+                .isInstanceOf(StackOverflowError.class)
+                .hasMessage("chunker recursed too deep")
+        );
+    }
+
+    @Test
+    void shouldPropagateWriterFailure() {
+        pipeline = new EmbeddingPipeline(new LengthEmbeddingService(), properties);
+        List<String> chunks = IntStream.range(0, 30).mapToObj(String::valueOf).toList();
+
+        assertThatThrownBy(() ->
+            pipeline.run(chunks::iterator, 1L, null, batch -> {
+                throw new IllegalArgumentException("write failed");
+            })
+        )
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("write failed");
+    }
+
+    /**
+     * Embeds each text as a single-dimension vector holding its length.
+     */
+    private static class LengthEmbeddingService implements EmbeddingService {
+
+        @Override
+        public float[] embed(String text) {
+            return new float[] { text.length() };
+        }
+
+        @Override
+        public String getModelName() {
+            return "test-model";
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.walshe.aimarket.service.ingestion;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.walshe.aimarket.config.IngestionProperties;
+import com.walshe.aimarket.service.IngestionJobService;
+import com.walshe.aimarket.service.IngestionJobService.Claim;
+import com.walshe.aimarket.service.IngestionService;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.IntConsumer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class IngestionJobWorkerTest {
+
+    private static final Claim JOB = new Claim(7L, 42L, "instance:1");
+
+    @Mock
+    private IngestionJobService ingestionJobService;
+
+    @Mock
+    private IngestionService ingestionService;
+
+    private IngestionJobWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        worker = new IngestionJobWorker(ingestionJobService, ingestionService, new IngestionProperties());
+    }
+
+    @AfterEach
+    void tearDown() {
+        worker.shutdown();
+    }
+
+    @Test
+    void shouldReportProgressAndMarkJobDone() {
+        when(ingestionJobService.updateProgress(eq(JOB), anyInt())).thenReturn(true);
+        when(ingestionJobService.markDone(JOB, 5)).thenReturn(true);
+        when(ingestionService.ingestDocument(eq(42L), any(IntConsumer.class))).thenAnswer(invocation -> {
+            IntConsumer progress = invocation.getArgument(1);
+            progress.accept(2);
+            progress.accept(5);
+            return 5;
+        });
+
+        worker.process(JOB);
+
+        verify(ingestionJobService).updateProgress(JOB, 2);
+        verify(ingestionJobService).updateProgress(JOB, 5);
+        verify(ingestionJobService).markDone(JOB, 5);
+        verify(ingestionJobService, never()).markFailed(any(), any());
+    }
+
+    @Test
+    void shouldMarkJobFailedWhenIngestionFails() {
+        when(ingestionService.ingestDocument(eq(42L), any(IntConsumer.class))).thenThrow(new IllegalStateException("provider down"));
+
+        worker.process(JOB);
+
+        verify(ingestionJobService).markFailed(JOB, "provider down");
+        verify(ingestionJobService, never()).markDone(any(), anyInt());
+    }
+
+    @Test
+    void shouldRenewLeasesOfRunningJobsAndRequeueExpiredOnes() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(ingestionJobService.claimQueued(anyInt())).thenReturn(List.of(JOB));
+        when(ingestionService.ingestDocument(eq(42L), any(IntConsumer.class))).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return 1;
+        });
+
+        worker.poll();
+        started.await();
+        worker.heartbeat();
+        release.countDown();
+
+        verify(ingestionJobService).renewLeases(Set.of(JOB));
+        verify(ingestionJobService).requeueExpired();
+    }
+
+    @Test
+    void shouldStopJobWithoutUpdatingItWhenLeaseIsLost() {
+        when(ingestionJobService.updateProgress(JOB, 2)).thenReturn(false);
+        when(ingestionService.ingestDocument(eq(42L), any(IntConsumer.class))).thenAnswer(invocation -> {
+            IntConsumer progress = invocation.getArgument(1);
+            progress.accept(2);
+            progress.accept(5);
+            return 5;
+        });
+
+        worker.process(JOB);
+
+        verify(ingestionJobService, never()).updateProgress(JOB, 5);
+        verify(ingestionJobService, never()).markDone(any(), anyInt());
+        verify(ingestionJobService, never()).markFailed(any(), any());
+    }
+}
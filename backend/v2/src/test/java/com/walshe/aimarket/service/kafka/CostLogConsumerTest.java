@@ -0,0 +1,67 @@
+package com.walshe.aimarket.service.kafka;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.walshe.aimarket.config.AiPricingProperties;
+import com.walshe.aimarket.domain.CostLog;
+import com.walshe.aimarket.repository.CostLogRepository;
+import com.walshe.aimarket.service.dto.CostLogEvent;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class CostLogConsumerTest {
+
+    @Mock
+    private CostLogRepository costLogRepository;
+
+    @Captor
+    private ArgumentCaptor<List<CostLog>> inserted;
+
+    private CostLogConsumer consumer;
+
+    @BeforeEach
+    void setUp() {
+        AiPricingProperties pricing = new AiPricingProperties();
+        AiPricingProperties.ModelPricing model = new AiPricingProperties.ModelPricing();
+        model.setInputCostPer1kTokens(new BigDecimal("0.001"));
+        model.setOutputCostPer1kTokens(new BigDecimal("0.002"));
+        pricing.getModels().put("gpt-4o-mini", model);
+        consumer = new CostLogConsumer(costLogRepository, new CostEstimator(pricing));
+    }
+
+    @Test
+    void shouldInsertBatchOnceWithoutDuplicatesOrInvalidEvents() {
+        UUID correlationId = UUID.randomUUID();
+        CostLogEvent completion = new CostLogEvent("COMPLETION", "gpt-4o-mini", 1000, 500, null, correlationId, "openai", 10L);
+        when(costLogRepository.insertIgnoringDuplicates(anyList())).thenReturn(3);
+
+        consumer.consume(
+            List.of(
+                completion,
+                completion,
+                new CostLogEvent("EMBEDDING", "gpt-4o-mini", 20, null, 1L, correlationId, "openai", 5L),
+                new CostLogEvent("UNKNOWN", "gpt-4o-mini", 1, null, null, null, "openai", 1L),
+                new CostLogEvent("EMBEDDING", "gpt-4o-mini", 30, null, 1L, null, "openai", 5L)
+            )
+        );
+
+        verify(costLogRepository).insertIgnoringDuplicates(inserted.capture());
+        assertThat(inserted.getValue())
+            .extracting(CostLog::getCallType, CostLog::getTotalTokens)
+            .containsExactly(tuple(CostLog.CallType.COMPLETION, 1500), tuple(CostLog.CallType.EMBEDDING, 20), tuple(CostLog.CallType.EMBEDDING, 30));
+        assertThat(inserted.getValue().get(0).getEstimatedUsdCost()).isEqualByComparingTo("0.002");
+    }
+}
@@ -0,0 +1,114 @@
+package com.walshe.aimarket.service.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.walshe.aimarket.config.CostRollupProperties;
+import com.walshe.aimarket.domain.CostLog;
+import com.walshe.aimarket.repository.CostRollupRepository;
+import com.walshe.aimarket.repository.CostRollupRepository.Granularity;
+import com.walshe.aimarket.service.dto.CostBucketDTO;
+import com.walshe.aimarket.service.dto.CostMetricsDTO;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class CostMetricsServiceTest {
+
+    @Mock
+    private CostRollupRepository costRollupRepository;
+
+    @Spy
+    private CostRollupProperties properties = new CostRollupProperties();
+
+    @InjectMocks
+    private CostMetricsService costMetricsService;
+
+    @Test
+    void shouldReadTotalsFromCoarsestAlignedGranularity() {
+        Instant from = Instant.parse("2026-10-01T00:00:00Z");
+        Instant to = Instant.parse("2026-10-17T00:00:00Z");
+        when(costRollupRepository.findTotals(Granularity.DAY, from, to)).thenReturn(
+            List.of(
+                new CostRollupRepository.Dimensions("gpt-4o-mini", CostLog.CallType.COMPLETION, "openai", totals(2, 300, "0.5", 40)),
+                new CostRollupRepository.Dimensions("gpt-4o-mini", CostLog.CallType.COMPLETION, null, totals(1, 100, "0.25", 10)),
+                new CostRollupRepository.Dimensions("text-embedding-3-small", CostLog.CallType.EMBEDDING, "openai", totals(4, 80, "0.01", 8))
+            )
+        );
+
+        CostMetricsDTO metrics = costMetricsService.getCostMetrics(from, to);
+
+        assertThat(metrics.totalUsd()).isEqualByComparingTo("0.76");
+        assertThat(metrics.calls()).isEqualTo(7);
+        assertThat(metrics.totalTokens()).isEqualTo(480);
+        assertThat(metrics.byModel().get("gpt-4o-mini")).isEqualByComparingTo("0.75");
+        assertThat(metrics.byCallType().get(CostLog.CallType.EMBEDDING)).isEqualByComparingTo("0.01");
+        assertThat(metrics.byProvider()).containsOnlyKeys("openai");
+        assertThat(metrics.byProvider().get("openai")).isEqualByComparingTo("0.51");
+    }
+
+    @Test
+    void coarsestAlignedShouldFallBackToFinerGranularities() {
+        assertThat(CostMetricsService.coarsestAligned(null, null)).isEqualTo(Granularity.DAY);
+        assertThat(CostMetricsService.coarsestAligned(Instant.parse("2026-10-17T05:00:00Z"), null)).isEqualTo(Granularity.HOUR);
+        assertThat(
+            CostMetricsService.coarsestAligned(Instant.parse("2026-10-17T00:00:00Z"), Instant.parse("2026-10-17T05:30:00Z"))
+        ).isEqualTo(Granularity.MINUTE);
+    }
+
+    @Test
+    void shouldWidenRangesStartingBeforeTheRetentionOfFinerBuckets() {
+        Instant now = Instant.parse("2026-10-17T12:00:00Z");
+        assertThat(costMetricsService.retainedGranularity(Granularity.MINUTE, Instant.parse("2026-10-17T05:30:00Z"), now)).isEqualTo(
+            Granularity.MINUTE
+        );
+        assertThat(costMetricsService.retainedGranularity(Granularity.MINUTE, Instant.parse("2026-10-01T05:30:00Z"), now)).isEqualTo(
+            Granularity.HOUR
+        );
+        assertThat(costMetricsService.retainedGranularity(Granularity.MINUTE, null, now)).isEqualTo(Granularity.DAY);
+        assertThat(costMetricsService.retainedGranularity(Granularity.HOUR, Instant.parse("2026-01-01T05:00:00Z"), now)).isEqualTo(
+            Granularity.DAY
+        );
+    }
+
+    @Test
+    void shouldPruneMinuteAndHourBuckets() {
+        costMetricsService.pruneRollup();
+
+        verify(costRollupRepository).deleteBucketsBefore(eq(Granularity.MINUTE), any(Instant.class));
+        verify(costRollupRepository).deleteBucketsBefore(eq(Granularity.HOUR), any(Instant.class));
+        verify(costRollupRepository, never()).deleteBucketsBefore(eq(Granularity.DAY), any(Instant.class));
+    }
+
+    @Test
+    void shouldIncludeBucketHoldingEndOfSeries() {
+        Instant bucket = Instant.parse("2026-10-17T10:00:00Z");
+        when(
+            costRollupRepository.findSeries(eq(Granularity.HOUR), eq(Instant.parse("2026-10-17T09:00:00Z")), eq(Instant.parse("2026-10-17T11:00:00Z")))
+        ).thenReturn(List.of(new CostRollupRepository.Bucket(bucket, totals(4, 100, "0.2", 400))));
+
+        List<CostBucketDTO> series = costMetricsService.getCostSeries(
+            Granularity.HOUR,
+            Instant.parse("2026-10-17T09:15:00Z"),
+            Instant.parse("2026-10-17T10:30:00Z")
+        );
+
+        assertThat(series).containsExactly(new CostBucketDTO(bucket, 4, 100, new BigDecimal("0.2"), 100));
+        verify(costRollupRepository).findSeries(Granularity.HOUR, Instant.parse("2026-10-17T09:00:00Z"), Instant.parse("2026-10-17T11:00:00Z"));
+    }
+
+    private static CostRollupRepository.Totals totals(long calls, long tokens, String usd, long latencyMs) {
+        return new CostRollupRepository.Totals(calls, tokens, 0, tokens, new BigDecimal(usd), latencyMs);
+    }
+}
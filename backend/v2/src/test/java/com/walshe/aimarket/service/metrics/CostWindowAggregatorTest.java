@@ -0,0 +1,61 @@
+package com.walshe.aimarket.service.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.walshe.aimarket.config.LiveMetricsProperties;
+import com.walshe.aimarket.service.dto.CostWindowDTO;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CostWindowAggregatorTest {
+
+    private CostWindowAggregator aggregator;
+    private Instant currentWindow;
+
+    @BeforeEach
+    void setUp() {
+        LiveMetricsProperties properties = new LiveMetricsProperties();
+        properties.setWindow(Duration.ofMinutes(1));
+        properties.setRetention(Duration.ofMinutes(10));
+        aggregator = new CostWindowAggregator(properties);
+        currentWindow = Instant.now().truncatedTo(ChronoUnit.MINUTES);
+    }
+
+    @Test
+    void shouldAggregateCallsPerWindowModelAndProvider() {
+        Instant previousWindow = currentWindow.minus(1, ChronoUnit.MINUTES);
+        aggregator.add(previousWindow.plusSeconds(5), "gpt-4o-mini", "openai", 100, 50, new BigDecimal("0.01"), 200L);
+        aggregator.add(currentWindow, "gpt-4o-mini", "openai", 100, 50, new BigDecimal("0.01"), 100L);
+        aggregator.add(currentWindow.plusMillis(1), "gpt-4o-mini", "openai", 200, 10, new BigDecimal("0.02"), null);
+        aggregator.add(currentWindow.plusMillis(2), "claude", "bedrock", 10, 5, new BigDecimal("0.5"), 300L);
+
+        List<CostWindowDTO> windows = aggregator.findWindows(null);
+
+        assertThat(windows).extracting(CostWindowDTO::windowStart).containsExactly(previousWindow, currentWindow);
+        CostWindowDTO current = windows.get(1);
+        assertThat(current.windowEnd()).isEqualTo(currentWindow.plus(1, ChronoUnit.MINUTES));
+        assertThat(current.totals().calls()).isEqualTo(3);
+        assertThat(current.totals().inputTokens()).isEqualTo(310);
+        assertThat(current.totals().estimatedUsdCost()).isEqualByComparingTo("0.53");
+        assertThat(current.totals().averageLatencyMs()).isEqualTo(200);
+        assertThat(current.byModelAndProvider()).extracting(CostWindowDTO.Entry::modelName).containsExactly("claude", "gpt-4o-mini");
+        CostWindowDTO.Totals openai = current.byModelAndProvider().get(1).totals();
+        assertThat(openai.calls()).isEqualTo(2);
+        assertThat(openai.outputTokens()).isEqualTo(60);
+        assertThat(openai.averageLatencyMs()).isEqualTo(100);
+    }
+
+    @Test
+    void shouldDropEventsAndWindowsPastRetention() {
+        aggregator.add(currentWindow.minus(1, ChronoUnit.HOURS), "gpt-4o-mini", "openai", 100, 50, BigDecimal.ONE, 10L);
+        aggregator.add(currentWindow, "gpt-4o-mini", null, 100, 50, BigDecimal.ONE, 10L);
+
+        assertThat(aggregator.findWindows(null)).extracting(CostWindowDTO::windowStart).containsExactly(currentWindow);
+        assertThat(aggregator.findWindows(currentWindow.plus(1, ChronoUnit.MINUTES))).isEmpty();
+    }
+}
@@ -0,0 +1,141 @@
+package com.walshe.aimarket.service.retrieval;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class HnswIndexTest {
+
+    private static final int DIMENSION = 64;
+
+    private Random random;
+    private HnswIndex index;
+
+    @BeforeEach
+    void setUp() {
+        random = new Random(7);
+        index = new HnswIndex(16, 200, 42L);
+    }
+
+    @Test
+    void shouldMatchExactSearchWithinRecallTolerance() {
+        List<float[]> vectors = clusteredVectors(3000, 30);
+        for (int i = 0; i < vectors.size(); i++) {
+            index.add(i, vectors.get(i));
+        }
+
+        int k = 10;
+        int hits = 0;
+        int queries = 100;
+        for (int q = 0; q < queries; q++) {
+            float[] query = perturb(vectors.get(random.nextInt(vectors.size())), 0.3f);
+            Set<Long> expected = new HashSet<>(exactSearch(vectors, query, k));
+            List<Long> actual = index.search(query, k, 100);
+            assertThat(actual).hasSize(k);
+            hits += (int) actual.stream().filter(expected::contains).count();
+        }
+
+        assertThat((double) hits / (queries * k)).isGreaterThanOrEqualTo(0.95);
+    }
+
+    @Test
+    void shouldReturnResultsClosestFirst() {
+        index.add(1, new float[] { 1f, 0f, 0f });
+        index.add(2, new float[] { 0f, 1f, 0f });
+        index.add(3, new float[] { 0.7f, 0.7f, 0f });
+
+        assertThat(index.search(new float[] { 2f, 0f, 0f }, 3, 10)).containsExactly(1L, 3L, 2L);
+    }
+
+    @Test
+    void shouldSkipRemovedAndReplacedVectors() {
+        index.add(1, new float[] { 1f, 0f, 0f });
+        index.add(2, new float[] { 0.9f, 0.1f, 0f });
+        index.add(3, new float[] { 0f, 1f, 0f });
+
+        index.remove(1);
+        index.add(2, new float[] { 0f, 0f, 1f });
+
+        assertThat(index.search(new float[] { 1f, 0f, 0f }, 3, 10)).containsExactly(3L, 2L);
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.deletedCount()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldListLiveIdsInOrder() {
+        index.add(7, new float[] { 1f, 0f, 0f });
+        index.add(3, new float[] { 0f, 1f, 0f });
+        index.add(5, new float[] { 0f, 0f, 1f });
+        index.remove(3);
+
+        assertThat(index.ids()).containsExactly(5L, 7L);
+    }
+
+    @Test
+    void shouldRejectVectorsOfAnotherDimension() {
+        index.add(1, new float[] { 1f, 0f });
+
+        assertThatThrownBy(() -> index.add(2, new float[] { 1f, 0f, 0f })).isInstanceOf(IllegalArgumentException.class);
+        assertThat(index.search(new float[] { 1f, 0f, 0f }, 1, 10)).isEmpty();
+    }
+
+    @Test
+    void shouldReturnNothingWhenEmpty() {
+        assertThat(index.search(new float[] { 1f }, 5, 10)).isEmpty();
+    }
+
+    private List<float[]> clusteredVectors(int count, int clusters) {
+        List<float[]> centroids = IntStream.range(0, clusters).mapToObj(i -> gaussian()).toList();
+        List<float[]> vectors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            vectors.add(perturb(centroids.get(i % clusters), 0.5f));
+        }
+        return vectors;
+    }
+
+    private float[] gaussian() {
+        float[] v = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            v[i] = (float) random.nextGaussian();
+        }
+        return v;
+    }
+
+    private float[] perturb(float[] base, float noise) {
+        float[] v = base.clone();
+        for (int i = 0; i < DIMENSION; i++) {
+            v[i] += (float) random.nextGaussian() * noise;
+        }
+        return v;
+    }
+
+    private static List<Long> exactSearch(List<float[]> vectors, float[] query, int k) {
+        return IntStream.range(0, vectors.size())
+            .boxed()
+            .sorted(Comparator.comparingDouble(i -> -cosine(vectors.get(i), query)))
+            .limit(k)
+            .map(Integer::longValue)
+            .toList();
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return dot / Math.sqrt(normA * normB);
+    }
+}
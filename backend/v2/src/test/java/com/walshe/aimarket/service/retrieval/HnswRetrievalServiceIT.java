@@ -0,0 +1,156 @@
+package com.walshe.aimarket.service.retrieval;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import com.walshe.aimarket.IntegrationTest;
+import com.walshe.aimarket.domain.Document;
+import com.walshe.aimarket.domain.DocumentChunk;
+import com.walshe.aimarket.repository.DocumentChunkRepository;
+import com.walshe.aimarket.repository.DocumentRepository;
+import com.walshe.aimarket.service.DocumentChunkService;
+import com.walshe.aimarket.service.DocumentService;
+import com.walshe.aimarket.service.RetrievalService;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Compares the in-process HNSW engine with the pgvector query it replaces.
+ */
+@IntegrationTest
+@DirtiesContext
+@TestPropertySource(properties = { "application.retrieval.engine=hnsw" })
+class HnswRetrievalServiceIT {
+
+    private static final int CLUSTERS = 30;
+    private static final int TOP_K = 10;
+    private static final int CHUNKS = CLUSTERS * TOP_K;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private DocumentChunkRepository chunkRepository;
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Autowired
+    private DocumentChunkService documentChunkService;
+
+    @Autowired
+    private RetrievalService retrievalService;
+
+    private final Random random = new Random(11);
+    private final List<float[]> centroids = new ArrayList<>();
+    private final List<float[]> embeddings = new ArrayList<>();
+    private Document doc;
+
+    @BeforeEach
+    void setUp() {
+        doc = documentRepository.saveAndFlush(new Document().title("HNSW Test Doc").content("irrelevant").createdAt(Instant.now()));
+        // Clusters of TOP_K chunks, so the expected neighbours of a query near a centroid are well separated
+        for (int c = 0; c < CLUSTERS; c++) {
+            centroids.add(randomEmbedding());
+        }
+        for (int i = 0; i < CHUNKS; i++) {
+            float[] embedding = perturb(centroids.get(i % CLUSTERS));
+            embeddings.add(embedding);
+            chunkRepository.saveAndFlush(
+                new DocumentChunk()
+                    .document(doc)
+                    .chunkIndex(i)
+                    .chunkText("chunk-" + i)
+                    .embeddingModel("manual-test")
+                    .createdAt(Instant.now())
+                    .embedding(embedding)
+            );
+        }
+        HnswRetrievalService hnsw = (HnswRetrievalService) retrievalService;
+        await()
+            .atMost(Duration.ofSeconds(30))
+            .until(() -> {
+                hnsw.rebuild();
+                return hnsw.indexedCount() == chunkRepository.count();
+            });
+    }
+
+    @AfterEach
+    void tearDown() {
+        documentService.delete(doc.getId());
+    }
+
+    @Test
+    void retrieveSimilar_matchesPgvectorWithinRecallTolerance() {
+        int hits = 0;
+        int queries = 20;
+        for (int q = 0; q < queries; q++) {
+            float[] query = perturb(centroids.get(random.nextInt(CLUSTERS)));
+            Set<Long> expected = new HashSet<>(chunkRepository.findSimilarByCosine(query, TOP_K).stream().map(DocumentChunk::getId).toList());
+            List<DocumentChunk> actual = retrievalService.retrieveSimilar(query, TOP_K);
+            assertThat(actual).hasSize(TOP_K);
+            hits += (int) actual.stream().map(DocumentChunk::getId).filter(expected::contains).count();
+        }
+        assertThat((double) hits / (queries * TOP_K)).isGreaterThanOrEqualTo(0.9);
+    }
+
+    @Test
+    void retrieveSimilar_followsCommittedDeletes() {
+        float[] query = embeddings.get(0);
+        DocumentChunk closest = retrievalService.retrieveSimilar(query, 1).get(0);
+
+        documentChunkService.delete(closest.getId());
+
+        assertThat(retrievalService.retrieveSimilar(query, TOP_K)).extracting(DocumentChunk::getId).doesNotContain(closest.getId());
+    }
+
+    @Test
+    void retrieveSimilar_followsChangesCommittedElsewhereAfterSync() {
+        float[] query = embeddings.get(0);
+        DocumentChunk closest = retrievalService.retrieveSimilar(query, 1).get(0);
+        // Repository calls publish no change events, like writes made through another instance
+        chunkRepository.deleteById(closest.getId());
+        DocumentChunk added = chunkRepository.saveAndFlush(
+            new DocumentChunk()
+                .document(doc)
+                .chunkIndex(CHUNKS)
+                .chunkText("chunk-" + CHUNKS)
+                .embeddingModel("manual-test")
+                .createdAt(Instant.now())
+                .embedding(query)
+        );
+
+        ((HnswRetrievalService) retrievalService).sync();
+
+        List<DocumentChunk> actual = retrievalService.retrieveSimilar(query, TOP_K);
+        assertThat(actual.get(0).getId()).isEqualTo(added.getId());
+        assertThat(actual).extracting(DocumentChunk::getId).doesNotContain(closest.getId());
+    }
+
+    private float[] randomEmbedding() {
+        float[] v = new float[1536];
+        for (int i = 0; i < v.length; i++) {
+            v[i] = (float) random.nextGaussian();
+        }
+        return v;
+    }
+
+    private float[] perturb(float[] base) {
+        float[] v = base.clone();
+        for (int i = 0; i < v.length; i++) {
+            v[i] += (float) random.nextGaussian() * 0.5f;
+        }
+        return v;
+    }
+}
@@ -0,0 +1,71 @@
+package com.walshe.aimarket.service.retrieval;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.walshe.aimarket.config.RetrievalProperties;
+import com.walshe.aimarket.repository.RetrievedChunk;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MmrChunkRerankerTest {
+
+    private RetrievalProperties properties;
+    private MmrChunkReranker reranker;
+
+    @BeforeEach
+    void setUp() {
+        properties = new RetrievalProperties();
+        reranker = new MmrChunkReranker(properties);
+    }
+
+    @Test
+    void shouldDropNearDuplicatesAndKeepTopK() {
+        List<RetrievedChunk> candidates = List.of(
+            chunk(1L, "Apple reported record iPhone revenue this quarter", 0.10),
+            chunk(2L, "Apple reported record iPhone revenue this quarter.", 0.11),
+            chunk(3L, "Supply chain risks in China weigh on margins", 0.30),
+            chunk(4L, "The board approved a new buyback program", 0.40)
+        );
+
+        List<RetrievedChunk> selected = reranker.rerank("apple revenue", candidates, 2);
+
+        assertThat(selected).extracting(RetrievedChunk::chunkId).containsExactly(1L, 3L);
+    }
+
+    @Test
+    void shouldPreferDiverseChunksOverSimilarOnes() {
+        properties.getRerank().setLambda(0.5);
+        List<RetrievedChunk> candidates = List.of(
+            chunk(1L, "revenue growth driven by services and iphone sales", 0.10),
+            chunk(2L, "revenue growth driven by services and mac sales", 0.12),
+            chunk(3L, "litigation risk from the antitrust investigation", 0.20)
+        );
+
+        assertThat(reranker.rerank(null, candidates, 2)).extracting(RetrievedChunk::chunkId).containsExactly(1L, 3L);
+    }
+
+    @Test
+    void shouldPromoteChunksCoveringQueryTerms() {
+        List<RetrievedChunk> candidates = List.of(chunk(1L, "quarterly results overview", 0.20), chunk(2L, "NVDA guidance raised", 0.22));
+
+        assertThat(reranker.rerank("NVDA guidance", candidates, 1)).extracting(RetrievedChunk::chunkId).containsExactly(2L);
+    }
+
+    @Test
+    void shouldReturnAllCandidatesWhenFewerThanTopK() {
+        List<RetrievedChunk> candidates = List.of(chunk(1L, "alpha beta", 0.1), chunk(2L, "gamma delta", 0.2));
+
+        assertThat(reranker.rerank("alpha", candidates, 5)).hasSize(2);
+        assertThat(reranker.rerank("alpha", List.of(), 5)).isEmpty();
+    }
+
+    @Test
+    void jaccardShouldMeasureTermOverlap() {
+        assertThat(MmrChunkReranker.jaccard(MmrChunkReranker.terms("a bb cc"), MmrChunkReranker.terms("BB, cc dd"))).isEqualTo(2.0 / 3);
+    }
+
+    private static RetrievedChunk chunk(Long id, String text, double distance) {
+        return new RetrievedChunk(id, 1L, "doc", text, distance);
+    }
+}
@@ -0,0 +1,45 @@
+package com.walshe.aimarket.service.retrieval;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.walshe.aimarket.IntegrationTest;
+import com.walshe.aimarket.service.dto.VectorIndexBuildDTO;
+import com.walshe.aimarket.service.dto.VectorIndexDTO;
+import java.time.Duration;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.DirtiesContext;
+
+/**
+ * Runs a rebuild against the database; the test profiles use a pool of a single connection, which the rebuild
+ * must make do with.
+ */
+@IntegrationTest
+@DirtiesContext
+class VectorIndexServiceIT {
+
+    @Autowired
+    private VectorIndexService vectorIndexService;
+
+    @Test
+    void rebuild_swapsInNewServingIndex() {
+        assertThat(vectorIndexService.startRebuild(8, 32)).isPresent();
+
+        Awaitility.await()
+            .atMost(Duration.ofSeconds(60))
+            .until(() -> vectorIndexService.findBuild().map(VectorIndexBuildDTO::status).orElseThrow() != VectorIndexBuildDTO.Status.RUNNING);
+
+        VectorIndexBuildDTO build = vectorIndexService.findBuild().orElseThrow();
+        assertThat(build.errorMessage()).isNull();
+        assertThat(build.status()).isEqualTo(VectorIndexBuildDTO.Status.DONE);
+        assertThat(vectorIndexService.findIndexes())
+            .extracting(VectorIndexDTO::name)
+            .contains(VectorIndexService.INDEX_NAME)
+            .doesNotContain(VectorIndexService.NEXT_INDEX_NAME, VectorIndexService.PREVIOUS_INDEX_NAME);
+        assertThat(vectorIndexService.findIndexes())
+            .filteredOn(index -> index.name().equals(VectorIndexService.INDEX_NAME))
+            .singleElement()
+            .satisfies(index -> assertThat(index.definition()).contains("m='8'", "ef_construction='32'"));
+    }
+}
@@ -0,0 +1,138 @@
+package com.walshe.aimarket.service.retrieval;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.walshe.aimarket.config.RetrievalProperties;
+import com.walshe.aimarket.repository.VectorIndexRepository;
+import com.walshe.aimarket.service.dto.VectorIndexBuildDTO;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+class VectorIndexServiceTest {
+
+    private VectorIndexRepository repository;
+    private VectorIndexService service;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(VectorIndexRepository.class);
+        RetrievalProperties properties = new RetrievalProperties();
+        properties.getPgvector().setQuantization(RetrievalProperties.Quantization.HALFVEC);
+        service = new VectorIndexService(repository, properties);
+        when(repository.runWithRebuildLock(any())).thenAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return true;
+        });
+        when(repository.findHnswIndexes()).thenReturn(List.of(index(VectorIndexService.INDEX_NAME, true)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void shouldBuildReplacementBeforeDroppingServingIndex() {
+        VectorIndexBuildDTO started = service.startRebuild(32, null).orElseThrow();
+
+        assertThat(started.m()).isEqualTo(32);
+        assertThat(started.efConstruction()).isEqualTo(64);
+        assertThat(started.quantization()).isEqualTo(RetrievalProperties.Quantization.HALFVEC);
+        await().atMost(Duration.ofSeconds(5)).until(() -> service.findBuild().orElseThrow().status() == VectorIndexBuildDTO.Status.DONE);
+        InOrder order = inOrder(repository);
+        order.verify(repository).dropIndexConcurrently(VectorIndexService.NEXT_INDEX_NAME);
+        order.verify(repository).createHnswIndexConcurrently(VectorIndexService.NEXT_INDEX_NAME, RetrievalProperties.Quantization.HALFVEC, 32, 64, null);
+        order.verify(repository).swapIndexes(
+            VectorIndexService.INDEX_NAME,
+            VectorIndexService.NEXT_INDEX_NAME,
+            VectorIndexService.PREVIOUS_INDEX_NAME
+        );
+        order.verify(repository).refreshServingQuantization();
+        order.verify(repository).dropIndexConcurrently(VectorIndexService.PREVIOUS_INDEX_NAME);
+        verify(repository, never()).dropIndexConcurrently(VectorIndexService.INDEX_NAME);
+    }
+
+    @Test
+    void shouldRestoreReplacementLeftWithoutServingIndex() {
+        when(repository.findHnswIndexes()).thenReturn(List.of(index(VectorIndexService.NEXT_INDEX_NAME, true)));
+
+        service.startRebuild(null, null);
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> service.findBuild().orElseThrow().status() == VectorIndexBuildDTO.Status.DONE);
+        InOrder order = inOrder(repository);
+        order.verify(repository).renameIndex(VectorIndexService.NEXT_INDEX_NAME, VectorIndexService.INDEX_NAME);
+        order.verify(repository).dropIndexConcurrently(VectorIndexService.NEXT_INDEX_NAME);
+    }
+
+    @Test
+    void shouldNotBuildWhileAnotherInstanceRebuilds() {
+        doReturn(false).when(repository).runWithRebuildLock(any());
+
+        service.startRebuild(null, null);
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> service.findBuild().orElseThrow().status() == VectorIndexBuildDTO.Status.FAILED);
+        verify(repository, never()).createHnswIndexConcurrently(anyString(), any(), anyInt(), anyInt(), any());
+    }
+
+    @Test
+    void shouldKeepServingIndexWhenBuildFails() {
+        doThrow(new IllegalStateException("out of memory"))
+            .when(repository)
+            .createHnswIndexConcurrently(anyString(), any(), anyInt(), anyInt(), isNull());
+
+        service.startRebuild(null, null);
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> service.findBuild().orElseThrow().status() == VectorIndexBuildDTO.Status.FAILED);
+        assertThat(service.findBuild().orElseThrow().errorMessage()).isEqualTo("out of memory");
+        verify(repository, never()).dropIndexConcurrently(VectorIndexService.INDEX_NAME);
+        verify(repository, never()).swapIndexes(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void shouldRunOneRebuildAtATime() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await();
+            return null;
+        })
+            .when(repository)
+            .createHnswIndexConcurrently(anyString(), any(), anyInt(), anyInt(), isNull());
+
+        assertThat(service.startRebuild(null, null)).isPresent();
+        assertThat(service.startRebuild(null, null)).isEmpty();
+
+        release.countDown();
+        await().atMost(Duration.ofSeconds(5)).until(() -> service.findBuild().orElseThrow().status() == VectorIndexBuildDTO.Status.DONE);
+        assertThat(service.startRebuild(null, null)).isPresent();
+    }
+
+    @Test
+    void shouldRejectParametersOutsidePgvectorBounds() {
+        assertThatThrownBy(() -> service.startRebuild(1, null)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.startRebuild(16, 31)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(service.findBuild()).isEmpty();
+    }
+
+    private static VectorIndexRepository.IndexInfo index(String name, boolean valid) {
+        return new VectorIndexRepository.IndexInfo(name, "CREATE INDEX " + name, valid, 0);
+    }
+}
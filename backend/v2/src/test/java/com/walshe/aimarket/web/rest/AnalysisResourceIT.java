@@ -168,13 +168,10 @@ class AnalysisResourceIT {
         documentChunkRepository.saveAndFlush(chunk);
     }
 
-    private String unitAlongX() {
-        StringBuilder sb = new StringBuilder();
-        sb.append('[');
-        sb.append("1.0");
-        for (int i = 0; i < 1535; i++) sb.append(", 0.0");
-        sb.append(']');
-        return sb.toString();
+    private float[] unitAlongX() {
+        float[] v = new float[1536];
+        v[0] = 1.0f;
+        return v;
     }
 
     @Test
@@ -3,26 +3,37 @@ package com.walshe.aimarket.web.rest;
 import static com.walshe.aimarket.domain.DocumentAsserts.*;
 import static com.walshe.aimarket.web.rest.TestUtil.createUpdateProxyForBean;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.startsWith;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.walshe.aimarket.IntegrationTest;
 import com.walshe.aimarket.domain.Document;
+import com.walshe.aimarket.domain.IngestionJob;
 import com.walshe.aimarket.repository.DocumentChunkRepository;
 import com.walshe.aimarket.repository.DocumentRepository;
+import com.walshe.aimarket.repository.IngestionJobRepository;
 import com.walshe.aimarket.service.EmbeddingService;
+import com.walshe.aimarket.service.DocumentService;
+import com.walshe.aimarket.service.IngestionService;
+import com.walshe.aimarket.service.dto.BulkIngestionResultDTO;
 import com.walshe.aimarket.service.dto.DocumentDTO;
 import com.walshe.aimarket.service.mapper.DocumentMapper;
 import jakarta.persistence.EntityManager;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Objects;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicLong;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.when;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -65,6 +76,15 @@ class DocumentResourceIT {
     @Autowired
     private DocumentChunkRepository documentChunkRepository;
 
+    @Autowired
+    private IngestionJobRepository ingestionJobRepository;
+
+    @Autowired
+    private IngestionService ingestionService;
+
+    @Autowired
+    private DocumentService documentService;
+
     @Autowired
     private DocumentMapper documentMapper;
 
@@ -110,6 +130,9 @@ class DocumentResourceIT {
             mockEmbedding[i] = (float) i / 1536.0f;
         }
         when(embeddingService.embed(anyString())).thenReturn(mockEmbedding);
+        when(embeddingService.embedBatch(anyList(), any(), any())).thenAnswer(invocation ->
+            ((List<?>) invocation.getArgument(0)).stream().map(text -> mockEmbedding).toList()
+        );
         when(embeddingService.getModelName()).thenReturn("test-model");
     }
 
@@ -130,7 +153,8 @@ class DocumentResourceIT {
         var returnedDocumentDTO = om.readValue(
             restDocumentMockMvc
                 .perform(post(ENTITY_API_URL).contentType(MediaType.APPLICATION_JSON).content(om.writeValueAsBytes(documentDTO)))
-                .andExpect(status().isCreated())
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", startsWith("/api/ingestion-jobs/")))
                 .andReturn()
                 .getResponse()
                 .getContentAsString(),
@@ -142,9 +166,92 @@ class DocumentResourceIT {
         var returnedDocument = documentMapper.toEntity(returnedDocumentDTO);
         assertDocumentUpdatableFieldsEquals(returnedDocument, getPersistedDocument(returnedDocument));
 
+        // Ingestion is queued rather than run within the request
+        assertThat(ingestionJobRepository.findAll())
+            .anySatisfy(job -> {
+                assertThat(job.getDocumentId()).isEqualTo(returnedDocument.getId());
+                assertThat(job.getStatus()).isEqualTo(IngestionJob.Status.QUEUED);
+            });
+
         insertedDocument = returnedDocument;
     }
 
+    @Test
+    @Transactional
+    void uploadDocumentIngestsStreamedContent() throws Exception {
+        long databaseSizeBeforeCreate = getRepositoryCount();
+        String content = "Revenue grew twelve percent. Margins expanded.\r\n".repeat(200);
+
+        var returnedDocumentDTO = om.readValue(
+            restDocumentMockMvc
+                .perform(post(ENTITY_API_URL + "/upload").param("title", DEFAULT_TITLE).contentType(MediaType.TEXT_PLAIN).content(content))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Location", startsWith(ENTITY_API_URL + "/")))
+                .andReturn()
+                .getResponse()
+                .getContentAsString(),
+            DocumentDTO.class
+        );
+
+        assertIncrementedRepositoryCount(databaseSizeBeforeCreate);
+        Document persisted = documentRepository.findById(returnedDocumentDTO.getId()).orElseThrow();
+        assertThat(persisted.getTitle()).isEqualTo(DEFAULT_TITLE);
+        assertThat(persisted.getContent()).isEmpty();
+        // The content is stored only as chunks, numbered in order
+        assertThat(documentChunkRepository.findFingerprintsByDocument(persisted))
+            .isNotEmpty()
+            .extracting(DocumentChunkRepository.ChunkFingerprint::getChunkIndex)
+            .doesNotHaveDuplicates()
+            .allSatisfy(index -> assertThat(index).isNotNegative());
+    }
+
+    @Test
+    void bulkCreateDocumentsStreamsResultPerLine() throws Exception {
+        long databaseSizeBeforeCreate = getRepositoryCount();
+        String ndjson = String.join(
+            "\n",
+            "{\"title\":\"bulk one\",\"content\":\"Revenue grew. Margins expanded.\"}",
+            "{\"title\":\"bulk two\",\"content\":\"Costs fell.\"}",
+            "{\"content\":\"No title.\"}"
+        );
+
+        String body = restDocumentMockMvc
+            .perform(post(ENTITY_API_URL + "/bulk").contentType(MediaType.APPLICATION_NDJSON).content(ndjson))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+        List<BulkIngestionResultDTO> results = body.lines().map(line -> readResult(line)).toList();
+        try {
+            assertThat(results)
+                .extracting(BulkIngestionResultDTO::index, BulkIngestionResultDTO::status)
+                .containsExactlyInAnyOrder(
+                    tuple(1, BulkIngestionResultDTO.Status.DONE),
+                    tuple(2, BulkIngestionResultDTO.Status.DONE),
+                    tuple(3, BulkIngestionResultDTO.Status.FAILED)
+                );
+            assertIncrementedRepositoryCount(databaseSizeBeforeCreate + 1);
+            for (BulkIngestionResultDTO result : results) {
+                if (result.documentId() != null) {
+                    Document created = documentRepository.findById(result.documentId()).orElseThrow();
+                    assertThat(documentChunkRepository.findFingerprintsByDocument(created)).hasSize(result.chunks());
+                }
+            }
+        } finally {
+            results.stream().map(BulkIngestionResultDTO::documentId).filter(Objects::nonNull).forEach(documentService::delete);
+        }
+    }
+
+    private BulkIngestionResultDTO readResult(String line) {
+        try {
+            return om.readValue(line, BulkIngestionResultDTO.class);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     @Test
     @Transactional
     void createDocumentWithExistingId() throws Exception {
@@ -253,13 +360,15 @@ class DocumentResourceIT {
             .perform(
                 post(ENTITY_API_URL).contentType(MediaType.APPLICATION_JSON).content(om.writeValueAsBytes(documentMapper.toDto(documentToPost)))
             )
-            .andExpect(status().isCreated());
+            .andExpect(status().isAccepted());
+
+        // Get the created document and run its queued ingestion
+        Document createdDocument = documentRepository.findAll().get(documentRepository.findAll().size() - 1);
+        ingestionService.ingestDocument(createdDocument.getId());
 
         long chunksAfterCreation = documentChunkRepository.count();
         assertThat(chunksAfterCreation).isGreaterThan(initialChunkCount);
 
-        // Get the created document
-        Document createdDocument = documentRepository.findAll().get(documentRepository.findAll().size() - 1);
         DocumentDTO documentDTO = documentMapper.toDto(createdDocument);
         documentDTO.setTitle(UPDATED_TITLE);
 
@@ -505,18 +614,19 @@ class DocumentResourceIT {
     @Test
     @Transactional
     void deleteDocument() throws Exception {
-        // Create via POST to trigger ingestion and chunks
+        // Create via POST to queue ingestion, then run it to produce chunks
         DocumentDTO documentDTO = documentMapper.toDto(document);
         var result = restDocumentMockMvc
             .perform(post(ENTITY_API_URL).contentType(MediaType.APPLICATION_JSON).content(om.writeValueAsBytes(documentDTO)))
-            .andExpect(status().isCreated())
+            .andExpect(status().isAccepted())
             .andReturn();
 
-        long chunksAfterCreate = documentChunkRepository.count();
-        assertThat(chunksAfterCreate).isGreaterThan(0);
-
         // Parse created id
         DocumentDTO created = om.readValue(result.getResponse().getContentAsString(), DocumentDTO.class);
+        ingestionService.ingestDocument(created.getId());
+
+        long chunksAfterCreate = documentChunkRepository.count();
+        assertThat(chunksAfterCreate).isGreaterThan(0);
 
         long databaseSizeBeforeDelete = getRepositoryCount();
 
@@ -0,0 +1,73 @@
+package com.walshe.aimarket.web.rest;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.walshe.aimarket.IntegrationTest;
+import com.walshe.aimarket.domain.Document;
+import com.walshe.aimarket.repository.DocumentRepository;
+import com.walshe.aimarket.service.IngestionJobService;
+import com.walshe.aimarket.service.dto.IngestionJobDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Integration tests for the {@link IngestionJobResource} REST controller.
+ */
+@IntegrationTest
+@AutoConfigureMockMvc
+@WithMockUser
+class IngestionJobResourceIT {
+
+    private static final String ENTITY_API_URL_ID = "/api/ingestion-jobs/{id}";
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private IngestionJobService ingestionJobService;
+
+    @Autowired
+    private MockMvc restIngestionJobMockMvc;
+
+    @Test
+    @Transactional
+    void getIngestionJobTracksProgress() throws Exception {
+        Document document = documentRepository.saveAndFlush(DocumentResourceIT.createEntity());
+        IngestionJobDTO job = ingestionJobService.enqueue(document.getId());
+
+        restIngestionJobMockMvc
+            .perform(get(ENTITY_API_URL_ID, job.id()).accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.documentId").value(document.getId().intValue()))
+            .andExpect(jsonPath("$.status").value("QUEUED"))
+            .andExpect(jsonPath("$.chunksEmbedded").value(0));
+
+        IngestionJobService.Claim claim = ingestionJobService
+            .claimQueued(Integer.MAX_VALUE)
+            .stream()
+            .filter(claimed -> claimed.id().equals(job.id()))
+            .findFirst()
+            .orElseThrow();
+        ingestionJobService.markDone(claim, 3);
+
+        restIngestionJobMockMvc
+            .perform(get(ENTITY_API_URL_ID, job.id()).accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.status").value("DONE"))
+            .andExpect(jsonPath("$.chunksEmbedded").value(3))
+            .andExpect(jsonPath("$.chunksTotal").value(3));
+    }
+
+    @Test
+    @Transactional
+    void getNonExistingIngestionJob() throws Exception {
+        restIngestionJobMockMvc.perform(get(ENTITY_API_URL_ID, Long.MAX_VALUE)).andExpect(status().isNotFound());
+    }
+}
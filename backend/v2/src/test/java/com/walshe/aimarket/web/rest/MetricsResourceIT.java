@@ -20,6 +20,9 @@ import com.walshe.aimarket.service.CostTrackingService;
 import com.walshe.aimarket.service.dto.AnalysisRequestDTO;
 import com.walshe.aimarket.web.rest.vm.LoginVM;
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -29,6 +32,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
 import org.springframework.context.annotation.Primary;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
@@ -114,12 +118,16 @@ class MetricsResourceIT {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     private String jwtToken;
 
     @BeforeEach
     @Transactional
     void setup() throws Exception {
         costLogRepository.deleteAll();
+        jdbcTemplate.update("DELETE FROM cost_rollup");
 
         // Create user
         User user = new User();
@@ -152,7 +160,6 @@ class MetricsResourceIT {
         log1.setInputTokens(1000);
         log1.setTotalTokens(1000);
         log1.setEstimatedUsdCost(new BigDecimal("0.00002"));
-        costLogRepository.saveAndFlush(log1);
 
         CostLog log2 = new CostLog();
         log2.setCallType(CostLog.CallType.COMPLETION);
@@ -161,7 +168,9 @@ class MetricsResourceIT {
         log2.setOutputTokens(500);
         log2.setTotalTokens(1500);
         log2.setEstimatedUsdCost(new BigDecimal("0.00045"));
-        costLogRepository.saveAndFlush(log2);
+        log2.setProvider("openai");
+        // Stored the way the cost log consumer stores them, which maintains the rollup
+        costLogRepository.insertIgnoringDuplicates(List.of(log1, log2));
 
         // When
         mockMvc
@@ -172,7 +181,49 @@ class MetricsResourceIT {
             .andExpect(jsonPath("$.byModel['text-embedding-3-small']").value(0.00002))
             .andExpect(jsonPath("$.byModel['gpt-4o-mini']").value(0.00045))
             .andExpect(jsonPath("$.byCallType['EMBEDDING']").value(0.00002))
-            .andExpect(jsonPath("$.byCallType['COMPLETION']").value(0.00045));
+            .andExpect(jsonPath("$.byCallType['COMPLETION']").value(0.00045))
+            .andExpect(jsonPath("$.byProvider['openai']").value(0.00045))
+            .andExpect(jsonPath("$.calls").value(2))
+            .andExpect(jsonPath("$.totalTokens").value(2500));
+
+        Instant nextDay = Instant.now().truncatedTo(ChronoUnit.DAYS).plus(1, ChronoUnit.DAYS);
+        mockMvc
+            .perform(
+                get("/api/v1/metrics/cost")
+                    .param("from", nextDay.toString())
+                    .param("to", nextDay.plus(1, ChronoUnit.DAYS).toString())
+                    .header("Authorization", "Bearer " + jwtToken)
+            )
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.totalUsd").value(0))
+            .andExpect(jsonPath("$.calls").value(0));
+
+        mockMvc
+            .perform(get("/api/v1/metrics/cost/series").param("granularity", "MINUTE").header("Authorization", "Bearer " + jwtToken))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(1))
+            .andExpect(jsonPath("$[0].calls").value(2))
+            .andExpect(jsonPath("$[0].estimatedUsdCost").value(0.00047));
+    }
+
+    @Test
+    void getCostMetrics_withInvalidRange_shouldReturnBadRequest() throws Exception {
+        mockMvc
+            .perform(
+                get("/api/v1/metrics/cost")
+                    .param("from", "2026-01-02T00:00:00Z")
+                    .param("to", "2026-01-01T00:00:00Z")
+                    .header("Authorization", "Bearer " + jwtToken)
+            )
+            .andExpect(status().isBadRequest());
+        mockMvc
+            .perform(
+                get("/api/v1/metrics/cost/series")
+                    .param("granularity", "MINUTE")
+                    .param("from", "2020-01-01T00:00:00Z")
+                    .header("Authorization", "Bearer " + jwtToken)
+            )
+            .andExpect(status().isBadRequest());
     }
 
     @Test